@@ -0,0 +1,31 @@
+package com.subservice.imagehandle.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Corpus OCR text của bill chuyển khoản dùng cho benchmark (src/jmh/resources/bill-corpus)
+ *
+ * - short: bill tối giản vài dòng
+ * - long: màn hình chi tiết giao dịch đầy đủ
+ * - noisy: OCR nhiễu (O/0, l/1, ký tự rác, khoảng trắng lệch)
+ */
+final class BillCorpus {
+
+    private BillCorpus() {
+    }
+
+    static String load(String name) {
+        String resource = "/bill-corpus/" + name + ".txt";
+        try (InputStream in = BillCorpus.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Unknown corpus: " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read corpus " + resource, e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.subservice.imagehandle.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.subservice.imagehandle.dto.BillTransactionDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.ClassPathResource;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput của BillParser.parse trên từng loại OCR text
+ *
+ * Allocation rate: chạy với -prof gc (mặc định trong jmh.args của profile benchmark)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BillParserBenchmark {
+
+    @Param({"short", "long", "noisy"})
+    private String corpus;
+
+    private BillParser billParser;
+    private String text;
+
+    @Setup
+    public void setUp() {
+        KeywordDictionary keywords = new KeywordDictionary(
+            new ObjectMapper(), new ClassPathResource("parser/keywords.json"));
+        billParser = new BillParser(new SimpleMeterRegistry(), keywords);
+        text = BillCorpus.load(corpus);
+    }
+
+    @Benchmark
+    public BillTransactionDTO parse() {
+        return billParser.parse(text, corpus + ".png", 0.9);
+    }
+}
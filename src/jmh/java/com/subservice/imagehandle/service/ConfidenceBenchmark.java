@@ -0,0 +1,42 @@
+package com.subservice.imagehandle.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput của TesseractOcrService.estimateConfidence trên từng loại OCR text
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConfidenceBenchmark {
+
+    @Param({"short", "long", "noisy"})
+    private String corpus;
+
+    private String text;
+
+    @Setup
+    public void setUp() {
+        text = BillCorpus.load(corpus);
+    }
+
+    @Benchmark
+    public double estimateConfidence() {
+        return TesseractOcrService.estimateConfidence(text);
+    }
+}
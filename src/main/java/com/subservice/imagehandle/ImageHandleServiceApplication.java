@@ -3,16 +3,19 @@ package com.subservice.imagehandle;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Bill Scanner Service - Main Application
  * 
  * Simple OCR API: Upload image → Parse bill → Return JSON
  * 
- * Note: Không dùng OpenCV/Image Preprocessing - OCR trực tiếp từ ảnh gốc
+ * Note: Không dùng OpenCV - tiền xử lý ảnh (downscale, grayscale, crop, binarize) bằng Java2D
+ * trước khi OCR, xem ImagePreprocessingPipeline
  */
 @Slf4j
 @SpringBootApplication
+@EnableScheduling
 public class ImageHandleServiceApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,80 @@
+package com.subservice.imagehandle.actuator;
+
+import com.subservice.imagehandle.dedup.NearDuplicateIndex;
+import com.subservice.imagehandle.service.OcrConcurrencyLimiter;
+import com.subservice.imagehandle.service.ScanAdmissionControl;
+import com.subservice.imagehandle.service.ScanCoalescer;
+import com.subservice.imagehandle.service.ScanJobService;
+import com.subservice.imagehandle.service.ScanResultCache;
+import com.subservice.imagehandle.service.ScanResultStore;
+import com.subservice.imagehandle.service.TesseractEnginePool;
+import com.subservice.imagehandle.service.TieredOcrService;
+import com.subservice.imagehandle.worker.OcrWorkerPool;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint: GET /actuator/ocr
+ *
+ * Trạng thái runtime của OCR pipeline (engine pool, result cache, async job queue, ...)
+ */
+@Component
+@Endpoint(id = "ocr")
+@RequiredArgsConstructor
+public class OcrEndpoint {
+
+    private final TesseractEnginePool enginePool;
+    private final ScanResultCache scanResultCache;
+    private final ScanResultStore scanResultStore;
+    private final ScanJobService scanJobService;
+    private final OcrConcurrencyLimiter ocrConcurrencyLimiter;
+    private final TieredOcrService tieredOcrService;
+    private final ScanAdmissionControl admissionControl;
+    private final NearDuplicateIndex nearDuplicateIndex;
+    private final ScanCoalescer scanCoalescer;
+    private final OcrWorkerPool workerPool;
+
+    @ReadOperation
+    public Map<String, Object> ocr() {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("pool", poolState(enginePool));
+        if (tieredOcrService.isEnabled()) {
+            state.put("fastPool", poolState(tieredOcrService.getFastPool()));
+        }
+        if (workerPool.isEnabled()) {
+            state.put("workers", workerPool.getStats());
+        }
+        state.put("limiter", ocrConcurrencyLimiter.getStats());
+        state.put("admission", admissionControl.getStats());
+        state.put("coalescing", scanCoalescer.getStats());
+        state.put("cache", scanResultCache.getStats());
+        state.put("store", scanResultStore.getStats());
+        state.put("dedup", nearDuplicateIndex.getStats());
+        state.put("asyncJobs", scanJobService.getStats());
+        return state;
+    }
+
+    private Map<String, Object> poolState(TesseractEnginePool pool) {
+        TesseractEnginePool.PoolStats stats = pool.getStats();
+
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put("language", pool.getLanguage());
+        state.put("psm", pool.getPageSegMode());
+        state.put("size", stats.size());
+        state.put("created", stats.created());
+        state.put("idle", stats.idle());
+        state.put("inUse", stats.inUse());
+        state.put("waiting", stats.waiting());
+        state.put("utilization", stats.utilization());
+        state.put("borrowCount", stats.borrowCount());
+        state.put("timeoutCount", stats.timeoutCount());
+        state.put("invalidatedCount", stats.invalidatedCount());
+        state.put("avgWaitMs", stats.avgWaitMs());
+        return state;
+    }
+}
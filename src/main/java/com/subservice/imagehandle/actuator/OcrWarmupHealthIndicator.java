@@ -0,0 +1,41 @@
+package com.subservice.imagehandle.actuator;
+
+import com.subservice.imagehandle.service.OcrWarmupService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Health indicator "ocrWarmup", nằm trong nhóm readiness (/actuator/health/readiness)
+ *
+ * - Đang warm-up → OUT_OF_SERVICE
+ * - Warm-up xong (hoặc tắt warm-up) → UP
+ * - Warm-up lỗi → DOWN nếu ocr.warmup.required, ngược lại UP kèm lỗi
+ */
+@Component
+@RequiredArgsConstructor
+public class OcrWarmupHealthIndicator implements HealthIndicator {
+
+    private final OcrWarmupService ocrWarmupService;
+
+    @Override
+    public Health health() {
+        OcrWarmupService.WarmupState state = ocrWarmupService.getState();
+
+        Health.Builder builder = switch (state.status()) {
+            case PENDING, WARMING -> Health.outOfService();
+            case FAILED -> state.required() ? Health.down() : Health.up();
+            case READY, DISABLED -> Health.up();
+        };
+        builder.withDetail("status", state.status());
+        if (state.status() == OcrWarmupService.Status.READY || state.status() == OcrWarmupService.Status.FAILED) {
+            builder.withDetail("enginesWarmed", state.enginesWarmed())
+                .withDetail("durationMs", state.durationMs());
+        }
+        if (state.error() != null) {
+            builder.withDetail("error", state.error());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,178 @@
+package com.subservice.imagehandle.config;
+
+import com.subservice.imagehandle.service.OcrConcurrencyLimiter;
+import com.subservice.imagehandle.service.TesseractEnginePool;
+import com.subservice.imagehandle.worker.OcrWorkerPool;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cấu hình Tesseract engine pool và thread pool chạy OCR
+ *
+ * ocr.tesseract.pool.size = 0 → dùng số CPU core
+ * ocr.worker.enabled = true → OCR chạy trong worker process (OcrWorkerPool), engine trong JVM không được prestart
+ * spring.threads.virtual.enabled = true → OCR executor dùng virtual thread (mỗi task một thread)
+ */
+@Slf4j
+@Configuration
+public class OcrEngineConfig {
+
+    @Primary
+    @Bean(destroyMethod = "close")
+    public TesseractEnginePool tesseractEnginePool(
+        @Value("${ocr.tesseract.datapath:./tessdata}") String tessdataPath,
+        @Value("${ocr.tesseract.language:vie+eng}") String language,
+        @Value("${ocr.tesseract.psm:6}") int psm,
+        @Value("${ocr.tesseract.pool.size:0}") int poolSize,
+        @Value("${ocr.tesseract.pool.acquire-timeout-ms:30000}") long acquireTimeoutMs,
+        @Value("${ocr.tesseract.pool.prestart:true}") boolean prestart,
+        @Value("${ocr.worker.enabled:false}") boolean workers
+    ) {
+        TesseractEnginePool pool = new TesseractEnginePool(
+            tessdataPath, language, psm, poolSize, acquireTimeoutMs);
+
+        log.info("Tesseract engine pool: datapath={}, language={}, psm={}, size={}, acquireTimeout={}ms",
+            tessdataPath, language, psm, pool.getSize(), acquireTimeoutMs);
+
+        if (prestart && !workers) {
+            int started = pool.prestart();
+            log.info("Pre-started {}/{} Tesseract engines", started, pool.getSize());
+        }
+        return pool;
+    }
+
+    /**
+     * Pool engine cho fast pass của tiered OCR (ocr.tiered): một ngôn ngữ, PSM riêng
+     * (mặc định 6 như full pass: không có PSM cho cả trang rẻ hơn mà vẫn đọc đủ các dòng)
+     *
+     * Engine chỉ được tạo khi dùng tới, prestart khi bật ocr.tiered.enabled
+     */
+    @Bean(destroyMethod = "close")
+    public TesseractEnginePool fastTesseractEnginePool(
+        @Value("${ocr.tesseract.datapath:./tessdata}") String tessdataPath,
+        @Value("${ocr.tiered.fast.language:vie}") String language,
+        @Value("${ocr.tiered.fast.psm:6}") int psm,
+        @Value("${ocr.tesseract.pool.size:0}") int poolSize,
+        @Value("${ocr.tesseract.pool.acquire-timeout-ms:30000}") long acquireTimeoutMs,
+        @Value("${ocr.tesseract.pool.prestart:true}") boolean prestart,
+        @Value("${ocr.tiered.enabled:false}") boolean tiered,
+        @Value("${ocr.worker.enabled:false}") boolean workers
+    ) {
+        TesseractEnginePool pool = new TesseractEnginePool(
+            tessdataPath, language, psm, poolSize, acquireTimeoutMs);
+
+        if (tiered) {
+            log.info("Fast-pass Tesseract engine pool: language={}, psm={}, size={}",
+                language, psm, pool.getSize());
+            if (prestart && !workers) {
+                int started = pool.prestart();
+                log.info("Pre-started {}/{} fast-pass Tesseract engines", started, pool.getSize());
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Pool OCR worker process (ocr.worker): Tesseract chạy ngoài JVM, native crash không làm chết service
+     *
+     * ocr.worker.processes = 0 → bằng size của engine pool
+     */
+    @Bean(destroyMethod = "close")
+    public OcrWorkerPool ocrWorkerPool(
+        TesseractEnginePool tesseractEnginePool,
+        @Value("${ocr.tesseract.datapath:./tessdata}") String tessdataPath,
+        @Value("${ocr.tesseract.pool.acquire-timeout-ms:30000}") long acquireTimeoutMs,
+        @Value("${ocr.tesseract.pool.prestart:true}") boolean prestart,
+        @Value("${ocr.worker.enabled:false}") boolean enabled,
+        @Value("${ocr.worker.processes:0}") int processes,
+        @Value("${ocr.worker.start-timeout-ms:30000}") long startTimeoutMs,
+        @Value("${ocr.worker.job-timeout-ms:60000}") long jobTimeoutMs,
+        @Value("${ocr.worker.max-jobs:500}") int maxJobs,
+        @Value("${ocr.worker.jvm-options:}") String jvmOptions
+    ) {
+        int size = processes > 0 ? processes : tesseractEnginePool.getSize();
+        OcrWorkerPool pool = new OcrWorkerPool(enabled, OcrWorkerPool.defaultCommand(jvmOptions), tessdataPath,
+            size, acquireTimeoutMs, startTimeoutMs, jobTimeoutMs, maxJobs);
+
+        if (enabled) {
+            log.info("OCR worker pool: processes={}, jobTimeout={}ms, maxJobs={}, jvmOptions={}",
+                size, jobTimeoutMs, maxJobs, jvmOptions);
+            if (prestart) {
+                int started = pool.prestart();
+                log.info("Pre-started {}/{} OCR workers", started, size);
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Giới hạn số task decode/preprocess/OCR chạy đồng thời
+     *
+     * ocr.concurrency.max = 0 → bằng pool size (số worker process khi bật ocr.worker); khi bật virtual thread
+     * và OCR chạy trong JVM thì tối đa (số core - 1) để luôn còn carrier thread rảnh cho request I/O
+     * (chờ worker process là I/O socket, không giữ carrier)
+     */
+    @Bean
+    public OcrConcurrencyLimiter ocrConcurrencyLimiter(
+        TesseractEnginePool tesseractEnginePool,
+        OcrWorkerPool ocrWorkerPool,
+        @Value("${ocr.concurrency.max:0}") int maxConcurrent,
+        @Value("${ocr.concurrency.acquire-timeout-ms:30000}") long acquireTimeoutMs,
+        @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+        int limit = maxConcurrent;
+        if (limit <= 0) {
+            limit = ocrSlots(tesseractEnginePool, ocrWorkerPool);
+            if (virtualThreads && !ocrWorkerPool.isEnabled()) {
+                limit = Math.min(limit, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+            }
+        }
+
+        log.info("OCR concurrency limit: {} (virtualThreads={}, workers={})",
+            limit, virtualThreads, ocrWorkerPool.isEnabled());
+        return new OcrConcurrencyLimiter(limit, acquireTimeoutMs);
+    }
+
+    /**
+     * Số OCR chạy được cùng lúc: số worker process nếu bật ocr.worker, ngược lại số engine trong pool
+     */
+    private static int ocrSlots(TesseractEnginePool tesseractEnginePool, OcrWorkerPool ocrWorkerPool) {
+        return ocrWorkerPool.isEnabled() ? ocrWorkerPool.getSize() : tesseractEnginePool.getSize();
+    }
+
+    /**
+     * Thread pool chạy các OCR task song song (batch scan), mặc định bằng số engine trong pool
+     * (số worker process khi bật ocr.worker)
+     *
+     * Virtual thread: mỗi task một thread, số task chạy OCR thật sự do OcrConcurrencyLimiter giới hạn
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService ocrTaskExecutor(
+        TesseractEnginePool tesseractEnginePool,
+        OcrWorkerPool ocrWorkerPool,
+        @Value("${ocr.executor.threads:0}") int threads,
+        @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+        if (virtualThreads) {
+            log.info("OCR task executor: virtual threads");
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ocr-worker-", 1).factory());
+        }
+
+        int size = threads > 0 ? threads : ocrSlots(tesseractEnginePool, ocrWorkerPool);
+        AtomicInteger counter = new AtomicInteger();
+
+        log.info("OCR task executor: threads={}", size);
+        return Executors.newFixedThreadPool(size, runnable -> {
+            Thread thread = new Thread(runnable, "ocr-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
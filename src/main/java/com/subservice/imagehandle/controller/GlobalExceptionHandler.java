@@ -1,6 +1,13 @@
 package com.subservice.imagehandle.controller;
 
+import com.subservice.imagehandle.service.ScanAdmissionControl;
+import com.subservice.imagehandle.service.ScanJobService;
+import com.subservice.imagehandle.service.TesseractEnginePool;
+import com.subservice.imagehandle.service.TesseractOcrService;
+import com.subservice.imagehandle.upload.StreamingUploadReader;
+import com.subservice.imagehandle.worker.OcrWorkerPool;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -33,6 +40,19 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(error);
     }
 
+    @ExceptionHandler(StreamingUploadReader.RejectedUploadException.class)
+    public ResponseEntity<Map<String, Object>> handleRejectedUpload(StreamingUploadReader.RejectedUploadException ex) {
+        log.warn("Upload rejected: {}", ex.getMessage());
+        
+        Map<String, Object> error = new HashMap<>();
+        error.put("timestamp", LocalDateTime.now());
+        error.put("status", ex.getStatus().value());
+        error.put("error", ex.getStatus().getReasonPhrase());
+        error.put("message", ex.getMessage());
+        
+        return ResponseEntity.status(ex.getStatus()).body(error);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, Object>> handleValidationExceptions(MethodArgumentNotValidException ex) {
         Map<String, String> errors = new HashMap<>();
@@ -64,6 +84,91 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest().body(error);
     }
 
+    @ExceptionHandler(TransactionController.NoTextRecognizedException.class)
+    public ResponseEntity<Map<String, Object>> handleNoTextRecognized(TransactionController.NoTextRecognizedException ex) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("timestamp", LocalDateTime.now());
+        error.put("status", HttpStatus.UNPROCESSABLE_ENTITY.value());
+        error.put("error", "Unprocessable Entity");
+        error.put("message", ex.getMessage());
+        
+        return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).body(error);
+    }
+
+    @ExceptionHandler(TesseractEnginePool.EngineUnavailableException.class)
+    public ResponseEntity<Map<String, Object>> handleEngineUnavailable(TesseractEnginePool.EngineUnavailableException ex) {
+        log.warn("OCR engine unavailable: {}", ex.getMessage());
+        
+        Map<String, Object> error = new HashMap<>();
+        error.put("timestamp", LocalDateTime.now());
+        error.put("status", HttpStatus.SERVICE_UNAVAILABLE.value());
+        error.put("error", "Service Unavailable");
+        error.put("message", ex.getMessage());
+        
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(error);
+    }
+
+    @ExceptionHandler(TesseractOcrService.OcrEngineException.class)
+    public ResponseEntity<Map<String, Object>> handleOcrEngineFailure(TesseractOcrService.OcrEngineException ex) {
+        log.error("{}: {}", ex.getMessage(), ex.getCause().getMessage(), ex.getCause());
+        
+        Map<String, Object> error = new HashMap<>();
+        error.put("timestamp", LocalDateTime.now());
+        error.put("status", HttpStatus.INTERNAL_SERVER_ERROR.value());
+        error.put("error", "Internal Server Error");
+        error.put("message", "OCR engine failed");
+        
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(error);
+    }
+
+    @ExceptionHandler(OcrWorkerPool.WorkerException.class)
+    public ResponseEntity<Map<String, Object>> handleWorkerFailure(OcrWorkerPool.WorkerException ex) {
+        log.error("OCR worker failure ({}): {}", ex.getFailure(), ex.getMessage());
+        
+        // Quá thời gian → 503, worker chết → 500
+        HttpStatus status = ex.getFailure() == OcrWorkerPool.Failure.TIMED_OUT
+            ? HttpStatus.SERVICE_UNAVAILABLE
+            : HttpStatus.INTERNAL_SERVER_ERROR;
+        
+        Map<String, Object> error = new HashMap<>();
+        error.put("timestamp", LocalDateTime.now());
+        error.put("status", status.value());
+        error.put("error", status.getReasonPhrase());
+        error.put("message", ex.getFailure().getClientMessage());
+        
+        return ResponseEntity.status(status).body(error);
+    }
+
+    @ExceptionHandler(ScanJobService.QueueFullException.class)
+    public ResponseEntity<Map<String, Object>> handleQueueFull(ScanJobService.QueueFullException ex) {
+        log.warn("Scan queue full: {}", ex.getMessage());
+        
+        Map<String, Object> error = new HashMap<>();
+        error.put("timestamp", LocalDateTime.now());
+        error.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+        error.put("error", "Too Many Requests");
+        error.put("message", ex.getMessage());
+        
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, "5")
+            .body(error);
+    }
+
+    @ExceptionHandler(ScanAdmissionControl.OverloadedException.class)
+    public ResponseEntity<Map<String, Object>> handleOverloaded(ScanAdmissionControl.OverloadedException ex) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("timestamp", LocalDateTime.now());
+        error.put("status", HttpStatus.TOO_MANY_REQUESTS.value());
+        error.put("error", "Too Many Requests");
+        error.put("message", ex.getMessage());
+        
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+            .body(error);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleGenericException(Exception ex) {
         log.error("Unexpected error: {}", ex.getMessage(), ex);
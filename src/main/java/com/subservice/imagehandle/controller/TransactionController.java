@@ -1,9 +1,21 @@
 package com.subservice.imagehandle.controller;
 
+import com.subservice.imagehandle.dto.BatchScanResponseDTO;
 import com.subservice.imagehandle.dto.BillTransactionDTO;
+import com.subservice.imagehandle.dto.ReparseRequestDTO;
+import com.subservice.imagehandle.dto.ScanJobDTO;
 import com.subservice.imagehandle.service.BillScanService;
+import com.subservice.imagehandle.service.ScanAdmissionControl;
+import com.subservice.imagehandle.service.ScanJobService;
+import com.subservice.imagehandle.service.ScanTimings;
+import com.subservice.imagehandle.upload.StreamingUploadReader;
+import com.subservice.imagehandle.upload.UploadedImage;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -11,6 +23,9 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.Serial;
+import java.net.URI;
+import java.util.List;
 
 /**
  * REST Controller cho Bill Scanning
@@ -24,6 +39,18 @@ import java.io.IOException;
 public class TransactionController {
 
     private final BillScanService billScanService;
+    private final ScanJobService scanJobService;
+    private final StreamingUploadReader uploadReader;
+    private final ScanAdmissionControl admissionControl;
+
+    @Value("${ocr.batch.max-files:50}")
+    private int maxBatchFiles;
+
+    @Value("${ocr.timings.server-timing:true}")
+    private boolean serverTimingEnabled;
+
+    @Value("${ocr.timings.response-body:false}")
+    private boolean timingsInBody;
     
     /**
      * API chính: Scan bill và parse thông tin structured
@@ -38,36 +65,46 @@ public class TransactionController {
      * - Nội dung chuyển khoản (transferContent)
      * - Trạng thái (status)
      * 
-     * @param file ảnh bill chuyển khoản (JPG/PNG)
-     * @return BillTransactionDTO chứa thông tin structured
+     * Upload được đọc dạng stream (StreamingUploadReader): file không phải PNG/JPEG
+     * hoặc quá lớn bị từ chối từ vài KB đầu, trước khi đọc hết body
+     * 
+     * OCR quá tải (hàng chờ / thời gian chờ dự đoán vượt ngưỡng) → 429 + Retry-After,
+     * kiểm tra trước khi đọc upload
+     * 
+     * Thời gian từng stage (đọc upload, decode, OCR, parse...), kích thước ảnh và độ dài OCR text
+     * trả về qua header Server-Timing (ocr.timings.server-timing), kể cả khi scan lỗi,
+     * và block timings trong JSON nếu bật ocr.timings.response-body
+     * 
+     * @param request multipart request, part "file" là ảnh bill chuyển khoản (JPG/PNG)
+     * @return BillTransactionDTO chứa thông tin structured, 422 nếu OCR không ra text
      */
     @PostMapping(value = "/scan-bill", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
-    public ResponseEntity<BillTransactionDTO> scanBill(
-        @RequestParam("file") MultipartFile file
-    ) {
+    public ResponseEntity<BillTransactionDTO> scanBill(HttpServletRequest request, HttpServletResponse response) {
+        ScanTimings timings = ScanTimings.start();
+        boolean admitted = false;
         try {
-            log.info("Received scan-bill request: filename={}, size={} bytes", 
-                file.getOriginalFilename(), file.getSize());
-            
-            // Validate file
-            if (file.isEmpty()) {
-                throw new BadRequestException("File is empty");
-            }
-            
-            String contentType = file.getContentType();
-            if (contentType == null || 
-                (!contentType.equals("image/jpeg") && 
-                 !contentType.equals("image/png") &&
-                 !contentType.equals("image/jpg"))) {
-                throw new BadRequestException("Only JPG/PNG images are supported");
-            }
+            admissionControl.admit();
+            admitted = true;
+            UploadedImage file = uploadReader.read(request, "file");
+            log.info("Received scan-bill request: filename={}, size={} bytes, format={}, dimensions={}x{}", 
+                file.filename(), file.content().length, file.info().format(),
+                file.info().width(), file.info().height());
             
             // Scan bill
-            BillTransactionDTO result = billScanService.scanBillStructured(file);
+            BillTransactionDTO result = billScanService.scanBillStructured(file.content(), file.filename());
+            if (result == null) {
+                log.warn("No text recognized in image: {}", file.filename());
+                throw new NoTextRecognizedException("No text recognized in image");
+            }
             
             log.info("Scan completed: amount={}, recipient={}, account={}", 
                 result.getAmount(), result.getRecipientName(), result.getAccountNumber());
             
+            if (timingsInBody) {
+                // Kết quả từ cache / coalescer đã là bản copy → gắn timings không ảnh hưởng request khác
+                timings.close();
+                result.setTimings(timings.toDto());
+            }
             return ResponseEntity.ok(result);
             
         } catch (IllegalArgumentException e) {
@@ -77,19 +114,140 @@ public class TransactionController {
         } catch (IOException e) {
             log.error("Error processing file: {}", e.getMessage(), e);
             throw new InternalServerException("Failed to process file: " + e.getMessage());
+            
+        } finally {
+            if (admitted) {
+                admissionControl.finish();
+            }
+            timings.close();
+            if (serverTimingEnabled) {
+                response.setHeader("Server-Timing", timings.toServerTiming());
+            }
+        }
+    }
+    
+    /**
+     * Parse lại OCR text bằng BillParser hiện tại, không OCR lại ảnh
+     * POST /api/transactions/reparse
+     * 
+     * Dùng khi rule của BillParser thay đổi: gửi OCR text thô, hoặc ocrTextId từ kết quả scan trước.
+     * ocrText được ưu tiên nếu gửi cả hai; ocrTextId chỉ được trả lại khi text lấy từ store.
+     * 
+     * Note: ocr.store.enabled mặc định false → kết quả scan không có ocrTextId, client phải gửi ocrText
+     * 
+     * @param request ocrText hoặc ocrTextId, confidence tùy chọn
+     * @return BillTransactionDTO, 404 nếu ocrTextId không có trong store
+     */
+    @PostMapping(value = "/reparse", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<BillTransactionDTO> reparse(@Valid @RequestBody ReparseRequestDTO request) {
+        BillTransactionDTO result = billScanService.reparse(request);
+        if (result == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(result);
+    }
+    
+    /**
+     * Scan nhiều bill trong một request
+     * POST /api/transactions/scan-bills
+     * 
+     * Các file được OCR song song trên worker pool; mỗi file có kết quả hoặc lỗi riêng,
+     * file lỗi không làm hỏng cả batch.
+     * 
+     * @param files danh sách ảnh bill (JPG/PNG), tối đa ocr.batch.max-files file
+     * @return BatchScanResponseDTO chứa kết quả từng file theo thứ tự upload
+     */
+    @PostMapping(value = "/scan-bills", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<BatchScanResponseDTO> scanBills(
+        @RequestParam("files") List<MultipartFile> files
+    ) {
+        log.info("Received scan-bills request: {} files", files.size());
+        
+        if (files.isEmpty()) {
+            throw new BadRequestException("No files uploaded");
+        }
+        if (files.size() > maxBatchFiles) {
+            throw new BadRequestException("Too many files: maximum " + maxBatchFiles + " per request");
         }
+        
+        BatchScanResponseDTO result = billScanService.scanBillsBatch(files);
+        return ResponseEntity.ok(result);
+    }
+    
+    /**
+     * Async scan: nhận ảnh, trả jobId ngay, OCR chạy nền
+     * POST /api/transactions/scan-jobs
+     * 
+     * Queue đầy → 429 (client retry sau Retry-After).
+     * Kết quả lấy qua GET /api/transactions/scan-jobs/{jobId} hoặc callback (ocr.async.callback-url).
+     * 
+     * @param request multipart request, part "file" là ảnh bill chuyển khoản (JPG/PNG)
+     * @return 202 + ScanJobDTO (status = QUEUED)
+     */
+    @PostMapping(value = "/scan-jobs", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ScanJobDTO> submitScanJob(HttpServletRequest request) {
+        try {
+            UploadedImage file = uploadReader.read(request, "file");
+            log.info("Received scan-job request: filename={}, size={} bytes", 
+                file.filename(), file.content().length);
+            
+            ScanJobDTO job = scanJobService.submit(file.content(), file.filename());
+            
+            return ResponseEntity.accepted()
+                .location(URI.create("/api/transactions/scan-jobs/" + job.getJobId()))
+                .body(job);
+            
+        } catch (IllegalArgumentException e) {
+            log.error("Invalid file: {}", e.getMessage());
+            throw new BadRequestException(e.getMessage());
+            
+        } catch (IOException e) {
+            log.error("Error reading file: {}", e.getMessage(), e);
+            throw new InternalServerException("Failed to read file: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Poll trạng thái async scan job
+     * GET /api/transactions/scan-jobs/{jobId}
+     * 
+     * @return ScanJobDTO (QUEUED / RUNNING / COMPLETED / FAILED), 404 nếu không tồn tại hoặc đã hết hạn
+     */
+    @GetMapping("/scan-jobs/{jobId}")
+    public ResponseEntity<ScanJobDTO> getScanJob(@PathVariable String jobId) {
+        ScanJobDTO job = scanJobService.getJob(jobId);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(job);
     }
     
     // Custom exceptions
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public static class BadRequestException extends RuntimeException {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
         public BadRequestException(String message) {
             super(message);
         }
     }
     
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    public static class NoTextRecognizedException extends RuntimeException {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        public NoTextRecognizedException(String message) {
+            super(message);
+        }
+    }
+    
     @ResponseStatus(HttpStatus.INTERNAL_SERVER_ERROR)
     public static class InternalServerException extends RuntimeException {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
         public InternalServerException(String message) {
             super(message);
         }
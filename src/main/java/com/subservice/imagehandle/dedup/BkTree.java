@@ -0,0 +1,116 @@
+package com.subservice.imagehandle.dedup;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BK-tree theo khoảng cách Hamming giữa các {@link PerceptualHash}
+ *
+ * Tìm các hash trong bán kính r chỉ cần duyệt các nhánh có khoảng cách tới node cha
+ * trong [d - r, d + r] (bất đẳng thức tam giác), không phải so với toàn bộ hash.
+ *
+ * BK-tree không xoá node được: node bị xoá chỉ được đánh dấu, caller dựng lại cây khi số node
+ * đã xoá vượt quá số node còn dùng. Không thread-safe.
+ */
+final class BkTree<V> {
+
+    private Node<V> root;
+    private int size;
+    private int removed;
+
+    Node<V> add(PerceptualHash hash, V value) {
+        Node<V> node = new Node<>(hash, value);
+        size++;
+        if (root == null) {
+            root = node;
+            return node;
+        }
+
+        Node<V> current = root;
+        while (true) {
+            int distance = current.hash.distance(hash);
+            Node<V> child = current.children != null ? current.children.get(distance) : null;
+            if (child == null) {
+                if (current.children == null) {
+                    current.children = new HashMap<>();
+                }
+                current.children.put(distance, node);
+                return node;
+            }
+            current = child;
+        }
+    }
+
+    void remove(Node<V> node) {
+        if (!node.removed) {
+            node.removed = true;
+            removed++;
+        }
+    }
+
+    /**
+     * @return các node còn dùng trong bán kính maxDistance, gần nhất trước, tối đa limit node
+     */
+    List<Node<V>> within(PerceptualHash hash, int maxDistance, int limit) {
+        List<Node<V>> found = new ArrayList<>();
+        List<Integer> distances = new ArrayList<>();
+        if (root == null) {
+            return found;
+        }
+
+        Deque<Node<V>> pending = new ArrayDeque<>();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            Node<V> node = pending.pop();
+            int distance = node.hash.distance(hash);
+            if (!node.removed && distance <= maxDistance) {
+                // Chèn theo thứ tự khoảng cách, chỉ giữ limit node gần nhất
+                int position = 0;
+                while (position < distances.size() && distances.get(position) <= distance) {
+                    position++;
+                }
+                if (position < limit) {
+                    found.add(position, node);
+                    distances.add(position, distance);
+                    if (found.size() > limit) {
+                        found.remove(limit);
+                        distances.remove(limit);
+                    }
+                }
+            }
+            if (node.children == null) {
+                continue;
+            }
+            for (Map.Entry<Integer, Node<V>> child : node.children.entrySet()) {
+                if (Math.abs(child.getKey() - distance) <= maxDistance) {
+                    pending.push(child.getValue());
+                }
+            }
+        }
+        return found;
+    }
+
+    int liveSize() {
+        return size - removed;
+    }
+
+    int removedSize() {
+        return removed;
+    }
+
+    static final class Node<V> {
+        final PerceptualHash hash;
+        final V value;
+        private Map<Integer, Node<V>> children;
+        private boolean removed;
+
+        private Node(PerceptualHash hash, V value) {
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+}
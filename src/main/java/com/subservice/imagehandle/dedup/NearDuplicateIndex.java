@@ -0,0 +1,209 @@
+package com.subservice.imagehandle.dedup;
+
+import com.subservice.imagehandle.dto.BillTransactionDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Nhận diện bill đã scan trước đó dù ảnh đã bị lưu lại, nén lại, đổi kích thước (app chat),
+ * trường hợp SHA-256 nội dung ảnh (ScanResultCache) không bắt được
+ *
+ * 1. Trước OCR: {@link #candidates} tìm các ảnh đã scan có perceptual hash cách tối đa
+ *    ocr.dedup.max-distance bit (BK-tree)
+ * 2. Sau parse: {@link #confirm} chỉ coi là trùng khi số tiền, số tài khoản, mã giao dịch đều có và khớp với
+ *    kết quả cũ, vì bill cùng mẫu của một ngân hàng chỉ khác vài chữ số cũng có hash gần như trùng
+ *    (hai lần chuyển cùng số tiền cho cùng người nhận chỉ khác nhau ở mã giao dịch)
+ * 3. Không trùng → {@link #add} thêm ảnh vào index
+ *
+ * Chỉ để đánh dấu duplicateOf, KHÔNG tiết kiệm OCR: ảnh trùng vẫn được OCR + parse đầy đủ (kèm thêm
+ * chi phí tính hash), vì ứng viên theo hash chỉ được xác nhận bằng field sau khi parse - trả lại
+ * kết quả cũ trước OCR sẽ trả nhầm bill của một giao dịch khác cùng mẫu. Gửi lại đúng file cũ được
+ * ScanResultCache / ScanResultStore trả kết quả mà không OCR.
+ *
+ * - LRU giới hạn theo số entry (ocr.dedup.max-entries), xác nhận trùng cũng tính là được dùng
+ * - Entry bị bỏ chỉ được đánh dấu trong cây, cây được dựng lại khi số entry đã bỏ vượt quá số entry còn dùng
+ */
+@Slf4j
+@Component
+public class NearDuplicateIndex {
+
+    private static final int MIN_REBUILD_REMOVED = 64;
+
+    private final boolean enabled;
+    private final int maxDistance;
+    private final int maxEntries;
+    private final int maxCandidates;
+
+    // access-order: entry đầu tiên là entry lâu nhất chưa được xác nhận trùng / thêm vào
+    private final Map<String, BkTree.Node<Entry>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private BkTree<Entry> tree = new BkTree<>();
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong candidateHits = new AtomicLong();
+    private final AtomicLong confirmed = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong rebuilds = new AtomicLong();
+
+    public NearDuplicateIndex(
+        @Value("${ocr.dedup.enabled:true}") boolean enabled,
+        @Value("${ocr.dedup.max-distance:24}") int maxDistance,
+        @Value("${ocr.dedup.max-entries:10000}") int maxEntries,
+        @Value("${ocr.dedup.max-candidates:16}") int maxCandidates
+    ) {
+        this.enabled = enabled;
+        this.maxDistance = Math.max(0, Math.min(PerceptualHash.BITS, maxDistance));
+        this.maxEntries = maxEntries;
+        this.maxCandidates = Math.max(1, maxCandidates);
+
+        log.info("Near-duplicate index: enabled={}, maxDistance={}, maxEntries={}, maxCandidates={}",
+            enabled, this.maxDistance, maxEntries, this.maxCandidates);
+    }
+
+    /**
+     * @return các ảnh đã scan có hash gần với hash này, gần nhất trước (rỗng nếu index tắt)
+     */
+    public synchronized List<Match> candidates(PerceptualHash hash) {
+        if (!enabled) {
+            return List.of();
+        }
+
+        lookups.incrementAndGet();
+        List<Match> matches = new ArrayList<>();
+        for (BkTree.Node<Entry> node : tree.within(hash, maxDistance, maxCandidates)) {
+            matches.add(new Match(node.value.id(), node.hash.distance(hash), node.value.result()));
+        }
+        if (!matches.isEmpty()) {
+            candidateHits.incrementAndGet();
+        }
+        return matches;
+    }
+
+    /**
+     * @return ứng viên gần nhất cùng giao dịch với kết quả vừa parse, empty nếu không có
+     */
+    public synchronized Optional<Match> confirm(List<Match> candidates, BillTransactionDTO result) {
+        for (Match candidate : candidates) {
+            if (sameTransaction(candidate.result(), result) && entries.get(candidate.id()) != null) {
+                confirmed.incrementAndGet();
+                return Optional.of(candidate);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Cùng số tiền, số tài khoản và mã giao dịch
+     *
+     * Field thiếu ở một bên (OCR đọc sót, bill chỉ từ VietQR không có mã giao dịch) → không coi là trùng
+     */
+    static boolean sameTransaction(BillTransactionDTO previous, BillTransactionDTO current) {
+        if (previous.getAmount() == null || current.getAmount() == null
+                || previous.getAmount().compareTo(current.getAmount()) != 0) {
+            return false;
+        }
+        return matches(previous.getAccountNumber(), current.getAccountNumber())
+            && matches(previous.getTransactionCode(), current.getTransactionCode());
+    }
+
+    private static boolean matches(String previous, String current) {
+        return previous != null && !previous.isBlank() && previous.equals(current);
+    }
+
+    /**
+     * Thêm ảnh đã scan vào index
+     *
+     * @param id id của ảnh (SHA-256 nội dung), trả lại cho ảnh trùng sau này qua duplicateOf
+     */
+    public synchronized void add(PerceptualHash hash, String id, BillTransactionDTO result) {
+        if (!enabled || result == null) {
+            return;
+        }
+
+        BkTree.Node<Entry> previous = entries.remove(id);
+        if (previous != null) {
+            tree.remove(previous);
+        }
+        entries.put(id, tree.add(hash, new Entry(id, result.copy())));
+
+        Iterator<BkTree.Node<Entry>> iterator = entries.values().iterator();
+        while (entries.size() > maxEntries && iterator.hasNext()) {
+            tree.remove(iterator.next());
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+
+        if (tree.removedSize() > Math.max(tree.liveSize(), MIN_REBUILD_REMOVED)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * Dựng lại cây chỉ với các entry còn dùng
+     */
+    private void rebuild() {
+        BkTree<Entry> rebuilt = new BkTree<>();
+        for (Map.Entry<String, BkTree.Node<Entry>> entry : entries.entrySet()) {
+            BkTree.Node<Entry> node = entry.getValue();
+            entry.setValue(rebuilt.add(node.hash, node.value));
+        }
+        tree = rebuilt;
+        rebuilds.incrementAndGet();
+        log.debug("Rebuilt near-duplicate index with {} entries", entries.size());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized DedupStats getStats() {
+        return new DedupStats(
+            enabled,
+            entries.size(),
+            maxEntries,
+            maxDistance,
+            lookups.get(),
+            candidateHits.get(),
+            confirmed.get(),
+            evictions.get(),
+            rebuilds.get()
+        );
+    }
+
+    private record Entry(String id, BillTransactionDTO result) {
+    }
+
+    /**
+     * Ảnh đã scan có hash gần với ảnh đang scan
+     *
+     * @param id       id ảnh đã scan trước đó
+     * @param distance khoảng cách Hamming giữa hai hash
+     * @param result   kết quả scan trước đó (chỉ đọc)
+     */
+    public record Match(String id, int distance, BillTransactionDTO result) {
+    }
+
+    /**
+     * Thống kê index
+     */
+    public record DedupStats(
+        boolean enabled,
+        int entries,
+        int maxEntries,
+        int maxDistance,
+        long lookupCount,
+        long candidateHitCount,
+        long confirmedCount,
+        long evictionCount,
+        long rebuildCount
+    ) {
+    }
+}
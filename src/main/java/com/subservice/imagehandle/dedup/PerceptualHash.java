@@ -0,0 +1,95 @@
+package com.subservice.imagehandle.dedup;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Difference hash (dHash) 256 bit của ảnh
+ *
+ * Ảnh được chia thành lưới 17 x 16 ô, lấy độ sáng trung bình từng ô; bit = ô bên trái sáng hơn
+ * ô bên phải quá EDGE_THRESHOLD (vùng nền phẳng luôn là 0, nhiễu nén JPEG không làm lật bit).
+ * Nén lại, đổi kích thước, đổi định dạng chỉ làm lệch vài bit; cắt mỗi cạnh 1% làm lệch khoảng 20 bit.
+ *
+ * Hai bill cùng mẫu của một ngân hàng chỉ khác vài chữ số cũng có hash gần như trùng nhau,
+ * nên hash chỉ dùng để tìm ứng viên, không đủ để kết luận là cùng một bill.
+ */
+public final class PerceptualHash {
+
+    static final int BITS = 256;
+
+    private static final int COLUMNS = 17;
+    private static final int ROWS = 16;
+    // Mỗi ô lấy mẫu tối đa khoảng 32 x 32 pixel, ảnh lớn không làm hash chậm theo
+    private static final int SAMPLES_PER_CELL = 32;
+    // Chênh lệch độ sáng tối thiểu (0..255) giữa hai ô kề nhau để bit = 1
+    private static final double EDGE_THRESHOLD = 2.0;
+
+    private final long[] bits;
+
+    private PerceptualHash(long[] bits) {
+        this.bits = bits;
+    }
+
+    public static PerceptualHash of(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double[] luminance = new double[COLUMNS * ROWS];
+        int[] line = new int[width];
+
+        for (int row = 0; row < ROWS; row++) {
+            int top = row * height / ROWS;
+            int bottom = Math.min(height, Math.max(top + 1, (row + 1) * height / ROWS));
+            int stepY = Math.max(1, (bottom - top) / SAMPLES_PER_CELL);
+            double[] sums = new double[COLUMNS];
+            int[] counts = new int[COLUMNS];
+
+            // Đọc cả dòng một lần (getRGB từng pixel chậm hơn nhiều)
+            for (int y = top; y < bottom; y += stepY) {
+                image.getRGB(0, y, width, 1, line, 0, width);
+                for (int column = 0; column < COLUMNS; column++) {
+                    int left = column * width / COLUMNS;
+                    int right = Math.min(width, Math.max(left + 1, (column + 1) * width / COLUMNS));
+                    int stepX = Math.max(1, (right - left) / SAMPLES_PER_CELL);
+                    for (int x = left; x < right; x += stepX) {
+                        int rgb = line[x];
+                        sums[column] += 0.299 * ((rgb >> 16) & 0xFF) + 0.587 * ((rgb >> 8) & 0xFF) + 0.114 * (rgb & 0xFF);
+                        counts[column]++;
+                    }
+                }
+            }
+            for (int column = 0; column < COLUMNS; column++) {
+                luminance[row * COLUMNS + column] = counts[column] > 0 ? sums[column] / counts[column] : 0;
+            }
+        }
+
+        long[] bits = new long[BITS / Long.SIZE];
+        int bit = 0;
+        for (int row = 0; row < ROWS; row++) {
+            for (int column = 0; column < COLUMNS - 1; column++, bit++) {
+                if (luminance[row * COLUMNS + column] > luminance[row * COLUMNS + column + 1] + EDGE_THRESHOLD) {
+                    bits[bit / Long.SIZE] |= 1L << (bit % Long.SIZE);
+                }
+            }
+        }
+        return new PerceptualHash(bits);
+    }
+
+    /**
+     * Khoảng cách Hamming (số bit khác nhau)
+     */
+    public int distance(PerceptualHash other) {
+        int distance = 0;
+        for (int i = 0; i < bits.length; i++) {
+            distance += Long.bitCount(bits[i] ^ other.bits[i]);
+        }
+        return distance;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder hex = new StringBuilder(BITS / 4);
+        for (long word : bits) {
+            hex.append(String.format("%016x", word));
+        }
+        return hex.toString();
+    }
+}
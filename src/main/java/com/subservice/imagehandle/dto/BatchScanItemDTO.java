@@ -0,0 +1,41 @@
+package com.subservice.imagehandle.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Kết quả scan của một file trong batch
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchScanItemDTO {
+    
+    /**
+     * Vị trí file trong request (bắt đầu từ 0)
+     */
+    private int index;
+    
+    /**
+     * Tên file gốc
+     */
+    private String filename;
+    
+    /**
+     * Scan thành công hay không
+     */
+    private boolean success;
+    
+    /**
+     * Thông tin bill đã parse (null nếu lỗi)
+     */
+    private BillTransactionDTO result;
+    
+    /**
+     * Lý do lỗi (null nếu thành công)
+     */
+    private String error;
+}
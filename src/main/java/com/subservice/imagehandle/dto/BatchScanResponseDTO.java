@@ -0,0 +1,38 @@
+package com.subservice.imagehandle.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Kết quả scan nhiều bill trong một request
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchScanResponseDTO {
+    
+    /**
+     * Tổng số file nhận được
+     */
+    private int total;
+    
+    /**
+     * Số file scan thành công
+     */
+    private int succeeded;
+    
+    /**
+     * Số file lỗi
+     */
+    private int failed;
+    
+    /**
+     * Kết quả từng file, cùng thứ tự với request
+     */
+    private List<BatchScanItemDTO> items;
+}
@@ -1,17 +1,20 @@
 package com.subservice.imagehandle.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * DTO chứa thông tin bill đã parse (structured data)
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class BillTransactionDTO {
@@ -50,4 +53,47 @@ public class BillTransactionDTO {
      * Trạng thái giao dịch
      */
     private String status;
+    
+    /**
+     * Độ tin cậy OCR tổng thể (0..1)
+     */
+    private Double confidence;
+    
+    /**
+     * Độ tin cậy từng field (0..1) = confidence thấp nhất trong các word tạo nên field
+     * Field không khớp được với word nào thì không có key
+     */
+    private Map<String, Double> fieldConfidence;
+    
+    /**
+     * Handle của OCR text đã lưu (ocr.store), dùng để parse lại qua POST /api/transactions/reparse
+     * mà không phải OCR lại; null nếu không lưu (ocr.store.enabled=false - mặc định, hoặc bill chỉ từ VietQR)
+     */
+    private String ocrTextId;
+    
+    /**
+     * Id (SHA-256 nội dung) của ảnh KHÁC đã scan trước đó có cùng giao dịch và gần giống ảnh này
+     * (perceptual hash, ocr.dedup), null nếu không trùng
+     * 
+     * Gửi lại đúng file cũ (client retry sau timeout, scan đang chạy / cache / store) không được đánh dấu:
+     * kết quả giống hệt lần scan trước, kể cả duplicateOf của lần đó
+     */
+    private String duplicateOf;
+    
+    /**
+     * Thời gian từng stage của request scan này (chỉ có khi bật ocr.timings.response-body)
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private ScanTimingsDTO timings;
+    
+    /**
+     * Bản copy độc lập: fieldConfidence và timings cũng được copy (toBuilder() chỉ copy nông),
+     * sửa bản copy không ảnh hưởng bản gốc
+     */
+    public BillTransactionDTO copy() {
+        return toBuilder()
+            .fieldConfidence(fieldConfidence != null ? new LinkedHashMap<>(fieldConfidence) : null)
+            .timings(timings != null ? timings.copy() : null)
+            .build();
+    }
 }
@@ -0,0 +1,40 @@
+package com.subservice.imagehandle.dto;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request parse lại OCR text (POST /api/transactions/reparse), không chạy OCR
+ *
+ * Cần một trong hai: ocrText hoặc ocrTextId
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReparseRequestDTO {
+    
+    /**
+     * OCR text thô
+     */
+    @Size(max = 100_000)
+    private String ocrText;
+    
+    /**
+     * Handle OCR text đã lưu (ocrTextId trong kết quả scan), dùng khi không gửi ocrText
+     */
+    @Size(max = 128)
+    private String ocrTextId;
+    
+    /**
+     * Độ tin cậy OCR (0..1), mặc định: confidence đã lưu hoặc ước lượng từ text
+     */
+    @DecimalMin("0.0")
+    @DecimalMax("1.0")
+    private Double confidence;
+}
@@ -0,0 +1,65 @@
+package com.subservice.imagehandle.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Trạng thái một async scan job (trả về khi submit/poll và gửi tới callback URL)
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScanJobDTO {
+    
+    /**
+     * Mã job
+     */
+    private String jobId;
+    
+    /**
+     * Trạng thái job
+     */
+    private Status status;
+    
+    /**
+     * Tên file gốc
+     */
+    private String filename;
+    
+    /**
+     * Thời điểm nhận job
+     */
+    private LocalDateTime submittedAt;
+    
+    /**
+     * Thời điểm bắt đầu OCR
+     */
+    private LocalDateTime startedAt;
+    
+    /**
+     * Thời điểm xử lý xong
+     */
+    private LocalDateTime completedAt;
+    
+    /**
+     * Thông tin bill đã parse (khi COMPLETED)
+     */
+    private BillTransactionDTO result;
+    
+    /**
+     * Lý do lỗi (khi FAILED)
+     */
+    private String error;
+    
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
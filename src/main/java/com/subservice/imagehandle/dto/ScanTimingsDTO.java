@@ -0,0 +1,63 @@
+package com.subservice.imagehandle.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thời gian xử lý một request scan theo stage (cùng nội dung với header Server-Timing)
+ */
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class ScanTimingsDTO {
+
+    /**
+     * Tổng thời gian xử lý request (ms), từ lúc nhận request tới khi có kết quả
+     */
+    private Double totalMs;
+
+    /**
+     * Thời gian từng stage của scan pipeline (ms) theo thứ tự chạy:
+     * read, validate, ocr_wait, decode, phash, qr_decode, preprocess, fast_ocr, layout_ocr,
+     * temp_file_write, ocr, parse, coalesce_wait
+     */
+    private Map<String, Double> stagesMs;
+
+    /**
+     * Thời gian từng stage tiền xử lý ảnh (ms), null nếu không tiền xử lý
+     */
+    private Map<String, Double> preprocessMs;
+
+    /**
+     * Kích thước ảnh đã decode, null nếu không decode (cache / store / fallback temp file)
+     */
+    private Integer imageWidth;
+
+    private Integer imageHeight;
+
+    /**
+     * Số ký tự OCR text (0 nếu bill chỉ lấy từ VietQR, ocr.qr.skip-ocr), null nếu không OCR trong request này
+     */
+    private Integer ocrTextLength;
+
+    /**
+     * Nguồn kết quả: cache / store / coalesced (chờ scan giống hệt đang chạy) / qr / ocr
+     */
+    private String source;
+
+    /**
+     * Bản copy độc lập (map stage cũng được copy)
+     */
+    public ScanTimingsDTO copy() {
+        return toBuilder()
+            .stagesMs(stagesMs != null ? new LinkedHashMap<>(stagesMs) : null)
+            .preprocessMs(preprocessMs != null ? new LinkedHashMap<>(preprocessMs) : null)
+            .build();
+    }
+}
@@ -0,0 +1,42 @@
+package com.subservice.imagehandle.layout;
+
+import com.subservice.imagehandle.service.OcrRegion;
+
+import java.awt.Rectangle;
+
+/**
+ * Vùng chứa một field trong layout template
+ *
+ * Toạ độ là tỉ lệ (0..1) theo kích thước ảnh sau tiền xử lý (template mặc định đo trên ảnh đã crop theo nội dung)
+ *
+ * @param field     tên field của BillTransactionDTO (amount, accountNumber, recipientName, transactionCode, transferContent)
+ * @param x         mép trái
+ * @param y         mép trên
+ * @param width     chiều rộng
+ * @param height    chiều cao
+ * @param psm       page segmentation mode (null = 7, một dòng text)
+ * @param whitelist ký tự cho phép (null = không giới hạn)
+ */
+public record FieldRegion(String field, double x, double y, double width, double height, Integer psm, String whitelist) {
+
+    static final int DEFAULT_PSM = 7;
+
+    /**
+     * Đổi sang vùng pixel trên ảnh kích thước imageWidth x imageHeight
+     */
+    OcrRegion toRegion(int imageWidth, int imageHeight) {
+        int left = clamp((int) Math.floor(x * imageWidth), 0, imageWidth - 1);
+        int top = clamp((int) Math.floor(y * imageHeight), 0, imageHeight - 1);
+        int right = clamp((int) Math.ceil((x + width) * imageWidth), left + 1, imageWidth);
+        int bottom = clamp((int) Math.ceil((y + height) * imageHeight), top + 1, imageHeight);
+        return new OcrRegion(
+            new Rectangle(left, top, right - left, bottom - top),
+            psm != null ? psm : DEFAULT_PSM,
+            whitelist
+        );
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
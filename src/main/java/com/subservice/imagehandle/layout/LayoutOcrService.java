@@ -0,0 +1,197 @@
+package com.subservice.imagehandle.layout;
+
+import com.subservice.imagehandle.service.OcrRegion;
+import com.subservice.imagehandle.service.OcrWord;
+import com.subservice.imagehandle.service.ScanMetrics;
+import com.subservice.imagehandle.service.TesseractEnginePool;
+import com.subservice.imagehandle.service.TesseractOcrService;
+import com.subservice.imagehandle.service.TesseractOcrService.OcrResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * ROI OCR theo layout template của từng ngân hàng
+ *
+ * Workflow:
+ * 1. OCR phần header (ocr.layout.header-fraction phía trên ảnh) để nhận diện ngân hàng
+ * 2. Có template → chỉ OCR các vùng field với PSM / whitelist riêng
+ * 3. Ghép kết quả thành text có nhãn chuẩn ("Tài khoản: ...", "Mã giao dịch: ...") cho BillParser
+ *
+ * Không nhận diện được ngân hàng, hoặc vùng amount / accountNumber không ra số → Optional.empty(),
+ * caller OCR cả trang như bình thường.
+ */
+@Slf4j
+@Service
+public class LayoutOcrService {
+
+    private final TesseractOcrService tesseractOcrService;
+    private final LayoutTemplateRegistry templateRegistry;
+    private final ScanMetrics scanMetrics;
+    private final boolean enabled;
+    private final double headerFraction;
+    private final int headerPsm;
+
+    public LayoutOcrService(
+        TesseractOcrService tesseractOcrService,
+        LayoutTemplateRegistry templateRegistry,
+        ScanMetrics scanMetrics,
+        TesseractEnginePool enginePool,
+        @Value("${ocr.layout.enabled:false}") boolean enabled,
+        @Value("${ocr.layout.header-fraction:0.2}") double headerFraction
+    ) {
+        this.tesseractOcrService = tesseractOcrService;
+        this.templateRegistry = templateRegistry;
+        this.scanMetrics = scanMetrics;
+        this.enabled = enabled;
+        this.headerFraction = Math.max(0.05, Math.min(1.0, headerFraction));
+        this.headerPsm = enginePool.getPageSegMode();
+
+        log.info("Layout ROI OCR: enabled={}, headerFraction={}", enabled, this.headerFraction);
+        if (enabled && templateRegistry.getCalibratedTemplates().isEmpty()) {
+            log.warn("Layout ROI OCR is enabled but no template is calibrated, every scan falls back to full-page OCR");
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Cấu hình dạng chuỗi, dùng trong cache key
+     */
+    public String describe() {
+        return enabled ? "layout(" + headerFraction + ")" : "full";
+    }
+
+    /**
+     * OCR theo layout template
+     *
+     * @return OCR text đã ghép theo nhãn chuẩn, empty nếu cần OCR cả trang
+     * @throws com.subservice.imagehandle.worker.OcrWorkerPool.WorkerException nếu worker chết / quá thời gian
+     */
+    public Optional<OcrResult> recognize(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        // 1. Header pass
+        int headerHeight = Math.max(1, (int) Math.round(height * headerFraction));
+        List<OcrResult> header = tesseractOcrService.extractRegions(image,
+            List.of(new OcrRegion(new Rectangle(0, 0, width, headerHeight), headerPsm, null)));
+        if (header.isEmpty()) {
+            scanMetrics.layoutOutcome("failed");
+            return Optional.empty();
+        }
+        String headerText = header.get(0).getText();
+
+        Optional<LayoutTemplate> detected = templateRegistry.detect(headerText);
+        if (detected.isEmpty()) {
+            log.debug("No layout template matched header: {}", headerText.strip());
+            scanMetrics.layoutOutcome("no_template");
+            return Optional.empty();
+        }
+        LayoutTemplate template = detected.get();
+
+        // 2. OCR từng vùng field
+        List<OcrRegion> regions = template.fields().stream()
+            .map(field -> field.toRegion(width, height))
+            .toList();
+        List<OcrResult> results = tesseractOcrService.extractRegions(image, regions);
+        if (results.isEmpty()) {
+            scanMetrics.layoutOutcome("failed");
+            return Optional.empty();
+        }
+
+        Map<String, String> values = new LinkedHashMap<>();
+        List<OcrWord> words = new ArrayList<>(header.get(0).getWords());
+        for (int i = 0; i < results.size(); i++) {
+            values.put(template.fields().get(i).field(), results.get(i).getText().strip());
+            words.addAll(results.get(i).getWords());
+        }
+
+        String amountDigits = digits(values.get("amount"));
+        String accountDigits = digits(values.get("accountNumber"));
+        if (amountDigits.isEmpty() || amountDigits.length() > 15
+            || accountDigits.length() < 10 || accountDigits.length() > 16) {
+            log.debug("Layout {} incomplete: amount='{}', account='{}'",
+                template.bank(), values.get("amount"), values.get("accountNumber"));
+            scanMetrics.layoutOutcome("incomplete");
+            return Optional.empty();
+        }
+
+        // 3. Ghép text cho BillParser
+        String text = compose(template, headerText, values, Long.parseLong(amountDigits), accountDigits);
+        double confidence = words.isEmpty() ? 0.0 : TesseractOcrService.meanConfidence(words);
+
+        log.info("Layout {} matched: {} regions OCR'd instead of full page", template.bank(), regions.size());
+        scanMetrics.layoutOutcome("matched");
+        return Optional.of(new OcrResult(text, confidence, words));
+    }
+
+    /**
+     * Thứ tự dòng giữ cho các pattern của BillParser không bắt lấn sang field khác
+     * (tên người nhận đứng trước dòng số tiền, nội dung ở cuối)
+     */
+    private static String compose(LayoutTemplate template, String headerText, Map<String, String> values,
+                                  long amount, String accountNumber) {
+        StringBuilder text = new StringBuilder();
+        text.append("Ngân hàng ").append(template.bank()).append('\n');
+        text.append(headerText.strip()).append('\n');
+        text.append("Tài khoản: ").append(accountNumber).append('\n');
+
+        String code = alphanumeric(values.get("transactionCode"));
+        if (!code.isEmpty()) {
+            text.append("Mã giao dịch: ").append(code).append('\n');
+        }
+
+        String recipient = values.get("recipientName");
+        if (recipient != null && !recipient.isEmpty()) {
+            text.append("Người nhận: ").append(recipient.toUpperCase(Locale.ROOT)).append('\n');
+        }
+
+        text.append(String.format(Locale.US, "%,d", amount)).append(" VND\n");
+
+        String content = values.get("transferContent");
+        if (content != null && !content.isEmpty()) {
+            text.append("Nội dung: ").append(content).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static String digits(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder digits = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    private static String alphanumeric(String value) {
+        if (value == null) {
+            return "";
+        }
+        StringBuilder cleaned = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if ((c >= '0' && c <= '9') || (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z')) {
+                cleaned.append(Character.toUpperCase(c));
+            }
+        }
+        return cleaned.toString();
+    }
+}
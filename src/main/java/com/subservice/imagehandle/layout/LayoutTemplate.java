@@ -0,0 +1,14 @@
+package com.subservice.imagehandle.layout;
+
+import java.util.List;
+
+/**
+ * Layout bill của một ngân hàng
+ *
+ * @param bank       tên ngân hàng trả về trong BillTransactionDTO.bankName
+ * @param keywords   từ khoá nhận diện trong header (không phân biệt hoa thường, so theo từng từ)
+ * @param fields     các vùng field cần OCR
+ * @param calibrated toạ độ vùng đã được đo trên bill thật; false (mặc định) → template bị bỏ qua khi nhận diện
+ */
+public record LayoutTemplate(String bank, List<String> keywords, List<FieldRegion> fields, boolean calibrated) {
+}
@@ -0,0 +1,118 @@
+package com.subservice.imagehandle.layout;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Danh sách layout template theo ngân hàng, đọc từ ocr.layout.templates (JSON)
+ *
+ * Template được thử theo thứ tự trong file, template đầu tiên có keyword xuất hiện trong header được chọn.
+ * Chỉ template có "calibrated": true được dùng, template chưa đo trên bill thật chỉ được load và validate
+ */
+@Slf4j
+@Component
+public class LayoutTemplateRegistry {
+
+    private static final Set<String> FIELDS = Set.of(
+        "amount", "accountNumber", "recipientName", "transactionCode", "transferContent");
+
+    private final List<LayoutTemplate> templates;
+    private final List<LayoutTemplate> calibrated;
+
+    public LayoutTemplateRegistry(
+        ObjectMapper objectMapper,
+        @Value("${ocr.layout.templates:classpath:layout/bank-templates.json}") Resource resource
+    ) {
+        try (InputStream in = resource.getInputStream()) {
+            this.templates = List.copyOf(objectMapper.readValue(in, new TypeReference<List<LayoutTemplate>>() { }));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot load layout templates from " + resource, e);
+        }
+        templates.forEach(LayoutTemplateRegistry::validate);
+        this.calibrated = templates.stream().filter(LayoutTemplate::calibrated).toList();
+
+        log.info("Loaded {} layout templates: {}, not calibrated (ignored): {}", templates.size(),
+            calibrated.stream().map(LayoutTemplate::bank).toList(),
+            templates.stream().filter(template -> !template.calibrated()).map(LayoutTemplate::bank).toList());
+    }
+
+    /**
+     * Tìm template theo text OCR của phần header
+     */
+    public Optional<LayoutTemplate> detect(String headerText) {
+        if (headerText == null || headerText.isBlank()) {
+            return Optional.empty();
+        }
+
+        String tokens = " " + tokenize(headerText) + " ";
+        for (LayoutTemplate template : calibrated) {
+            for (String keyword : template.keywords()) {
+                if (tokens.contains(" " + tokenize(keyword) + " ")) {
+                    return Optional.of(template);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    public List<LayoutTemplate> getTemplates() {
+        return templates;
+    }
+
+    /**
+     * Template được dùng khi nhận diện
+     */
+    public List<LayoutTemplate> getCalibratedTemplates() {
+        return calibrated;
+    }
+
+    /**
+     * Chữ thường, mỗi cụm chữ/số cách nhau một dấu cách
+     */
+    private static String tokenize(String text) {
+        StringBuilder tokens = new StringBuilder(text.length());
+        boolean inToken = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (!inToken && !tokens.isEmpty()) {
+                    tokens.append(' ');
+                }
+                tokens.append(c);
+                inToken = true;
+            } else {
+                inToken = false;
+            }
+        }
+        return tokens.toString().toLowerCase(Locale.ROOT);
+    }
+
+    private static void validate(LayoutTemplate template) {
+        if (template.bank() == null || template.keywords() == null || template.keywords().isEmpty()
+            || template.fields() == null) {
+            throw new IllegalStateException("Layout template needs bank, keywords and fields: " + template);
+        }
+        for (FieldRegion region : template.fields()) {
+            if (!FIELDS.contains(region.field())) {
+                throw new IllegalStateException("Unknown field '" + region.field() + "' in layout template "
+                    + template.bank() + ", available: " + FIELDS);
+            }
+            if (region.x() < 0 || region.y() < 0 || region.width() <= 0 || region.height() <= 0
+                || region.x() + region.width() > 1 || region.y() + region.height() > 1) {
+                throw new IllegalStateException("Region of field '" + region.field() + "' in layout template "
+                    + template.bank() + " must lie within 0..1");
+            }
+        }
+    }
+}
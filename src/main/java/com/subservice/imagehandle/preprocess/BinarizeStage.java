@@ -0,0 +1,79 @@
+package com.subservice.imagehandle.preprocess;
+
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+
+/**
+ * Nhị phân hóa ảnh grayscale bằng ngưỡng Otsu (toàn ảnh)
+ *
+ * Kết quả vẫn là TYPE_BYTE_GRAY (chỉ gồm 0/255) vì Tess4J không nhận ảnh 1-bit qua setImage.
+ */
+@Component
+public class BinarizeStage implements ImagePreprocessor {
+
+    @Override
+    public String name() {
+        return "binarize";
+    }
+
+    @Override
+    public BufferedImage apply(BufferedImage image) {
+        BufferedImage gray = GrayscaleStage.toGray(image);
+        byte[] pixels = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+
+        int threshold = otsuThreshold(pixels);
+
+        BufferedImage binary = new BufferedImage(gray.getWidth(), gray.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        byte[] output = ((DataBufferByte) binary.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < pixels.length; i++) {
+            output[i] = (pixels[i] & 0xFF) > threshold ? (byte) 0xFF : 0;
+        }
+        return binary;
+    }
+
+    /**
+     * Ngưỡng Otsu: tối đa hóa phương sai giữa 2 lớp (nền / chữ)
+     */
+    static int otsuThreshold(byte[] pixels) {
+        long[] histogram = new long[256];
+        for (byte pixel : pixels) {
+            histogram[pixel & 0xFF]++;
+        }
+
+        long total = pixels.length;
+        double sum = 0;
+        for (int i = 0; i < 256; i++) {
+            sum += (double) i * histogram[i];
+        }
+
+        double sumBackground = 0;
+        long weightBackground = 0;
+        double maxVariance = -1;
+        int threshold = 127;
+
+        for (int t = 0; t < 256; t++) {
+            weightBackground += histogram[t];
+            if (weightBackground == 0) {
+                continue;
+            }
+            long weightForeground = total - weightBackground;
+            if (weightForeground == 0) {
+                break;
+            }
+
+            sumBackground += (double) t * histogram[t];
+            double meanBackground = sumBackground / weightBackground;
+            double meanForeground = (sum - sumBackground) / weightForeground;
+            double diff = meanBackground - meanForeground;
+            double variance = (double) weightBackground * weightForeground * diff * diff;
+
+            if (variance > maxVariance) {
+                maxVariance = variance;
+                threshold = t;
+            }
+        }
+        return threshold;
+    }
+}
@@ -0,0 +1,109 @@
+package com.subservice.imagehandle.preprocess;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+
+/**
+ * Cắt bỏ viền nền đồng màu quanh nội dung bill
+ *
+ * Màu nền lấy từ góc trên-trái; pixel lệch quá ocr.preprocess.crop.tolerance được coi là nội dung.
+ * Giữ lại ocr.preprocess.crop.margin px quanh nội dung để Tesseract không cắt sát chữ.
+ */
+@Component
+public class CropToContentStage implements ImagePreprocessor {
+
+    private final int tolerance;
+    private final int margin;
+
+    public CropToContentStage(
+        @Value("${ocr.preprocess.crop.tolerance:24}") int tolerance,
+        @Value("${ocr.preprocess.crop.margin:8}") int margin
+    ) {
+        this.tolerance = tolerance;
+        this.margin = margin;
+    }
+
+    @Override
+    public String name() {
+        return "crop";
+    }
+
+    @Override
+    public String describe() {
+        return name() + "(" + tolerance + "," + margin + ")";
+    }
+
+    @Override
+    public BufferedImage apply(BufferedImage image) {
+        BufferedImage gray = GrayscaleStage.toGray(image);
+        byte[] pixels = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+        int width = gray.getWidth();
+        int height = gray.getHeight();
+        int background = pixels[0] & 0xFF;
+
+        int top = -1;
+        int bottom = -1;
+        int left = width;
+        int right = -1;
+
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            int first = -1;
+            int last = -1;
+            for (int x = 0; x < width; x++) {
+                if (Math.abs((pixels[row + x] & 0xFF) - background) > tolerance) {
+                    if (first < 0) {
+                        first = x;
+                    }
+                    last = x;
+                }
+            }
+            if (first >= 0) {
+                if (top < 0) {
+                    top = y;
+                }
+                bottom = y;
+                left = Math.min(left, first);
+                right = Math.max(right, last);
+            }
+        }
+
+        // Ảnh trống hoặc nội dung đã sát viền → giữ nguyên
+        if (top < 0) {
+            return image;
+        }
+        int x0 = Math.max(0, left - margin);
+        int y0 = Math.max(0, top - margin);
+        int x1 = Math.min(width - 1, right + margin);
+        int y1 = Math.min(height - 1, bottom + margin);
+        if (x0 == 0 && y0 == 0 && x1 == width - 1 && y1 == height - 1) {
+            return image;
+        }
+
+        return copy(image.getSubimage(x0, y0, x1 - x0 + 1, y1 - y0 + 1));
+    }
+
+    /**
+     * Copy vùng con ra ảnh riêng (getSubimage dùng chung raster với ảnh gốc, Tess4J đọc cả buffer)
+     */
+    private static BufferedImage copy(BufferedImage region) {
+        if (region.getType() == BufferedImage.TYPE_CUSTOM) {
+            BufferedImage copy = new BufferedImage(region.getWidth(), region.getHeight(), BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = copy.createGraphics();
+            try {
+                g.drawImage(region, 0, 0, null);
+            } finally {
+                g.dispose();
+            }
+            return copy;
+        }
+
+        BufferedImage copy = new BufferedImage(region.getWidth(), region.getHeight(), region.getType());
+        copy.getRaster().setRect(region.getRaster());
+        return copy;
+    }
+}
@@ -0,0 +1,75 @@
+package com.subservice.imagehandle.preprocess;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * Thu nhỏ ảnh về chiều rộng tối đa ocr.preprocess.downscale.max-width
+ *
+ * Screenshot điện thoại không có DPI thật; chữ trên bill ở độ rộng ~1000-1300px đã đủ
+ * cỡ chữ cho Tesseract, ảnh lớn hơn chỉ làm OCR chậm hơn.
+ * Thu nhỏ nhiều lần, mỗi lần tối đa 1/2, để tránh răng cưa khi tỉ lệ lớn.
+ */
+@Component
+public class DownscaleStage implements ImagePreprocessor {
+
+    private final int maxWidth;
+
+    public DownscaleStage(@Value("${ocr.preprocess.downscale.max-width:1280}") int maxWidth) {
+        this.maxWidth = maxWidth;
+    }
+
+    @Override
+    public String name() {
+        return "downscale";
+    }
+
+    @Override
+    public String describe() {
+        return name() + "(" + maxWidth + ")";
+    }
+
+    @Override
+    public BufferedImage apply(BufferedImage image) {
+        if (maxWidth <= 0 || image.getWidth() <= maxWidth) {
+            return image;
+        }
+
+        int targetHeight = Math.max(1, (int) Math.round((double) image.getHeight() * maxWidth / image.getWidth()));
+        BufferedImage current = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+
+        do {
+            width = Math.max(maxWidth, width / 2);
+            height = width == maxWidth ? targetHeight : Math.max(targetHeight, height / 2);
+            current = resize(current, width, height);
+        } while (width > maxWidth);
+
+        return current;
+    }
+
+    private static BufferedImage resize(BufferedImage image, int width, int height) {
+        int type = image.getType() == BufferedImage.TYPE_BYTE_GRAY
+            ? BufferedImage.TYPE_BYTE_GRAY
+            : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage resized = new BufferedImage(width, height, type);
+        Graphics2D g = resized.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return resized;
+    }
+}
@@ -0,0 +1,44 @@
+package com.subservice.imagehandle.preprocess;
+
+import org.springframework.stereotype.Component;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+/**
+ * Chuyển ảnh màu sang grayscale 8-bit (Tesseract chỉ cần độ sáng, ảnh nhỏ đi 3-4 lần)
+ */
+@Component
+public class GrayscaleStage implements ImagePreprocessor {
+
+    @Override
+    public String name() {
+        return "grayscale";
+    }
+
+    @Override
+    public BufferedImage apply(BufferedImage image) {
+        return toGray(image);
+    }
+
+    /**
+     * Chuyển sang TYPE_BYTE_GRAY, nền trong suốt được coi là trắng
+     */
+    static BufferedImage toGray(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            return image;
+        }
+
+        BufferedImage gray = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D g = gray.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, image.getWidth(), image.getHeight());
+            g.drawImage(image, 0, 0, null);
+        } finally {
+            g.dispose();
+        }
+        return gray;
+    }
+}
@@ -0,0 +1,94 @@
+package com.subservice.imagehandle.preprocess;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Pipeline tiền xử lý ảnh trước khi OCR
+ *
+ * Các stage ({@link ImagePreprocessor} bean) chạy theo thứ tự trong ocr.preprocess.stages,
+ * mỗi stage được đo thời gian riêng.
+ */
+@Slf4j
+@Component
+public class ImagePreprocessingPipeline {
+
+    private final boolean enabled;
+    private final List<ImagePreprocessor> stages;
+    private final String description;
+
+    public ImagePreprocessingPipeline(
+        List<ImagePreprocessor> availableStages,
+        @Value("${ocr.preprocess.enabled:true}") boolean enabled,
+        @Value("${ocr.preprocess.stages:downscale,grayscale}") List<String> stageNames
+    ) {
+        Map<String, ImagePreprocessor> byName = availableStages.stream()
+            .collect(Collectors.toMap(ImagePreprocessor::name, Function.identity()));
+
+        List<ImagePreprocessor> selected = new ArrayList<>();
+        for (String stageName : stageNames) {
+            String trimmed = stageName.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            ImagePreprocessor stage = byName.get(trimmed);
+            if (stage == null) {
+                throw new IllegalStateException("Unknown preprocessing stage '" + trimmed
+                    + "', available: " + byName.keySet());
+            }
+            selected.add(stage);
+        }
+
+        this.enabled = enabled;
+        this.stages = Collections.unmodifiableList(selected);
+        this.description = enabled
+            ? selected.stream().map(ImagePreprocessor::describe).collect(Collectors.joining(","))
+            : "none";
+
+        log.info("Image preprocessing: {}", description);
+    }
+
+    /**
+     * Chạy toàn bộ stage đã cấu hình
+     */
+    public PreprocessResult process(BufferedImage image) {
+        Map<String, Double> timings = new LinkedHashMap<>();
+        if (!enabled || stages.isEmpty()) {
+            return new PreprocessResult(image, timings);
+        }
+
+        BufferedImage current = image;
+        for (ImagePreprocessor stage : stages) {
+            long start = System.nanoTime();
+            current = stage.apply(current);
+            timings.put(stage.name(), (System.nanoTime() - start) / 1_000_000.0);
+        }
+
+        log.debug("Preprocessed image {}x{} → {}x{}, stage timings (ms): {}",
+            image.getWidth(), image.getHeight(), current.getWidth(), current.getHeight(), timings);
+        return new PreprocessResult(current, timings);
+    }
+
+    /**
+     * Cấu hình pipeline dạng chuỗi, dùng trong cache key
+     */
+    public String describe() {
+        return description;
+    }
+
+    /**
+     * Ảnh sau xử lý + thời gian từng stage (ms, theo thứ tự chạy)
+     */
+    public record PreprocessResult(BufferedImage image, Map<String, Double> stageTimingsMs) {
+    }
+}
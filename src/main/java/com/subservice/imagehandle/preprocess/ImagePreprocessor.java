@@ -0,0 +1,29 @@
+package com.subservice.imagehandle.preprocess;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * Một stage xử lý ảnh trước khi OCR
+ *
+ * Implementation là Spring bean; {@link ImagePreprocessingPipeline} chọn và sắp xếp các stage
+ * theo tên trong ocr.preprocess.stages
+ */
+public interface ImagePreprocessor {
+
+    /**
+     * Tên stage dùng trong cấu hình và timing
+     */
+    String name();
+
+    /**
+     * Mô tả tham số của stage (đưa vào cache key để đổi cấu hình không dùng lại kết quả cũ)
+     */
+    default String describe() {
+        return name();
+    }
+
+    /**
+     * Xử lý ảnh, trả về ảnh mới (hoặc chính ảnh đầu vào nếu không cần thay đổi)
+     */
+    BufferedImage apply(BufferedImage image);
+}
@@ -0,0 +1,132 @@
+package com.subservice.imagehandle.qr;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Parse payload EMVCo QR (chuẩn VietQR của NAPAS)
+ *
+ * Payload là chuỗi TLV: id 2 chữ số + độ dài 2 chữ số + giá trị. Các tag dùng:
+ * - 26..51: merchant account information, VietQR có sub-tag 00 = "A000000727" (GUID NAPAS),
+ *   sub-tag 01 = TLV lồng (00 = BIN, 01 = số tài khoản / số thẻ)
+ * - 54: số tiền, 59: tên thụ hưởng, 62: additional data (sub-tag 08 = nội dung)
+ * - 63: CRC-16/CCITT-FALSE của toàn bộ payload tới hết "6304"
+ */
+final class EmvQrParser {
+
+    private static final String NAPAS_GUID = "A000000727";
+
+    private EmvQrParser() {
+    }
+
+    /**
+     * @return VietQR payload, empty nếu không phải VietQR hợp lệ (sai cấu trúc, sai CRC, thiếu tài khoản)
+     */
+    static Optional<VietQrPayload> parse(String payload) {
+        if (payload == null || !payload.startsWith("000201") || !hasValidCrc(payload)) {
+            return Optional.empty();
+        }
+
+        Map<String, String> fields = readTlv(payload);
+        if (fields == null) {
+            return Optional.empty();
+        }
+
+        String bin = null;
+        String account = null;
+        for (int tag = 26; tag <= 51; tag++) {
+            Map<String, String> merchant = readTlv(fields.get(String.valueOf(tag)));
+            if (merchant == null || !NAPAS_GUID.equals(merchant.get("00"))) {
+                continue;
+            }
+            Map<String, String> beneficiary = readTlv(merchant.get("01"));
+            if (beneficiary != null) {
+                bin = beneficiary.get("00");
+                account = beneficiary.get("01");
+            }
+            break;
+        }
+        if (account == null || account.isBlank()) {
+            return Optional.empty();
+        }
+
+        BigDecimal amount = null;
+        String rawAmount = fields.get("54");
+        if (rawAmount != null) {
+            try {
+                amount = new BigDecimal(rawAmount.trim());
+            } catch (NumberFormatException e) {
+                amount = null;
+            }
+        }
+
+        Map<String, String> additional = readTlv(fields.get("62"));
+        String purpose = additional != null ? additional.get("08") : null;
+
+        return Optional.of(new VietQrPayload(bin, account.trim(), amount, fields.get("59"), purpose));
+    }
+
+    /**
+     * @return tag → value, null nếu chuỗi không phải TLV hợp lệ
+     */
+    private static Map<String, String> readTlv(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        Map<String, String> fields = new LinkedHashMap<>();
+        int position = 0;
+        while (position < value.length()) {
+            if (position + 4 > value.length()) {
+                return null;
+            }
+            String tag = value.substring(position, position + 2);
+            // Chỉ nhận 2 chữ số ASCII: Integer.parseInt chấp nhận "-1" / "+5" (QR tự tạo có CRC đúng)
+            char high = value.charAt(position + 2);
+            char low = value.charAt(position + 3);
+            if (high < '0' || high > '9' || low < '0' || low > '9') {
+                return null;
+            }
+            int length = (high - '0') * 10 + (low - '0');
+            int start = position + 4;
+            if (start + length > value.length()) {
+                return null;
+            }
+            fields.putIfAbsent(tag, value.substring(start, start + length));
+            position = start + length;
+        }
+        return fields;
+    }
+
+    private static boolean hasValidCrc(String payload) {
+        int crcStart = payload.length() - 4;
+        if (crcStart < 4 || !payload.startsWith("6304", crcStart - 4)) {
+            return false;
+        }
+        int expected;
+        try {
+            expected = Integer.parseInt(payload.substring(crcStart), 16);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        return crc16(payload.substring(0, crcStart).getBytes(StandardCharsets.UTF_8)) == expected;
+    }
+
+    /**
+     * CRC-16/CCITT-FALSE (poly 0x1021, init 0xFFFF)
+     */
+    static int crc16(byte[] data) {
+        int crc = 0xFFFF;
+        for (byte b : data) {
+            crc ^= (b & 0xFF) << 8;
+            for (int bit = 0; bit < 8; bit++) {
+                crc = (crc & 0x8000) != 0 ? (crc << 1) ^ 0x1021 : crc << 1;
+                crc &= 0xFFFF;
+            }
+        }
+        return crc;
+    }
+}
@@ -0,0 +1,21 @@
+package com.subservice.imagehandle.qr;
+
+import java.math.BigDecimal;
+
+/**
+ * Thông tin chuyển khoản đọc từ VietQR (EMVCo merchant-presented QR của NAPAS)
+ *
+ * @param bin           mã BIN ngân hàng thụ hưởng (6 chữ số)
+ * @param accountNumber số tài khoản / số thẻ thụ hưởng
+ * @param amount        số tiền (tag 54), null nếu QR không có số tiền
+ * @param merchantName  tên thụ hưởng (tag 59), thường không có
+ * @param purpose       nội dung chuyển khoản (tag 62, sub-tag 08)
+ */
+public record VietQrPayload(
+    String bin,
+    String accountNumber,
+    BigDecimal amount,
+    String merchantName,
+    String purpose
+) {
+}
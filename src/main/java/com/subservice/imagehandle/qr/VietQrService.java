@@ -0,0 +1,201 @@
+package com.subservice.imagehandle.qr;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.ChecksumException;
+import com.google.zxing.DecodeHintType;
+import com.google.zxing.FormatException;
+import com.google.zxing.LuminanceSource;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.PlanarYUVLuminanceSource;
+import com.google.zxing.RGBLuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import com.subservice.imagehandle.dto.BillTransactionDTO;
+import com.subservice.imagehandle.service.ScanMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Đọc VietQR trên bill trước khi OCR (ZXing, pure Java)
+ *
+ * - Có VietQR → vẫn OCR + parse, field có trong QR ghi đè kết quả parse (QR có CRC nên tin cậy hơn OCR);
+ *   VietQR không chứa trạng thái / mã giao dịch nên hai field này luôn lấy từ OCR
+ * - ocr.qr.skip-ocr (mặc định tắt): QR có đủ số tài khoản + số tiền → dựng bill chỉ từ QR, không OCR.
+ *   Bill khi đó có status "Unknown", không có transactionCode / ocrTextId
+ * - Không có QR / không phải VietQR → OCR như bình thường
+ *
+ * Tên ngân hàng lấy theo BIN từ ocr.qr.banks (JSON: BIN → tên)
+ */
+@Slf4j
+@Service
+public class VietQrService {
+
+    private static final double QR_FIELD_CONFIDENCE = 1.0;
+
+    private final ScanMetrics scanMetrics;
+    private final boolean enabled;
+    private final boolean tryHarder;
+    private final boolean skipOcr;
+    private final Map<String, String> banksByBin;
+
+    public VietQrService(
+        ScanMetrics scanMetrics,
+        ObjectMapper objectMapper,
+        @Value("${ocr.qr.enabled:true}") boolean enabled,
+        @Value("${ocr.qr.try-harder:false}") boolean tryHarder,
+        @Value("${ocr.qr.skip-ocr:false}") boolean skipOcr,
+        @Value("${ocr.qr.banks:classpath:qr/napas-banks.json}") Resource banks
+    ) {
+        this.scanMetrics = scanMetrics;
+        this.enabled = enabled;
+        this.tryHarder = tryHarder;
+        this.skipOcr = skipOcr;
+
+        try (InputStream in = banks.getInputStream()) {
+            this.banksByBin = objectMapper.readValue(in, new TypeReference<LinkedHashMap<String, String>>() {});
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot load NAPAS bank list from " + banks, e);
+        }
+
+        log.info("VietQR fast path: enabled={}, tryHarder={}, skipOcr={}, banks={}",
+            enabled, tryHarder, skipOcr, banksByBin.size());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Cấu hình dạng chuỗi, dùng trong cache key
+     */
+    public String describe() {
+        return enabled ? "qr(" + tryHarder + "," + skipOcr + ")" : "noqr";
+    }
+
+    /**
+     * Tìm và decode VietQR trong ảnh đã tiền xử lý (downscale + grayscale: QR trên bill vẫn đủ vài px / module)
+     *
+     * @return payload VietQR, empty nếu không có QR hoặc QR không phải VietQR hợp lệ
+     */
+    public Optional<VietQrPayload> decode(BufferedImage image) {
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(luminance(image)));
+
+        Map<DecodeHintType, Object> hints = new EnumMap<>(DecodeHintType.class);
+        hints.put(DecodeHintType.POSSIBLE_FORMATS, List.of(BarcodeFormat.QR_CODE));
+        hints.put(DecodeHintType.CHARACTER_SET, "UTF-8");
+        if (tryHarder) {
+            hints.put(DecodeHintType.TRY_HARDER, Boolean.TRUE);
+        }
+
+        Result result;
+        try {
+            result = new QRCodeReader().decode(bitmap, hints);
+        } catch (NotFoundException | ChecksumException | FormatException e) {
+            scanMetrics.qrOutcome("none");
+            return Optional.empty();
+        }
+
+        Optional<VietQrPayload> payload = EmvQrParser.parse(result.getText());
+        if (payload.isEmpty()) {
+            log.debug("QR code found but is not a valid VietQR payload");
+            scanMetrics.qrOutcome("not_vietqr");
+        } else {
+            scanMetrics.qrOutcome(isComplete(payload.get()) ? "complete" : "partial");
+        }
+        return payload;
+    }
+
+    /**
+     * Ảnh xám dùng thẳng raster làm luminance (không cấp phát mảng RGB), ảnh khác đi qua getRGB
+     */
+    private static LuminanceSource luminance(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY
+            && image.getRaster().getDataBuffer() instanceof DataBufferByte buffer
+            && buffer.getNumBanks() == 1 && buffer.getData().length == width * height) {
+            return new PlanarYUVLuminanceSource(buffer.getData(), width, height, 0, 0, width, height, false);
+        }
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+        return new RGBLuminanceSource(width, height, pixels);
+    }
+
+    /**
+     * Bỏ qua OCR với QR đủ field (ocr.qr.skip-ocr): nhanh hơn nhưng mất status / transactionCode
+     */
+    public boolean canSkipOcr(VietQrPayload payload) {
+        return skipOcr && isComplete(payload);
+    }
+
+    /**
+     * QR có số tài khoản và số tiền
+     */
+    public boolean isComplete(VietQrPayload payload) {
+        return payload.accountNumber() != null && payload.amount() != null && payload.amount().signum() > 0;
+    }
+
+    /**
+     * Dựng bill chỉ từ QR (không có OCR text): status "Unknown", không có transactionCode
+     */
+    public BillTransactionDTO toBill(VietQrPayload payload) {
+        BillTransactionDTO bill = BillTransactionDTO.builder()
+            .status("Unknown")
+            .confidence(QR_FIELD_CONFIDENCE)
+            .fieldConfidence(new LinkedHashMap<>())
+            .build();
+        apply(bill, payload);
+        return bill;
+    }
+
+    /**
+     * Ghi đè các field có trong QR lên bill đã parse từ OCR, field QR không có giữ nguyên kết quả OCR
+     */
+    public void apply(BillTransactionDTO bill, VietQrPayload payload) {
+        Map<String, Double> fieldConfidence = bill.getFieldConfidence() != null
+            ? new LinkedHashMap<>(bill.getFieldConfidence())
+            : new LinkedHashMap<>();
+
+        bill.setAccountNumber(payload.accountNumber());
+        fieldConfidence.put("accountNumber", QR_FIELD_CONFIDENCE);
+
+        String bankName = payload.bin() != null ? banksByBin.get(payload.bin()) : null;
+        if (bankName != null) {
+            bill.setBankName(bankName);
+            fieldConfidence.put("bankName", QR_FIELD_CONFIDENCE);
+        }
+        if (payload.amount() != null && payload.amount().signum() > 0) {
+            bill.setAmount(payload.amount());
+            fieldConfidence.put("amount", QR_FIELD_CONFIDENCE);
+        }
+        if (isPresent(payload.merchantName())) {
+            bill.setRecipientName(payload.merchantName().trim());
+            fieldConfidence.put("recipientName", QR_FIELD_CONFIDENCE);
+        }
+        if (isPresent(payload.purpose())) {
+            bill.setTransferContent(payload.purpose().trim());
+            fieldConfidence.put("transferContent", QR_FIELD_CONFIDENCE);
+        }
+
+        bill.setFieldConfidence(fieldConfidence);
+    }
+
+    private static boolean isPresent(String value) {
+        return value != null && !value.isBlank();
+    }
+}
@@ -1,81 +1,133 @@
 package com.subservice.imagehandle.service;
 
 import com.subservice.imagehandle.dto.BillTransactionDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
  * Service parse structured data từ OCR text
+ *
+ * Text được chuẩn hóa một lần ({@link NormalizedText}): các pattern neo theo keyword chạy trên bản
+ * bỏ dấu + chữ thường nên chỉ cần viết dạng ASCII ("giao dich thanh cong" khớp cả "Giao dịch THÀNH CÔNG",
+ * "Giao dich thanh cong"), giá trị trả về được lấy lại từ text gốc theo offset.
+ *
+ * Tất cả pattern được compile một lần (static). Các candidate không có keyword đi kèm
+ * (số trần, số có dấu phân cách, chuỗi IN HOA) được thu thập trong một lần duyệt token
+ * duy nhất ({@link TokenScan}); chỉ các pattern neo theo keyword mới chạy regex riêng.
+ * Ngân hàng, stopword và họ được tìm trong một lần duyệt bằng {@link KeywordDictionary}.
  */
 @Slf4j
 @Service
 public class BillParser {
 
-    // Patterns
+    // Patterns: chạy trên text đã bỏ dấu + chữ thường (NormalizedText.folded)
     private static final Pattern ACCOUNT_PATTERN = Pattern.compile(
-        "(?i)(?:số|s[oố]|stk|t[àa]i\\s*kho[aả]n|account)\\s*[:\\-]?\\s*([0-9]{10,16})",
-        Pattern.CASE_INSENSITIVE
+        "(?:so|stk|tai\\s*khoan|account)\\s*[:\\-]?\\s*([0-9]{10,16})"
     );
-    
-    private static final Pattern BANK_PATTERN = Pattern.compile(
-        "(?i)(vietcombank|vcb|techcombank|mbbank|mb|acb|vietinbank|bidv|agribank|tpbank|vpbank|sacombank|ocb|msb|scb|seabank|vib|shb|hdbank|lienvietpostbank|tmcp)",
-        Pattern.CASE_INSENSITIVE
-    );
-    
+
     private static final Pattern RECIPIENT_PATTERN = Pattern.compile(
-        "(?i)(?:tên|ten|người|nguoi)\\s*(?:nhận|nhan|nh[aậ]n)\\s*[:\\-]?\\s*([A-Z\\s]{4,50})",
-        Pattern.CASE_INSENSITIVE
+        "(?:ten|nguoi)\\s*nhan\\s*[:\\-]?\\s*([a-z\\s]{4,50})"
     );
-    
+
     private static final Pattern TRANSACTION_CODE_PATTERN = Pattern.compile(
-        "(?i)(?:mã|ma)\\s*(?:giao|gd)\\s*(?:dịch|d[iị]ch)\\s*[:\\-]?\\s*([A-Z0-9]{8,20})",
-        Pattern.CASE_INSENSITIVE
+        "ma\\s*(?:giao|gd)\\s*dich\\s*[:\\-]?\\s*([a-z0-9]{8,20})"
     );
-    
+
     private static final Pattern CONTENT_PATTERN = Pattern.compile(
-        "(?i)(?:nội|noi)\\s*dung\\s*[:\\-]?\\s*(.{5,100})",
-        Pattern.CASE_INSENSITIVE
+        "noi\\s*dung\\s*[:\\-]?\\s*(.{5,100})"
+    );
+
+    private static final Pattern CONTENT_FALLBACK_PATTERN = Pattern.compile(
+        "([a-z]{3,}(?:\\s+[a-z]{3,}){1,5}\\s+(?:chuyen|tien|chuyen\\s*tien))"
     );
-    
+
     private static final Pattern STATUS_PATTERN = Pattern.compile(
-        "(?i)(?:giao|gd)\\s*(?:dịch|d[iị]ch)\\s*(?:thành|thanh)\\s*(?:công|cong)",
-        Pattern.CASE_INSENSITIVE
+        "(?:giao|gd)\\s*dich\\s*thanh\\s*cong"
+    );
+
+    // Amount: standalone number (cả dòng chỉ có số tiền)
+    private static final Pattern STANDALONE_AMOUNT_PATTERN = Pattern.compile(
+        "^\\s*([0-9]{1,3}[.,\\s]?[0-9]{3}(?:[.,\\s][0-9]{3})*)\\s*(?:(?:vnd|dong|d)(?![a-z]))?\\s*$"
     );
 
+    // Amount: "Giao dịch thành công" + số
+    private static final Pattern SUCCESS_AMOUNT_PATTERN = Pattern.compile(
+        "giao\\s*dich\\s*thanh\\s*cong[^0-9]{0,50}([0-9]{1,3}(?:[.,\\s][0-9]{3})*)"
+    );
+
+    // Amount: số + VND / đ / đồng (text đã bỏ dấu: đ → d, nên hậu tố phải đứng riêng - "1.000 den" không phải tiền)
+    private static final Pattern CURRENCY_AMOUNT_PATTERN = Pattern.compile(
+        "([0-9]{1,3}(?:[.,\\s][0-9]{3})+)\\s*(?:vnd|dong|d)(?![a-z])"
+    );
+
+    private static final Pattern WHITESPACE_PATTERN = Pattern.compile("\\s+");
+
+    private static final String[] FIELDS = {"amount", "accountNumber", "recipientName", "bankName",
+                                            "transactionCode", "transferContent", "status"};
+
+    // bill.parser.field{field, outcome=found|missing}: tỉ lệ extract thành công từng field
+    private final Map<String, Counter> foundCounters = new HashMap<>();
+    private final Map<String, Counter> missingCounters = new HashMap<>();
+
+    private final KeywordDictionary keywordDictionary;
+
+    public BillParser(MeterRegistry meterRegistry, KeywordDictionary keywordDictionary) {
+        this.keywordDictionary = keywordDictionary;
+        for (String field : FIELDS) {
+            foundCounters.put(field, fieldCounter(meterRegistry, field, "found"));
+            missingCounters.put(field, fieldCounter(meterRegistry, field, "missing"));
+        }
+    }
+
+    private static Counter fieldCounter(MeterRegistry meterRegistry, String field, String outcome) {
+        return Counter.builder("bill.parser.field")
+            .description("Bill fields extracted (found) or not (missing) by BillParser")
+            .tag("field", field)
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
     /**
      * Parse OCR text thành structured data
      */
     public BillTransactionDTO parse(String ocrText, String imagePath, double confidence) {
         log.debug("Parsing bill transaction from OCR text");
-        
-        String normalizedText = normalizeText(ocrText);
-        
+
+        NormalizedText normalized = NormalizedText.of(ocrText);
+        String normalizedText = normalized.text();
+        TokenScan tokens = TokenScan.scan(normalizedText);
+        KeywordDictionary.Hits keywords = keywordDictionary.scan(normalizedText);
+
         // Extract các thông tin
-        BigDecimal amount = extractAmount(normalizedText);
-        String accountNumber = extractAccountNumber(normalizedText);
-        String recipientName = extractRecipientName(normalizedText);
-        String bankName = extractBankName(normalizedText);
-        String transactionCode = extractTransactionCode(normalizedText);
-        String transferContent = extractContent(normalizedText);
-        String status = extractStatus(normalizedText);
-        
+        BigDecimal amount = extractAmount(normalized, tokens);
+        String accountNumber = extractAccountNumber(normalized, tokens);
+        String recipientName = extractRecipientName(normalized, tokens, keywords);
+        String bankName = extractBankName(normalizedText, keywords);
+        String transactionCode = extractTransactionCode(normalized, tokens);
+        String transferContent = extractContent(normalized);
+        String status = extractStatus(normalized);
+
         // Smart swap: Nếu accountNumber null nhưng transactionCode giống STK
-        if ((accountNumber == null || accountNumber.isEmpty()) && 
-            transactionCode != null && 
+        if ((accountNumber == null || accountNumber.isEmpty()) &&
+            transactionCode != null &&
             isLikelyAccountNumber(transactionCode)) {
-            
+
             log.info("Swapping: transactionCode looks like account number");
             accountNumber = transactionCode;
             transactionCode = null;
             log.info("After swap: accountNumber={}, transactionCode={}", accountNumber, transactionCode);
         }
-        
+
         BillTransactionDTO result = BillTransactionDTO.builder()
             .amount(amount)
             .accountNumber(accountNumber)
@@ -84,118 +136,104 @@ public class BillParser {
             .transactionCode(transactionCode)
             .transferContent(transferContent)
             .status(status)
+            .confidence(confidence)
             .build();
-        
-        log.info("Parsed bill: amount={}, recipient={}, account={}, bank={}, code={}", 
+
+        countField("amount", amount);
+        countField("accountNumber", accountNumber);
+        countField("recipientName", recipientName);
+        countField("bankName", bankName);
+        countField("transactionCode", transactionCode);
+        countField("transferContent", transferContent);
+        countField("status", "Unknown".equals(status) ? null : status);
+
+        log.info("Parsed bill: amount={}, recipient={}, account={}, bank={}, code={}",
             amount, recipientName, accountNumber, bankName, transactionCode);
-        
+
         return result;
     }
 
-    private String normalizeText(String text) {
-        return text
-            .replaceAll("\\s+", " ")
-            .replaceAll("\\n+", "\n")
-            .trim();
+    private void countField(String field, Object value) {
+        (value != null ? foundCounters : missingCounters).get(field).increment();
     }
 
     /**
      * Extract số tiền - 5 patterns
      */
-    private BigDecimal extractAmount(String text) {
+    private BigDecimal extractAmount(NormalizedText text, TokenScan tokens) {
         log.debug("Extracting amount from text");
-        
-        List<Long> candidates = new ArrayList<>();
-        
-        // Pattern 0: Standalone number ở đầu
-        String[] lines = text.split("\\n");
-        for (int i = 0; i < Math.min(5, lines.length); i++) {
-            String line = lines[i].trim();
-            Pattern standalone = Pattern.compile("^\\s*([0-9]{1,3}[.,\\s]?[0-9]{3}(?:[.,\\s][0-9]{3})*)\\s*(?:VND|đ|dong|d)?\\s*$", Pattern.CASE_INSENSITIVE);
-            Matcher m = standalone.matcher(line);
-            if (m.find()) {
-                Long amount = parseAmount(m.group(1));
-                if (amount != null && amount >= 1000 && amount <= 1_000_000_000) {
-                    candidates.add(amount);
-                }
+
+        long best = tokens.maxAmount;
+
+        // Pattern 0: Standalone number (text đã normalize thành một dòng)
+        Matcher matcher = STANDALONE_AMOUNT_PATTERN.matcher(text.folded());
+        if (matcher.find()) {
+            long amount = parseAmount(matcher.group(1));
+            if (amount >= 1000 && amount <= 1_000_000_000) {
+                best = Math.max(best, amount);
             }
         }
-        
+
         // Pattern 1: "Giao dịch thành công" + số
-        Pattern pattern1 = Pattern.compile(
-            "(?i)giao\\s*[dđ][iịĩỉ]ch\\s*th[àaả]nh\\s*c[ôo]ng[^0-9]{0,50}([0-9]{1,3}(?:[.,\\s][0-9]{3})*)",
-            Pattern.DOTALL
-        );
-        Matcher matcher = pattern1.matcher(text);
+        matcher = SUCCESS_AMOUNT_PATTERN.matcher(text.folded());
         while (matcher.find()) {
-            Long amount = parseAmount(matcher.group(1));
-            if (amount != null && amount >= 1000) {
-                candidates.add(amount);
+            long amount = parseAmount(matcher.group(1));
+            if (amount >= 1000) {
+                best = Math.max(best, amount);
             }
         }
-        
+
         // Pattern 2: Số + VND
-        Pattern pattern2 = Pattern.compile(
-            "([0-9]{1,3}(?:[.,\\s][0-9]{3})+)\\s*(?:VND|đ|vnd|dong|đồng)",
-            Pattern.CASE_INSENSITIVE
-        );
-        matcher = pattern2.matcher(text);
-        while (matcher.find()) {
-            Long amount = parseAmount(matcher.group(1));
-            if (amount != null && amount >= 1000) {
-                candidates.add(amount);
-            }
-        }
-        
-        // Pattern 3: Formatted number
-        Pattern pattern3 = Pattern.compile("\\b([0-9]{1,3}[.,][0-9]{3}(?:[.,][0-9]{3})*)\\b");
-        matcher = pattern3.matcher(text);
+        matcher = CURRENCY_AMOUNT_PATTERN.matcher(text.folded());
         while (matcher.find()) {
-            Long amount = parseAmount(matcher.group(1));
-            if (amount != null && amount >= 1000) {
-                candidates.add(amount);
+            long amount = parseAmount(matcher.group(1));
+            if (amount >= 1000) {
+                best = Math.max(best, amount);
             }
         }
-        
-        // Pattern 4: Raw number % 1000
-        Pattern pattern4 = Pattern.compile("\\b([0-9]{4,10})\\b");
-        matcher = pattern4.matcher(text);
-        while (matcher.find()) {
-            Long amount = parseAmount(matcher.group(1));
-            if (amount != null && amount >= 1000 && amount % 1000 == 0) {
-                // Check not account number
-                if (matcher.group(1).length() < 10 || amount % 1000 == 0) {
-                    candidates.add(amount);
-                }
-            }
-        }
-        
-        if (candidates.isEmpty()) {
+
+        // Pattern 3 (formatted number) và 4 (raw number % 1000) đã có trong TokenScan
+
+        if (best < 0) {
             log.warn("No amount found in text");
             return null;
         }
-        
+
         // Lấy số lớn nhất
-        BigDecimal result = BigDecimal.valueOf(candidates.stream().max(Long::compare).orElse(null));
+        BigDecimal result = BigDecimal.valueOf(best);
         log.info("Extracted amount: {}", result);
         return result;
     }
 
-    private Long parseAmount(String amountStr) {
-        try {
-            String cleaned = amountStr.replaceAll("[.,\\s]", "");
-            return Long.parseLong(cleaned);
-        } catch (NumberFormatException e) {
-            return null;
+    /**
+     * Parse số tiền, bỏ qua dấu phân cách (. , khoảng trắng)
+     *
+     * @return -1 nếu không parse được
+     */
+    private static long parseAmount(CharSequence amountStr) {
+        long value = 0;
+        int digits = 0;
+        for (int i = 0; i < amountStr.length(); i++) {
+            char c = amountStr.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (value > (Long.MAX_VALUE - (c - '0')) / 10) {
+                    return -1;
+                }
+                value = value * 10 + (c - '0');
+                digits++;
+            } else if (c != '.' && c != ',' && !isRegexWhitespace(c)) {
+                return -1;
+            }
         }
+        return digits > 0 ? value : -1;
     }
 
     /**
      * Extract account number
      */
-    private String extractAccountNumber(String text) {
-        Matcher matcher = ACCOUNT_PATTERN.matcher(text);
-        
+    private String extractAccountNumber(NormalizedText text, TokenScan tokens) {
+        Matcher matcher = ACCOUNT_PATTERN.matcher(text.folded());
+
         List<String> candidates = new ArrayList<>();
         while (matcher.find()) {
             String account = matcher.group(1);
@@ -203,192 +241,206 @@ public class BillParser {
                 candidates.add(account);
             }
         }
-        
-        // Fallback: tìm số 10-16 chữ số
+
+        // Fallback: số 10-16 chữ số
         if (candidates.isEmpty()) {
-            Pattern fallback = Pattern.compile("\\b([0-9]{10,16})\\b");
-            matcher = fallback.matcher(text);
-            while (matcher.find()) {
-                candidates.add(matcher.group(1));
-            }
+            candidates = tokens.accountNumbers;
         }
-        
+
         // Ưu tiên số 10-13 chữ số
-        return candidates.stream()
-            .filter(s -> s.length() >= 10 && s.length() <= 13)
-            .findFirst()
-            .orElse(candidates.isEmpty() ? null : candidates.get(0));
+        for (String candidate : candidates) {
+            if (candidate.length() <= 13) {
+                return candidate;
+            }
+        }
+        return candidates.isEmpty() ? null : candidates.get(0);
     }
 
     /**
      * Extract recipient name với Vietnamese splitting
      */
-    private String extractRecipientName(String text) {
-        List<String> candidates = new ArrayList<>();
-        
+    private String extractRecipientName(NormalizedText text, TokenScan tokens, KeywordDictionary.Hits keywords) {
+        String best = null;
+        int bestWords = 0;
+
         // Pattern 1: "Tên người nhận" + tên
-        Matcher matcher = RECIPIENT_PATTERN.matcher(text);
+        Matcher matcher = RECIPIENT_PATTERN.matcher(text.folded());
         if (matcher.find()) {
-            String name = matcher.group(1).trim().replaceAll("\\s+", " ");
-            candidates.add(name);
+            String captured = text.original(matcher.start(1), matcher.end(1)).trim();
+            best = WHITESPACE_PATTERN.matcher(leadingUpperWords(captured)).replaceAll(" ");
+            bestWords = countWords(best);
         }
-        
+
         // Pattern 2: IN HOA có space
-        Pattern pattern2 = Pattern.compile("\\b([A-Z]{2,}(?:\\s+[A-Z]{2,}){1,5})\\b");
-        matcher = pattern2.matcher(text);
-        while (matcher.find()) {
-            String candidate = matcher.group(1).trim().replaceAll("\\s+", " ");
-            String[] words = candidate.split("\\s+");
-            
-            if (words.length >= 2 && words.length <= 5) {
-                boolean valid = true;
-                for (String word : words) {
-                    if (word.length() < 2) {
-                        valid = false;
-                        break;
-                    }
-                }
-                if (valid && !isCommonWord(candidate)) {
-                    candidates.add(candidate);
-                }
+        for (TokenScan.Span span : tokens.upperPhrases) {
+            if (isCommonWord(keywords, span)) {
+                continue;
+            }
+            String candidate = text.text().substring(span.start(), span.end());
+            int words = countWords(candidate);
+            if (best == null || isBetterName(candidate, words, best, bestWords)) {
+                best = candidate;
+                bestWords = words;
             }
         }
-        
+
         // Pattern 3: DÍNH LIỀN (LEVANNAM)
-        Pattern pattern3 = Pattern.compile("\\b([A-Z]{6,20})\\b");
-        matcher = pattern3.matcher(text);
-        while (matcher.find()) {
-            String candidate = matcher.group(1);
-            
-            if (isCommonWord(candidate) || isBankName(candidate)) {
+        for (TokenScan.Span span : tokens.upperWords) {
+            if (isCommonWord(keywords, span) || isBankName(keywords, span)) {
+                continue;
+            }
+
+            String candidate = text.text().substring(span.start(), span.end());
+            String formatted = splitVietnameseName(candidate, keywords.surnamesAt(span.start(), span.end()));
+            if (formatted == null) {
                 continue;
             }
-            
-            String formatted = splitVietnameseName(candidate);
-            if (formatted != null) {
-                candidates.add(formatted);
+            int words = countWords(formatted);
+            if (best == null || isBetterName(formatted, words, best, bestWords)) {
+                best = formatted;
+                bestWords = words;
             }
         }
-        
-        if (candidates.isEmpty()) {
-            return null;
+
+        // Lấy tên có nhiều từ nhất (bằng nhau thì lấy tên dài hơn, rồi tên xuất hiện trước)
+        return best;
+    }
+
+    /**
+     * Các từ IN HOA ở đầu chuỗi ("TRAN THI MINH THU Tài khoản" → "TRAN THI MINH THU"),
+     * giữ nguyên chuỗi nếu từ đầu tiên không viết hoa
+     */
+    private static String leadingUpperWords(String value) {
+        int end = 0;
+        int i = 0;
+        while (i < value.length()) {
+            int wordEnd = i;
+            boolean upper = true;
+            while (wordEnd < value.length() && !isRegexWhitespace(value.charAt(wordEnd))) {
+                upper &= !Character.isLowerCase(value.charAt(wordEnd));
+                wordEnd++;
+            }
+            if (!upper) {
+                break;
+            }
+            end = wordEnd;
+            i = wordEnd;
+            while (i < value.length() && isRegexWhitespace(value.charAt(i))) {
+                i++;
+            }
         }
-        
-        // Lấy tên có nhiều từ nhất
-        return candidates.stream()
-            .max((a, b) -> {
-                int wordCountA = a.split("\\s+").length;
-                int wordCountB = b.split("\\s+").length;
-                if (wordCountA != wordCountB) {
-                    return Integer.compare(wordCountA, wordCountB);
-                }
-                return Integer.compare(a.length(), b.length());
-            })
-            .orElse(null);
+        return end > 0 ? value.substring(0, end) : value;
+    }
+
+    private static boolean isBetterName(String candidate, int words, String best, int bestWords) {
+        if (words != bestWords) {
+            return words > bestWords;
+        }
+        return candidate.length() > best.length();
+    }
+
+    /**
+     * Số từ của chuỗi đã trim và chỉ có một dấu cách giữa các từ
+     */
+    private static int countWords(String value) {
+        int words = 1;
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) == ' ') {
+                words++;
+            }
+        }
+        return words;
     }
 
-    private boolean isCommonWord(String word) {
-        String upper = word.toUpperCase();
-        return upper.contains("NGUOI") || upper.contains("NHAN") ||
-               upper.contains("TAI") || upper.contains("KHOAN") ||
-               upper.contains("NGAN") || upper.contains("HANG") ||
-               upper.contains("CHUYEN") || upper.contains("TIEN") ||
-               upper.contains("GIAO") || upper.contains("DICH") ||
-               upper.equals("VND") || upper.equals("DONG");
+    /**
+     * Chứa stopword (NGUOI, NHAN, ...) hoặc đúng bằng VND / DONG
+     */
+    private static boolean isCommonWord(KeywordDictionary.Hits keywords, TokenScan.Span span) {
+        return keywords.contains(KeywordDictionary.STOPWORD, span.start(), span.end())
+            || keywords.matches(KeywordDictionary.EXACT_STOPWORD, span.start(), span.end());
     }
 
-    private boolean isBankName(String word) {
-        String upper = word.toUpperCase();
-        return upper.contains("VIETCOMBANK") || upper.contains("TECHCOMBANK") ||
-               upper.contains("BIDV") || upper.contains("AGRIBANK") ||
-               upper.contains("VIETINBANK") || upper.contains("TMCP");
+    private static boolean isBankName(KeywordDictionary.Hits keywords, TokenScan.Span span) {
+        return keywords.contains(KeywordDictionary.BANK_WORD, span.start(), span.end());
     }
 
-    private String splitVietnameseName(String concatenated) {
+    /**
+     * @param surnames các họ là tiền tố của concatenated, theo thứ tự ưu tiên
+     */
+    private String splitVietnameseName(String concatenated, List<String> surnames) {
         if (concatenated == null || concatenated.length() < 6) {
             return null;
         }
-        
-        String[] surnames = {"LE", "LA", "LY", "LU", "LO", "LAM", "LAI",
-                            "NGUYEN", "TRAN", "PHAM", "HOANG", "VU", "VO", "DANG",
-                            "BUI", "DO", "HO", "NGO", "DUONG", "DINH"};
-        
+
         for (String surname : surnames) {
-            if (concatenated.startsWith(surname)) {
-                String remaining = concatenated.substring(surname.length());
-                
-                if (remaining.length() >= 4 && remaining.length() <= 12) {
-                    int mid = remaining.length() / 2;
-                    
-                    for (int offset = 0; offset <= 2; offset++) {
-                        int breakPoint = mid + offset;
-                        if (breakPoint > 2 && breakPoint < remaining.length() - 2) {
-                            String part1 = remaining.substring(0, breakPoint);
-                            String part2 = remaining.substring(breakPoint);
-                            
-                            if (part1.length() >= 2 && part2.length() >= 2) {
-                                return surname + " " + part1 + " " + part2;
-                            }
+            String remaining = concatenated.substring(surname.length());
+
+            if (remaining.length() >= 4 && remaining.length() <= 12) {
+                int mid = remaining.length() / 2;
+
+                for (int offset = 0; offset <= 2; offset++) {
+                    int breakPoint = mid + offset;
+                    if (breakPoint > 2 && breakPoint < remaining.length() - 2) {
+                        String part1 = remaining.substring(0, breakPoint);
+                        String part2 = remaining.substring(breakPoint);
+
+                        if (part1.length() >= 2 && part2.length() >= 2) {
+                            return surname + " " + part1 + " " + part2;
                         }
                     }
                 }
             }
         }
-        
+
         return null;
     }
 
-    private String extractBankName(String text) {
-        Matcher matcher = BANK_PATTERN.matcher(text);
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-        return null;
+    /**
+     * Ngân hàng xuất hiện đầu tiên trong text (cùng vị trí thì lấy tên dài hơn: MBBANK thay vì MB)
+     */
+    private String extractBankName(String text, KeywordDictionary.Hits keywords) {
+        int[] match = keywords.first(KeywordDictionary.BANK);
+        return match != null ? text.substring(match[0], match[1]) : null;
     }
 
-    private String extractTransactionCode(String text) {
-        Matcher matcher = TRANSACTION_CODE_PATTERN.matcher(text);
+    private String extractTransactionCode(NormalizedText text, TokenScan tokens) {
+        Matcher matcher = TRANSACTION_CODE_PATTERN.matcher(text.folded());
         if (matcher.find()) {
-            return matcher.group(1).trim();
+            // Mã giao dịch chỉ gồm chữ/số ASCII, không lấy phần chữ có dấu dính liền phía sau
+            String code = asciiPrefix(text.original(matcher.start(1), matcher.end(1)));
+            if (code.length() >= 8) {
+                return code;
+            }
         }
-        
+
         // Fallback: số dài 10-20
-        Pattern fallback = Pattern.compile("\\b([0-9]{10,20})\\b");
-        matcher = fallback.matcher(text);
-        
-        List<String> candidates = new ArrayList<>();
-        while (matcher.find()) {
-            String code = matcher.group(1);
-            if (code.length() >= 10 && code.length() <= 20) {
-                candidates.add(code);
-            }
+        return tokens.longestCode;
+    }
+
+    private static String asciiPrefix(String value) {
+        int end = 0;
+        while (end < value.length() && value.charAt(end) < 128) {
+            end++;
         }
-        
-        return candidates.stream()
-            .max((a, b) -> Integer.compare(a.length(), b.length()))
-            .orElse(null);
+        return value.substring(0, end);
     }
 
-    private String extractContent(String text) {
-        Matcher matcher = CONTENT_PATTERN.matcher(text);
+    private String extractContent(NormalizedText text) {
+        Matcher matcher = CONTENT_PATTERN.matcher(text.folded());
         if (matcher.find()) {
-            return matcher.group(1).trim();
-        }
-        
-        Pattern fallback = Pattern.compile(
-            "([A-Z]{3,}(?:\\s+[A-Z]{3,}){1,5}\\s+(?:chuyen|tien|chuyen\\s*tien))",
-            Pattern.CASE_INSENSITIVE
-        );
-        matcher = fallback.matcher(text);
+            return text.original(matcher.start(1), matcher.end(1)).trim();
+        }
+
+        matcher = CONTENT_FALLBACK_PATTERN.matcher(text.folded());
         if (matcher.find()) {
-            return matcher.group(1).trim();
+            return text.original(matcher.start(1), matcher.end(1)).trim();
         }
-        
+
         return null;
     }
 
-    private String extractStatus(String text) {
-        Matcher matcher = STATUS_PATTERN.matcher(text);
+    private String extractStatus(NormalizedText text) {
+        Matcher matcher = STATUS_PATTERN.matcher(text.folded());
         if (matcher.find()) {
             return "Thành công";
         }
@@ -399,30 +451,210 @@ public class BillParser {
         if (value == null || value.isEmpty()) {
             return false;
         }
-        
-        String cleaned = value.replaceAll("[\\s.\\-]", "");
-        
-        if (!cleaned.matches("^[0-9]+$")) {
-            return false;
+
+        // Bỏ khoảng trắng, dấu chấm, gạch ngang; phần còn lại phải toàn chữ số
+        StringBuilder cleaned = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                cleaned.append(c);
+            } else if (c != '.' && c != '-' && !isRegexWhitespace(c)) {
+                return false;
+            }
         }
-        
+
         int length = cleaned.length();
         if (length < 10 || length > 16) {
             return false;
         }
-        
+
         try {
-            long number = Long.parseLong(cleaned);
-            
+            long number = Long.parseLong(cleaned.toString());
+
             if (number % 1000 != 0) {
                 log.debug("Value {} looks like account number (length={}, not divisible by 1000)", value, length);
                 return true;
             }
-            
+
         } catch (NumberFormatException e) {
             return false;
         }
-        
+
         return false;
     }
+
+    /**
+     * Tương đương {@code \s} của java.util.regex
+     */
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Tương đương {@code \w} của java.util.regex (ASCII)
+     */
+    private static boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+
+    /**
+     * Kết quả một lần duyệt token (chuỗi ký tự \w liên tiếp) trên text đã normalize.
+     *
+     * Thay cho các regex quét lại toàn bộ text:
+     * - {@code \b([0-9]{4,10})\b} chia hết 1000 → maxAmount
+     * - {@code \b([0-9]{1,3}[.,][0-9]{3}(?:[.,][0-9]{3})*)\b} → maxAmount
+     * - {@code \b([0-9]{10,16})\b} → accountNumbers
+     * - {@code \b([0-9]{10,20})\b} dài nhất → longestCode
+     * - {@code \b([A-Z]{2,}(?:\s+[A-Z]{2,}){1,5})\b} (2-5 từ) → upperPhrases
+     * - {@code \b([A-Z]{6,20})\b} → upperWords
+     *
+     * upperPhrases / upperWords là vị trí trong text, để tra keyword theo vùng
+     */
+    private static final class TokenScan {
+        private static final int MAX_PHRASE_WORDS = 6;
+        private static final int MAX_NAME_WORDS = 5;
+
+        long maxAmount = -1;
+        final List<String> accountNumbers = new ArrayList<>();
+        String longestCode;
+        final List<Span> upperPhrases = new ArrayList<>();
+        final List<Span> upperWords = new ArrayList<>();
+
+        // Chuỗi token IN HOA liền nhau (chỉ cách bởi khoảng trắng) đang xét
+        private final List<Span> upperRun = new ArrayList<>();
+        private int upperRunEnd = -1;
+        // Vị trí kết thúc của số có dấu phân cách vừa match, token trước đó không được bắt đầu match mới
+        private int groupedNumberEnd = -1;
+
+        static TokenScan scan(String text) {
+            TokenScan scan = new TokenScan();
+            int length = text.length();
+            int i = 0;
+            while (i < length) {
+                if (!isWordChar(text.charAt(i))) {
+                    i++;
+                    continue;
+                }
+
+                int start = i;
+                boolean digits = true;
+                boolean upper = true;
+                while (i < length && isWordChar(text.charAt(i))) {
+                    char c = text.charAt(i);
+                    digits &= c >= '0' && c <= '9';
+                    upper &= c >= 'A' && c <= 'Z';
+                    i++;
+                }
+                scan.onToken(text, start, i, digits, upper);
+            }
+            scan.flushUpperRun();
+            return scan;
+        }
+
+        private void onToken(String text, int start, int end, boolean digits, boolean upper) {
+            int length = end - start;
+
+            if (upper && length >= 2) {
+                if (!upperRun.isEmpty() && !isWhitespaceGap(text, upperRunEnd, start)) {
+                    flushUpperRun();
+                }
+                upperRun.add(new Span(start, end));
+                upperRunEnd = end;
+
+                if (length >= 6 && length <= 20) {
+                    upperWords.add(new Span(start, end));
+                }
+                return;
+            }
+            flushUpperRun();
+
+            if (!digits) {
+                return;
+            }
+
+            if (length >= 4 && length <= 10) {
+                long amount = parseAmount(text.subSequence(start, end));
+                if (amount >= 1000 && amount % 1000 == 0) {
+                    maxAmount = Math.max(maxAmount, amount);
+                }
+            }
+            if (length >= 10 && length <= 16) {
+                accountNumbers.add(text.substring(start, end));
+            }
+            if (length >= 10 && length <= 20 && (longestCode == null || length > longestCode.length())) {
+                longestCode = text.substring(start, end);
+            }
+            if (length <= 3 && start >= groupedNumberEnd) {
+                scanGroupedNumber(text, start, end);
+            }
+        }
+
+        /**
+         * Số có dấu phân cách hàng nghìn: 1-3 chữ số rồi một hoặc nhiều nhóm [.,] + đúng 3 chữ số
+         */
+        private void scanGroupedNumber(String text, int start, int end) {
+            int matchEnd = end;
+            while (matchEnd + 4 <= text.length()) {
+                char separator = text.charAt(matchEnd);
+                if (separator != '.' && separator != ',') {
+                    break;
+                }
+                int groupEnd = matchEnd + 1;
+                while (groupEnd < text.length() && isWordChar(text.charAt(groupEnd))) {
+                    char c = text.charAt(groupEnd);
+                    if (c < '0' || c > '9') {
+                        groupEnd = -1;
+                        break;
+                    }
+                    groupEnd++;
+                }
+                if (groupEnd != matchEnd + 4) {
+                    break;
+                }
+                matchEnd = groupEnd;
+            }
+
+            if (matchEnd == end) {
+                return;
+            }
+            groupedNumberEnd = matchEnd;
+
+            long amount = parseAmount(text.subSequence(start, matchEnd));
+            if (amount >= 1000) {
+                maxAmount = Math.max(maxAmount, amount);
+            }
+        }
+
+        /**
+         * Tách chuỗi token IN HOA thành cụm tối đa 6 từ (như regex match lần lượt), giữ cụm 2-5 từ
+         *
+         * Text đã normalize nên các từ trong cụm cách nhau đúng một dấu cách
+         */
+        private void flushUpperRun() {
+            int index = 0;
+            while (upperRun.size() - index >= 2) {
+                int count = Math.min(MAX_PHRASE_WORDS, upperRun.size() - index);
+                if (count <= MAX_NAME_WORDS) {
+                    upperPhrases.add(new Span(upperRun.get(index).start(), upperRun.get(index + count - 1).end()));
+                }
+                index += count;
+            }
+            upperRun.clear();
+        }
+
+        /**
+         * Vị trí [start, end) trong text đã normalize
+         */
+        record Span(int start, int end) {
+        }
+
+        private static boolean isWhitespaceGap(String text, int from, int to) {
+            for (int i = from; i < to; i++) {
+                if (!isRegexWhitespace(text.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
 }
@@ -1,21 +1,52 @@
 package com.subservice.imagehandle.service;
 
+import com.subservice.imagehandle.dedup.NearDuplicateIndex;
+import com.subservice.imagehandle.dedup.PerceptualHash;
+import com.subservice.imagehandle.dto.BatchScanItemDTO;
+import com.subservice.imagehandle.dto.BatchScanResponseDTO;
 import com.subservice.imagehandle.dto.BillTransactionDTO;
+import com.subservice.imagehandle.dto.ReparseRequestDTO;
+import com.subservice.imagehandle.layout.LayoutOcrService;
+import com.subservice.imagehandle.preprocess.ImagePreprocessingPipeline;
+import com.subservice.imagehandle.preprocess.ImagePreprocessingPipeline.PreprocessResult;
+import com.subservice.imagehandle.qr.VietQrPayload;
+import com.subservice.imagehandle.qr.VietQrService;
 import com.subservice.imagehandle.service.TesseractOcrService.OcrResult;
+import com.subservice.imagehandle.upload.ImageLimits;
+import com.subservice.imagehandle.upload.StreamingUploadReader.RejectedUploadException;
+import com.subservice.imagehandle.worker.OcrWorkerPool;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Service chính để xử lý scan bill
- * Workflow: MultipartFile → Temp File → OCR → Parse → JSON Response
+ * Workflow: MultipartFile → BufferedImage (in-memory) → Preprocess → VietQR → OCR → Parse → JSON Response
+ * Kết quả được cache trong memory (ScanResultCache) và trên đĩa nếu bật ocr.store (ScanResultStore)
+ * Bill đã scan bị gửi lại (ảnh lưu lại / nén lại) được đánh dấu duplicateOf (NearDuplicateIndex, vẫn OCR đầy đủ)
  * 
- * Note: Không lưu file upload - chỉ dùng temp file để OCR
+ * Note: Không lưu file upload - temp file chỉ dùng làm fallback khi ImageIO không decode được
  */
 @Slf4j
 @Service
@@ -24,16 +55,37 @@ public class BillScanService {
 
     private final TesseractOcrService tesseractOcrService;
     private final BillParser billParser;
+    private final ScanResultCache scanResultCache;
+    private final ScanResultStore scanResultStore;
+    private final TesseractEnginePool enginePool;
+    private final ExecutorService ocrTaskExecutor;
+    private final ImagePreprocessingPipeline preprocessingPipeline;
+    private final ScanMetrics scanMetrics;
+    private final OcrConcurrencyLimiter ocrConcurrencyLimiter;
+    private final ScanAdmissionControl admissionControl;
+    private final LayoutOcrService layoutOcrService;
+    private final TieredOcrService tieredOcrService;
+    private final VietQrService vietQrService;
+    private final NearDuplicateIndex nearDuplicateIndex;
+    private final ScanCoalescer scanCoalescer;
+    private final ImageLimits imageLimits;
 
     /**
      * Validate uploaded file
      */
-    private void validateFile(MultipartFile file) {
+    void validateFile(MultipartFile file) {
         if (file == null || file.isEmpty()) {
             throw new IllegalArgumentException("File is empty");
         }
         
-        String filename = file.getOriginalFilename();
+        validateFile(file.getOriginalFilename(), file.getSize());
+    }
+
+    void validateFile(String filename, long size) {
+        if (size == 0) {
+            throw new IllegalArgumentException("File is empty");
+        }
+        
         if (filename == null) {
             throw new IllegalArgumentException("Filename is null");
         }
@@ -47,7 +99,7 @@ public class BillScanService {
         
         // Check file size (max 10MB)
         long maxSize = 10 * 1024 * 1024; // 10MB
-        if (file.getSize() > maxSize) {
+        if (size > maxSize) {
             throw new IllegalArgumentException("File size exceeds 10MB limit");
         }
     }
@@ -57,13 +109,14 @@ public class BillScanService {
      * 
      * Workflow:
      * 1. Validate file
-     * 2. Tạo temp file từ MultipartFile
-     * 3. OCR từ temp file
+     * 2. Decode bytes upload thành BufferedImage trong memory, đọc VietQR nếu có
+     *    (ocr.qr.skip-ocr và QR đủ số tài khoản + số tiền → bỏ qua bước 3-4)
+     * 3. Tiền xử lý ảnh (ImagePreprocessingPipeline) rồi OCR từ BufferedImage
+     *    (fallback: temp file nếu ImageIO không decode được)
      * 4. Parse structured data
-     * 5. Xóa temp file
-     * 6. Trả về JSON
+     * 5. Trả về JSON
      * 
-     * Note: KHÔNG lưu file upload - chỉ dùng temp file cho OCR
+     * Note: KHÔNG lưu file upload - temp file chỉ dùng khi fallback
      * 
      * @param file ảnh bill từ client (JPG/PNG, max 10MB)
      * @return BillTransactionDTO chứa thông tin structured
@@ -72,50 +125,450 @@ public class BillScanService {
         log.info("Starting bill scan for file: {}, size: {} bytes", 
             file.getOriginalFilename(), file.getSize());
         
-        // 1. Validate file
-        validateFile(file);
+        long scanStart = System.nanoTime();
+        String outcome = "error";
+        try {
+            // 1. Validate file
+            long stageStart = System.nanoTime();
+            validateFile(file);
+            scanMetrics.recordStage("validate", System.nanoTime() - stageStart);
+            
+            stageStart = System.nanoTime();
+            byte[] content = file.getBytes();
+            scanMetrics.recordStage("read", System.nanoTime() - stageStart);
+            
+            BillTransactionDTO result = scanImage(content, file.getOriginalFilename());
+            outcome = result != null ? "success" : "empty";
+            return result;
+            
+        } catch (IllegalArgumentException | RejectedUploadException e) {
+            outcome = "rejected";
+            throw e;
+            
+        } finally {
+            scanMetrics.recordScan(outcome, System.nanoTime() - scanStart);
+        }
+    }
+
+    /**
+     * Xử lý scan bill từ bytes ảnh đã đọc sẵn (dùng cho async job, khi request gốc đã kết thúc)
+     * 
+     * @param content nội dung ảnh (JPG/PNG, max 10MB)
+     * @param originalFilename tên file gốc
+     * @return BillTransactionDTO chứa thông tin structured, null nếu OCR không ra text
+     */
+    public BillTransactionDTO scanBillStructured(byte[] content, String originalFilename) throws IOException {
+        log.info("Starting bill scan for file: {}, size: {} bytes", originalFilename, content.length);
         
-        File tempFile = null;
+        long scanStart = System.nanoTime();
+        String outcome = "error";
         try {
-            // 2. Tạo temp file từ MultipartFile
-            String originalFilename = file.getOriginalFilename();
-            String extension = originalFilename != null && originalFilename.contains(".") 
-                ? originalFilename.substring(originalFilename.lastIndexOf("."))
-                : ".jpg";
+            long stageStart = System.nanoTime();
+            validateFile(originalFilename, content.length);
+            scanMetrics.recordStage("validate", System.nanoTime() - stageStart);
             
-            tempFile = Files.createTempFile("bill-scan-", extension).toFile();
-            file.transferTo(tempFile);
+            BillTransactionDTO result = scanImage(content, originalFilename);
+            outcome = result != null ? "success" : "empty";
+            return result;
             
-            log.info("Created temp file for OCR: {}", tempFile.getAbsolutePath());
+        } catch (IllegalArgumentException | RejectedUploadException e) {
+            outcome = "rejected";
+            throw e;
             
-            // 3. Thực hiện OCR trực tiếp từ temp file
-            OcrResult ocrResult = tesseractOcrService.extractTextWithConfidence(tempFile);
-            String rawText = ocrResult.getText();
-            double confidence = ocrResult.getConfidence();
+        } finally {
+            scanMetrics.recordScan(outcome, System.nanoTime() - scanStart);
+        }
+    }
+
+    /**
+     * Scan nhiều bill song song trên OCR worker pool
+     * 
+     * Mỗi file được xử lý độc lập: file lỗi chỉ làm item đó thất bại, không ảnh hưởng file khác.
+     * 
+     * @param files danh sách ảnh bill
+     * @return kết quả từng file, cùng thứ tự với input
+     */
+    public BatchScanResponseDTO scanBillsBatch(List<MultipartFile> files) {
+        log.info("Starting batch scan for {} files", files.size());
+        long startTime = System.currentTimeMillis();
+        
+        List<CompletableFuture<BatchScanItemDTO>> futures = new ArrayList<>(files.size());
+        for (int i = 0; i < files.size(); i++) {
+            int index = i;
+            MultipartFile file = files.get(i);
+            futures.add(CompletableFuture.supplyAsync(() -> scanBatchItem(index, file), ocrTaskExecutor));
+        }
+        
+        List<BatchScanItemDTO> items = futures.stream()
+            .map(CompletableFuture::join)
+            .toList();
+        int succeeded = (int) items.stream().filter(BatchScanItemDTO::isSuccess).count();
+        
+        log.info("Batch scan completed in {}ms: {} succeeded, {} failed", 
+            System.currentTimeMillis() - startTime, succeeded, items.size() - succeeded);
+        
+        return BatchScanResponseDTO.builder()
+            .total(items.size())
+            .succeeded(succeeded)
+            .failed(items.size() - succeeded)
+            .items(items)
+            .build();
+    }
+
+    private BatchScanItemDTO scanBatchItem(int index, MultipartFile file) {
+        BatchScanItemDTO.BatchScanItemDTOBuilder item = BatchScanItemDTO.builder()
+            .index(index)
+            .filename(file.getOriginalFilename());
+        
+        try {
+            BillTransactionDTO result = scanBillStructured(file);
+            if (result == null) {
+                return item.success(false).error("No text recognized in image").build();
+            }
+            return item.success(true).result(result).build();
+            
+        } catch (IllegalArgumentException | RejectedUploadException
+                 | TesseractEnginePool.EngineUnavailableException e) {
+            log.warn("Batch item {} ({}) rejected: {}", index, file.getOriginalFilename(), e.getMessage());
+            return item.success(false).error(e.getMessage()).build();
             
-            log.info("OCR completed: {} characters, confidence: {}", 
-                rawText != null ? rawText.length() : 0, confidence);
+        } catch (OcrWorkerPool.WorkerException e) {
+            log.error("Batch item {} ({}) failed in OCR worker ({}): {}",
+                index, file.getOriginalFilename(), e.getFailure(), e.getMessage());
+            return item.success(false).error(e.getFailure().getClientMessage()).build();
             
-            if (rawText == null || rawText.trim().isEmpty()) {
+        } catch (IOException | RuntimeException e) {
+            log.error("Batch item {} ({}) failed: {}", index, file.getOriginalFilename(), e.getMessage(), e);
+            return item.success(false).error("Failed to process file").build();
+        }
+    }
+
+    /**
+     * Scan bill từ bytes ảnh đã nhận
+     */
+    private BillTransactionDTO scanImage(byte[] content, String originalFilename) throws IOException {
+        // Ảnh đã scan trước đó (cùng nội dung + cấu hình OCR) → trả kết quả cache
+        String digest = sha256Hex(content);
+        String cacheKey = cacheKey(digest);
+        BillTransactionDTO cached = scanResultCache.get(cacheKey);
+        if (cached != null) {
+            log.info("Scan result served from cache for file: {}", originalFilename);
+            ScanTimings.source("cache");
+            return cached;
+        }
+        
+        // Cùng ảnh đang được scan bởi request khác (client retry) → chờ kết quả của request đó
+        return scanCoalescer.execute(cacheKey, () -> scanUncached(content, originalFilename, digest, cacheKey));
+    }
+
+    private BillTransactionDTO scanUncached(byte[] content, String originalFilename, String digest, String cacheKey)
+            throws IOException {
+        // Kết quả đã lưu trên đĩa (từ trước khi restart) → không cần OCR lại
+        String storeKey = storeKey(cacheKey);
+        ScanResultStore.StoredResult stored = scanResultStore.get(storeKey);
+        if (stored != null) {
+            log.info("Scan result served from persistent store for file: {}", originalFilename);
+            ScanTimings.source("store");
+            scanResultCache.put(cacheKey, stored.result());
+            return stored.result();
+        }
+        
+        // 2-3. Decode trong memory rồi OCR, fallback sang temp file
+        ScanTimings.source("ocr");
+        Recognition recognition = extractText(content, originalFilename);
+        OcrResult ocrResult = recognition.ocrResult();
+        String rawText = ocrResult.getText();
+        double confidence = ocrResult.getConfidence();
+        ScanTimings.ocrText(rawText);
+        
+        log.info("OCR completed: {} characters, confidence: {}", 
+            rawText != null ? rawText.length() : 0, confidence);
+        
+        // 4. Parse structured data từ OCR text (fast pass của tiered OCR đã parse sẵn)
+        BillTransactionDTO result = recognition.bill();
+        if (result == null && (rawText == null || rawText.trim().isEmpty())) {
+            if (recognition.qr() == null) {
                 log.warn("OCR returned empty text");
+                scanMetrics.emptyOcr();
                 return null;
             }
+            // OCR không ra chữ nhưng VietQR đã kiểm CRC → giữ các field từ QR
+            log.warn("OCR returned empty text, using VietQR fields only");
+            result = vietQrService.toBill(recognition.qr());
+        }
+        if (result == null) {
+            long parseStart = System.nanoTime();
+            result = billParser.parse(rawText, null, confidence);
+            result.setFieldConfidence(FieldConfidence.score(result, ocrResult.getWords()));
+            scanMetrics.recordStage("parse", System.nanoTime() - parseStart);
+        }
+        
+        // Field có trong VietQR (đã kiểm CRC) được ưu tiên hơn kết quả OCR
+        if (recognition.qr() != null) {
+            vietQrService.apply(result, recognition.qr());
+        }
+        
+        // Ảnh gần giống ảnh đã scan và cùng giao dịch → bill bị gửi lại
+        // (bỏ chính ảnh này: đúng file cũ hết cache phải scan lại là retry, không phải gửi lại bill)
+        List<NearDuplicateIndex.Match> candidates = recognition.candidates().stream()
+            .filter(candidate -> !candidate.id().equals(digest))
+            .toList();
+        NearDuplicateIndex.Match duplicate = null;
+        if (!candidates.isEmpty()) {
+            duplicate = nearDuplicateIndex.confirm(candidates, result).orElse(null);
+            scanMetrics.duplicate(duplicate != null ? "confirmed" : "unconfirmed");
+            if (duplicate != null) {
+                log.info("Bill is a near-duplicate of {} (hash distance {})", duplicate.id(), duplicate.distance());
+                result.setDuplicateOf(duplicate.id());
+            }
+        }
+        
+        log.info("Bill scan completed: amount={}, recipient={}, account={}, bank={}, fieldConfidence={}", 
+            result.getAmount(), result.getRecipientName(), 
+            result.getAccountNumber(), result.getBankName(), result.getFieldConfidence());
+        
+        // Bill chỉ từ VietQR không có OCR text để parse lại → không lưu vào store
+        // ocrTextId gán trước khi cache (cache giữ bản copy) để cache hit sau này vẫn có ocrTextId
+        boolean hasText = rawText != null && !rawText.isBlank();
+        if (hasText && scanResultStore.isEnabled()) {
+            result.setOcrTextId(storeKey);
+        }
+        
+        scanResultCache.put(cacheKey, result);
+        if (duplicate == null && recognition.hash() != null) {
+            nearDuplicateIndex.add(recognition.hash(), digest, result);
+        }
+        if (hasText) {
+            scanResultStore.put(storeKey, rawText, confidence, result);
+        }
+        return result;
+    }
+
+    /**
+     * Parse lại OCR text (gửi kèm hoặc đã lưu trong ocr.store), không decode / OCR
+     * 
+     * Field confidence không được tính lại (không có word-level result)
+     * 
+     * @return bill đã parse, null nếu ocrTextId không có trong store
+     * @throws IllegalArgumentException nếu thiếu cả ocrText và ocrTextId
+     */
+    public BillTransactionDTO reparse(ReparseRequestDTO request) {
+        String text = request.getOcrText();
+        Double confidence = request.getConfidence();
+        String ocrTextId = null;
+        
+        if (text == null || text.isBlank()) {
+            if (request.getOcrTextId() == null || request.getOcrTextId().isBlank()) {
+                throw new IllegalArgumentException("Either ocrText or ocrTextId is required");
+            }
+            ScanResultStore.StoredResult stored = scanResultStore.get(request.getOcrTextId());
+            if (stored == null) {
+                return null;
+            }
+            text = stored.ocrText();
+            ocrTextId = request.getOcrTextId();
+            if (confidence == null) {
+                confidence = stored.confidence();
+            }
+        }
+        if (confidence == null) {
+            confidence = TesseractOcrService.estimateConfidence(text);
+        }
+        
+        long parseStart = System.nanoTime();
+        BillTransactionDTO result = billParser.parse(text, null, confidence);
+        scanMetrics.recordStage("reparse", System.nanoTime() - parseStart);
+        
+        // Chỉ trả ocrTextId khi text thực sự lấy từ store
+        result.setOcrTextId(ocrTextId);
+        return result;
+    }
+
+    /**
+     * Cache key = SHA-256 nội dung ảnh + cấu hình OCR (language, psm, preprocessing, layout, tiered, qr)
+     */
+    private String cacheKey(String digest) {
+        return ScanResultCache.key(digest, enginePool.getLanguage(), enginePool.getPageSegMode(),
+            preprocessingPipeline.describe(), layoutOcrService.describe(),
+            tieredOcrService.describe(), vietQrService.describe());
+    }
+
+    /**
+     * Key trong ScanResultStore (cũng là ocrTextId trả cho client) = SHA-256 của cache key
+     */
+    private static String storeKey(String cacheKey) {
+        return sha256Hex(cacheKey.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sha256Hex(byte[] content) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * OCR từ bytes: decode bằng ImageIO trong memory, không ghi đĩa.
+     * Chỉ khi ImageIO không decode được mới ghi temp file để Tess4J tự đọc.
+     * 
+     * Toàn bộ phần CPU-bound chạy trong OcrConcurrencyLimiter để không vượt quá số core
+     */
+    private Recognition extractText(byte[] content, String originalFilename) throws IOException {
+        long waitStart = System.nanoTime();
+        admissionControl.ocrQueued();
+        long acquiredAt = ocrConcurrencyLimiter.acquire();
+        scanMetrics.recordStage("ocr_wait", acquiredAt - waitStart);
+        try {
+            return decodeAndRecognize(content, originalFilename);
+        } finally {
+            ocrConcurrencyLimiter.release(acquiredAt);
+        }
+    }
+
+    private Recognition decodeAndRecognize(byte[] content, String originalFilename) throws IOException {
+        long stageStart = System.nanoTime();
+        BufferedImage image = decodeImage(content, originalFilename);
+        scanMetrics.recordStage("decode", System.nanoTime() - stageStart);
+        
+        if (image != null) {
+            log.debug("Decoded image in memory: {}x{}", image.getWidth(), image.getHeight());
+            ScanTimings.image(image.getWidth(), image.getHeight());
             
-            // 4. Parse structured data từ OCR text
-            BillTransactionDTO result = billParser.parse(rawText, null, confidence);
+            // Ảnh đã scan có hash gần giống → ứng viên trùng, xác nhận bằng field sau khi parse
+            // (không dùng để bỏ qua OCR: bill khác cùng mẫu ngân hàng cũng có hash gần giống)
+            PerceptualHash hash = null;
+            List<NearDuplicateIndex.Match> candidates = List.of();
+            if (nearDuplicateIndex.isEnabled()) {
+                stageStart = System.nanoTime();
+                hash = PerceptualHash.of(image);
+                candidates = nearDuplicateIndex.candidates(hash);
+                scanMetrics.recordStage("phash", System.nanoTime() - stageStart);
+            }
             
-            log.info("Bill scan completed: amount={}, recipient={}, account={}, bank={}", 
-                result.getAmount(), result.getRecipientName(), 
-                result.getAccountNumber(), result.getBankName());
+            // Tiền xử lý theo ocr.preprocess.stages (mặc định downscale + grayscale) trước khi OCR
+            stageStart = System.nanoTime();
+            PreprocessResult preprocessed = preprocessingPipeline.process(image);
+            scanMetrics.recordStage("preprocess", System.nanoTime() - stageStart);
+            preprocessed.stageTimingsMs().forEach(scanMetrics::recordPreprocessStage);
             
-            return result;
+            // VietQR trên ảnh đã tiền xử lý (đã thu nhỏ, xám): decode ảnh gốc full-res chậm hơn nhiều
+            // mà chỉ để ghi đè field sau khi parse; ocr.qr.skip-ocr: đủ account + amount → không OCR
+            VietQrPayload qr = null;
+            if (vietQrService.isEnabled()) {
+                stageStart = System.nanoTime();
+                qr = vietQrService.decode(preprocessed.image()).orElse(null);
+                scanMetrics.recordStage("qr_decode", System.nanoTime() - stageStart);
+                if (qr != null && vietQrService.canSkipOcr(qr)) {
+                    log.info("Bill resolved from VietQR, skipping OCR");
+                    ScanTimings.source("qr");
+                    return new Recognition(new OcrResult("", 1.0), vietQrService.toBill(qr), null, hash, candidates);
+                }
+            }
+            
+            // Tiered: fast pass trước, đủ amount + account tin cậy thì không cần full pass
+            if (tieredOcrService.isEnabled()) {
+                stageStart = System.nanoTime();
+                Optional<TieredOcrService.FastPass> fastPass = tieredOcrService.fastPass(preprocessed.image());
+                scanMetrics.recordStage("fast_ocr", System.nanoTime() - stageStart);
+                if (fastPass.isPresent()) {
+                    scanMetrics.tierResolved("fast");
+                    return new Recognition(fastPass.get().ocrResult(), fastPass.get().bill(), qr, hash, candidates);
+                }
+                scanMetrics.tierResolved("full");
+            }
+            
+            // Bill của ngân hàng có layout template → chỉ OCR các vùng field
+            if (layoutOcrService.isEnabled()) {
+                stageStart = System.nanoTime();
+                Optional<OcrResult> layoutResult = layoutOcrService.recognize(preprocessed.image());
+                scanMetrics.recordStage("layout_ocr", System.nanoTime() - stageStart);
+                if (layoutResult.isPresent()) {
+                    return new Recognition(layoutResult.get(), null, qr, hash, candidates);
+                }
+            }
+            
+            stageStart = System.nanoTime();
+            OcrResult ocrResult = tesseractOcrService.extractTextWithConfidence(preprocessed.image());
+            scanMetrics.recordStage("ocr", System.nanoTime() - stageStart);
+            return new Recognition(ocrResult, null, qr, hash, candidates);
+        }
+        
+        log.info("In-memory decode failed for {}, falling back to temp file", originalFilename);
+        return new Recognition(extractTextViaTempFile(content, originalFilename), null, null, null, List.of());
+    }
+
+    /**
+     * Decode trong memory, null nếu ImageIO không đọc được (→ fallback temp file)
+     * 
+     * Kích thước đọc từ header ảnh và kiểm tra ImageLimits trước khi cấp phát pixel
+     * 
+     * @throws RejectedUploadException ảnh vượt max-dimension / max-pixels (không fallback)
+     */
+    private BufferedImage decodeImage(byte[] content, String originalFilename) {
+        // MemoryCacheImageInputStream: ImageIO mặc định cache stream ra file tạm
+        try (ImageInputStream input = new MemoryCacheImageInputStream(new ByteArrayInputStream(content))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                imageLimits.check(originalFilename, reader.getWidth(0), reader.getHeight(0));
+                return reader.read(0, reader.getDefaultReadParam());
+            } finally {
+                reader.dispose();
+            }
+        } catch (RejectedUploadException e) {
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            log.debug("ImageIO could not decode upload: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private OcrResult extractTextViaTempFile(byte[] content, String originalFilename) throws IOException {
+        File tempFile = null;
+        try {
+            String extension = originalFilename != null && originalFilename.contains(".") 
+                ? originalFilename.substring(originalFilename.lastIndexOf("."))
+                : ".jpg";
+            
+            long stageStart = System.nanoTime();
+            tempFile = Files.createTempFile("bill-scan-", extension).toFile();
+            Files.write(tempFile.toPath(), content);
+            scanMetrics.recordStage("temp_file_write", System.nanoTime() - stageStart);
+            
+            log.info("Created temp file for OCR: {}", tempFile.getAbsolutePath());
+            
+            stageStart = System.nanoTime();
+            OcrResult ocrResult = tesseractOcrService.extractTextWithConfidence(tempFile);
+            scanMetrics.recordStage("ocr", System.nanoTime() - stageStart);
+            return ocrResult;
             
         } finally {
-            // 5. Xóa temp file
+            // Xóa temp file
             if (tempFile != null && tempFile.exists()) {
                 boolean deleted = tempFile.delete();
                 log.debug("Temp file deleted: {}", deleted);
             }
         }
     }
+
+    /**
+     * Kết quả OCR, kèm bill nếu đã được parse trong lúc OCR (fast pass) hoặc dựng từ VietQR (ocr.qr.skip-ocr),
+     * và payload VietQR cần ghi đè lên bill parse từ OCR
+     * 
+     * hash / candidates: perceptual hash của ảnh và các ảnh đã scan có hash gần giống
+     */
+    private record Recognition(
+        OcrResult ocrResult,
+        BillTransactionDTO bill,
+        VietQrPayload qr,
+        PerceptualHash hash,
+        List<NearDuplicateIndex.Match> candidates
+    ) {
+    }
 }
@@ -0,0 +1,147 @@
+package com.subservice.imagehandle.service;
+
+import com.subservice.imagehandle.dto.BillTransactionDTO;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Tính confidence từng field của bill từ word-level result của Tesseract
+ *
+ * Giá trị field được so với chuỗi word liên tiếp sau khi bỏ dấu câu/khoảng trắng
+ * (số tiền, số tài khoản chỉ so phần chữ số: "2,350,000" khớp 2350000).
+ * Word không còn ký tự nào sau khi bỏ ("VND", "-") cắt chuỗi, không ghép số qua word khác.
+ * Confidence của field = confidence thấp nhất trong các word khớp.
+ */
+final class FieldConfidence {
+
+    private FieldConfidence() {
+    }
+
+    /**
+     * @return map field → confidence (0..1), chỉ chứa các field khớp được với word
+     */
+    static Map<String, Double> score(BillTransactionDTO bill, List<OcrWord> words) {
+        if (words.isEmpty()) {
+            return Map.of();
+        }
+
+        Map<String, Double> scores = new LinkedHashMap<>();
+        if (bill.getAmount() != null) {
+            put(scores, "amount", match(bill.getAmount().toBigInteger().toString(), words, true));
+        }
+        if (bill.getAccountNumber() != null) {
+            put(scores, "accountNumber", match(fold(bill.getAccountNumber(), true), words, true));
+        }
+        if (bill.getRecipientName() != null) {
+            put(scores, "recipientName", match(fold(bill.getRecipientName(), false), words, false));
+        }
+        if (bill.getBankName() != null) {
+            put(scores, "bankName", match(fold(bill.getBankName(), false), words, false));
+        }
+        if (bill.getTransactionCode() != null) {
+            put(scores, "transactionCode", match(fold(bill.getTransactionCode(), false), words, false));
+        }
+        if (bill.getTransferContent() != null) {
+            put(scores, "transferContent", match(fold(bill.getTransferContent(), false), words, false));
+        }
+        if (bill.getStatus() != null && !"Unknown".equals(bill.getStatus())) {
+            put(scores, "status", match(fold(bill.getStatus(), false), words, false));
+        }
+        return Collections.unmodifiableMap(scores);
+    }
+
+    private static void put(Map<String, Double> scores, String field, double confidence) {
+        if (confidence >= 0) {
+            scores.put(field, confidence);
+        }
+    }
+
+    /**
+     * Tìm chuỗi word liên tiếp có key ghép lại bằng target, nếu không có thì một word chứa target
+     * (số: phải là nguyên một số trong word, không phải một đoạn của số dài hơn)
+     *
+     * @return confidence thấp nhất của các word khớp, -1 nếu không khớp
+     */
+    private static double match(String target, List<OcrWord> words, boolean digitsOnly) {
+        if (target.isEmpty()) {
+            return -1;
+        }
+
+        String[] keys = new String[words.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = fold(words.get(i).text(), digitsOnly);
+        }
+
+        double best = -1;
+        for (int start = 0; start < keys.length; start++) {
+            if (keys[start].isEmpty() || !target.startsWith(keys[start])) {
+                continue;
+            }
+            int matched = 0;
+            double min = 1.0;
+            for (int i = start; i < keys.length && matched < target.length(); i++) {
+                if (keys[i].isEmpty() || !target.startsWith(keys[i], matched)) {
+                    break;
+                }
+                matched += keys[i].length();
+                min = Math.min(min, words.get(i).confidence());
+            }
+            if (matched == target.length()) {
+                best = Math.max(best, min);
+            }
+        }
+        if (best >= 0) {
+            return best;
+        }
+
+        for (int i = 0; i < keys.length; i++) {
+            boolean contains = digitsOnly
+                ? containsNumber(words.get(i).text(), target)
+                : keys[i].contains(target);
+            if (contains) {
+                best = Math.max(best, words.get(i).confidence());
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Word có một số (chữ số, có thể ngăn bởi ',' / '.') bằng đúng digits: "30/09-500.000đ" chứa 500000,
+     * "90123456789012" không chứa 0123456789
+     */
+    private static boolean containsNumber(String text, String digits) {
+        StringBuilder number = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            boolean separator = (c == ',' || c == '.') && !number.isEmpty()
+                && i + 1 < text.length() && Character.isDigit(text.charAt(i + 1));
+            if (Character.isDigit(c)) {
+                number.append(c);
+            } else if (!separator) {
+                if (number.toString().equals(digits)) {
+                    return true;
+                }
+                number.setLength(0);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Bỏ mọi ký tự không phải chữ/số (hoặc không phải số khi digitsOnly), chuyển thường
+     */
+    private static String fold(String value, boolean digitsOnly) {
+        StringBuilder folded = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (digitsOnly ? Character.isDigit(c) : Character.isLetterOrDigit(c)) {
+                folded.append(c);
+            }
+        }
+        return folded.toString().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,148 @@
+package com.subservice.imagehandle.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Aho-Corasick automaton: tìm mọi keyword (kể cả chồng lấn nhau) trong một lần duyệt text
+ *
+ * - Keyword chỉ gồm chữ cái / chữ số ASCII, so khớp không phân biệt hoa thường (ASCII)
+ * - Bảng chuyển trạng thái đầy đủ (DFA) trên bảng chữ cái rút gọn (chỉ các ký tự có trong keyword),
+ *   ký tự ngoài bảng chữ cái đưa về trạng thái gốc
+ * - Thời gian duyệt tỉ lệ với độ dài text + số match, không phụ thuộc số keyword
+ */
+final class KeywordAutomaton {
+
+    /**
+     * Nhận một match: keyword thứ keywordId nằm ở [start, end) của text
+     */
+    @FunctionalInterface
+    interface MatchConsumer {
+        void accept(int keywordId, int start, int end);
+    }
+
+    private final int[] charClass = new int[128];
+    private final int alphabetSize;
+    private final int[] delta;
+    // Keyword kết thúc tại trạng thái, và trạng thái gần nhất theo failure link có keyword kết thúc
+    private final int[][] outputs;
+    private final int[] outputLink;
+    private final int[] lengths;
+
+    KeywordAutomaton(List<String> keywords) {
+        Arrays.fill(charClass, -1);
+        int classes = 0;
+        for (String keyword : keywords) {
+            for (int i = 0; i < keyword.length(); i++) {
+                int c = fold(keyword.charAt(i));
+                if (c >= 128 || !Character.isLetterOrDigit(c)) {
+                    throw new IllegalArgumentException("Keyword must be ASCII letters/digits: " + keyword);
+                }
+                if (charClass[c] < 0) {
+                    charClass[c] = classes++;
+                }
+            }
+        }
+        this.alphabetSize = Math.max(1, classes);
+
+        // Trie
+        List<int[]> next = new ArrayList<>();
+        List<List<Integer>> ends = new ArrayList<>();
+        next.add(newRow());
+        ends.add(new ArrayList<>());
+        lengths = new int[keywords.size()];
+        for (int id = 0; id < keywords.size(); id++) {
+            String keyword = keywords.get(id);
+            if (keyword.isEmpty()) {
+                throw new IllegalArgumentException("Keyword must not be empty");
+            }
+            int state = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                int cls = charClass[fold(keyword.charAt(i))];
+                if (next.get(state)[cls] < 0) {
+                    next.get(state)[cls] = next.size();
+                    next.add(newRow());
+                    ends.add(new ArrayList<>());
+                }
+                state = next.get(state)[cls];
+            }
+            ends.get(state).add(id);
+            lengths[id] = keyword.length();
+        }
+
+        // Failure link (BFS), đồng thời điền các cạnh còn thiếu để thành DFA
+        int states = next.size();
+        delta = new int[states * alphabetSize];
+        outputs = new int[states][];
+        outputLink = new int[states];
+        int[] fail = new int[states];
+        for (int s = 0; s < states; s++) {
+            outputs[s] = ends.get(s).stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        Queue<Integer> queue = new ArrayDeque<>();
+        for (int cls = 0; cls < alphabetSize; cls++) {
+            int child = next.get(0)[cls];
+            if (child < 0) {
+                delta[cls] = 0;
+            } else {
+                delta[cls] = child;
+                fail[child] = 0;
+                queue.add(child);
+            }
+        }
+        outputLink[0] = -1;
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            int failState = fail[state];
+            outputLink[state] = outputs[failState].length > 0 ? failState : outputLink[failState];
+            for (int cls = 0; cls < alphabetSize; cls++) {
+                int child = next.get(state)[cls];
+                if (child < 0) {
+                    delta[state * alphabetSize + cls] = delta[failState * alphabetSize + cls];
+                } else {
+                    delta[state * alphabetSize + cls] = child;
+                    fail[child] = delta[failState * alphabetSize + cls];
+                    queue.add(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Duyệt text một lần, gọi consumer cho từng match theo thứ tự vị trí kết thúc
+     */
+    void scan(CharSequence text, MatchConsumer consumer) {
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int c = fold(text.charAt(i));
+            int cls = c < 128 ? charClass[c] : -1;
+            if (cls < 0) {
+                state = 0;
+                continue;
+            }
+            state = delta[state * alphabetSize + cls];
+
+            int match = outputs[state].length > 0 ? state : outputLink[state];
+            while (match > 0) {
+                for (int id : outputs[match]) {
+                    consumer.accept(id, i + 1 - lengths[id], i + 1);
+                }
+                match = outputLink[match];
+            }
+        }
+    }
+
+    private int[] newRow() {
+        int[] row = new int[alphabetSize];
+        Arrays.fill(row, -1);
+        return row;
+    }
+
+    private static int fold(char c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+}
@@ -0,0 +1,232 @@
+package com.subservice.imagehandle.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Từ điển keyword cho BillParser, đọc từ ocr.parser.keywords (JSON)
+ *
+ * - banks: tên / alias ngân hàng, match đầu tiên (trái nhất, dài nhất) là bankName
+ * - bankWords: chuỗi IN HOA chứa các từ này không phải tên người
+ * - stopwords: chuỗi IN HOA chứa các từ này không phải tên người
+ * - exactStopwords: chuỗi IN HOA đúng bằng các từ này không phải tên người
+ * - surnames: họ dùng để tách tên dính liền (LEVANNAM), thử theo thứ tự trong file
+ *
+ * Toàn bộ keyword nằm trong một {@link KeywordAutomaton}, mỗi lần parse chỉ duyệt text một lần.
+ */
+@Slf4j
+@Component
+public class KeywordDictionary {
+
+    static final int BANK = 1;
+    static final int BANK_WORD = 1 << 1;
+    static final int STOPWORD = 1 << 2;
+    static final int EXACT_STOPWORD = 1 << 3;
+    static final int SURNAME = 1 << 4;
+
+    private final KeywordAutomaton automaton;
+    // Theo keyword id: nhóm (bit mask) và thứ tự trong danh sách surnames
+    private final int[] categories;
+    private final int[] surnameOrder;
+    private final String[] surnames;
+
+    public KeywordDictionary(
+        ObjectMapper objectMapper,
+        @Value("${ocr.parser.keywords:classpath:parser/keywords.json}") Resource resource
+    ) {
+        Entries entries;
+        try (InputStream in = resource.getInputStream()) {
+            entries = objectMapper.readValue(in, Entries.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot load parser keywords from " + resource, e);
+        }
+
+        Map<String, Integer> ids = new LinkedHashMap<>();
+        List<Integer> masks = new ArrayList<>();
+        add(ids, masks, entries.banks(), BANK);
+        add(ids, masks, entries.bankWords(), BANK_WORD);
+        add(ids, masks, entries.stopwords(), STOPWORD);
+        add(ids, masks, entries.exactStopwords(), EXACT_STOPWORD);
+        add(ids, masks, entries.surnames(), SURNAME);
+
+        this.categories = masks.stream().mapToInt(Integer::intValue).toArray();
+        this.surnameOrder = new int[categories.length];
+        Arrays.fill(surnameOrder, -1);
+        List<String> surnameList = entries.surnames() != null ? entries.surnames() : List.of();
+        this.surnames = new String[surnameList.size()];
+        for (int i = 0; i < surnameList.size(); i++) {
+            String surname = surnameList.get(i).toUpperCase(Locale.ROOT);
+            surnames[i] = surname;
+            int id = ids.get(surname.toLowerCase(Locale.ROOT));
+            if (surnameOrder[id] < 0) {
+                surnameOrder[id] = i;
+            }
+        }
+
+        try {
+            this.automaton = new KeywordAutomaton(List.copyOf(ids.keySet()));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid parser keywords in " + resource + ": " + e.getMessage(), e);
+        }
+
+        log.info("Loaded {} parser keywords ({} banks, {} surnames) from {}",
+            ids.size(), size(entries.banks()), surnames.length, resource.getDescription());
+    }
+
+    private static void add(Map<String, Integer> ids, List<Integer> masks, List<String> keywords, int category) {
+        if (keywords == null) {
+            return;
+        }
+        for (String keyword : keywords) {
+            String key = keyword.toLowerCase(Locale.ROOT);
+            Integer id = ids.get(key);
+            if (id == null) {
+                ids.put(key, masks.size());
+                masks.add(category);
+            } else {
+                masks.set(id, masks.get(id) | category);
+            }
+        }
+    }
+
+    private static int size(List<String> list) {
+        return list != null ? list.size() : 0;
+    }
+
+    /**
+     * Tìm mọi keyword trong text (một lần duyệt)
+     */
+    Hits scan(String text) {
+        Hits hits = new Hits(text.length());
+        automaton.scan(text, hits::add);
+        return hits;
+    }
+
+    /**
+     * Các keyword match trong một text, truy vấn theo vùng [start, end)
+     *
+     * Match được nhóm theo vị trí bắt đầu (danh sách liên kết trên mảng int),
+     * truy vấn một vùng chỉ duyệt các vị trí trong vùng đó.
+     */
+    final class Hits {
+        private final int[] headByStart;
+        private int[] keywordIds = new int[16];
+        private int[] ends = new int[16];
+        private int[] next = new int[16];
+        private int size;
+
+        private Hits(int textLength) {
+            this.headByStart = new int[textLength];
+            Arrays.fill(headByStart, -1);
+        }
+
+        private void add(int keywordId, int start, int end) {
+            if (size == keywordIds.length) {
+                keywordIds = Arrays.copyOf(keywordIds, size * 2);
+                ends = Arrays.copyOf(ends, size * 2);
+                next = Arrays.copyOf(next, size * 2);
+            }
+            keywordIds[size] = keywordId;
+            ends[size] = end;
+            next[size] = headByStart[start];
+            headByStart[start] = size;
+            size++;
+        }
+
+        /**
+         * Match đầu tiên (vị trí bắt đầu nhỏ nhất, cùng vị trí thì dài nhất) của nhóm category
+         *
+         * @return {start, end} hoặc null
+         */
+        int[] first(int category) {
+            for (int start = 0; start < headByStart.length; start++) {
+                int bestEnd = -1;
+                for (int hit = headByStart[start]; hit >= 0; hit = next[hit]) {
+                    if ((categories[keywordIds[hit]] & category) != 0 && ends[hit] > bestEnd) {
+                        bestEnd = ends[hit];
+                    }
+                }
+                if (bestEnd >= 0) {
+                    return new int[]{start, bestEnd};
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Vùng [start, end) có chứa keyword thuộc nhóm category không
+         */
+        boolean contains(int category, int start, int end) {
+            for (int position = start; position < end; position++) {
+                for (int hit = headByStart[position]; hit >= 0; hit = next[hit]) {
+                    if (ends[hit] <= end && (categories[keywordIds[hit]] & category) != 0) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Vùng [start, end) có đúng bằng một keyword thuộc nhóm category không
+         */
+        boolean matches(int category, int start, int end) {
+            for (int hit = headByStart[start]; hit >= 0; hit = next[hit]) {
+                if (ends[hit] == end && (categories[keywordIds[hit]] & category) != 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Các họ là tiền tố của vùng [start, end), theo thứ tự trong từ điển
+         */
+        List<String> surnamesAt(int start, int end) {
+            int[] orders = new int[4];
+            int count = 0;
+            for (int hit = headByStart[start]; hit >= 0; hit = next[hit]) {
+                int order = surnameOrder[keywordIds[hit]];
+                if (order >= 0 && ends[hit] <= end) {
+                    if (count == orders.length) {
+                        orders = Arrays.copyOf(orders, count * 2);
+                    }
+                    orders[count++] = order;
+                }
+            }
+            if (count == 0) {
+                return List.of();
+            }
+            Arrays.sort(orders, 0, count);
+            List<String> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(surnames[orders[i]]);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Nội dung file JSON
+     */
+    record Entries(
+        List<String> banks,
+        List<String> bankWords,
+        List<String> stopwords,
+        List<String> exactStopwords,
+        List<String> surnames
+    ) {
+    }
+}
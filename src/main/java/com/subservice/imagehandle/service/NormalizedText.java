@@ -0,0 +1,118 @@
+package com.subservice.imagehandle.service;
+
+import java.text.Normalizer;
+
+/**
+ * OCR text đã chuẩn hóa, tính một lần cho mỗi document
+ *
+ * - text: gộp mọi khoảng trắng thành một dấu cách, trim (giữ nguyên dấu, hoa thường)
+ * - folded: text bỏ dấu tiếng Việt, đ → d, chữ thường ("Giao dịch THÀNH CÔNG" → "giao dich thanh cong"),
+ *   dấu kết hợp rời (combining mark, OCR hay trả về) bị bỏ
+ * - offsets: vị trí trong folded → vị trí trong text, để lấy lại chuỗi gốc của một match trên folded
+ *
+ * Regex chỉ cần viết một dạng ASCII chữ thường và chạy trên folded.
+ */
+final class NormalizedText {
+
+    // Bảng bỏ dấu cho các khối Latin (tới hết Latin Extended Additional), 0 = bỏ ký tự
+    private static final int FOLD_TABLE_SIZE = 0x1F00;
+    private static final char[] FOLD = buildFoldTable();
+
+    private final String text;
+    private final String folded;
+    private final int[] offsets;
+
+    private NormalizedText(String text, String folded, int[] offsets) {
+        this.text = text;
+        this.folded = folded;
+        this.offsets = offsets;
+    }
+
+    static NormalizedText of(String raw) {
+        int length = raw.length();
+        char[] collapsed = new char[length];
+        char[] folded = new char[length];
+        int[] offsets = new int[length + 1];
+        int textLength = 0;
+        int foldedLength = 0;
+        boolean pendingSpace = false;
+
+        for (int i = 0; i < length; i++) {
+            char c = raw.charAt(i);
+            if (isRegexWhitespace(c)) {
+                pendingSpace = textLength > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                offsets[foldedLength] = textLength;
+                folded[foldedLength++] = ' ';
+                collapsed[textLength++] = ' ';
+                pendingSpace = false;
+            }
+
+            char f = fold(c);
+            if (f != 0) {
+                offsets[foldedLength] = textLength;
+                folded[foldedLength++] = f;
+            }
+            collapsed[textLength++] = c;
+        }
+        offsets[foldedLength] = textLength;
+
+        int[] trimmedOffsets = new int[foldedLength + 1];
+        System.arraycopy(offsets, 0, trimmedOffsets, 0, foldedLength + 1);
+        return new NormalizedText(
+            new String(collapsed, 0, textLength), new String(folded, 0, foldedLength), trimmedOffsets);
+    }
+
+    String text() {
+        return text;
+    }
+
+    String folded() {
+        return folded;
+    }
+
+    /**
+     * Chuỗi gốc (trong text) ứng với [start, end) của folded
+     */
+    String original(int start, int end) {
+        return text.substring(offsets[start], offsets[end]);
+    }
+
+    private static char fold(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return (char) (c + ('a' - 'A'));
+        }
+        if (c < 128) {
+            return c;
+        }
+        if (c < FOLD_TABLE_SIZE) {
+            return FOLD[c];
+        }
+        return Character.toLowerCase(c);
+    }
+
+    private static char[] buildFoldTable() {
+        char[] table = new char[FOLD_TABLE_SIZE];
+        for (char c = 0; c < FOLD_TABLE_SIZE; c++) {
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                table[c] = 0;
+                continue;
+            }
+            String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            char base = decomposed.charAt(0);
+            table[c] = Character.toLowerCase(base);
+        }
+        table['đ'] = 'd';
+        table['Đ'] = 'd';
+        return table;
+    }
+
+    /**
+     * Tương đương {@code \s} của java.util.regex
+     */
+    private static boolean isRegexWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+}
@@ -0,0 +1,136 @@
+package com.subservice.imagehandle.service;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.OptionalDouble;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Giới hạn số task CPU-bound (decode + preprocess + OCR) chạy đồng thời
+ *
+ * Khi bật virtual thread, số request in-flight không còn bị giới hạn bởi thread pool của Tomcat,
+ * limiter giữ phần việc nặng CPU không vượt quá số core. Lời gọi native Tesseract giữ chặt
+ * carrier thread trong suốt thời gian OCR, nên nên chừa lại ít nhất một carrier cho I/O.
+ *
+ * - acquire(): chờ tối đa acquireTimeoutMs, quá thời gian → EngineUnavailableException (503)
+ * - release(): trả slot sau khi xong
+ *
+ * Thời gian giữ slot trung bình (EWMA, không tính thời gian chờ slot) dùng cho {@link ScanAdmissionControl}
+ */
+@Slf4j
+public class OcrConcurrencyLimiter {
+
+    private static final double EWMA_ALPHA = 0.2;
+
+    private final int maxConcurrent;
+    private final long acquireTimeoutMs;
+    private final Semaphore permits;
+
+    private final AtomicLong acquiredCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final Object holdLock = new Object();
+    private volatile boolean holdSampled;
+    private volatile double avgHoldMs;
+
+    public OcrConcurrencyLimiter(int maxConcurrent, long acquireTimeoutMs) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.permits = new Semaphore(this.maxConcurrent, true);
+    }
+
+    /**
+     * Chờ slot trống để chạy OCR
+     *
+     * @return thời điểm nhận slot (System.nanoTime), truyền lại cho release()
+     * @throws TesseractEnginePool.EngineUnavailableException nếu hết thời gian chờ
+     */
+    public long acquire() {
+        long waitStart = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TesseractEnginePool.EngineUnavailableException("Interrupted while waiting for OCR capacity");
+        }
+        totalWaitNanos.addAndGet(System.nanoTime() - waitStart);
+
+        if (!acquired) {
+            rejectedCount.incrementAndGet();
+            log.warn("OCR capacity exhausted: {} running, {} waiting", maxConcurrent, permits.getQueueLength());
+            throw new TesseractEnginePool.EngineUnavailableException(
+                "No OCR capacity available within " + acquireTimeoutMs + "ms");
+        }
+        acquiredCount.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Trả slot, cập nhật thời gian giữ slot trung bình
+     *
+     * @param acquiredAt giá trị acquire() trả về
+     */
+    public void release(long acquiredAt) {
+        double holdMs = (System.nanoTime() - acquiredAt) / 1_000_000.0;
+        permits.release();
+        synchronized (holdLock) {
+            avgHoldMs = holdSampled ? avgHoldMs + EWMA_ALPHA * (holdMs - avgHoldMs) : holdMs;
+            holdSampled = true;
+        }
+    }
+
+    /**
+     * Số task đang giữ slot
+     */
+    public int getRunning() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    /**
+     * Số task đang chờ slot (scan đồng bộ, batch, async job)
+     */
+    public int getWaiting() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * Thời gian giữ slot trung bình (ms), empty nếu chưa có task nào xong
+     */
+    public OptionalDouble getAvgHoldMs() {
+        return holdSampled ? OptionalDouble.of(avgHoldMs) : OptionalDouble.empty();
+    }
+
+    public LimiterStats getStats() {
+        long acquired = acquiredCount.get();
+        return new LimiterStats(
+            maxConcurrent,
+            getRunning(),
+            getWaiting(),
+            acquired,
+            rejectedCount.get(),
+            acquired > 0 ? totalWaitNanos.get() / 1_000_000.0 / acquired : 0.0,
+            avgHoldMs
+        );
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    /**
+     * Thống kê limiter
+     */
+    public record LimiterStats(
+        int maxConcurrent,
+        int running,
+        int waiting,
+        long acquiredCount,
+        long rejectedCount,
+        double avgWaitMs,
+        double avgHoldMs
+    ) {
+    }
+}
@@ -0,0 +1,13 @@
+package com.subservice.imagehandle.service;
+
+import java.awt.Rectangle;
+
+/**
+ * Một vùng ảnh cần OCR riêng
+ *
+ * @param bounds    vùng (px) trên ảnh
+ * @param psm       page segmentation mode cho vùng này
+ * @param whitelist ký tự cho phép (null/rỗng = không giới hạn)
+ */
+public record OcrRegion(Rectangle bounds, int psm, String whitelist) {
+}
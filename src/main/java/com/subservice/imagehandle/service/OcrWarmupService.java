@@ -0,0 +1,165 @@
+package com.subservice.imagehandle.service;
+
+import com.subservice.imagehandle.preprocess.ImagePreprocessingPipeline;
+import com.subservice.imagehandle.worker.OcrWorkerPool;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Service;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+
+/**
+ * Warm-up OCR lúc startup, trước khi service nhận traffic
+ *
+ * Chạy trong ApplicationRunner nên Spring Boot chưa chuyển readiness sang ACCEPTING_TRAFFIC
+ * cho tới khi warm-up xong. Mỗi engine trong pool (và pool fast pass nếu bật tiered OCR)
+ * OCR thử một ảnh bill tổng hợp: load native library, traineddata và chạy recognizer một lần,
+ * để request đầu tiên sau deploy / autoscale không phải trả chi phí đó.
+ * Bật ocr.worker: warm-up từng worker process (start JVM + load traineddata) thay cho engine trong JVM.
+ *
+ * Trạng thái warm-up được báo qua health indicator "ocrWarmup" (nhóm readiness).
+ */
+@Slf4j
+@Service
+public class OcrWarmupService implements ApplicationRunner {
+
+    private static final String SAMPLE_TEXT = "Giao dịch thành công 1.250.000 VND";
+
+    private final TesseractEnginePool enginePool;
+    private final OcrWorkerPool workerPool;
+    private final TieredOcrService tieredOcrService;
+    private final ImagePreprocessingPipeline preprocessingPipeline;
+    private final boolean enabled;
+    private final boolean required;
+
+    private volatile Status status;
+    private volatile int enginesWarmed;
+    private volatile long durationMs;
+    private volatile String error;
+
+    public OcrWarmupService(
+        TesseractEnginePool enginePool,
+        OcrWorkerPool workerPool,
+        TieredOcrService tieredOcrService,
+        ImagePreprocessingPipeline preprocessingPipeline,
+        @Value("${ocr.warmup.enabled:true}") boolean enabled,
+        @Value("${ocr.warmup.required:true}") boolean required
+    ) {
+        this.enginePool = enginePool;
+        this.workerPool = workerPool;
+        this.tieredOcrService = tieredOcrService;
+        this.preprocessingPipeline = preprocessingPipeline;
+        this.enabled = enabled;
+        this.required = required;
+        this.status = enabled ? Status.PENDING : Status.DISABLED;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            warmUp();
+        }
+    }
+
+    /**
+     * Warm-up toàn bộ engine, không ném exception (kết quả nằm trong {@link #getState()})
+     */
+    public void warmUp() {
+        status = Status.WARMING;
+        long start = System.currentTimeMillis();
+        log.info("Warming up OCR engines...");
+
+        try {
+            BufferedImage sample = renderSample();
+            BufferedImage prepared = preprocessingPipeline.process(sample).image();
+
+            int expected;
+            int warmed;
+            if (workerPool.isEnabled()) {
+                expected = workerPool.getSize();
+                warmed = workerPool.warmUp(prepared, enginePool.getLanguage(), enginePool.getPageSegMode());
+                if (tieredOcrService.isEnabled()) {
+                    TesseractEnginePool fastPool = tieredOcrService.getFastPool();
+                    expected += workerPool.getSize();
+                    warmed += workerPool.warmUp(prepared, fastPool.getLanguage(), fastPool.getPageSegMode());
+                }
+            } else {
+                expected = enginePool.getSize();
+                warmed = enginePool.warmUp(prepared);
+                if (tieredOcrService.isEnabled()) {
+                    TesseractEnginePool fastPool = tieredOcrService.getFastPool();
+                    expected += fastPool.getSize();
+                    warmed += fastPool.warmUp(prepared);
+                }
+            }
+
+            enginesWarmed = warmed;
+            durationMs = System.currentTimeMillis() - start;
+            if (warmed < expected) {
+                fail("Only " + warmed + " of " + expected + " OCR engines warmed up");
+                return;
+            }
+            status = Status.READY;
+            log.info("OCR warm-up finished: {} engines in {}ms", warmed, durationMs);
+        } catch (RuntimeException | LinkageError e) {
+            durationMs = System.currentTimeMillis() - start;
+            fail(e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+    }
+
+    private void fail(String message) {
+        error = message;
+        status = Status.FAILED;
+        log.error("OCR warm-up failed after {}ms: {}{}", durationMs, message,
+            required ? " (readiness stays DOWN)" : "");
+    }
+
+    /**
+     * Ảnh bill tổng hợp: một dòng chữ đen trên nền trắng
+     */
+    private static BufferedImage renderSample() {
+        BufferedImage image = new BufferedImage(720, 120, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+            graphics.setColor(Color.BLACK);
+            graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 32));
+            graphics.drawString(SAMPLE_TEXT, 24, 72);
+        } finally {
+            graphics.dispose();
+        }
+        return image;
+    }
+
+    public WarmupState getState() {
+        return new WarmupState(status, required, enginesWarmed, durationMs, error);
+    }
+
+    public enum Status {
+        DISABLED,
+        PENDING,
+        WARMING,
+        READY,
+        FAILED
+    }
+
+    /**
+     * Trạng thái warm-up
+     */
+    public record WarmupState(
+        Status status,
+        boolean required,
+        int enginesWarmed,
+        long durationMs,
+        String error
+    ) {
+    }
+}
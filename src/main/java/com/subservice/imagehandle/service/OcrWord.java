@@ -0,0 +1,14 @@
+package com.subservice.imagehandle.service;
+
+/**
+ * Một word Tesseract nhận dạng được
+ *
+ * @param text       nội dung word
+ * @param x          toạ độ trái bounding box (px, trên ảnh đưa vào OCR)
+ * @param y          toạ độ trên bounding box
+ * @param width      chiều rộng bounding box
+ * @param height     chiều cao bounding box
+ * @param confidence độ tin cậy của Tesseract, 0..1
+ */
+public record OcrWord(String text, int x, int y, int width, int height, double confidence) {
+}
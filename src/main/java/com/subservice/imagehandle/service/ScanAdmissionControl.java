@@ -0,0 +1,210 @@
+package com.subservice.imagehandle.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.Serial;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admission control cho scan đồng bộ (POST /scan-bill)
+ *
+ * Tải = số task đang giữ slot OCR + đang chờ slot ({@link OcrConcurrencyLimiter}, gồm cả batch scan
+ * và async job) + số scan đã được nhận nhưng chưa tới limiter (đang đọc upload, tra cache / store,
+ * chờ scan giống hệt trong ScanCoalescer). Request mới bị từ chối (429 + Retry-After) khi:
+ * - số task đang chờ slot (tính cả request này) > ocr.admission.max-queue-depth, hoặc
+ * - thời gian chờ dự đoán (số task phía trước / capacity × thời gian giữ slot trung bình)
+ *   vượt ocr.admission.max-predicted-wait-ms
+ *
+ * Thời gian giữ slot trung bình là EWMA của limiter: chỉ tính decode + OCR, không tính thời gian chờ slot,
+ * đọc upload, kết quả từ cache / store (ocr.admission.initial-service-ms tới khi có task đầu tiên xong).
+ *
+ * Mỗi scan được nhận giữ một chỗ từ admit() tới khi xếp hàng vào limiter (ocrQueued())
+ * hoặc kết thúc (finish()), nên một loạt request tới cùng lúc không cùng lọt qua trước khi tới limiter.
+ * Chỗ giữ gắn với thread xử lý request
+ */
+@Slf4j
+@Component
+public class ScanAdmissionControl {
+
+    private final ScanMetrics scanMetrics;
+    private final OcrConcurrencyLimiter ocrConcurrencyLimiter;
+    private final boolean enabled;
+    private final int capacity;
+    private final int maxQueueDepth;
+    private final long maxPredictedWaitMs;
+    private final long initialServiceMs;
+
+    // Scan đã nhận, chưa xếp hàng vào limiter
+    private final AtomicInteger pending = new AtomicInteger();
+    // Thread hiện tại đang giữ chỗ trong pending
+    private final ThreadLocal<Boolean> reserved = new ThreadLocal<>();
+
+    private final AtomicLong admittedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    public ScanAdmissionControl(
+        ScanMetrics scanMetrics,
+        OcrConcurrencyLimiter ocrConcurrencyLimiter,
+        @Value("${ocr.admission.enabled:true}") boolean enabled,
+        @Value("${ocr.admission.max-queue-depth:0}") int maxQueueDepth,
+        @Value("${ocr.admission.max-predicted-wait-ms:15000}") long maxPredictedWaitMs,
+        @Value("${ocr.admission.initial-service-ms:2000}") long initialServiceMs
+    ) {
+        this.scanMetrics = scanMetrics;
+        this.ocrConcurrencyLimiter = ocrConcurrencyLimiter;
+        this.enabled = enabled;
+        this.capacity = ocrConcurrencyLimiter.getMaxConcurrent();
+        this.maxQueueDepth = maxQueueDepth > 0 ? maxQueueDepth : 2 * capacity;
+        this.maxPredictedWaitMs = maxPredictedWaitMs;
+        this.initialServiceMs = initialServiceMs;
+
+        log.info("Scan admission control: enabled={}, capacity={}, maxQueueDepth={}, maxPredictedWait={}ms",
+            enabled, capacity, this.maxQueueDepth, maxPredictedWaitMs);
+    }
+
+    /**
+     * Kiểm tra có nhận thêm một scan không, nhận thì giữ một chỗ cho thread hiện tại
+     * (trả bằng finish() khi scan kết thúc)
+     *
+     * @throws OverloadedException nếu hàng chờ quá dài
+     */
+    public void admit() {
+        if (!enabled) {
+            return;
+        }
+
+        while (true) {
+            int running = ocrConcurrencyLimiter.getRunning();
+            int waiting = ocrConcurrencyLimiter.getWaiting();
+            int admitted = pending.get();
+            int queued = queuedIncluding(running, waiting, admitted);
+            long predictedWaitMs = predictWaitMs(queued);
+
+            String reason = null;
+            if (queued > maxQueueDepth) {
+                reason = "queue_depth";
+            } else if (predictedWaitMs > maxPredictedWaitMs) {
+                reason = "predicted_wait";
+            }
+            if (reason != null) {
+                rejectedCount.incrementAndGet();
+                scanMetrics.admission("rejected_" + reason);
+                long retryAfterSeconds = Math.max(1, (predictedWaitMs + 999) / 1000);
+                log.warn("Scan rejected ({}): running={}, waiting={}, pending={}, capacity={}, predictedWait={}ms",
+                    reason, running, waiting, admitted, capacity, predictedWaitMs);
+                throw new OverloadedException("OCR is overloaded, retry later", retryAfterSeconds);
+            }
+
+            // Request khác vừa được nhận → kiểm tra lại với tải mới
+            if (pending.compareAndSet(admitted, admitted + 1)) {
+                break;
+            }
+        }
+
+        if (Boolean.TRUE.equals(reserved.get())) {
+            // Thread đã giữ chỗ từ lần admit trước chưa finish: chỉ giữ một chỗ
+            pending.decrementAndGet();
+        }
+        reserved.set(Boolean.TRUE);
+        admittedCount.incrementAndGet();
+        scanMetrics.admission("admitted");
+    }
+
+    /**
+     * Scan của thread hiện tại xếp hàng vào limiter: từ đây limiter đếm nó, trả chỗ giữ
+     */
+    public void ocrQueued() {
+        if (Boolean.TRUE.equals(reserved.get())) {
+            reserved.set(Boolean.FALSE);
+            pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * Scan của thread hiện tại kết thúc (thành công, lỗi hay lấy từ cache), trả chỗ giữ nếu còn
+     */
+    public void finish() {
+        ocrQueued();
+        reserved.remove();
+    }
+
+    /**
+     * Số task phải chờ slot nếu nhận thêm một scan (0 nếu còn slot trống)
+     */
+    private int queuedIncluding(int running, int waiting, int admitted) {
+        return Math.max(0, running + waiting + admitted + 1 - capacity);
+    }
+
+    /**
+     * Thời gian chờ dự đoán của task thứ queued trong hàng chờ
+     */
+    private long predictWaitMs(int queued) {
+        if (queued == 0) {
+            return 0;
+        }
+        return (long) Math.ceil((double) queued / capacity * avgServiceMs());
+    }
+
+    private double avgServiceMs() {
+        return ocrConcurrencyLimiter.getAvgHoldMs().orElse(initialServiceMs);
+    }
+
+    public AdmissionStats getStats() {
+        int running = ocrConcurrencyLimiter.getRunning();
+        int waiting = ocrConcurrencyLimiter.getWaiting();
+        int admitted = pending.get();
+        return new AdmissionStats(
+            enabled,
+            capacity,
+            running,
+            waiting,
+            admitted,
+            maxQueueDepth,
+            predictWaitMs(queuedIncluding(running, waiting, admitted)),
+            maxPredictedWaitMs,
+            avgServiceMs(),
+            admittedCount.get(),
+            rejectedCount.get()
+        );
+    }
+
+    /**
+     * Thống kê admission control
+     */
+    public record AdmissionStats(
+        boolean enabled,
+        int capacity,
+        int running,
+        int queued,
+        int pending,
+        int maxQueueDepth,
+        long predictedWaitMs,
+        long maxPredictedWaitMs,
+        double avgServiceMs,
+        long admittedCount,
+        long rejectedCount
+    ) {
+    }
+
+    /**
+     * Quá tải → 429, client retry sau retryAfterSeconds
+     */
+    public static class OverloadedException extends RuntimeException {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final long retryAfterSeconds;
+
+        public OverloadedException(String message, long retryAfterSeconds) {
+            super(message);
+            this.retryAfterSeconds = retryAfterSeconds;
+        }
+
+        public long getRetryAfterSeconds() {
+            return retryAfterSeconds;
+        }
+    }
+}
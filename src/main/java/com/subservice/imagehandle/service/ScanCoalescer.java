@@ -0,0 +1,135 @@
+package com.subservice.imagehandle.service;
+
+import com.subservice.imagehandle.dto.BillTransactionDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gộp các scan giống hệt nhau đang chạy đồng thời (single-flight)
+ *
+ * Client mobile retry khi timeout → nhiều upload cùng một ảnh tới cùng lúc. Request đầu tiên với
+ * một key (cache key: SHA-256 ảnh + cấu hình OCR) chạy OCR, các request trùng key tới trong lúc đó
+ * chờ và nhận bản copy kết quả (hoặc cùng exception) thay vì OCR lại.
+ * Request tới sau khi scan đã xong được ScanResultCache trả kết quả.
+ */
+@Slf4j
+@Component
+public class ScanCoalescer {
+
+    private final ScanMetrics scanMetrics;
+    private final boolean enabled;
+
+    private final Map<String, CompletableFuture<BillTransactionDTO>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong leaders = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public ScanCoalescer(
+        ScanMetrics scanMetrics,
+        @Value("${ocr.coalesce.enabled:true}") boolean enabled
+    ) {
+        this.scanMetrics = scanMetrics;
+        this.enabled = enabled;
+
+        log.info("Scan coalescing: enabled={}", enabled);
+    }
+
+    /**
+     * Chạy scan, hoặc chờ scan cùng key đang chạy
+     *
+     * @return kết quả scan (bản copy với request được gộp), null nếu OCR không ra text
+     */
+    public BillTransactionDTO execute(String key, ScanTask task) throws IOException {
+        if (!enabled) {
+            return task.run();
+        }
+
+        CompletableFuture<BillTransactionDTO> future = new CompletableFuture<>();
+        CompletableFuture<BillTransactionDTO> running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            scanMetrics.coalesced();
+            log.info("Identical scan already in flight, waiting for its result");
+            ScanTimings.source("coalesced");
+            long waitStart = System.nanoTime();
+            BillTransactionDTO result;
+            try {
+                result = await(running);
+            } finally {
+                scanMetrics.recordStage("coalesce_wait", System.nanoTime() - waitStart);
+            }
+            return result != null ? result.copy() : null;
+        }
+
+        leaders.incrementAndGet();
+        try {
+            BillTransactionDTO result = task.run();
+            future.complete(result != null ? result.copy() : null);
+            return result;
+        } catch (IOException | RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * Chờ scan đang chạy, ném lại exception của scan đó
+     */
+    private static BillTransactionDTO await(CompletableFuture<BillTransactionDTO> running) throws IOException {
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TesseractEnginePool.EngineUnavailableException("Interrupted while waiting for identical scan");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    public CoalescingStats getStats() {
+        return new CoalescingStats(enabled, inFlight.size(), leaders.get(), coalesced.get());
+    }
+
+    /**
+     * Một lần scan (cache miss)
+     */
+    @FunctionalInterface
+    public interface ScanTask {
+        BillTransactionDTO run() throws IOException;
+    }
+
+    /**
+     * Thống kê gộp scan
+     *
+     * @param inFlight       số scan đang chạy (theo key)
+     * @param leaderCount    số scan thực sự chạy OCR
+     * @param coalescedCount số request được gộp vào scan đang chạy
+     */
+    public record CoalescingStats(
+        boolean enabled,
+        int inFlight,
+        long leaderCount,
+        long coalescedCount
+    ) {
+    }
+}
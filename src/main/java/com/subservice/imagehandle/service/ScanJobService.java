@@ -0,0 +1,262 @@
+package com.subservice.imagehandle.service;
+
+import com.subservice.imagehandle.dto.BillTransactionDTO;
+import com.subservice.imagehandle.dto.ScanJobDTO;
+import com.subservice.imagehandle.upload.StreamingUploadReader.RejectedUploadException;
+import com.subservice.imagehandle.worker.OcrWorkerPool;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.BufferingClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestClientException;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Async scan job: submit trả jobId ngay, OCR chạy trên worker riêng
+ *
+ * Workflow:
+ * 1. submit(): validate bytes đã đọc trên request thread, đưa job vào queue giới hạn
+ *    (queue đầy → QueueFullException → 429)
+ * 2. Worker chạy BillScanService.scanBillStructured(bytes)
+ * 3. Client poll getJob(jobId), hoặc nhận POST tới ocr.async.callback-url khi job xong
+ * 4. Job đã xong bị xóa sau ocr.async.job-ttl-seconds
+ *
+ * spring.threads.virtual.enabled = true → worker là virtual thread (chờ OCR / gửi callback không giữ OS thread)
+ */
+@Slf4j
+@Service
+public class ScanJobService {
+
+    private final BillScanService billScanService;
+    private final ThreadPoolExecutor executor;
+    private final RestClient callbackClient;
+    private final String callbackUrl;
+    private final long jobTtlMillis;
+
+    private final Map<String, ScanJobDTO> jobs = new ConcurrentHashMap<>();
+
+    public ScanJobService(
+        BillScanService billScanService,
+        TesseractEnginePool enginePool,
+        RestClient.Builder restClientBuilder,
+        @Value("${ocr.async.workers:0}") int workers,
+        @Value("${ocr.async.queue-capacity:100}") int queueCapacity,
+        @Value("${ocr.async.callback-url:}") String callbackUrl,
+        @Value("${ocr.async.callback-timeout-ms:5000}") int callbackTimeoutMs,
+        @Value("${ocr.async.job-ttl-seconds:3600}") long jobTtlSeconds,
+        @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+        this.billScanService = billScanService;
+        this.callbackUrl = callbackUrl;
+        this.jobTtlMillis = jobTtlSeconds * 1000;
+
+        int threads = workers > 0 ? workers : enginePool.getSize();
+        ThreadFactory threadFactory;
+        if (virtualThreads) {
+            threadFactory = Thread.ofVirtual().name("scan-job-", 1).factory();
+        } else {
+            AtomicInteger counter = new AtomicInteger();
+            threadFactory = runnable -> {
+                Thread thread = new Thread(runnable, "scan-job-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+        this.executor = new ThreadPoolExecutor(
+            threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            threadFactory,
+            new ThreadPoolExecutor.AbortPolicy()
+        );
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(callbackTimeoutMs);
+        requestFactory.setReadTimeout(callbackTimeoutMs);
+        // Buffering: gửi kèm Content-Length thay vì chunked, receiver đơn giản cũng đọc được
+        this.callbackClient = restClientBuilder
+            .requestFactory(new BufferingClientHttpRequestFactory(requestFactory))
+            .build();
+
+        log.info("Async scan jobs: workers={}, virtualThreads={}, queueCapacity={}, callbackUrl={}",
+            threads, virtualThreads, queueCapacity, callbackUrl.isBlank() ? "(none)" : callbackUrl);
+    }
+
+    /**
+     * Nhận job mới
+     *
+     * @param content nội dung ảnh đã đọc xong trên request thread
+     * @param filename tên file gốc
+     * @throws IllegalArgumentException file không hợp lệ
+     * @throws QueueFullException queue đầy
+     */
+    public ScanJobDTO submit(byte[] content, String filename) {
+        billScanService.validateFile(filename, content.length);
+
+        ScanJobDTO job = ScanJobDTO.builder()
+            .jobId(UUID.randomUUID().toString())
+            .status(ScanJobDTO.Status.QUEUED)
+            .filename(filename)
+            .submittedAt(LocalDateTime.now())
+            .build();
+        jobs.put(job.getJobId(), job);
+
+        try {
+            executor.execute(() -> runJob(job, content));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getJobId());
+            log.warn("Scan job queue full ({} queued), rejecting {}", executor.getQueue().size(), filename);
+            throw new QueueFullException("Scan queue is full, retry later");
+        }
+
+        log.info("Scan job {} queued for file {}", job.getJobId(), filename);
+        return snapshot(job);
+    }
+
+    /**
+     * @return trạng thái job, null nếu không tồn tại (hoặc đã hết hạn)
+     */
+    public ScanJobDTO getJob(String jobId) {
+        ScanJobDTO job = jobs.get(jobId);
+        return job != null ? snapshot(job) : null;
+    }
+
+    public QueueStats getStats() {
+        return new QueueStats(
+            executor.getMaximumPoolSize(),
+            executor.getActiveCount(),
+            executor.getQueue().size(),
+            executor.getQueue().remainingCapacity(),
+            executor.getCompletedTaskCount(),
+            jobs.size()
+        );
+    }
+
+    private void runJob(ScanJobDTO job, byte[] content) {
+        synchronized (job) {
+            job.setStatus(ScanJobDTO.Status.RUNNING);
+            job.setStartedAt(LocalDateTime.now());
+        }
+
+        BillTransactionDTO result = null;
+        String error = null;
+        try {
+            result = billScanService.scanBillStructured(content, job.getFilename());
+            if (result == null) {
+                error = "No text recognized in image";
+            }
+        } catch (IllegalArgumentException | RejectedUploadException
+                 | TesseractEnginePool.EngineUnavailableException e) {
+            error = e.getMessage();
+        } catch (OcrWorkerPool.WorkerException e) {
+            log.error("Scan job {} failed in OCR worker ({}): {}", job.getJobId(), e.getFailure(), e.getMessage());
+            error = e.getFailure().getClientMessage();
+        } catch (IOException | RuntimeException e) {
+            log.error("Scan job {} failed: {}", job.getJobId(), e.getMessage(), e);
+            error = "Failed to process file";
+        }
+
+        synchronized (job) {
+            job.setStatus(error == null ? ScanJobDTO.Status.COMPLETED : ScanJobDTO.Status.FAILED);
+            job.setResult(result);
+            job.setError(error);
+            job.setCompletedAt(LocalDateTime.now());
+        }
+        log.info("Scan job {} finished: status={}", job.getJobId(), job.getStatus());
+
+        sendCallback(job);
+    }
+
+    private void sendCallback(ScanJobDTO job) {
+        if (callbackUrl.isBlank()) {
+            return;
+        }
+
+        try {
+            callbackClient.post()
+                .uri(callbackUrl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(snapshot(job))
+                .retrieve()
+                .toBodilessEntity();
+            log.debug("Callback sent for scan job {}", job.getJobId());
+        } catch (RestClientException e) {
+            log.warn("Callback for scan job {} to {} failed: {}", job.getJobId(), callbackUrl, e.getMessage());
+        }
+    }
+
+    /**
+     * Xóa các job đã xong quá ocr.async.job-ttl-seconds
+     */
+    @Scheduled(fixedDelayString = "${ocr.async.purge-interval-ms:60000}")
+    public void purgeFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(Duration.ofMillis(jobTtlMillis));
+        int before = jobs.size();
+        jobs.values().removeIf(job -> {
+            synchronized (job) {
+                return job.getCompletedAt() != null && job.getCompletedAt().isBefore(cutoff);
+            }
+        });
+        int removed = before - jobs.size();
+        if (removed > 0) {
+            log.debug("Purged {} finished scan jobs", removed);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private ScanJobDTO snapshot(ScanJobDTO job) {
+        synchronized (job) {
+            ScanJobDTO snapshot = job.toBuilder().build();
+            if (job.getResult() != null) {
+                snapshot.setResult(job.getResult().copy());
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Thống kê queue async job
+     */
+    public record QueueStats(
+        int workers,
+        int active,
+        int queued,
+        int remainingCapacity,
+        long completedCount,
+        int trackedJobs
+    ) {
+    }
+
+    /**
+     * Queue async job đầy → 429
+     */
+    public static class QueueFullException extends RuntimeException {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        public QueueFullException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.subservice.imagehandle.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer metrics cho scan pipeline (xem /actuator/prometheus)
+ *
+ * - bill.scan.duration{outcome}: end-to-end một lần scan (success / empty / error)
+ * - bill.scan.stage.duration{stage}: validate, read, ocr_wait, decode, phash, qr_decode, preprocess, fast_ocr, layout_ocr, temp_file_write, ocr, parse, coalesce_wait
+ * - bill.scan.preprocess.duration{stage}: từng stage tiền xử lý ảnh
+ * - bill.scan.ocr.empty: số lần OCR không ra text
+ * - bill.scan.layout{outcome}: ROI OCR theo layout template (matched / no_template / incomplete / failed)
+ * - bill.scan.tier{tier}: tiered OCR, bill được giải quyết ở fast pass hay phải chạy full pass
+ * - bill.scan.admission{outcome}: admitted / rejected_queue_depth / rejected_predicted_wait
+ * - bill.scan.duplicate{outcome}: ảnh có hash gần giống ảnh đã scan, confirmed (cùng giao dịch) / unconfirmed
+ * - bill.scan.coalesced: request chờ kết quả của scan giống hệt đang chạy thay vì OCR lại
+ * - bill.scan.qr{outcome}: VietQR trước OCR (none / not_vietqr / partial / complete = đủ account + amount, bỏ qua OCR nếu bật ocr.qr.skip-ocr)
+ *
+ * Stage cũng được ghi vào {@link ScanTimings} của request đang chạy (header Server-Timing)
+ */
+@Component
+public class ScanMetrics {
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> scanTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> stageTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> preprocessTimers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> layoutCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> tierCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> admissionCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> qrCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> duplicateCounters = new ConcurrentHashMap<>();
+    private final Counter emptyOcrCounter;
+    private final Counter coalescedCounter;
+
+    public ScanMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        this.emptyOcrCounter = Counter.builder("bill.scan.ocr.empty")
+            .description("Scans where OCR returned no text")
+            .register(registry);
+        this.coalescedCounter = Counter.builder("bill.scan.coalesced")
+            .description("Scans that waited for an identical in-flight scan instead of running OCR")
+            .register(registry);
+    }
+
+    public void recordScan(String outcome, long nanos) {
+        scanTimers.computeIfAbsent(outcome, key -> Timer.builder("bill.scan.duration")
+                .description("End-to-end bill scan duration")
+                .tag("outcome", key)
+                .publishPercentileHistogram()
+                .register(registry))
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordStage(String stage, long nanos) {
+        ScanTimings.stage(stage, nanos);
+        stageTimers.computeIfAbsent(stage, key -> Timer.builder("bill.scan.stage.duration")
+                .description("Duration of one bill scan pipeline stage")
+                .tag("stage", key)
+                .publishPercentileHistogram()
+                .register(registry))
+            .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordPreprocessStage(String stage, double millis) {
+        ScanTimings.preprocessStage(stage, millis);
+        preprocessTimers.computeIfAbsent(stage, key -> Timer.builder("bill.scan.preprocess.duration")
+                .description("Duration of one image preprocessing stage")
+                .tag("stage", key)
+                .publishPercentileHistogram()
+                .register(registry))
+            .record((long) (millis * 1_000_000), TimeUnit.NANOSECONDS);
+    }
+
+    public void emptyOcr() {
+        emptyOcrCounter.increment();
+    }
+
+    public void coalesced() {
+        coalescedCounter.increment();
+    }
+
+    public void admission(String outcome) {
+        admissionCounters.computeIfAbsent(outcome, key -> Counter.builder("bill.scan.admission")
+                .description("Synchronous scan requests admitted or shed by admission control")
+                .tag("outcome", key)
+                .register(registry))
+            .increment();
+    }
+
+    public void tierResolved(String tier) {
+        tierCounters.computeIfAbsent(tier, key -> Counter.builder("bill.scan.tier")
+                .description("Bills resolved by each tiered OCR pass")
+                .tag("tier", key)
+                .register(registry))
+            .increment();
+    }
+
+    public void layoutOutcome(String outcome) {
+        layoutCounters.computeIfAbsent(outcome, key -> Counter.builder("bill.scan.layout")
+                .description("Region-of-interest OCR attempts by outcome")
+                .tag("outcome", key)
+                .register(registry))
+            .increment();
+    }
+
+    public void qrOutcome(String outcome) {
+        qrCounters.computeIfAbsent(outcome, key -> Counter.builder("bill.scan.qr")
+                .description("VietQR decode attempts before OCR by outcome")
+                .tag("outcome", key)
+                .register(registry))
+            .increment();
+    }
+
+    public void duplicate(String outcome) {
+        duplicateCounters.computeIfAbsent(outcome, key -> Counter.builder("bill.scan.duplicate")
+                .description("Scans matching a previously scanned image by perceptual hash")
+                .tag("outcome", key)
+                .register(registry))
+            .increment();
+    }
+}
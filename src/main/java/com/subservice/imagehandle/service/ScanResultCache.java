@@ -0,0 +1,189 @@
+package com.subservice.imagehandle.service;
+
+import com.subservice.imagehandle.dto.BillTransactionDTO;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Cache kết quả scan theo hash nội dung ảnh (+ cấu hình OCR)
+ *
+ * - LRU giới hạn theo số entry (ocr.cache.max-entries)
+ * - Hết hạn sau ocr.cache.ttl-seconds
+ * - Lưu/trả bản copy của DTO để caller sửa kết quả không làm hỏng cache
+ */
+@Slf4j
+@Component
+public class ScanResultCache {
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+
+    private final Map<String, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong expirations = new AtomicLong();
+
+    @Autowired
+    public ScanResultCache(
+        @Value("${ocr.cache.enabled:true}") boolean enabled,
+        @Value("${ocr.cache.max-entries:1000}") int maxEntries,
+        @Value("${ocr.cache.ttl-seconds:3600}") long ttlSeconds
+    ) {
+        this(enabled, maxEntries, ttlSeconds, System::currentTimeMillis);
+    }
+
+    ScanResultCache(boolean enabled, int maxEntries, long ttlSeconds, LongSupplier clock) {
+        this.enabled = enabled;
+        this.clock = clock;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlSeconds * 1000;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > ScanResultCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+
+        log.info("Scan result cache: enabled={}, maxEntries={}, ttl={}s", enabled, maxEntries, ttlSeconds);
+    }
+
+    /**
+     * @return bản copy kết quả đã cache, null nếu không có hoặc đã hết hạn
+     */
+    public BillTransactionDTO get(String key) {
+        if (!enabled) {
+            return null;
+        }
+
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && entry.isExpired(clock.getAsLong())) {
+                entries.remove(key);
+                expirations.incrementAndGet();
+                entry = null;
+            }
+        }
+
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.result.copy();
+    }
+
+    public void put(String key, BillTransactionDTO result) {
+        if (!enabled || result == null) {
+            return;
+        }
+
+        Entry entry = new Entry(result.copy(), clock.getAsLong() + ttlMillis);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Xóa định kỳ các entry đã hết hạn nhưng không được đọc lại
+     */
+    @Scheduled(fixedDelayString = "${ocr.cache.purge-interval-ms:60000}")
+    public int purgeExpired() {
+        long now = clock.getAsLong();
+        int removed = 0;
+        synchronized (entries) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().isExpired(now)) {
+                    iterator.remove();
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            expirations.addAndGet(removed);
+            log.debug("Purged {} expired scan results", removed);
+        }
+        return removed;
+    }
+
+    public CacheStats getStats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long lookups = hitCount + missCount;
+        return new CacheStats(
+            enabled,
+            size,
+            maxEntries,
+            hitCount,
+            missCount,
+            lookups > 0 ? (double) hitCount / lookups : 0.0,
+            evictions.get(),
+            expirations.get()
+        );
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Cache key = SHA-256 nội dung ảnh + các thành phần cấu hình OCR ảnh hưởng tới kết quả,
+     * nối bằng ':' (cũng là nguồn của key trong ScanResultStore, đổi format làm mất kết quả đã lưu)
+     */
+    public static String key(String digest, Object... config) {
+        StringBuilder key = new StringBuilder(digest);
+        for (Object part : config) {
+            key.append(':').append(part);
+        }
+        return key.toString();
+    }
+
+    private record Entry(BillTransactionDTO result, long expiresAt) {
+        boolean isExpired(long now) {
+            return now >= expiresAt;
+        }
+    }
+
+    /**
+     * Thống kê cache
+     */
+    public record CacheStats(
+        boolean enabled,
+        int size,
+        int maxEntries,
+        long hitCount,
+        long missCount,
+        double hitRatio,
+        long evictionCount,
+        long expirationCount
+    ) {
+    }
+}
@@ -0,0 +1,523 @@
+package com.subservice.imagehandle.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.subservice.imagehandle.dto.BillTransactionDTO;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lưu kết quả scan xuống đĩa theo key = SHA-256 của cache key (ảnh + cấu hình OCR), giữ được qua restart
+ *
+ * Key cũng là ocrTextId trả cho client để parse lại OCR text đã lưu (POST /api/transactions/reparse)
+ *
+ * - File append-only {ocr.store.dir}/results.jsonl, mỗi dòng một JSON: key, OCR text thô, confidence, DTO đã parse
+ * - Index key → vị trí dòng trong file nằm trong memory (LRU), đọc kết quả bằng positional read
+ * - Giới hạn theo số entry (ocr.store.max-entries) và tổng dung lượng entry còn sống (ocr.store.max-size),
+ *   entry cũ nhất bị bỏ khỏi index và được ghi dấu xoá (restart không dựng lại)
+ * - Dung lượng của entry bị ghi đè / bị bỏ vượt quá phần còn sống → compaction: ghi lại các entry còn sống
+ *   ra file mới rồi thay thế file cũ
+ * - Startup: đọc lại file để dựng index, dòng cuối ghi dở (crash) bị cắt bỏ
+ * - Đọc không chờ ghi: index giữ trong lock ngắn, positional read ngoài lock;
+ *   ghi thêm dòng và compaction chạy tuần tự trên một writer
+ *
+ * Mỗi instance dùng một thư mục riêng (file không được ghi đồng thời bởi nhiều process)
+ */
+@Slf4j
+@Component
+public class ScanResultStore {
+
+    private static final String FILE_NAME = "results.jsonl";
+    private static final long MIN_COMPACT_BYTES = 1024 * 1024;
+    private static final int MAX_READ_ATTEMPTS = 3;
+
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Path file;
+    private final int maxEntries;
+    private final long maxBytes;
+
+    // indexLock: giữ ngắn, chỉ quanh index / channel / bộ đếm, không I/O trong lock (trừ mở lại file khi lỗi)
+    // writeLock: writer duy nhất, ghi thêm dòng và compaction chạy tuần tự
+    private final Object indexLock = new Object();
+    private final Object writeLock = new Object();
+
+    // access-order: entry đầu tiên là entry lâu nhất chưa được đọc / ghi
+    private final Map<String, Location> index = new LinkedHashMap<>(16, 0.75f, true);
+    private FileChannel channel;
+    private long liveBytes;
+    private long deadBytes;
+    private boolean closed;
+
+    // Chỉ đọc / ghi trong writeLock
+    private long writePosition;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+
+    public ScanResultStore(
+        ObjectMapper objectMapper,
+        @Value("${ocr.store.enabled:false}") boolean enabled,
+        @Value("${ocr.store.dir:${file.upload.dir:uploads}/ocr-store}") String dir,
+        @Value("${ocr.store.max-entries:100000}") int maxEntries,
+        @Value("${ocr.store.max-size:256MB}") DataSize maxSize
+    ) throws IOException {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.file = Path.of(dir, FILE_NAME);
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxSize.toBytes();
+
+        if (enabled) {
+            Files.createDirectories(file.getParent());
+            load();
+            log.info("Scan result store: file={}, entries={}, liveBytes={}, deadBytes={}, maxEntries={}, maxSize={}",
+                file.toAbsolutePath(), index.size(), liveBytes, deadBytes, maxEntries, maxSize);
+        }
+    }
+
+    /**
+     * @return kết quả đã lưu, null nếu không có (hoặc store tắt / đọc lỗi)
+     */
+    public StoredResult get(String key) {
+        if (!enabled) {
+            return null;
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            Location location;
+            FileChannel source;
+            synchronized (indexLock) {
+                location = index.get(key);
+                source = channel;
+            }
+            if (location == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+
+            try {
+                StoredResult stored = read(source, location);
+                if (!key.equals(stored.key())) {
+                    throw new IOException("Key mismatch at offset " + location.offset());
+                }
+                hits.incrementAndGet();
+                return stored;
+            } catch (ClosedChannelException e) {
+                // Compaction vừa thay file (đọc lại theo vị trí mới), hoặc channel bị đóng do thread bị interrupt
+                reopenIfClosed(source);
+                if (e instanceof ClosedByInterruptException || attempt >= MAX_READ_ATTEMPTS) {
+                    misses.incrementAndGet();
+                    return null;
+                }
+            } catch (IOException e) {
+                log.warn("Cannot read stored scan result {}: {}", key, e.getMessage());
+                remove(key, location);
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+    }
+
+    private StoredResult read(FileChannel source, Location location) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(location.length());
+        while (buffer.hasRemaining()) {
+            if (source.read(buffer, location.offset() + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        return objectMapper.readValue(buffer.array(), StoredResult.class);
+    }
+
+    /**
+     * Lưu kết quả scan, lỗi ghi đĩa chỉ được log (không làm hỏng request)
+     */
+    public void put(String key, String ocrText, double confidence, BillTransactionDTO result) {
+        if (!enabled || result == null) {
+            return;
+        }
+
+        byte[] line;
+        try {
+            line = toLine(new StoredResult(key, System.currentTimeMillis(), ocrText, confidence, result));
+        } catch (IOException e) {
+            log.warn("Cannot serialize scan result {}: {}", key, e.getMessage());
+            return;
+        }
+
+        synchronized (writeLock) {
+            FileChannel target;
+            synchronized (indexLock) {
+                target = channel;
+            }
+
+            long offset = writePosition;
+            try {
+                ByteBuffer buffer = ByteBuffer.wrap(line);
+                while (buffer.hasRemaining()) {
+                    target.write(buffer, offset + buffer.position());
+                }
+            } catch (IOException e) {
+                log.warn("Cannot store scan result {}: {}", key, e.getMessage());
+                reopenIfClosed(target);
+                return;
+            }
+            writePosition = offset + line.length;
+
+            // Index chỉ trỏ tới dòng đã ghi xong
+            List<String> evicted;
+            synchronized (indexLock) {
+                Location previous = index.put(key, new Location(offset, line.length));
+                liveBytes += line.length;
+                if (previous != null) {
+                    liveBytes -= previous.length();
+                    deadBytes += previous.length();
+                }
+                evicted = evictOverLimit();
+            }
+            if (!evicted.isEmpty()) {
+                appendTombstones(target, evicted);
+            }
+
+            boolean compactionDue;
+            synchronized (indexLock) {
+                compactionDue = deadBytes > Math.max(liveBytes, MIN_COMPACT_BYTES);
+            }
+            if (compactionDue) {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    log.warn("Scan result store compaction failed, keeping current file: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return key các entry bị bỏ khỏi index (lâu nhất chưa dùng trước)
+     */
+    private List<String> evictOverLimit() {
+        List<String> evicted = new ArrayList<>();
+        Iterator<Map.Entry<String, Location>> iterator = index.entrySet().iterator();
+        while ((index.size() > maxEntries || liveBytes > maxBytes) && iterator.hasNext()) {
+            Map.Entry<String, Location> entry = iterator.next();
+            iterator.remove();
+            liveBytes -= entry.getValue().length();
+            deadBytes += entry.getValue().length();
+            evicted.add(entry.getKey());
+        }
+        return evicted;
+    }
+
+    /**
+     * Ghi dấu xoá cho entry bị bỏ để restart không dựng lại chúng (gọi trong writeLock)
+     *
+     * Lỗi ghi chỉ được log: entry bị bỏ có thể quay lại index sau restart, kết quả vẫn đúng với key đó
+     */
+    private void appendTombstones(FileChannel target, List<String> keys) {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        try {
+            for (String key : keys) {
+                lines.write(toLine(new Tombstone(key, true)));
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            long offset = writePosition;
+            while (buffer.hasRemaining()) {
+                target.write(buffer, offset + buffer.position());
+            }
+        } catch (IOException e) {
+            log.warn("Cannot record {} evicted scan results: {}", keys.size(), e.getMessage());
+            reopenIfClosed(target);
+            return;
+        }
+        writePosition += lines.size();
+        synchronized (indexLock) {
+            deadBytes += lines.size();
+        }
+    }
+
+    private void remove(String key, Location location) {
+        synchronized (indexLock) {
+            if (index.remove(key, location)) {
+                liveBytes -= location.length();
+                deadBytes += location.length();
+            }
+        }
+    }
+
+    /**
+     * Ghi lại các entry còn sống (theo thứ tự LRU) ra file mới rồi thay file cũ
+     *
+     * Chạy trên writer (chặn put, không chặn get): get vẫn đọc file cũ trong lúc copy,
+     * index và channel được đổi cùng lúc sau khi file mới đã vào chỗ. Lỗi ở bất kỳ bước nào → giữ file cũ
+     */
+    void compact() throws IOException {
+        synchronized (writeLock) {
+            long start = System.currentTimeMillis();
+            long before = writePosition;
+
+            Map<String, Location> live;
+            FileChannel source;
+            synchronized (indexLock) {
+                live = new LinkedHashMap<>(index);
+                source = channel;
+            }
+
+            // Channel mở trên file .compact vẫn dùng được sau khi file được move thành results.jsonl
+            Path compacted = file.resolveSibling(FILE_NAME + ".compact");
+            FileChannel next = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Map<String, Location> relocated = new HashMap<>();
+            long size = 0;
+            try {
+                for (Map.Entry<String, Location> entry : live.entrySet()) {
+                    Location location = entry.getValue();
+                    long copied = 0;
+                    while (copied < location.length()) {
+                        copied += source.transferTo(location.offset() + copied, location.length() - copied, next);
+                    }
+                    relocated.put(entry.getKey(), new Location(size, location.length()));
+                    size += location.length();
+                }
+                next.force(true);
+                Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException | RuntimeException e) {
+                closeQuietly(next);
+                Files.deleteIfExists(compacted);
+                throw e;
+            }
+
+            synchronized (indexLock) {
+                // Trong lúc copy get có thể đã bỏ entry đọc lỗi, thứ tự LRU lấy theo index hiện tại
+                Map<String, Location> current = new LinkedHashMap<>(index);
+                index.clear();
+                liveBytes = 0;
+                for (String key : current.keySet()) {
+                    Location moved = relocated.get(key);
+                    if (moved != null) {
+                        index.put(key, moved);
+                        liveBytes += moved.length();
+                    }
+                }
+                deadBytes = size - liveBytes;
+                channel = next;
+            }
+            writePosition = size;
+            closeQuietly(source);
+
+            compactions.incrementAndGet();
+            log.info("Compacted scan result store in {}ms: {} → {} bytes, {} entries",
+                System.currentTimeMillis() - start, before, size, relocated.size());
+        }
+    }
+
+    /**
+     * Mở lại file nếu channel đang dùng bị đóng ngoài ý muốn (thread bị interrupt khi đang đọc / ghi)
+     */
+    private void reopenIfClosed(FileChannel failed) {
+        synchronized (indexLock) {
+            if (closed || channel != failed || failed.isOpen()) {
+                return;
+            }
+            try {
+                channel = open();
+                log.warn("Reopened scan result store after its channel was closed");
+            } catch (IOException e) {
+                log.warn("Cannot reopen scan result store: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void closeQuietly(FileChannel target) {
+        try {
+            target.close();
+        } catch (IOException e) {
+            log.warn("Cannot close scan result store file: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Dựng index từ file, cắt bỏ dòng cuối ghi dở
+     */
+    private void load() throws IOException {
+        channel = open();
+
+        long offset = 0;
+        long validEnd = 0;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) >= 0) {
+                line.write(b);
+                if (b != '\n') {
+                    continue;
+                }
+
+                int length = line.size();
+                JsonNode record = readRecord(line.toByteArray());
+                String key = record != null ? record.get("key").asText() : null;
+                if (key != null && record.path("removed").asBoolean(false)) {
+                    Location removed = index.remove(key);
+                    if (removed != null) {
+                        liveBytes -= removed.length();
+                        deadBytes += removed.length();
+                    }
+                    deadBytes += length;
+                } else if (key != null) {
+                    Location previous = index.put(key, new Location(offset, length));
+                    liveBytes += length;
+                    if (previous != null) {
+                        liveBytes -= previous.length();
+                        deadBytes += previous.length();
+                    }
+                } else {
+                    log.warn("Skipping unreadable scan result store record at offset {}", offset);
+                    deadBytes += length;
+                }
+                offset += length;
+                validEnd = offset;
+                line.reset();
+            }
+        }
+
+        if (channel.size() > validEnd) {
+            log.warn("Truncating incomplete scan result store record at offset {} ({} bytes)",
+                validEnd, channel.size() - validEnd);
+            channel.truncate(validEnd);
+        }
+        writePosition = validEnd;
+        evictOverLimit();
+    }
+
+    /**
+     * @return record JSON có key dạng text, null nếu dòng không đọc được
+     */
+    private JsonNode readRecord(byte[] line) {
+        try {
+            JsonNode record = objectMapper.readTree(line);
+            JsonNode key = record != null ? record.get("key") : null;
+            return key != null && key.isTextual() ? record : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private byte[] toLine(Object record) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(record);
+        byte[] line = new byte[json.length + 1];
+        System.arraycopy(json, 0, line, 0, json.length);
+        line[json.length] = '\n';
+        return line;
+    }
+
+    private FileChannel open() throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    public StoreStats getStats() {
+        synchronized (indexLock) {
+            long fileBytes = 0;
+            if (enabled) {
+                try {
+                    fileBytes = channel.size();
+                } catch (IOException e) {
+                    fileBytes = -1;
+                }
+            }
+            return new StoreStats(
+                enabled,
+                index.size(),
+                maxEntries,
+                liveBytes,
+                fileBytes,
+                maxBytes,
+                hits.get(),
+                misses.get(),
+                compactions.get()
+            );
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @PreDestroy
+    public void close() {
+        synchronized (writeLock) {
+            synchronized (indexLock) {
+                if (channel == null || closed) {
+                    return;
+                }
+                closed = true;
+                try {
+                    channel.force(true);
+                    channel.close();
+                } catch (IOException e) {
+                    log.warn("Cannot close scan result store: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private record Location(long offset, int length) {
+    }
+
+    /**
+     * Dòng đánh dấu entry đã bị bỏ khỏi index (vượt max-entries / max-size)
+     */
+    private record Tombstone(String key, boolean removed) {
+    }
+
+    /**
+     * Một kết quả đã lưu: OCR text thô + bill đã parse
+     */
+    public record StoredResult(
+        String key,
+        long storedAt,
+        String ocrText,
+        double confidence,
+        BillTransactionDTO result
+    ) {
+    }
+
+    /**
+     * Thống kê store
+     */
+    public record StoreStats(
+        boolean enabled,
+        int entries,
+        int maxEntries,
+        long liveBytes,
+        long fileBytes,
+        long maxBytes,
+        long hitCount,
+        long missCount,
+        long compactionCount
+    ) {
+    }
+}
@@ -0,0 +1,154 @@
+package com.subservice.imagehandle.service;
+
+import com.subservice.imagehandle.dto.ScanTimingsDTO;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Thời gian từng stage của một request scan (trả về qua header Server-Timing / block timings)
+ *
+ * Gắn với thread xử lý request: start() ở controller, các stage được ghi qua
+ * {@link ScanMetrics#recordStage} nên không phải truyền object qua từng method.
+ * Scan không chạy trong request (batch, async job) không có ScanTimings → ghi bị bỏ qua.
+ *
+ * Stage chạy nhiều lần trong một request (vd parse ở fast pass) được cộng dồn.
+ *
+ * Note: KHÔNG thread-safe - chỉ thread đã start() ghi vào
+ */
+public final class ScanTimings implements AutoCloseable {
+
+    private static final ThreadLocal<ScanTimings> CURRENT = new ThreadLocal<>();
+
+    private final ScanTimings previous;
+    private final long startNanos;
+    private long endNanos;
+
+    private final Map<String, Long> stageNanos = new LinkedHashMap<>();
+    private final Map<String, Double> preprocessMs = new LinkedHashMap<>();
+    private Integer imageWidth;
+    private Integer imageHeight;
+    private Integer ocrTextLength;
+    private String source;
+
+    private ScanTimings(ScanTimings previous) {
+        this.previous = previous;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Bắt đầu đo cho request hiện tại, close() khi xong
+     */
+    public static ScanTimings start() {
+        ScanTimings timings = new ScanTimings(CURRENT.get());
+        CURRENT.set(timings);
+        return timings;
+    }
+
+    static void stage(String stage, long nanos) {
+        ScanTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.stageNanos.merge(stage, nanos, Long::sum);
+        }
+    }
+
+    static void preprocessStage(String stage, double millis) {
+        ScanTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.preprocessMs.merge(stage, millis, Double::sum);
+        }
+    }
+
+    static void image(int width, int height) {
+        ScanTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.imageWidth = width;
+            timings.imageHeight = height;
+        }
+    }
+
+    static void ocrText(String text) {
+        ScanTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.ocrTextLength = text != null ? text.length() : 0;
+        }
+    }
+
+    /**
+     * Nguồn kết quả: cache / store / coalesced / qr / ocr
+     */
+    static void source(String source) {
+        ScanTimings timings = CURRENT.get();
+        if (timings != null) {
+            timings.source = source;
+        }
+    }
+
+    /**
+     * Giá trị header Server-Timing, vd:
+     * decode;dur=41.2, ocr;dur=812.5, parse;dur=1.3, total;dur=870.0, image;desc="1080x2400", ocr_text;desc="523"
+     */
+    public String toServerTiming() {
+        StringJoiner header = new StringJoiner(", ");
+        stageNanos.forEach((stage, nanos) -> header.add(metric(stage, nanos / 1_000_000.0)));
+        preprocessMs.forEach((stage, millis) -> header.add(metric("preprocess_" + stage, millis)));
+        header.add(metric("total", totalMs()));
+        if (imageWidth != null) {
+            header.add("image;desc=\"" + imageWidth + "x" + imageHeight + "\"");
+        }
+        if (ocrTextLength != null) {
+            header.add("ocr_text;desc=\"" + ocrTextLength + "\"");
+        }
+        if (source != null) {
+            header.add("source;desc=\"" + source + "\"");
+        }
+        return header.toString();
+    }
+
+    private static String metric(String name, double millis) {
+        return name + ";dur=" + String.format(Locale.ROOT, "%.1f", millis);
+    }
+
+    public ScanTimingsDTO toDto() {
+        Map<String, Double> stagesMs = new LinkedHashMap<>();
+        stageNanos.forEach((stage, nanos) -> stagesMs.put(stage, round(nanos / 1_000_000.0)));
+        Map<String, Double> preprocess = new LinkedHashMap<>();
+        preprocessMs.forEach((stage, millis) -> preprocess.put(stage, round(millis)));
+
+        return ScanTimingsDTO.builder()
+            .totalMs(round(totalMs()))
+            .stagesMs(stagesMs)
+            .preprocessMs(preprocess.isEmpty() ? null : preprocess)
+            .imageWidth(imageWidth)
+            .imageHeight(imageHeight)
+            .ocrTextLength(ocrTextLength)
+            .source(source)
+            .build();
+    }
+
+    private double totalMs() {
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return (end - startNanos) / 1_000_000.0;
+    }
+
+    private static double round(double millis) {
+        return Math.round(millis * 10) / 10.0;
+    }
+
+    @Override
+    public void close() {
+        if (endNanos != 0) {
+            return;
+        }
+        endNanos = System.nanoTime();
+        if (CURRENT.get() == this) {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.subservice.imagehandle.service;
+
+import com.sun.jna.Pointer;
+import net.sourceforge.tess4j.ITessAPI;
+import net.sourceforge.tess4j.ITessAPI.TessPageIteratorLevel;
+import net.sourceforge.tess4j.TessAPI;
+import net.sourceforge.tess4j.Tesseract;
+import net.sourceforge.tess4j.TesseractException;
+
+import java.awt.Rectangle;
+import java.awt.image.RenderedImage;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tesseract engine giữ native handle sống suốt vòng đời (không init/dispose mỗi lần OCR)
+ *
+ * Tess4J {@link Tesseract#doOCR(java.io.File)} tạo TessBaseAPI mới và load lại traineddata ở mỗi lần gọi.
+ * Class này init một lần khi mở, sau đó chỉ setImage → recognize → clear.
+ *
+ * Note: KHÔNG thread-safe - mỗi instance chỉ được dùng bởi một thread tại một thời điểm
+ * (xem {@link TesseractEnginePool})
+ */
+public class TesseractEngine extends Tesseract {
+
+    private static final String WHITELIST_VARIABLE = "tessedit_char_whitelist";
+
+    private final int id;
+    private final String datapath;
+    private final String language;
+    private final int psm;
+    private volatile boolean open;
+    private long jobCount;
+
+    public TesseractEngine(int id, String datapath, String language, int psm) {
+        this.id = id;
+        this.datapath = datapath;
+        this.language = language;
+        this.psm = psm;
+    }
+
+    /**
+     * Load native library + traineddata và tạo TessBaseAPI handle
+     */
+    public void open() {
+        setDatapath(datapath);
+        setLanguage(language);
+        setPageSegMode(psm);
+        init();
+        setVariables();
+
+        String loaded = getAPI().TessBaseAPIGetInitLanguagesAsString(getHandle());
+        if (loaded == null || loaded.isEmpty()) {
+            dispose();
+            throw new IllegalStateException("Tesseract could not load any language data");
+        }
+        open = true;
+    }
+
+    /**
+     * OCR một ảnh đã decode trên handle đã init sẵn
+     *
+     * @return text + các word kèm bounding box và confidence
+     */
+    public PageResult recognize(RenderedImage image) throws TesseractException {
+        ensureOpen();
+        try {
+            setImage(image);
+            String text = getOCRText(null, 1);
+            List<OcrWord> words = collectWords();
+            jobCount++;
+            return new PageResult(text, words);
+        } catch (IOException e) {
+            throw new TesseractException(e);
+        } finally {
+            getAPI().TessBaseAPIClear(getHandle());
+        }
+    }
+
+    /**
+     * OCR lần lượt từng vùng của cùng một ảnh (ảnh chỉ set một lần)
+     *
+     * PSM / whitelist của từng vùng được khôi phục về mặc định sau khi xong
+     *
+     * @return kết quả theo thứ tự regions, bounding box của word tính trên toàn ảnh
+     */
+    public List<PageResult> recognizeRegions(RenderedImage image, List<OcrRegion> regions) throws TesseractException {
+        ensureOpen();
+        TessAPI api = getAPI();
+        try {
+            setImage(image);
+            List<PageResult> results = new ArrayList<>(regions.size());
+            for (OcrRegion region : regions) {
+                Rectangle bounds = region.bounds();
+                api.TessBaseAPISetPageSegMode(getHandle(), region.psm());
+                api.TessBaseAPISetVariable(getHandle(), WHITELIST_VARIABLE,
+                    region.whitelist() != null ? region.whitelist() : "");
+                api.TessBaseAPISetRectangle(getHandle(), bounds.x, bounds.y, bounds.width, bounds.height);
+
+                String text = getOCRText(null, 1);
+                results.add(new PageResult(text, collectWords()));
+            }
+            jobCount++;
+            return results;
+        } catch (IOException e) {
+            throw new TesseractException(e);
+        } finally {
+            api.TessBaseAPISetPageSegMode(getHandle(), psm);
+            api.TessBaseAPISetVariable(getHandle(), WHITELIST_VARIABLE, "");
+            api.TessBaseAPIClear(getHandle());
+        }
+    }
+
+    /**
+     * Đọc kết quả word-level của lần recognize vừa chạy (phải gọi trước TessBaseAPIClear)
+     */
+    private List<OcrWord> collectWords() {
+        TessAPI api = getAPI();
+        ITessAPI.TessResultIterator iterator = api.TessBaseAPIGetIterator(getHandle());
+        if (iterator == null) {
+            return List.of();
+        }
+
+        int level = TessPageIteratorLevel.RIL_WORD;
+        List<OcrWord> words = new ArrayList<>();
+        IntBuffer left = IntBuffer.allocate(1);
+        IntBuffer top = IntBuffer.allocate(1);
+        IntBuffer right = IntBuffer.allocate(1);
+        IntBuffer bottom = IntBuffer.allocate(1);
+        try {
+            // Page iterator thuộc về result iterator, không delete riêng
+            ITessAPI.TessPageIterator page = api.TessResultIteratorGetPageIterator(iterator);
+            do {
+                Pointer textPointer = api.TessResultIteratorGetUTF8Text(iterator, level);
+                if (textPointer == null) {
+                    continue;
+                }
+                String text;
+                try {
+                    text = textPointer.getString(0, StandardCharsets.UTF_8.name()).strip();
+                } finally {
+                    api.TessDeleteText(textPointer);
+                }
+                if (text.isEmpty()) {
+                    continue;
+                }
+
+                double confidence = api.TessResultIteratorConfidence(iterator, level) / 100.0;
+                api.TessPageIteratorBoundingBox(page, level, left, top, right, bottom);
+                words.add(new OcrWord(
+                    text,
+                    left.get(0),
+                    top.get(0),
+                    right.get(0) - left.get(0),
+                    bottom.get(0) - top.get(0),
+                    Math.max(0.0, Math.min(1.0, confidence))
+                ));
+            } while (api.TessResultIteratorNext(iterator, level) == ITessAPI.TRUE);
+        } finally {
+            api.TessResultIteratorDelete(iterator);
+        }
+        return words;
+    }
+
+    /**
+     * Giải phóng native handle
+     */
+    public void close() {
+        if (open) {
+            open = false;
+            dispose();
+        }
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public boolean isOpen() {
+        return open;
+    }
+
+    public long getJobCount() {
+        return jobCount;
+    }
+
+    private void ensureOpen() throws TesseractException {
+        if (!open) {
+            throw new TesseractException("Tesseract engine #" + id + " is not open");
+        }
+    }
+
+    /**
+     * Kết quả OCR một trang
+     */
+    public record PageResult(String text, List<OcrWord> words) {
+    }
+}
@@ -0,0 +1,271 @@
+package com.subservice.imagehandle.service;
+
+import lombok.extern.slf4j.Slf4j;
+import net.sourceforge.tess4j.TesseractException;
+
+import java.awt.image.RenderedImage;
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool giới hạn các {@link TesseractEngine} đã init sẵn
+ *
+ * - borrow(): lấy engine rảnh (hoặc tạo mới nếu chưa đủ size), chờ tối đa acquireTimeoutMs
+ * - release(): trả engine về pool
+ * - invalidate(): đóng engine lỗi, slot sẽ được tạo lại ở lần borrow sau
+ */
+@Slf4j
+public class TesseractEnginePool implements AutoCloseable {
+
+    private final EngineFactory engineFactory;
+    private final String language;
+    private final int psm;
+    private final int size;
+    private final long acquireTimeoutMs;
+
+    private final Semaphore permits;
+    private final BlockingDeque<TesseractEngine> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger engineIds = new AtomicInteger();
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong invalidatedCount = new AtomicLong();
+
+    private volatile boolean closed;
+
+    public TesseractEnginePool(String datapath, String language, int psm, int size, long acquireTimeoutMs) {
+        this(language, psm, size, acquireTimeoutMs, id -> {
+            TesseractEngine engine = new TesseractEngine(id, datapath, language, psm);
+            engine.open();
+            return engine;
+        });
+    }
+
+    TesseractEnginePool(String language, int psm, int size, long acquireTimeoutMs, EngineFactory engineFactory) {
+        this.engineFactory = engineFactory;
+        this.language = language;
+        this.psm = psm;
+        this.size = size > 0 ? size : Runtime.getRuntime().availableProcessors();
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.permits = new Semaphore(this.size, true);
+    }
+
+    /**
+     * Init trước toàn bộ engine để request đầu tiên không phải chờ load traineddata
+     *
+     * @return số engine init thành công
+     */
+    public int prestart() {
+        List<TesseractEngine> started = new ArrayList<>();
+        try {
+            while (created.get() < size) {
+                started.add(createEngine());
+            }
+        } catch (RuntimeException | LinkageError e) {
+            log.warn("Could not pre-start Tesseract engines ({} of {} started): {}",
+                started.size(), size, e.getMessage());
+        }
+        idle.addAll(started);
+        return started.size();
+    }
+
+    /**
+     * OCR thử một ảnh trên từng engine của pool (mượn đủ size engine cùng lúc để engine nào cũng được chạy),
+     * engine chưa init sẽ được tạo
+     *
+     * @return số engine OCR thành công, engine lỗi bị đóng
+     */
+    public int warmUp(RenderedImage image) {
+        List<TesseractEngine> engines = new ArrayList<>();
+        int warmed = 0;
+        try {
+            while (engines.size() < size) {
+                engines.add(borrow());
+            }
+            for (int i = 0; i < engines.size(); i++) {
+                TesseractEngine engine = engines.get(i);
+                try {
+                    engine.recognize(image);
+                    warmed++;
+                } catch (TesseractException | RuntimeException | LinkageError e) {
+                    log.warn("Warm-up OCR failed on Tesseract engine #{}: {}", engine.getId(), e.getMessage());
+                    engines.set(i, null);
+                    invalidate(engine);
+                }
+            }
+        } finally {
+            for (TesseractEngine engine : engines) {
+                if (engine != null) {
+                    release(engine);
+                }
+            }
+        }
+        return warmed;
+    }
+
+    /**
+     * Mượn một engine, chờ tối đa acquireTimeoutMs
+     *
+     * @throws EngineUnavailableException nếu hết thời gian chờ
+     */
+    public TesseractEngine borrow() {
+        if (closed) {
+            throw new EngineUnavailableException("OCR engine pool is shut down");
+        }
+
+        long waitStart = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EngineUnavailableException("Interrupted while waiting for OCR engine");
+        }
+        totalWaitNanos.addAndGet(System.nanoTime() - waitStart);
+
+        if (!acquired) {
+            timeoutCount.incrementAndGet();
+            throw new EngineUnavailableException(
+                "No OCR engine available within " + acquireTimeoutMs + "ms");
+        }
+
+        try {
+            TesseractEngine engine = idle.pollFirst();
+            if (engine == null) {
+                engine = createEngine();
+            }
+            borrowCount.incrementAndGet();
+            return engine;
+        } catch (RuntimeException | LinkageError e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Trả engine về pool sau khi dùng xong
+     */
+    public void release(TesseractEngine engine) {
+        if (closed) {
+            destroy(engine);
+        } else {
+            idle.offerFirst(engine);
+        }
+        permits.release();
+    }
+
+    /**
+     * Đóng engine bị lỗi thay vì trả lại pool
+     */
+    public void invalidate(TesseractEngine engine) {
+        invalidatedCount.incrementAndGet();
+        destroy(engine);
+        permits.release();
+    }
+
+    public PoolStats getStats() {
+        int available = permits.availablePermits();
+        long borrows = borrowCount.get();
+        return new PoolStats(
+            size,
+            created.get(),
+            idle.size(),
+            size - available,
+            permits.getQueueLength(),
+            borrows,
+            timeoutCount.get(),
+            invalidatedCount.get(),
+            borrows > 0 ? totalWaitNanos.get() / 1_000_000.0 / borrows : 0.0
+        );
+    }
+
+    public String getLanguage() {
+        return language;
+    }
+
+    public int getPageSegMode() {
+        return psm;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        TesseractEngine engine;
+        while ((engine = idle.pollFirst()) != null) {
+            destroy(engine);
+        }
+        log.info("Tesseract engine pool closed");
+    }
+
+    private TesseractEngine createEngine() {
+        int id = engineIds.incrementAndGet();
+        long start = System.currentTimeMillis();
+
+        TesseractEngine engine = engineFactory.create(id);
+        created.incrementAndGet();
+
+        log.info("Tesseract engine #{} initialized in {}ms (language={}, psm={})",
+            id, System.currentTimeMillis() - start, language, psm);
+        return engine;
+    }
+
+    private void destroy(TesseractEngine engine) {
+        created.decrementAndGet();
+        try {
+            engine.close();
+        } catch (RuntimeException | LinkageError e) {
+            log.warn("Failed to close Tesseract engine #{}: {}", engine.getId(), e.getMessage());
+        }
+    }
+
+    /**
+     * Tạo và init một engine đã sẵn sàng OCR
+     */
+    @FunctionalInterface
+    interface EngineFactory {
+        TesseractEngine create(int id);
+    }
+
+    /**
+     * Thống kê sử dụng pool
+     */
+    public record PoolStats(
+        int size,
+        int created,
+        int idle,
+        int inUse,
+        int waiting,
+        long borrowCount,
+        long timeoutCount,
+        long invalidatedCount,
+        double avgWaitMs
+    ) {
+        public double utilization() {
+            return size > 0 ? (double) inUse / size : 0.0;
+        }
+    }
+
+    /**
+     * Không lấy được engine trong thời gian cho phép → 503
+     */
+    public static class EngineUnavailableException extends RuntimeException {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        public EngineUnavailableException(String message) {
+            super(message);
+        }
+    }
+}
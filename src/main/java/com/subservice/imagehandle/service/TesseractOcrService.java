@@ -1,110 +1,299 @@
 package com.subservice.imagehandle.service;
 
+import com.subservice.imagehandle.worker.OcrWorkerPool;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import net.sourceforge.tess4j.ITesseract;
-import net.sourceforge.tess4j.Tesseract;
 import net.sourceforge.tess4j.TesseractException;
-import org.springframework.beans.factory.annotation.Value;
+import net.sourceforge.tess4j.util.ImageIOHelper;
 import org.springframework.stereotype.Service;
 
-import jakarta.annotation.PostConstruct;
+import javax.imageio.IIOImage;
+import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
 import java.io.File;
+import java.io.IOException;
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Service xử lý OCR sử dụng Tesseract
+ *
+ * Mỗi request mượn một engine riêng từ {@link TesseractEnginePool} nên nhiều request
+ * OCR song song được (tối đa = pool size)
+ *
+ * Bật ocr.worker.enabled: OCR được gửi sang {@link OcrWorkerPool} (worker process) với cùng language / psm
+ * của pool, engine trong JVM không được dùng. Worker chết / quá thời gian → {@link OcrWorkerPool.WorkerException}
+ * được ném ra (không trả kết quả rỗng) để ảnh lỗi không bị OCR lại trên worker khác
  */
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class TesseractOcrService {
 
-    @Value("${ocr.tesseract.datapath:./tessdata}")
-    private String tessdataPath;
+    private final TesseractEnginePool enginePool;
+    private final OcrWorkerPool workerPool;
 
-    @Value("${ocr.tesseract.language:vie+eng}")
-    private String language;
+    /**
+     * Extract text với confidence score từ ảnh đã decode trong memory (không ghi file tạm)
+     *
+     * @throws TesseractEnginePool.EngineUnavailableException nếu không mượn được engine kịp thời
+     * @throws OcrEngineException nếu engine trong JVM lỗi (engine bị bỏ khỏi pool)
+     * @throws OcrWorkerPool.WorkerException nếu worker chết hoặc quá thời gian (CRASHED / TIMED_OUT)
+     */
+    public OcrResult extractTextWithConfidence(BufferedImage image) {
+        return recognize(enginePool, List.of(image));
+    }
 
-    @Value("${ocr.tesseract.psm:6}")
-    private int psm;
+    /**
+     * Extract text trên một pool engine khác (vd. fast pass một ngôn ngữ của tiered OCR)
+     *
+     * @throws TesseractEnginePool.EngineUnavailableException nếu không mượn được engine kịp thời
+     * @throws OcrEngineException nếu engine trong JVM lỗi (engine bị bỏ khỏi pool)
+     * @throws OcrWorkerPool.WorkerException nếu worker chết hoặc quá thời gian (CRASHED / TIMED_OUT)
+     */
+    public OcrResult extractTextWithConfidence(BufferedImage image, TesseractEnginePool pool) {
+        return recognize(pool, List.of(image));
+    }
 
-    private ITesseract tesseract;
+    /**
+     * Extract text với confidence score từ file ảnh
+     *
+     * @throws TesseractEnginePool.EngineUnavailableException nếu không mượn được engine kịp thời
+     * @throws OcrEngineException nếu engine trong JVM lỗi (engine bị bỏ khỏi pool)
+     * @throws OcrWorkerPool.WorkerException nếu worker chết hoặc quá thời gian (CRASHED / TIMED_OUT)
+     */
+    public OcrResult extractTextWithConfidence(File imageFile) {
+        List<RenderedImage> pages = new ArrayList<>();
+        try {
+            // Decode ảnh trước khi mượn engine để không giữ engine trong lúc đọc file
+            for (IIOImage page : ImageIOHelper.getIIOImageList(imageFile)) {
+                pages.add(page.getRenderedImage());
+            }
+        } catch (IOException e) {
+            log.error("Cannot read image {}: {}", imageFile.getName(), e.getMessage());
+            return new OcrResult("", 0.0);
+        }
 
-    @PostConstruct
-    public void init() {
-        tesseract = new Tesseract();
-        tesseract.setDatapath(tessdataPath);
-        tesseract.setLanguage(language);
-        tesseract.setPageSegMode(psm);
-        
-        log.info("Tesseract OCR initialized: datapath={}, language={}, psm={}", 
-            tessdataPath, language, psm);
+        return recognize(enginePool, pages);
     }
 
     /**
-     * Extract text với confidence score
+     * OCR từng vùng của ảnh trên cùng một engine (ROI OCR)
+     *
+     * @return kết quả theo thứ tự regions, rỗng nếu OCR lỗi trong worker (FAILED)
+     * @throws TesseractEnginePool.EngineUnavailableException nếu không mượn được engine kịp thời
+     * @throws OcrEngineException nếu engine trong JVM lỗi (engine bị bỏ khỏi pool)
+     * @throws OcrWorkerPool.WorkerException nếu worker chết hoặc quá thời gian (CRASHED / TIMED_OUT)
      */
-    public OcrResult extractTextWithConfidence(File imageFile) {
+    public List<OcrResult> extractRegions(BufferedImage image, List<OcrRegion> regions) {
+        if (workerPool.isEnabled()) {
+            return extractRegionsInWorker(image, regions);
+        }
+
+        TesseractEngine engine = enginePool.borrow();
+        long startTime = System.currentTimeMillis();
+        boolean healthy = false;
+
+        try {
+            List<OcrResult> results = new ArrayList<>(regions.size());
+            for (TesseractEngine.PageResult result : engine.recognizeRegions(image, regions)) {
+                double confidence = result.words().isEmpty()
+                    ? estimateConfidence(result.text())
+                    : meanConfidence(result.words());
+                results.add(new OcrResult(result.text(), confidence, result.words()));
+            }
+            healthy = true;
+
+            log.debug("Region OCR completed in {}ms on engine #{}: {} regions",
+                System.currentTimeMillis() - startTime, engine.getId(), regions.size());
+            return results;
+
+        } catch (TesseractException | RuntimeException e) {
+            throw new OcrEngineException("Region OCR failed on engine #" + engine.getId(), e);
+
+        } finally {
+            if (healthy) {
+                enginePool.release(engine);
+            } else {
+                enginePool.invalidate(engine);
+            }
+        }
+    }
+
+    private OcrResult recognize(TesseractEnginePool pool, List<? extends RenderedImage> pages) {
+        if (workerPool.isEnabled()) {
+            return recognizeInWorker(pool, pages);
+        }
+
+        TesseractEngine engine = pool.borrow();
         long startTime = System.currentTimeMillis();
-        
+        boolean healthy = false;
+
         try {
             // Perform OCR
-            String text = tesseract.doOCR(imageFile);
-            
-            // Estimate confidence (simple heuristic)
-            double confidence = estimateConfidence(text);
-            
+            StringBuilder text = new StringBuilder();
+            List<OcrWord> words = new ArrayList<>();
+            for (RenderedImage page : pages) {
+                TesseractEngine.PageResult result = engine.recognize(page);
+                text.append(result.text());
+                words.addAll(result.words());
+            }
+            healthy = true;
+
+            // Confidence từ Tesseract; không có word-level result thì dùng heuristic
+            double confidence = words.isEmpty()
+                ? estimateConfidence(text.toString())
+                : meanConfidence(words);
+
             long duration = System.currentTimeMillis() - startTime;
-            log.info("OCR completed in {}ms. Extracted {} characters", 
-                duration, text != null ? text.length() : 0);
-            
-            return new OcrResult(text, confidence);
-            
-        } catch (TesseractException e) {
-            log.error("OCR failed: {}", e.getMessage(), e);
+            log.info("OCR completed in {}ms on engine #{}. Extracted {} characters, {} words",
+                duration, engine.getId(), text.length(), words.size());
+
+            return new OcrResult(text.toString(), confidence, words);
+
+        } catch (TesseractException | RuntimeException e) {
+            // Lỗi engine ≠ ảnh không có chữ: không trả rỗng (422) mà báo lỗi server
+            throw new OcrEngineException("OCR failed on engine #" + engine.getId(), e);
+
+        } finally {
+            // Engine lỗi thì bỏ, pool sẽ tạo lại engine mới
+            if (healthy) {
+                pool.release(engine);
+            } else {
+                pool.invalidate(engine);
+            }
+        }
+    }
+
+    private OcrResult recognizeInWorker(TesseractEnginePool pool, List<? extends RenderedImage> pages) {
+        long startTime = System.currentTimeMillis();
+        try {
+            StringBuilder text = new StringBuilder();
+            List<OcrWord> words = new ArrayList<>();
+            for (RenderedImage page : pages) {
+                TesseractEngine.PageResult result = workerPool.recognize(pool.getLanguage(), pool.getPageSegMode(), page);
+                text.append(result.text());
+                words.addAll(result.words());
+            }
+
+            double confidence = words.isEmpty()
+                ? estimateConfidence(text.toString())
+                : meanConfidence(words);
+
+            log.info("OCR completed in {}ms in worker process. Extracted {} characters, {} words",
+                System.currentTimeMillis() - startTime, text.length(), words.size());
+
+            return new OcrResult(text.toString(), confidence, words);
+
+        } catch (OcrWorkerPool.WorkerException e) {
+            log.error("OCR failed in worker process ({}): {}", e.getFailure(), e.getMessage());
+            // Worker chết / quá thời gian: không trả rỗng để caller thử tier khác trên worker khác
+            if (e.getFailure() != OcrWorkerPool.Failure.FAILED) {
+                throw e;
+            }
             return new OcrResult("", 0.0);
         }
     }
 
+    private List<OcrResult> extractRegionsInWorker(BufferedImage image, List<OcrRegion> regions) {
+        try {
+            List<OcrResult> results = new ArrayList<>(regions.size());
+            for (TesseractEngine.PageResult result : workerPool.recognizeRegions(
+                    enginePool.getLanguage(), enginePool.getPageSegMode(), image, regions)) {
+                double confidence = result.words().isEmpty()
+                    ? estimateConfidence(result.text())
+                    : meanConfidence(result.words());
+                results.add(new OcrResult(result.text(), confidence, result.words()));
+            }
+            return results;
+
+        } catch (OcrWorkerPool.WorkerException e) {
+            log.error("Region OCR failed in worker process ({}): {}", e.getFailure(), e.getMessage());
+            if (e.getFailure() != OcrWorkerPool.Failure.FAILED) {
+                throw e;
+            }
+            return List.of();
+        }
+    }
+
+    /**
+     * Trung bình confidence các word, trọng số theo độ dài word
+     */
+    public static double meanConfidence(List<OcrWord> words) {
+        double weighted = 0.0;
+        int totalLength = 0;
+        for (OcrWord word : words) {
+            weighted += word.confidence() * word.text().length();
+            totalLength += word.text().length();
+        }
+        return totalLength > 0 ? weighted / totalLength : 0.0;
+    }
+
     /**
-     * Estimate confidence dựa trên text quality
+     * Estimate confidence dựa trên text quality (fallback khi không có word-level result)
      */
-    private double estimateConfidence(String text) {
+    static double estimateConfidence(String text) {
         if (text == null || text.trim().isEmpty()) {
             return 0.0;
         }
-        
+
         int totalChars = text.length();
         int validChars = 0;
-        
+
         for (char c : text.toCharArray()) {
-            if (Character.isLetterOrDigit(c) || Character.isWhitespace(c) || 
+            if (Character.isLetterOrDigit(c) || Character.isWhitespace(c) ||
                 ".,!?;:-()[]{}\"'".indexOf(c) >= 0) {
                 validChars++;
             }
         }
-        
+
         return totalChars > 0 ? (double) validChars / totalChars : 0.0;
     }
 
+    /**
+     * Engine Tesseract lỗi khi OCR → 500
+     */
+    public static class OcrEngineException extends RuntimeException {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        public OcrEngineException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
     /**
      * OCR Result container
      */
     public static class OcrResult {
         private final String text;
         private final double confidence;
-        
+        private final List<OcrWord> words;
+
         public OcrResult(String text, double confidence) {
+            this(text, confidence, List.of());
+        }
+
+        public OcrResult(String text, double confidence, List<OcrWord> words) {
             this.text = text;
             this.confidence = confidence;
+            this.words = List.copyOf(words);
         }
-        
+
         public String getText() {
             return text;
         }
-        
+
         public double getConfidence() {
             return confidence;
         }
+
+        /**
+         * Word-level result của Tesseract (rỗng nếu không có)
+         */
+        public List<OcrWord> getWords() {
+            return words;
+        }
     }
 }
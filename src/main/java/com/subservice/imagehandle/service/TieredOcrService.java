@@ -0,0 +1,133 @@
+package com.subservice.imagehandle.service;
+
+import com.subservice.imagehandle.dto.BillTransactionDTO;
+import com.subservice.imagehandle.preprocess.DownscaleStage;
+import com.subservice.imagehandle.service.TesseractOcrService.OcrResult;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.awt.image.BufferedImage;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Tiered OCR: fast pass rẻ trước, full pass chỉ khi cần
+ *
+ * Fast pass: ảnh thu nhỏ (ocr.tiered.fast.max-width), một ngôn ngữ (ocr.tiered.fast.language),
+ * chạy trên pool engine riêng rồi BillParser.parse ngay.
+ * Kết quả được dùng nếu có amount + accountNumber và confidence của hai field này
+ * không thấp hơn ocr.tiered.min-field-confidence; ngược lại caller chạy full pass như cũ.
+ * Pool fast pass hết engine → bỏ qua fast pass, không trả 503.
+ */
+@Slf4j
+@Service
+public class TieredOcrService {
+
+    private final TesseractOcrService tesseractOcrService;
+    private final TesseractEnginePool fastPool;
+    private final BillParser billParser;
+    private final ScanMetrics scanMetrics;
+    private final DownscaleStage downscale;
+    private final boolean enabled;
+    private final double minFieldConfidence;
+
+    public TieredOcrService(
+        TesseractOcrService tesseractOcrService,
+        @Qualifier("fastTesseractEnginePool") TesseractEnginePool fastPool,
+        BillParser billParser,
+        ScanMetrics scanMetrics,
+        @Value("${ocr.tiered.enabled:false}") boolean enabled,
+        @Value("${ocr.tiered.fast.max-width:960}") int fastMaxWidth,
+        @Value("${ocr.tiered.min-field-confidence:0.6}") double minFieldConfidence
+    ) {
+        this.tesseractOcrService = tesseractOcrService;
+        this.fastPool = fastPool;
+        this.billParser = billParser;
+        this.scanMetrics = scanMetrics;
+        this.downscale = new DownscaleStage(fastMaxWidth);
+        this.enabled = enabled;
+        this.minFieldConfidence = minFieldConfidence;
+
+        log.info("Tiered OCR: enabled={}, fast pass {} (language={}, psm={}), minFieldConfidence={}",
+            enabled, downscale.describe(), fastPool.getLanguage(), fastPool.getPageSegMode(), minFieldConfidence);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public TesseractEnginePool getFastPool() {
+        return fastPool;
+    }
+
+    /**
+     * Cấu hình dạng chuỗi, dùng trong cache key
+     */
+    public String describe() {
+        return enabled
+            ? "tiered(" + fastPool.getLanguage() + "," + fastPool.getPageSegMode() + ","
+                + downscale.describe() + "," + minFieldConfidence + ")"
+            : "single";
+    }
+
+    /**
+     * Chạy fast pass trên ảnh đã tiền xử lý
+     *
+     * @return OCR result + bill đã parse nếu đủ tin cậy, empty nếu cần full pass
+     *         (kể cả khi không mượn được engine fast pass kịp thời)
+     * @throws com.subservice.imagehandle.worker.OcrWorkerPool.WorkerException nếu worker chết / quá thời gian
+     *         (không chạy full pass trên ảnh đã làm chết worker)
+     */
+    public Optional<FastPass> fastPass(BufferedImage image) {
+        OcrResult ocrResult;
+        try {
+            ocrResult = tesseractOcrService.extractTextWithConfidence(downscale.apply(image), fastPool);
+        } catch (TesseractEnginePool.EngineUnavailableException e) {
+            log.warn("Fast pass skipped, running full pass: {}", e.getMessage());
+            return Optional.empty();
+        }
+        String text = ocrResult.getText();
+        if (text == null || text.isBlank()) {
+            log.debug("Fast pass returned no text, running full pass");
+            return Optional.empty();
+        }
+
+        long parseStart = System.nanoTime();
+        BillTransactionDTO bill = billParser.parse(text, null, ocrResult.getConfidence());
+        bill.setFieldConfidence(FieldConfidence.score(bill, ocrResult.getWords()));
+        scanMetrics.recordStage("parse", System.nanoTime() - parseStart);
+
+        if (!isConfident(bill, ocrResult)) {
+            log.debug("Fast pass not conclusive (amount={}, account={}, fieldConfidence={}), running full pass",
+                bill.getAmount(), bill.getAccountNumber(), bill.getFieldConfidence());
+            return Optional.empty();
+        }
+        return Optional.of(new FastPass(ocrResult, bill));
+    }
+
+    /**
+     * Cần có amount + accountNumber; có word-level result thì confidence hai field phải đạt ngưỡng
+     */
+    private boolean isConfident(BillTransactionDTO bill, OcrResult ocrResult) {
+        if (bill.getAmount() == null || bill.getAccountNumber() == null) {
+            return false;
+        }
+        if (ocrResult.getWords().isEmpty()) {
+            return true;
+        }
+
+        Map<String, Double> fieldConfidence = bill.getFieldConfidence();
+        Double amount = fieldConfidence.get("amount");
+        Double account = fieldConfidence.get("accountNumber");
+        return amount != null && amount >= minFieldConfidence
+            && account != null && account >= minFieldConfidence;
+    }
+
+    /**
+     * Kết quả fast pass đã được chấp nhận
+     */
+    public record FastPass(OcrResult ocrResult, BillTransactionDTO bill) {
+    }
+}
@@ -0,0 +1,41 @@
+package com.subservice.imagehandle.upload;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+/**
+ * Giới hạn kích thước ảnh (file nhỏ nhưng decode ra ảnh rất lớn - decompression bomb)
+ *
+ * Kiểm tra ở hai chỗ:
+ * - StreamingUploadReader: từ header upload (ImageSniffer), từ chối trước khi đọc hết body
+ * - BillScanService: từ ImageReader trước khi decode pixel, cho mọi đường vào
+ *   (header không có kích thước: SOF nằm sau sniff-bytes, async job, batch)
+ */
+@Slf4j
+@Component
+public class ImageLimits {
+
+    private final long maxPixels;
+    private final int maxDimension;
+
+    public ImageLimits(
+        @Value("${ocr.upload.max-pixels:40000000}") long maxPixels,
+        @Value("${ocr.upload.max-dimension:10000}") int maxDimension
+    ) {
+        this.maxPixels = maxPixels;
+        this.maxDimension = maxDimension;
+    }
+
+    /**
+     * @throws StreamingUploadReader.RejectedUploadException 413 nếu vượt max-dimension / max-pixels
+     */
+    public void check(String filename, int width, int height) {
+        if (width > maxDimension || height > maxDimension || (long) width * height > maxPixels) {
+            log.warn("Rejected image {}: {}x{} exceeds limits", filename, width, height);
+            throw new StreamingUploadReader.RejectedUploadException(HttpStatus.PAYLOAD_TOO_LARGE,
+                "Image dimensions " + width + "x" + height + " exceed limit");
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.subservice.imagehandle.upload;
+
+/**
+ * Nhận diện định dạng + kích thước ảnh từ các byte đầu file (không decode ảnh)
+ *
+ * - PNG: signature 8 byte, width/height trong chunk IHDR ngay sau đó
+ * - JPEG: SOI (FF D8 FF), width/height trong segment SOFn đầu tiên
+ *   (có thể nằm sau EXIF/thumbnail, nên cần vài chục KB đầu)
+ */
+public final class ImageSniffer {
+
+    private static final byte[] PNG_SIGNATURE = {
+        (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'
+    };
+
+    private ImageSniffer() {
+    }
+
+    /**
+     * @param header các byte đầu file
+     * @param length số byte hợp lệ trong header
+     * @return thông tin ảnh, null nếu không phải PNG/JPEG
+     */
+    public static ImageInfo sniff(byte[] header, int length) {
+        if (isPng(header, length)) {
+            // IHDR: length(4) + "IHDR"(4) + width(4) + height(4)
+            if (length >= 24 && header[12] == 'I' && header[13] == 'H' && header[14] == 'D' && header[15] == 'R') {
+                return new ImageInfo("png", readDimension(header, 16), readDimension(header, 20));
+            }
+            return new ImageInfo("png", -1, -1);
+        }
+
+        if (length >= 3 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xFF) == 0xD8 && (header[2] & 0xFF) == 0xFF) {
+            return sniffJpeg(header, length);
+        }
+        return null;
+    }
+
+    private static boolean isPng(byte[] header, int length) {
+        if (length < PNG_SIGNATURE.length) {
+            return false;
+        }
+        for (int i = 0; i < PNG_SIGNATURE.length; i++) {
+            if (header[i] != PNG_SIGNATURE[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ImageInfo sniffJpeg(byte[] data, int length) {
+        int offset = 2;
+        while (offset + 4 <= length) {
+            if ((data[offset] & 0xFF) != 0xFF) {
+                break;
+            }
+            int marker = data[offset + 1] & 0xFF;
+            if (marker == 0xFF) {
+                // Fill byte
+                offset++;
+                continue;
+            }
+            if (marker == 0x01 || (marker >= 0xD0 && marker <= 0xD8)) {
+                // Marker không có payload (TEM, RSTn, SOI)
+                offset += 2;
+                continue;
+            }
+            if (marker == 0xD9 || marker == 0xDA) {
+                // EOI / SOS trước SOF: không còn header
+                break;
+            }
+
+            int segmentLength = readShort(data, offset + 2);
+            if (isStartOfFrame(marker)) {
+                if (offset + 9 > length) {
+                    break;
+                }
+                int height = readShort(data, offset + 5);
+                int width = readShort(data, offset + 7);
+                return new ImageInfo("jpeg", width, height);
+            }
+            if (segmentLength < 2) {
+                break;
+            }
+            offset += 2 + segmentLength;
+        }
+        // SOF nằm ngoài phần đã đọc → không biết kích thước, kiểm tra lại từ ImageReader trước khi decode
+        return new ImageInfo("jpeg", -1, -1);
+    }
+
+    /**
+     * SOF0..SOF15, trừ DHT (C4), JPG (C8), DAC (CC)
+     */
+    private static boolean isStartOfFrame(int marker) {
+        return marker >= 0xC0 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC;
+    }
+
+    private static int readShort(byte[] data, int offset) {
+        return ((data[offset] & 0xFF) << 8) | (data[offset + 1] & 0xFF);
+    }
+
+    /**
+     * Số nguyên 4 byte không dấu; giá trị vượt int (PNG không hợp lệ) → Integer.MAX_VALUE để bị từ chối
+     */
+    private static int readDimension(byte[] data, int offset) {
+        long value = ((long) (data[offset] & 0xFF) << 24) | ((data[offset + 1] & 0xFF) << 16)
+            | ((data[offset + 2] & 0xFF) << 8) | (data[offset + 3] & 0xFF);
+        return (int) Math.min(value, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Định dạng + kích thước ảnh (width/height = -1 nếu chưa đọc tới)
+     */
+    public record ImageInfo(String format, int width, int height) {
+        public boolean hasDimensions() {
+            return width > 0 && height > 0;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.subservice.imagehandle.upload;
+
+import com.subservice.imagehandle.service.ScanMetrics;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.fileupload2.core.FileItemInput;
+import org.apache.commons.fileupload2.core.FileItemInputIterator;
+import org.apache.commons.fileupload2.core.FileUploadException;
+import org.apache.commons.fileupload2.core.FileUploadSizeException;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletFileUpload;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serial;
+
+/**
+ * Đọc ảnh upload trực tiếp từ multipart stream của request
+ *
+ * Không đi qua multipart resolver của Spring (không buffer / ghi temp file trước khi validate):
+ * 1. Content-Length khai báo vượt giới hạn → 413 ngay, chưa đọc body
+ * 2. Đọc ocr.upload.sniff-bytes đầu của part → kiểm tra magic bytes (PNG/JPEG) + kích thước ảnh (ImageLimits)
+ * 3. Hợp lệ mới đọc tiếp phần còn lại vào memory, dừng ngay khi vượt ocr.upload.max-file-size
+ */
+@Slf4j
+@Component
+public class StreamingUploadReader {
+
+    // Dư cho boundary + header của các part
+    private static final long MULTIPART_OVERHEAD = 64 * 1024;
+
+    private final ScanMetrics scanMetrics;
+    private final ImageLimits imageLimits;
+    private final long maxFileSize;
+    private final int sniffBytes;
+
+    public StreamingUploadReader(
+        ScanMetrics scanMetrics,
+        ImageLimits imageLimits,
+        @Value("${ocr.upload.max-file-size:10MB}") DataSize maxFileSize,
+        @Value("${ocr.upload.sniff-bytes:64KB}") DataSize sniffBytes
+    ) {
+        this.scanMetrics = scanMetrics;
+        this.imageLimits = imageLimits;
+        this.maxFileSize = maxFileSize.toBytes();
+        this.sniffBytes = (int) Math.min(sniffBytes.toBytes(), this.maxFileSize);
+    }
+
+    /**
+     * Đọc file trong part fieldName (các part khác bị bỏ qua)
+     *
+     * @throws RejectedUploadException request / file không hợp lệ
+     */
+    public UploadedImage read(HttpServletRequest request, String fieldName) throws IOException {
+        long start = System.nanoTime();
+
+        if (!JakartaServletFileUpload.isMultipartContent(request)) {
+            throw new RejectedUploadException(HttpStatus.UNSUPPORTED_MEDIA_TYPE, "Request must be multipart/form-data");
+        }
+        long declaredLength = request.getContentLengthLong();
+        if (declaredLength > maxFileSize + MULTIPART_OVERHEAD) {
+            throw tooLarge();
+        }
+
+        JakartaServletFileUpload<?, ?> upload = new JakartaServletFileUpload<>();
+        upload.setSizeMax(maxFileSize + MULTIPART_OVERHEAD);
+        upload.setFileSizeMax(maxFileSize);
+
+        try {
+            FileItemInputIterator items = upload.getItemIterator(request);
+            while (items.hasNext()) {
+                FileItemInput item = items.next();
+                if (item.isFormField() || !fieldName.equals(item.getFieldName())) {
+                    continue;
+                }
+
+                UploadedImage image = readItem(item);
+                scanMetrics.recordStage("read", System.nanoTime() - start);
+                return image;
+            }
+        } catch (FileUploadSizeException e) {
+            throw tooLarge();
+        } catch (FileUploadException e) {
+            throw new RejectedUploadException(HttpStatus.BAD_REQUEST, "Malformed multipart request: " + e.getMessage());
+        }
+
+        throw new RejectedUploadException(HttpStatus.BAD_REQUEST, "Required part '" + fieldName + "' is missing");
+    }
+
+    private UploadedImage readItem(FileItemInput item) throws IOException {
+        String filename = item.getName();
+
+        try (InputStream in = item.getInputStream()) {
+            // 1. Header: magic bytes + kích thước ảnh
+            byte[] header = in.readNBytes(sniffBytes);
+            if (header.length == 0) {
+                throw new RejectedUploadException(HttpStatus.BAD_REQUEST, "File is empty");
+            }
+
+            ImageSniffer.ImageInfo info = ImageSniffer.sniff(header, header.length);
+            if (info == null) {
+                log.warn("Rejected upload {}: not a PNG/JPEG image", filename);
+                throw new RejectedUploadException(HttpStatus.UNSUPPORTED_MEDIA_TYPE,
+                    "Only JPG/PNG images are supported");
+            }
+            // Không đọc được kích thước từ header → BillScanService kiểm tra lại trước khi decode
+            if (info.hasDimensions()) {
+                imageLimits.check(filename, info.width(), info.height());
+            }
+
+            // 2. Phần còn lại, dừng ngay khi vượt giới hạn
+            ByteArrayOutputStream content = new ByteArrayOutputStream(Math.max(header.length, 64 * 1024));
+            content.write(header);
+            byte[] buffer = new byte[16 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                if (content.size() + read > maxFileSize) {
+                    throw tooLarge();
+                }
+                content.write(buffer, 0, read);
+            }
+
+            return new UploadedImage(filename, content.toByteArray(), info);
+        }
+    }
+
+    private RejectedUploadException tooLarge() {
+        return new RejectedUploadException(HttpStatus.PAYLOAD_TOO_LARGE,
+            "File size exceeds " + DataSize.ofBytes(maxFileSize).toMegabytes() + "MB limit");
+    }
+
+    /**
+     * Upload bị từ chối trước khi đọc hết body
+     */
+    public static class RejectedUploadException extends RuntimeException {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final HttpStatus status;
+
+        public RejectedUploadException(HttpStatus status, String message) {
+            super(message);
+            this.status = status;
+        }
+
+        public HttpStatus getStatus() {
+            return status;
+        }
+    }
+}
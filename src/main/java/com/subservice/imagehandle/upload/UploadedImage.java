@@ -0,0 +1,11 @@
+package com.subservice.imagehandle.upload;
+
+/**
+ * Ảnh upload đã đọc xong (trong memory)
+ *
+ * @param filename tên file gốc từ client
+ * @param content  nội dung file
+ * @param info     định dạng + kích thước nhận diện từ header
+ */
+public record UploadedImage(String filename, byte[] content, ImageSniffer.ImageInfo info) {
+}
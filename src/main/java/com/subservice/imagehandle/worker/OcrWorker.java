@@ -0,0 +1,206 @@
+package com.subservice.imagehandle.worker;
+
+import com.subservice.imagehandle.service.OcrRegion;
+import com.subservice.imagehandle.service.TesseractEngine.PageResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.awt.image.RenderedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Một OCR worker process ({@link OcrWorkerMain}) và kết nối tới nó
+ *
+ * Note: KHÔNG thread-safe - mỗi worker chỉ chạy một job tại một thời điểm (xem {@link OcrWorkerPool})
+ */
+@Slf4j
+class OcrWorker {
+
+    private static final long ACCEPT_POLL_MS = 200;
+
+    private final int id;
+    private final Process process;
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private long jobCount;
+    private boolean broken;
+
+    private OcrWorker(int id, Process process, Socket socket) throws IOException {
+        this.id = id;
+        this.process = process;
+        this.socket = socket;
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+
+    /**
+     * Chạy worker process và chờ nó kết nối về (xác thực bằng token ngẫu nhiên)
+     *
+     * @param command lệnh chạy JVM tới main class, args port / token / datapath được thêm vào cuối
+     */
+    static OcrWorker start(int id, List<String> command, String datapath, long startTimeoutMs) throws IOException {
+        String token = UUID.randomUUID().toString();
+        try (ServerSocket server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            List<String> fullCommand = new ArrayList<>(command);
+            fullCommand.add(String.valueOf(server.getLocalPort()));
+            fullCommand.add(token);
+            fullCommand.add(datapath);
+
+            Process process = new ProcessBuilder(fullCommand)
+                .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+
+            try {
+                Socket socket = accept(server, process, startTimeoutMs);
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout((int) startTimeoutMs);
+                OcrWorker worker = new OcrWorker(id, process, socket);
+                if (!token.equals(OcrWorkerProtocol.readString(worker.in))) {
+                    throw new IOException("OCR worker #" + id + " sent an invalid token");
+                }
+                return worker;
+            } catch (IOException | RuntimeException e) {
+                process.destroyForcibly();
+                throw e;
+            }
+        }
+    }
+
+    private static Socket accept(ServerSocket server, Process process, long startTimeoutMs) throws IOException {
+        long deadline = System.currentTimeMillis() + startTimeoutMs;
+        server.setSoTimeout((int) ACCEPT_POLL_MS);
+        while (true) {
+            try {
+                return server.accept();
+            } catch (SocketTimeoutException e) {
+                if (!process.isAlive()) {
+                    throw new IOException("OCR worker exited during startup with code " + process.exitValue());
+                }
+                if (System.currentTimeMillis() >= deadline) {
+                    throw new IOException("OCR worker did not connect within " + startTimeoutMs + "ms");
+                }
+            }
+        }
+    }
+
+    PageResult recognize(String language, int psm, RenderedImage image, long timeoutMs) {
+        return call(OcrWorkerProtocol.OP_RECOGNIZE, language, psm, image, null, timeoutMs).get(0);
+    }
+
+    List<PageResult> recognizeRegions(String language, int psm, RenderedImage image, List<OcrRegion> regions,
+                                      long timeoutMs) {
+        return call(OcrWorkerProtocol.OP_REGIONS, language, psm, image, regions, timeoutMs);
+    }
+
+    /**
+     * Gửi một job và chờ kết quả tối đa timeoutMs
+     *
+     * @throws OcrWorkerPool.WorkerException FAILED nếu OCR lỗi (worker vẫn dùng được),
+     *                                       CRASHED / TIMED_OUT nếu worker chết hoặc quá thời gian (worker bị bỏ)
+     */
+    private List<PageResult> call(int op, String language, int psm, RenderedImage image, List<OcrRegion> regions,
+                                  long timeoutMs) {
+        jobCount++;
+        try {
+            socket.setSoTimeout((int) Math.min(Integer.MAX_VALUE, timeoutMs));
+            out.writeByte(op);
+            OcrWorkerProtocol.writeString(out, language);
+            out.writeInt(psm);
+            OcrWorkerProtocol.writeImage(out, image);
+            if (regions != null) {
+                OcrWorkerProtocol.writeRegions(out, regions);
+            }
+            out.flush();
+
+            int status = in.readUnsignedByte();
+            if (status == OcrWorkerProtocol.STATUS_OK) {
+                return OcrWorkerProtocol.readPages(in);
+            }
+            throw new OcrWorkerPool.WorkerException(OcrWorkerPool.Failure.FAILED,
+                "OCR failed in worker #" + id + ": " + OcrWorkerProtocol.readString(in));
+
+        } catch (SocketTimeoutException e) {
+            broken = true;
+            throw new OcrWorkerPool.WorkerException(OcrWorkerPool.Failure.TIMED_OUT,
+                "OCR worker #" + id + " did not finish within " + timeoutMs + "ms");
+        } catch (IOException e) {
+            broken = true;
+            throw new OcrWorkerPool.WorkerException(OcrWorkerPool.Failure.CRASHED,
+                "OCR worker #" + id + " died: " + exitDescription());
+        } catch (OcrWorkerPool.WorkerException e) {
+            throw e;
+        } catch (RuntimeException | Error e) {
+            // Lỗi giữa chừng (vd ảnh có raster lạ khi ghi) → request có thể đã ghi dở, không dùng lại kết nối
+            broken = true;
+            throw e;
+        }
+    }
+
+    private String exitDescription() {
+        try {
+            if (process.waitFor(1, TimeUnit.SECONDS)) {
+                return "exit code " + process.exitValue();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "connection lost";
+    }
+
+    /**
+     * Dừng worker: gửi SHUTDOWN rồi chờ thoát, quá hạn thì kill
+     */
+    void stop() {
+        if (!broken && process.isAlive()) {
+            try {
+                socket.setSoTimeout(1000);
+                out.writeByte(OcrWorkerProtocol.OP_SHUTDOWN);
+                out.flush();
+            } catch (IOException e) {
+                log.debug("Cannot send shutdown to OCR worker #{}: {}", id, e.getMessage());
+            }
+        }
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log.debug("Cannot close OCR worker #{} socket: {}", id, e.getMessage());
+        }
+        try {
+            if (!process.waitFor(broken ? 0 : 2, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        }
+    }
+
+    boolean isAlive() {
+        return !broken && process.isAlive();
+    }
+
+    int getId() {
+        return id;
+    }
+
+    long getPid() {
+        return process.pid();
+    }
+
+    long getJobCount() {
+        return jobCount;
+    }
+}
@@ -0,0 +1,102 @@
+package com.subservice.imagehandle.worker;
+
+import com.subservice.imagehandle.service.OcrRegion;
+import com.subservice.imagehandle.service.TesseractEngine;
+import com.subservice.imagehandle.service.TesseractEngine.PageResult;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Entry point của OCR worker process (không chạy Spring context)
+ *
+ * Args: port token datapath
+ *
+ * Kết nối về service qua socket loopback, gửi token rồi xử lý lần lượt từng request tới khi nhận
+ * SHUTDOWN hoặc socket đóng (service dừng / kill worker). Mỗi cặp (language, psm) một
+ * {@link TesseractEngine}, engine lỗi bị đóng và được tạo lại ở request sau.
+ *
+ * Native crash (segfault trong Tesseract) chỉ làm chết process này, service phát hiện qua socket đóng.
+ */
+public final class OcrWorkerMain {
+
+    private OcrWorkerMain() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3) {
+            System.err.println("Usage: OcrWorkerMain <port> <token> <datapath>");
+            System.exit(2);
+        }
+        // Giao thức đi qua socket; mọi output lạc (log, Tess4J) sang stderr
+        System.setOut(System.err);
+
+        int port = Integer.parseInt(args[0]);
+        String token = args[1];
+        String datapath = args[2];
+
+        Map<String, TesseractEngine> engines = new HashMap<>();
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            OcrWorkerProtocol.writeString(out, token);
+            out.flush();
+
+            while (true) {
+                int op = in.read();
+                if (op < 0 || op == OcrWorkerProtocol.OP_SHUTDOWN) {
+                    break;
+                }
+                if (op != OcrWorkerProtocol.OP_RECOGNIZE && op != OcrWorkerProtocol.OP_REGIONS) {
+                    throw new IOException("Unknown op: " + op);
+                }
+
+                String language = OcrWorkerProtocol.readString(in);
+                int psm = in.readInt();
+                BufferedImage image = OcrWorkerProtocol.readImage(in);
+                List<OcrRegion> regions = op == OcrWorkerProtocol.OP_REGIONS
+                    ? OcrWorkerProtocol.readRegions(in)
+                    : null;
+
+                String key = language + ":" + psm;
+                try {
+                    TesseractEngine engine = engines.get(key);
+                    if (engine == null) {
+                        engine = new TesseractEngine(engines.size() + 1, datapath, language, psm);
+                        engine.open();
+                        engines.put(key, engine);
+                    }
+                    List<PageResult> pages = regions != null
+                        ? engine.recognizeRegions(image, regions)
+                        : List.of(engine.recognize(image));
+
+                    out.writeByte(OcrWorkerProtocol.STATUS_OK);
+                    OcrWorkerProtocol.writePages(out, pages);
+                } catch (Exception | LinkageError e) {
+                    TesseractEngine failed = engines.remove(key);
+                    if (failed != null) {
+                        failed.close();
+                    }
+                    out.writeByte(OcrWorkerProtocol.STATUS_ERROR);
+                    OcrWorkerProtocol.writeString(out, e.getClass().getSimpleName() + ": " + e.getMessage());
+                }
+                out.flush();
+            }
+        } catch (EOFException e) {
+            // Service đóng kết nối giữa request
+        } finally {
+            engines.values().forEach(TesseractEngine::close);
+        }
+    }
+}
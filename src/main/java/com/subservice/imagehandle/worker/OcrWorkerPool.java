@@ -0,0 +1,375 @@
+package com.subservice.imagehandle.worker;
+
+import com.subservice.imagehandle.service.OcrRegion;
+import com.subservice.imagehandle.service.TesseractEngine.PageResult;
+import com.subservice.imagehandle.service.TesseractEnginePool.EngineUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.awt.image.RenderedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.Serial;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.jar.JarFile;
+
+/**
+ * Pool các OCR worker process: Tesseract chạy ngoài JVM của service
+ *
+ * - Native crash khi OCR một ảnh lỗi chỉ làm chết worker đó, job đó thất bại, worker được tạo lại
+ *   ở lần borrow sau (không chạy lại job trên worker khác vì ảnh có thể làm chết tiếp)
+ * - Job quá ocr.worker.job-timeout-ms → kill worker
+ * - Worker được thay mới sau ocr.worker.max-jobs job (giải phóng bộ nhớ native bị phân mảnh / leak)
+ * - Bộ nhớ native của Tesseract nằm ngoài heap service, giới hạn riêng qua ocr.worker.jvm-options
+ *
+ * Cách mượn / trả giống {@link com.subservice.imagehandle.service.TesseractEnginePool}:
+ * chờ tối đa acquireTimeoutMs, hết thời gian → EngineUnavailableException (503)
+ */
+@Slf4j
+public class OcrWorkerPool implements AutoCloseable {
+
+    private static final String BOOT_LAUNCHER = "org.springframework.boot.loader.launch.PropertiesLauncher";
+
+    private final boolean enabled;
+    private final List<String> command;
+    private final String datapath;
+    private final int size;
+    private final long acquireTimeoutMs;
+    private final long startTimeoutMs;
+    private final long jobTimeoutMs;
+    private final int maxJobs;
+
+    private final Semaphore permits;
+    private final BlockingDeque<OcrWorker> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger workerIds = new AtomicInteger();
+    private final AtomicInteger alive = new AtomicInteger();
+    private final AtomicLong jobCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong crashCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong recycledCount = new AtomicLong();
+    private final AtomicLong startedCount = new AtomicLong();
+
+    private volatile boolean closed;
+
+    public OcrWorkerPool(boolean enabled, List<String> command, String datapath, int size, long acquireTimeoutMs,
+                         long startTimeoutMs, long jobTimeoutMs, int maxJobs) {
+        this.enabled = enabled;
+        this.command = List.copyOf(command);
+        this.datapath = Path.of(datapath).toAbsolutePath().toString();
+        this.size = size > 0 ? size : Runtime.getRuntime().availableProcessors();
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.startTimeoutMs = startTimeoutMs;
+        this.jobTimeoutMs = jobTimeoutMs;
+        this.maxJobs = maxJobs;
+        this.permits = new Semaphore(this.size, true);
+    }
+
+    /**
+     * Lệnh chạy {@link OcrWorkerMain} bằng cùng JVM và classpath với service
+     *
+     * Chạy từ executable jar của Spring Boot: main class nằm trong BOOT-INF/classes nên phải đi qua
+     * PropertiesLauncher (loader.main). Các system property jna.* được truyền sang worker.
+     */
+    public static List<String> defaultCommand(String jvmOptions) {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command()
+            .orElse(Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+        if (jvmOptions != null && !jvmOptions.isBlank()) {
+            command.addAll(Arrays.asList(jvmOptions.trim().split("\\s+")));
+        }
+        System.getProperties().stringPropertyNames().stream()
+            .filter(name -> name.startsWith("jna."))
+            .forEach(name -> command.add("-D" + name + "=" + System.getProperty(name)));
+
+        String classpath = System.getProperty("java.class.path");
+        command.add("-cp");
+        command.add(classpath);
+        if (isBootJar(classpath)) {
+            command.add("-Dloader.main=" + OcrWorkerMain.class.getName());
+            command.add(BOOT_LAUNCHER);
+        } else {
+            command.add(OcrWorkerMain.class.getName());
+        }
+        return command;
+    }
+
+    private static boolean isBootJar(String classpath) {
+        if (classpath.contains(File.pathSeparator) || !classpath.endsWith(".jar")) {
+            return false;
+        }
+        try (JarFile jar = new JarFile(classpath)) {
+            return jar.getEntry("BOOT-INF/classes/") != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Chạy trước toàn bộ worker
+     *
+     * @return số worker chạy được
+     */
+    public int prestart() {
+        List<OcrWorker> started = new ArrayList<>();
+        try {
+            while (alive.get() < size) {
+                started.add(startWorker());
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not pre-start OCR workers ({} of {} started): {}", started.size(), size, e.getMessage());
+        }
+        idle.addAll(started);
+        return started.size();
+    }
+
+    /**
+     * OCR một ảnh trên một worker
+     *
+     * @throws WorkerException nếu OCR lỗi, worker chết hoặc quá thời gian
+     * @throws EngineUnavailableException nếu không mượn được worker kịp thời
+     */
+    public PageResult recognize(String language, int psm, RenderedImage image) {
+        OcrWorker worker = borrow();
+        try {
+            return worker.recognize(language, psm, image, jobTimeoutMs);
+        } catch (WorkerException e) {
+            countFailure(e);
+            throw e;
+        } finally {
+            release(worker);
+        }
+    }
+
+    /**
+     * OCR từng vùng của ảnh trên cùng một worker (ROI OCR)
+     *
+     * @throws WorkerException nếu OCR lỗi, worker chết hoặc quá thời gian
+     * @throws EngineUnavailableException nếu không mượn được worker kịp thời
+     */
+    public List<PageResult> recognizeRegions(String language, int psm, RenderedImage image, List<OcrRegion> regions) {
+        OcrWorker worker = borrow();
+        try {
+            return worker.recognizeRegions(language, psm, image, regions, jobTimeoutMs);
+        } catch (WorkerException e) {
+            countFailure(e);
+            throw e;
+        } finally {
+            release(worker);
+        }
+    }
+
+    /**
+     * OCR thử một ảnh trên từng worker (mượn đủ size worker cùng lúc), worker chưa chạy sẽ được tạo
+     *
+     * @return số worker OCR thành công
+     */
+    public int warmUp(RenderedImage image, String language, int psm) {
+        List<OcrWorker> workers = new ArrayList<>();
+        int warmed = 0;
+        try {
+            while (workers.size() < size) {
+                workers.add(borrow());
+            }
+            for (OcrWorker worker : workers) {
+                try {
+                    worker.recognize(language, psm, image, jobTimeoutMs);
+                    warmed++;
+                } catch (WorkerException e) {
+                    countFailure(e);
+                    log.warn("Warm-up OCR failed on worker #{}: {}", worker.getId(), e.getMessage());
+                }
+            }
+        } catch (EngineUnavailableException e) {
+            log.warn("Could not borrow all OCR workers for warm-up: {}", e.getMessage());
+        } finally {
+            workers.forEach(this::release);
+        }
+        return warmed;
+    }
+
+    private OcrWorker borrow() {
+        if (closed) {
+            throw new EngineUnavailableException("OCR worker pool is shut down");
+        }
+
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EngineUnavailableException("Interrupted while waiting for OCR worker");
+        }
+        if (!acquired) {
+            throw new EngineUnavailableException("No OCR worker available within " + acquireTimeoutMs + "ms");
+        }
+
+        try {
+            OcrWorker worker;
+            while ((worker = idle.pollFirst()) != null) {
+                if (worker.isAlive()) {
+                    jobCount.incrementAndGet();
+                    return worker;
+                }
+                // Worker chết trong lúc rảnh
+                crashCount.incrementAndGet();
+                log.warn("OCR worker #{} (pid {}) died while idle, restarting", worker.getId(), worker.getPid());
+                discard(worker);
+            }
+            worker = startWorker();
+            jobCount.incrementAndGet();
+            return worker;
+        } catch (IOException e) {
+            permits.release();
+            throw new EngineUnavailableException("Cannot start OCR worker: " + e.getMessage());
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Trả worker sau mỗi job (kể cả khi lỗi): worker chết / hỏng bị bỏ, worker đủ max-jobs được thay mới
+     */
+    private void release(OcrWorker worker) {
+        if (closed) {
+            discard(worker);
+        } else if (!worker.isAlive()) {
+            log.warn("Discarding OCR worker #{} (pid {})", worker.getId(), worker.getPid());
+            discard(worker);
+        } else if (maxJobs > 0 && worker.getJobCount() >= maxJobs) {
+            recycledCount.incrementAndGet();
+            log.info("Recycling OCR worker #{} after {} jobs", worker.getId(), worker.getJobCount());
+            discard(worker);
+        } else {
+            idle.offerFirst(worker);
+        }
+        permits.release();
+    }
+
+    private void countFailure(WorkerException e) {
+        switch (e.getFailure()) {
+            case FAILED -> failedCount.incrementAndGet();
+            case CRASHED -> crashCount.incrementAndGet();
+            case TIMED_OUT -> timeoutCount.incrementAndGet();
+        }
+    }
+
+    private OcrWorker startWorker() throws IOException {
+        int id = workerIds.incrementAndGet();
+        long start = System.currentTimeMillis();
+        OcrWorker worker = OcrWorker.start(id, command, datapath, startTimeoutMs);
+        alive.incrementAndGet();
+        startedCount.incrementAndGet();
+        log.info("OCR worker #{} started in {}ms (pid {})", id, System.currentTimeMillis() - start, worker.getPid());
+        return worker;
+    }
+
+    private void discard(OcrWorker worker) {
+        alive.decrementAndGet();
+        worker.stop();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public WorkerPoolStats getStats() {
+        return new WorkerPoolStats(
+            enabled,
+            size,
+            alive.get(),
+            idle.size(),
+            size - permits.availablePermits(),
+            jobCount.get(),
+            failedCount.get(),
+            crashCount.get(),
+            timeoutCount.get(),
+            recycledCount.get(),
+            startedCount.get()
+        );
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        OcrWorker worker;
+        while ((worker = idle.pollFirst()) != null) {
+            discard(worker);
+        }
+        if (enabled) {
+            log.info("OCR worker pool closed");
+        }
+    }
+
+    public enum Failure {
+        /** OCR lỗi trong worker, worker vẫn dùng được */
+        FAILED("OCR failed"),
+        /** Worker process chết (native crash, bị kill) */
+        CRASHED("OCR worker crashed while processing the image"),
+        /** Job quá ocr.worker.job-timeout-ms, worker bị kill */
+        TIMED_OUT("OCR did not finish in time");
+
+        private final String clientMessage;
+
+        Failure(String clientMessage) {
+            this.clientMessage = clientMessage;
+        }
+
+        /**
+         * Thông báo trả cho client (không lộ pid / exit code của worker)
+         */
+        public String getClientMessage() {
+            return clientMessage;
+        }
+    }
+
+    /**
+     * Thống kê worker pool
+     */
+    public record WorkerPoolStats(
+        boolean enabled,
+        int size,
+        int alive,
+        int idle,
+        int busy,
+        long jobCount,
+        long failedCount,
+        long crashCount,
+        long timeoutCount,
+        long recycledCount,
+        long startedCount
+    ) {
+    }
+
+    /**
+     * Job OCR trên worker thất bại
+     */
+    public static class WorkerException extends RuntimeException {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final Failure failure;
+
+        public WorkerException(Failure failure, String message) {
+            super(message);
+            this.failure = failure;
+        }
+
+        public Failure getFailure() {
+            return failure;
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.subservice.imagehandle.worker;
+
+import com.subservice.imagehandle.service.OcrRegion;
+import com.subservice.imagehandle.service.OcrWord;
+import com.subservice.imagehandle.service.TesseractEngine.PageResult;
+
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Giao thức nhị phân giữa service và OCR worker process (qua socket loopback)
+ *
+ * Handshake: worker gửi token nhận từ command line.
+ *
+ * Request:  op (1 byte) | language | psm (int) | ảnh | [REGIONS: số vùng, mỗi vùng x, y, w, h, psm, whitelist]
+ * Ảnh:      width | height | channels (1 = gray, 3 = RGB) | width * height * channels byte
+ * Response: status (1 byte) | OK: text, số word, mỗi word text, x, y, w, h, confidence (theo từng vùng)
+ *                           | ERROR: message
+ *
+ * String: độ dài (int) + UTF-8 (DataOutputStream.writeUTF giới hạn 64KB)
+ */
+final class OcrWorkerProtocol {
+
+    static final int OP_SHUTDOWN = 0;
+    static final int OP_RECOGNIZE = 1;
+    static final int OP_REGIONS = 2;
+
+    static final int STATUS_OK = 0;
+    static final int STATUS_ERROR = 1;
+
+    private static final int MAX_STRING_BYTES = 16 * 1024 * 1024;
+    private static final int MAX_PIXELS = 100_000_000;
+
+    private OcrWorkerProtocol() {
+    }
+
+    static void writeImage(DataOutputStream out, RenderedImage rendered) throws IOException {
+        BufferedImage image = toBufferedImage(rendered);
+        int width = image.getWidth();
+        int height = image.getHeight();
+        out.writeInt(width);
+        out.writeInt(height);
+
+        if (image.getType() == BufferedImage.TYPE_BYTE_GRAY) {
+            out.writeByte(1);
+            byte[] gray = (byte[]) image.getRaster().getDataElements(0, 0, width, height, null);
+            out.write(gray);
+            return;
+        }
+
+        out.writeByte(3);
+        int[] line = new int[width];
+        byte[] rgb = new byte[width * 3];
+        for (int y = 0; y < height; y++) {
+            image.getRGB(0, y, width, 1, line, 0, width);
+            for (int x = 0; x < width; x++) {
+                rgb[x * 3] = (byte) (line[x] >> 16);
+                rgb[x * 3 + 1] = (byte) (line[x] >> 8);
+                rgb[x * 3 + 2] = (byte) line[x];
+            }
+            out.write(rgb);
+        }
+    }
+
+    static BufferedImage readImage(DataInputStream in) throws IOException {
+        int width = in.readInt();
+        int height = in.readInt();
+        int channels = in.readUnsignedByte();
+        if (width <= 0 || height <= 0 || (long) width * height > MAX_PIXELS || (channels != 1 && channels != 3)) {
+            throw new IOException("Invalid image header: " + width + "x" + height + "x" + channels);
+        }
+
+        if (channels == 1) {
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+            byte[] gray = new byte[width * height];
+            in.readFully(gray);
+            image.getRaster().setDataElements(0, 0, width, height, gray);
+            return image;
+        }
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] line = new int[width];
+        byte[] rgb = new byte[width * 3];
+        for (int y = 0; y < height; y++) {
+            in.readFully(rgb);
+            for (int x = 0; x < width; x++) {
+                line[x] = (rgb[x * 3] & 0xFF) << 16 | (rgb[x * 3 + 1] & 0xFF) << 8 | (rgb[x * 3 + 2] & 0xFF);
+            }
+            image.setRGB(0, y, width, 1, line, 0, width);
+        }
+        return image;
+    }
+
+    static void writeRegions(DataOutputStream out, List<OcrRegion> regions) throws IOException {
+        out.writeInt(regions.size());
+        for (OcrRegion region : regions) {
+            Rectangle bounds = region.bounds();
+            out.writeInt(bounds.x);
+            out.writeInt(bounds.y);
+            out.writeInt(bounds.width);
+            out.writeInt(bounds.height);
+            out.writeInt(region.psm());
+            writeString(out, region.whitelist() != null ? region.whitelist() : "");
+        }
+    }
+
+    static List<OcrRegion> readRegions(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > 1000) {
+            throw new IOException("Invalid region count: " + count);
+        }
+        List<OcrRegion> regions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Rectangle bounds = new Rectangle(in.readInt(), in.readInt(), in.readInt(), in.readInt());
+            int psm = in.readInt();
+            String whitelist = readString(in);
+            regions.add(new OcrRegion(bounds, psm, whitelist.isEmpty() ? null : whitelist));
+        }
+        return regions;
+    }
+
+    static void writePages(DataOutputStream out, List<PageResult> pages) throws IOException {
+        out.writeInt(pages.size());
+        for (PageResult page : pages) {
+            writeString(out, page.text() != null ? page.text() : "");
+            out.writeInt(page.words().size());
+            for (OcrWord word : page.words()) {
+                writeString(out, word.text());
+                out.writeInt(word.x());
+                out.writeInt(word.y());
+                out.writeInt(word.width());
+                out.writeInt(word.height());
+                out.writeDouble(word.confidence());
+            }
+        }
+    }
+
+    static List<PageResult> readPages(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > 1000) {
+            throw new IOException("Invalid page count: " + count);
+        }
+        List<PageResult> pages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String text = readString(in);
+            int wordCount = in.readInt();
+            if (wordCount < 0) {
+                throw new IOException("Invalid word count: " + wordCount);
+            }
+            List<OcrWord> words = new ArrayList<>(wordCount);
+            for (int w = 0; w < wordCount; w++) {
+                words.add(new OcrWord(readString(in), in.readInt(), in.readInt(), in.readInt(), in.readInt(),
+                    in.readDouble()));
+            }
+            pages.add(new PageResult(text, words));
+        }
+        return pages;
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_STRING_BYTES) {
+            throw new IOException("Invalid string length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static BufferedImage toBufferedImage(RenderedImage rendered) {
+        if (rendered instanceof BufferedImage image && image.getType() != BufferedImage.TYPE_CUSTOM) {
+            return image;
+        }
+        BufferedImage copy = new BufferedImage(rendered.getWidth(), rendered.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = copy.createGraphics();
+        try {
+            graphics.drawRenderedImage(rendered, new AffineTransform());
+        } finally {
+            graphics.dispose();
+        }
+        return copy;
+    }
+}
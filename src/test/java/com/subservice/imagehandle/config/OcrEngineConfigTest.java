@@ -0,0 +1,47 @@
+package com.subservice.imagehandle.config;
+
+import com.subservice.imagehandle.service.TesseractEnginePool;
+import com.subservice.imagehandle.worker.OcrWorkerPool;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Kích thước OcrConcurrencyLimiter: theo engine pool, hoặc theo số worker process khi bật ocr.worker
+ */
+class OcrEngineConfigTest {
+
+    private final OcrEngineConfig config = new OcrEngineConfig();
+    // Engine chỉ được tạo khi borrow, không load native library
+    private final TesseractEnginePool enginePool = new TesseractEnginePool("./tessdata", "eng", 6, 2, 1_000);
+
+    @Test
+    void limiterFollowsEnginePool() {
+        OcrWorkerPool workers = workers(false, 5);
+
+        assertThat(config.ocrConcurrencyLimiter(enginePool, workers, 0, 1_000, false).getMaxConcurrent())
+            .isEqualTo(2);
+    }
+
+    @Test
+    void limiterFollowsWorkerProcessesInWorkerMode() {
+        OcrWorkerPool workers = workers(true, 5);
+
+        assertThat(config.ocrConcurrencyLimiter(enginePool, workers, 0, 1_000, false).getMaxConcurrent())
+            .isEqualTo(5);
+    }
+
+    @Test
+    void explicitLimitWins() {
+        OcrWorkerPool workers = workers(true, 5);
+
+        assertThat(config.ocrConcurrencyLimiter(enginePool, workers, 3, 1_000, false).getMaxConcurrent())
+            .isEqualTo(3);
+    }
+
+    private static OcrWorkerPool workers(boolean enabled, int processes) {
+        return new OcrWorkerPool(enabled, List.of(), ".", processes, 1_000, 1_000, 1_000, 0);
+    }
+}
@@ -0,0 +1,44 @@
+package com.subservice.imagehandle.controller;
+
+import com.subservice.imagehandle.dto.BillTransactionDTO;
+import com.subservice.imagehandle.dto.ReparseRequestDTO;
+import com.subservice.imagehandle.service.BillScanService;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * POST /api/transactions/reparse: ocrTextId không có trong store → 404
+ */
+class TransactionControllerTest {
+
+    private final BillScanService billScanService = mock(BillScanService.class);
+    private final TransactionController controller = new TransactionController(billScanService, null, null, null);
+
+    @Test
+    void unknownOcrTextIdIsNotFound() {
+        ReparseRequestDTO request = ReparseRequestDTO.builder().ocrTextId("missing").build();
+        when(billScanService.reparse(request)).thenReturn(null);
+
+        ResponseEntity<BillTransactionDTO> response = controller.reparse(request);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(response.getBody()).isNull();
+    }
+
+    @Test
+    void storedOcrTextIdIsReparsed() {
+        ReparseRequestDTO request = ReparseRequestDTO.builder().ocrTextId("stored").build();
+        BillTransactionDTO bill = BillTransactionDTO.builder().accountNumber("0123456789").ocrTextId("stored").build();
+        when(billScanService.reparse(request)).thenReturn(bill);
+
+        ResponseEntity<BillTransactionDTO> response = controller.reparse(request);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getBody()).isSameAs(bill);
+    }
+}
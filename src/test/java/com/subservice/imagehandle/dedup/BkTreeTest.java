@@ -0,0 +1,142 @@
+package com.subservice.imagehandle.dedup;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * BkTree: kết quả within() phải giống duyệt toàn bộ (brute force), kể cả node đã xoá và limit
+ */
+class BkTreeTest {
+
+    private static final int[] RADII = {0, 8, 32, 64, 128, 256};
+
+    private final Random random = new Random(7);
+
+    /**
+     * Ảnh lưới 17 x 16 ô màu ngẫu nhiên; base != null → chỉ đổi vài ô của base (ảnh gần giống)
+     */
+    private int[] randomCells(int[] base) {
+        int[] cells = base != null ? base.clone() : new int[17 * 16];
+        int changes = base != null ? 1 + random.nextInt(12) : cells.length;
+        for (int i = 0; i < changes; i++) {
+            cells[random.nextInt(cells.length)] = random.nextInt(256);
+        }
+        return cells;
+    }
+
+    private static PerceptualHash hash(int[] cells) {
+        BufferedImage image = new BufferedImage(17 * 4, 16 * 4, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int gray = cells[(y / 4) * 17 + x / 4];
+                image.setRGB(x, y, gray << 16 | gray << 8 | gray);
+            }
+        }
+        return PerceptualHash.of(image);
+    }
+
+    private record Entry(PerceptualHash hash, BkTree.Node<Integer> node) {
+    }
+
+    private List<Entry> fill(BkTree<Integer> tree, int count) {
+        List<Entry> entries = new ArrayList<>();
+        List<int[]> images = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int[] cells = randomCells(images.isEmpty() || random.nextBoolean()
+                ? null : images.get(random.nextInt(images.size())));
+            images.add(cells);
+            PerceptualHash hash = hash(cells);
+            entries.add(new Entry(hash, tree.add(hash, i)));
+        }
+        return entries;
+    }
+
+    private static List<Integer> bruteForceDistances(List<Entry> entries, PerceptualHash query, int radius) {
+        return entries.stream()
+            .map(entry -> entry.hash().distance(query))
+            .filter(distance -> distance <= radius)
+            .sorted()
+            .toList();
+    }
+
+    private static List<Integer> distances(List<BkTree.Node<Integer>> found, PerceptualHash query) {
+        return found.stream().map(node -> node.hash.distance(query)).toList();
+    }
+
+    @Test
+    void withinMatchesBruteForce() {
+        BkTree<Integer> tree = new BkTree<>();
+        List<Entry> entries = fill(tree, 200);
+
+        for (Entry query : entries.subList(0, 40)) {
+            for (int radius : RADII) {
+                List<BkTree.Node<Integer>> found = tree.within(query.hash(), radius, Integer.MAX_VALUE);
+
+                assertThat(distances(found, query.hash()))
+                    .as("radius %d", radius)
+                    .isEqualTo(bruteForceDistances(entries, query.hash(), radius));
+            }
+            assertThat(tree.within(query.hash(), 0, 10)).contains(query.node());
+        }
+        assertThat(tree.liveSize()).isEqualTo(200);
+    }
+
+    @Test
+    void removedNodesAreSkipped() {
+        BkTree<Integer> tree = new BkTree<>();
+        List<Entry> entries = fill(tree, 200);
+        List<Entry> live = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (entry.node().value % 3 == 0) {
+                tree.remove(entry.node());
+                tree.remove(entry.node());
+            } else {
+                live.add(entry);
+            }
+        }
+
+        assertThat(tree.removedSize()).isEqualTo(entries.size() - live.size());
+        assertThat(tree.liveSize()).isEqualTo(live.size());
+        for (Entry query : entries.subList(0, 40)) {
+            for (int radius : RADII) {
+                List<BkTree.Node<Integer>> found = tree.within(query.hash(), radius, Integer.MAX_VALUE);
+
+                assertThat(found).noneMatch(node -> node.value % 3 == 0);
+                assertThat(distances(found, query.hash()))
+                    .isEqualTo(bruteForceDistances(live, query.hash(), radius));
+            }
+        }
+    }
+
+    @Test
+    void limitKeepsNearestInDistanceOrder() {
+        BkTree<Integer> tree = new BkTree<>();
+        List<Entry> entries = fill(tree, 200);
+
+        for (Entry query : entries.subList(0, 40)) {
+            List<Integer> expected = bruteForceDistances(entries, query.hash(), 96);
+            for (int limit : new int[] {1, 3, 10}) {
+                List<BkTree.Node<Integer>> found = tree.within(query.hash(), 96, limit);
+
+                assertThat(distances(found, query.hash()))
+                    .isSortedAccordingTo(Comparator.naturalOrder())
+                    .isEqualTo(expected.subList(0, Math.min(limit, expected.size())));
+            }
+        }
+    }
+
+    @Test
+    void emptyTreeFindsNothing() {
+        BkTree<Integer> tree = new BkTree<>();
+
+        assertThat(tree.within(hash(randomCells(null)), 256, 10)).isEmpty();
+        assertThat(tree.liveSize()).isZero();
+    }
+}
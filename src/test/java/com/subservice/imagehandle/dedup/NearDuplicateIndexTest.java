@@ -0,0 +1,55 @@
+package com.subservice.imagehandle.dedup;
+
+import com.subservice.imagehandle.dto.BillTransactionDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * NearDuplicateIndex.sameTransaction: chỉ coi là trùng khi cả số tiền, tài khoản, mã giao dịch đều khớp
+ */
+class NearDuplicateIndexTest {
+
+    private static final BillTransactionDTO BILL = BillTransactionDTO.builder()
+        .amount(new BigDecimal("150000"))
+        .accountNumber("0123456789")
+        .transactionCode("FT24091234567")
+        .build();
+
+    @Test
+    void allFieldsEqualIsSameTransaction() {
+        assertThat(NearDuplicateIndex.sameTransaction(BILL, BILL.toBuilder().build())).isTrue();
+    }
+
+    @Test
+    void amountScaleIsIgnored() {
+        BillTransactionDTO rescaled = BILL.toBuilder().amount(new BigDecimal("150000.00")).build();
+
+        assertThat(NearDuplicateIndex.sameTransaction(BILL, rescaled)).isTrue();
+    }
+
+    @Test
+    void differentFieldIsNotSameTransaction() {
+        assertThat(NearDuplicateIndex.sameTransaction(BILL,
+            BILL.toBuilder().amount(new BigDecimal("160000")).build())).isFalse();
+        assertThat(NearDuplicateIndex.sameTransaction(BILL,
+            BILL.toBuilder().accountNumber("0123456780").build())).isFalse();
+        assertThat(NearDuplicateIndex.sameTransaction(BILL,
+            BILL.toBuilder().transactionCode("FT24091234568").build())).isFalse();
+    }
+
+    @Test
+    void missingFieldOnEitherSideIsNotSameTransaction() {
+        BillTransactionDTO noCode = BILL.toBuilder().transactionCode(null).build();
+        BillTransactionDTO blankAccount = BILL.toBuilder().accountNumber(" ").build();
+        BillTransactionDTO noAmount = BILL.toBuilder().amount(null).build();
+
+        assertThat(NearDuplicateIndex.sameTransaction(noCode, BILL)).isFalse();
+        assertThat(NearDuplicateIndex.sameTransaction(BILL, noCode)).isFalse();
+        assertThat(NearDuplicateIndex.sameTransaction(noCode, noCode)).isFalse();
+        assertThat(NearDuplicateIndex.sameTransaction(blankAccount, blankAccount)).isFalse();
+        assertThat(NearDuplicateIndex.sameTransaction(noAmount, noAmount)).isFalse();
+    }
+}
@@ -0,0 +1,60 @@
+package com.subservice.imagehandle.layout;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * LayoutTemplateRegistry: chỉ template đã đo trên bill thật được nhận diện
+ */
+class LayoutTemplateRegistryTest {
+
+    @Test
+    void bundledTemplatesAreLoadedButNotUsed() {
+        LayoutTemplateRegistry registry = new LayoutTemplateRegistry(
+            new ObjectMapper(), new ClassPathResource("layout/bank-templates.json"));
+
+        assertThat(registry.getTemplates()).isNotEmpty();
+        assertThat(registry.getCalibratedTemplates()).isEmpty();
+        assertThat(registry.detect("VCB Digibank - Chuyển tiền thành công")).isEmpty();
+    }
+
+    @Test
+    void bundledWhitelistsAreAscii() {
+        LayoutTemplateRegistry registry = new LayoutTemplateRegistry(
+            new ObjectMapper(), new ClassPathResource("layout/bank-templates.json"));
+
+        // Ký tự tiền tệ (VND, đ) do parser bỏ đi, không nằm trong whitelist của Tesseract
+        assertThat(registry.getTemplates())
+            .flatMap(LayoutTemplate::fields)
+            .map(FieldRegion::whitelist)
+            .filteredOn(whitelist -> whitelist != null)
+            .allMatch(whitelist -> whitelist.chars().allMatch(c -> c < 0x80));
+    }
+
+    @Test
+    void calibratedTemplateIsDetectedByKeyword() {
+        LayoutTemplateRegistry registry = registry("""
+            [
+              { "bank": "Vietcombank", "keywords": ["vcb digibank"], "calibrated": true,
+                "fields": [ { "field": "amount", "x": 0.1, "y": 0.2, "width": 0.8, "height": 0.1 } ] },
+              { "bank": "Techcombank", "keywords": ["techcombank"],
+                "fields": [ { "field": "amount", "x": 0.1, "y": 0.2, "width": 0.8, "height": 0.1 } ] }
+            ]
+            """);
+
+        assertThat(registry.detect("VCB  Digibank\nChuyển tiền")).map(LayoutTemplate::bank).contains("Vietcombank");
+        // Không có "calibrated" → mặc định chưa đo
+        assertThat(registry.detect("Techcombank")).isEmpty();
+        assertThat(registry.getCalibratedTemplates()).extracting(LayoutTemplate::bank).containsExactly("Vietcombank");
+    }
+
+    private static LayoutTemplateRegistry registry(String json) {
+        return new LayoutTemplateRegistry(new ObjectMapper(), new ByteArrayResource(json.getBytes(StandardCharsets.UTF_8)));
+    }
+}
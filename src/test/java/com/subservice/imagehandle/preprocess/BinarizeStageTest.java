@@ -0,0 +1,82 @@
+package com.subservice.imagehandle.preprocess;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * BinarizeStage: ngưỡng Otsu trên histogram hai đỉnh, ảnh một màu, kết quả chỉ gồm 0 / 255
+ */
+class BinarizeStageTest {
+
+    private final BinarizeStage stage = new BinarizeStage();
+
+    @Test
+    void thresholdSeparatesTwoLevels() {
+        byte[] pixels = new byte[1000];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = (byte) (i % 4 == 0 ? 30 : 220);
+        }
+
+        int threshold = BinarizeStage.otsuThreshold(pixels);
+
+        assertThat(threshold).isGreaterThanOrEqualTo(30).isLessThan(220);
+    }
+
+    @Test
+    void thresholdFallsBetweenNoisyPeaks() {
+        // Chữ quanh 50, nền quanh 200, nhiễu ±15
+        Random random = new Random(42);
+        byte[] pixels = new byte[20_000];
+        for (int i = 0; i < pixels.length; i++) {
+            int center = i % 5 == 0 ? 50 : 200;
+            pixels[i] = (byte) (center + random.nextInt(31) - 15);
+        }
+
+        int threshold = BinarizeStage.otsuThreshold(pixels);
+
+        // Mọi pixel chữ (≤ 65) thuộc lớp tối, mọi pixel nền (≥ 185) thuộc lớp sáng
+        assertThat(threshold).isGreaterThanOrEqualTo(65).isLessThan(185);
+    }
+
+    @Test
+    void outputIsBlackAndWhiteGray() {
+        BufferedImage image = new BufferedImage(20, 10, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] pixels = data(image);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = (byte) (i % 20 < 5 ? 40 : 210);
+        }
+
+        BufferedImage binary = stage.apply(image);
+
+        assertThat(binary.getType()).isEqualTo(BufferedImage.TYPE_BYTE_GRAY);
+        byte[] output = data(binary);
+        for (int i = 0; i < output.length; i++) {
+            assertThat(output[i] & 0xFF).isEqualTo(i % 20 < 5 ? 0 : 255);
+        }
+    }
+
+    @Test
+    void allWhiteImageStaysWhite() {
+        BufferedImage image = new BufferedImage(16, 16, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 16; y++) {
+            for (int x = 0; x < 16; x++) {
+                image.setRGB(x, y, 0xFFFFFF);
+            }
+        }
+
+        byte[] output = data(stage.apply(image));
+
+        for (byte pixel : output) {
+            assertThat(pixel & 0xFF).isEqualTo(255);
+        }
+    }
+
+    private static byte[] data(BufferedImage image) {
+        return ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+    }
+}
@@ -0,0 +1,79 @@
+package com.subservice.imagehandle.preprocess;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * CropToContentStage: cắt theo vùng nội dung + margin, ảnh trắng và nội dung sát viền giữ nguyên
+ */
+class CropToContentStageTest {
+
+    private final CropToContentStage stage = new CropToContentStage(24, 8);
+
+    @Test
+    void cropsToContentPlusMargin() {
+        // Nội dung x 50..99, y 60..139
+        BufferedImage image = whiteWithBlock(200, 300, 50, 60, 50, 80);
+
+        BufferedImage cropped = stage.apply(image);
+
+        assertThat(cropped.getWidth()).isEqualTo(50 + 2 * 8);
+        assertThat(cropped.getHeight()).isEqualTo(80 + 2 * 8);
+        assertThat(cropped.getRGB(8, 8) & 0xFFFFFF).isZero();
+        assertThat(cropped.getRGB(7, 7) & 0xFFFFFF).isEqualTo(0xFFFFFF);
+        // Copy riêng, không dùng chung raster với ảnh gốc
+        assertThat(cropped.getRaster().getDataBuffer()).isNotSameAs(image.getRaster().getDataBuffer());
+    }
+
+    @Test
+    void marginIsClampedAtImageEdge() {
+        BufferedImage image = whiteWithBlock(200, 300, 3, 100, 20, 20);
+
+        BufferedImage cropped = stage.apply(image);
+
+        // Bên trái chỉ còn 3px nền thay vì 8
+        assertThat(cropped.getWidth()).isEqualTo(3 + 20 + 8);
+        assertThat(cropped.getHeight()).isEqualTo(20 + 2 * 8);
+    }
+
+    @Test
+    void allWhiteImageIsReturnedUnchanged() {
+        BufferedImage image = whiteWithBlock(120, 80, 0, 0, 0, 0);
+
+        assertThat(stage.apply(image)).isSameAs(image);
+    }
+
+    @Test
+    void smallVariationWithinToleranceIsBackground() {
+        BufferedImage image = whiteWithBlock(120, 80, 0, 0, 0, 0);
+        image.setRGB(60, 40, new Color(240, 240, 240).getRGB());
+
+        assertThat(stage.apply(image)).isSameAs(image);
+    }
+
+    @Test
+    void contentTouchingEveryEdgeIsReturnedUnchanged() {
+        BufferedImage image = whiteWithBlock(120, 80, 4, 4, 112, 72);
+
+        assertThat(stage.apply(image)).isSameAs(image);
+    }
+
+    private static BufferedImage whiteWithBlock(int width, int height, int x, int y, int blockWidth, int blockHeight) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.setColor(Color.BLACK);
+            g.fillRect(x, y, blockWidth, blockHeight);
+        } finally {
+            g.dispose();
+        }
+        return image;
+    }
+}
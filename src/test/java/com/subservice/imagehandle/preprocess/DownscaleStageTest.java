@@ -0,0 +1,71 @@
+package com.subservice.imagehandle.preprocess;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * DownscaleStage: giữ tỉ lệ khung hình, giữ kiểu ảnh xám, ảnh đủ nhỏ không bị đổi
+ */
+class DownscaleStageTest {
+
+    private final DownscaleStage stage = new DownscaleStage(1280);
+
+    @Test
+    void keepsAspectRatio() {
+        BufferedImage scaled = stage.apply(new BufferedImage(3000, 4000, BufferedImage.TYPE_INT_RGB));
+
+        assertThat(scaled.getWidth()).isEqualTo(1280);
+        // 4000 * 1280 / 3000 = 1706.67
+        assertThat(scaled.getHeight()).isEqualTo(1707);
+        assertThat(scaled.getType()).isEqualTo(BufferedImage.TYPE_INT_RGB);
+    }
+
+    @Test
+    void keepsAspectRatioWithoutHalvingSteps() {
+        // 1.15x: thu nhỏ một lần, thẳng về 1280
+        BufferedImage scaled = stage.apply(new BufferedImage(1476, 3000, BufferedImage.TYPE_BYTE_GRAY));
+
+        assertThat(scaled.getWidth()).isEqualTo(1280);
+        assertThat(scaled.getHeight()).isEqualTo(Math.round(3000 * 1280 / 1476.0));
+        assertThat(scaled.getType()).isEqualTo(BufferedImage.TYPE_BYTE_GRAY);
+    }
+
+    @Test
+    void keepsContentPosition() {
+        BufferedImage image = new BufferedImage(4000, 2000, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, 4000, 2000);
+            g.setColor(Color.BLACK);
+            g.fillRect(0, 0, 2000, 2000);
+        } finally {
+            g.dispose();
+        }
+
+        BufferedImage scaled = stage.apply(image);
+
+        assertThat(scaled.getHeight()).isEqualTo(640);
+        assertThat(scaled.getRGB(100, 320) & 0xFF).isLessThan(20);
+        assertThat(scaled.getRGB(1180, 320) & 0xFF).isGreaterThan(235);
+    }
+
+    @Test
+    void smallImageIsReturnedUnchanged() {
+        BufferedImage image = new BufferedImage(1280, 5000, BufferedImage.TYPE_INT_RGB);
+
+        assertThat(stage.apply(image)).isSameAs(image);
+    }
+
+    @Test
+    void zeroMaxWidthDisablesDownscale() {
+        BufferedImage image = new BufferedImage(4000, 3000, BufferedImage.TYPE_INT_RGB);
+
+        assertThat(new DownscaleStage(0).apply(image)).isSameAs(image);
+    }
+}
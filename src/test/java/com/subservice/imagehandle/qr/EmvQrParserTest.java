@@ -0,0 +1,112 @@
+package com.subservice.imagehandle.qr;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * EmvQrParser: CRC-16/CCITT-FALSE, TLV VietQR, từ chối payload sai CRC / không phải NAPAS
+ */
+class EmvQrParserTest {
+
+    private static String tlv(String tag, String value) {
+        return tag + String.format(Locale.ROOT, "%02d", value.length()) + value;
+    }
+
+    private static String withCrc(String body) {
+        String signed = body + "6304";
+        int crc = EmvQrParser.crc16(signed.getBytes(StandardCharsets.UTF_8));
+        return signed + String.format(Locale.ROOT, "%04X", crc);
+    }
+
+    private static String vietQr(String guid, String merchantName) {
+        String beneficiary = tlv("00", "970436") + tlv("01", "0123456789");
+        return withCrc(tlv("00", "01")
+            + tlv("01", "12")
+            + tlv("38", tlv("00", guid) + tlv("01", beneficiary) + tlv("02", "QRIBFTTA"))
+            + tlv("53", "704")
+            + tlv("54", "150000")
+            + tlv("58", "VN")
+            + (merchantName != null ? tlv("59", merchantName) : "")
+            + tlv("62", tlv("08", "thanh toan hoa don")));
+    }
+
+    @Test
+    void crc16MatchesCcittFalseCheckValue() {
+        assertThat(EmvQrParser.crc16("123456789".getBytes(StandardCharsets.US_ASCII))).isEqualTo(0x29B1);
+        assertThat(EmvQrParser.crc16(new byte[0])).isEqualTo(0xFFFF);
+    }
+
+    @Test
+    void parsesValidVietQr() {
+        VietQrPayload payload = EmvQrParser.parse(vietQr("A000000727", "NGUYEN VAN A")).orElseThrow();
+
+        assertThat(payload.bin()).isEqualTo("970436");
+        assertThat(payload.accountNumber()).isEqualTo("0123456789");
+        assertThat(payload.amount()).isEqualByComparingTo(new BigDecimal("150000"));
+        assertThat(payload.merchantName()).isEqualTo("NGUYEN VAN A");
+        assertThat(payload.purpose()).isEqualTo("thanh toan hoa don");
+    }
+
+    @Test
+    void crcCoversUtf8Bytes() {
+        VietQrPayload payload = EmvQrParser.parse(vietQr("A000000727", "Nguyễn Văn Á")).orElseThrow();
+
+        assertThat(payload.merchantName()).isEqualTo("Nguyễn Văn Á");
+    }
+
+    @Test
+    void acceptsLowercaseCrcHex() {
+        String payload = vietQr("A000000727", null);
+        String lowercase = payload.substring(0, payload.length() - 4)
+            + payload.substring(payload.length() - 4).toLowerCase(Locale.ROOT);
+
+        assertThat(EmvQrParser.parse(lowercase)).isPresent();
+    }
+
+    @Test
+    void rejectsTamperedPayload() {
+        String payload = vietQr("A000000727", null);
+
+        // đổi số tiền nhưng giữ CRC cũ
+        assertThat(EmvQrParser.parse(payload.replace("5406150000", "5406950000"))).isEmpty();
+    }
+
+    @Test
+    void rejectsWrongOrMissingCrc() {
+        String payload = vietQr("A000000727", null);
+        String body = payload.substring(0, payload.length() - 4);
+        int crc = Integer.parseInt(payload.substring(payload.length() - 4), 16);
+
+        assertThat(EmvQrParser.parse(body + String.format(Locale.ROOT, "%04X", crc ^ 1))).isEmpty();
+        assertThat(EmvQrParser.parse(body + "ZZZZ")).isEmpty();
+        assertThat(EmvQrParser.parse(body.substring(0, body.length() - 4))).isEmpty();
+        assertThat(EmvQrParser.parse(null)).isEmpty();
+    }
+
+    @Test
+    void rejectsNonNapasMerchantAccount() {
+        assertThat(EmvQrParser.parse(vietQr("A000000775", null))).isEmpty();
+    }
+
+    @Test
+    void rejectsTruncatedTlv() {
+        // CRC đúng nhưng tag 38 khai báo dài hơn phần còn lại
+        assertThat(EmvQrParser.parse(withCrc(tlv("00", "01") + "3899" + tlv("00", "A000000727")))).isEmpty();
+    }
+
+    @Test
+    void rejectsSignedLength() {
+        String merchant = tlv("38", tlv("00", "A000000727") + tlv("01", tlv("00", "970436") + tlv("01", "0123456789")));
+
+        // CRC đúng, độ dài "-1" / "+5": Integer.parseInt nhận cả hai
+        assertThat(EmvQrParser.parse(withCrc(tlv("00", "01") + merchant + "59-1AB"))).isEmpty();
+        assertThat(EmvQrParser.parse(withCrc(tlv("00", "01") + merchant + "59+5ABCDE"))).isEmpty();
+        // Lồng trong tag 38
+        assertThat(EmvQrParser.parse(withCrc(tlv("00", "01") + "3806" + "00-1AB"))).isEmpty();
+    }
+}
@@ -0,0 +1,118 @@
+package com.subservice.imagehandle.qr;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.subservice.imagehandle.preprocess.DownscaleStage;
+import com.subservice.imagehandle.preprocess.GrayscaleStage;
+import com.subservice.imagehandle.service.ScanMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * VietQrService.decode trên ảnh bill tổng hợp: ảnh màu, ảnh xám, ảnh sau downscale + grayscale như pipeline mặc định
+ */
+class VietQrServiceTest {
+
+    private final VietQrService service = new VietQrService(new ScanMetrics(new SimpleMeterRegistry()),
+        new ObjectMapper(), true, false, false, new ClassPathResource("qr/napas-banks.json"));
+
+    @Test
+    void decodesQrOnColorImage() throws WriterException {
+        BufferedImage bill = bill(1080, 1920, 400);
+
+        VietQrPayload payload = service.decode(bill).orElseThrow();
+
+        assertThat(payload.accountNumber()).isEqualTo("0123456789");
+        assertThat(payload.amount()).isEqualByComparingTo(new BigDecimal("150000"));
+    }
+
+    @Test
+    void decodesQrOnGrayImage() throws WriterException {
+        BufferedImage bill = new GrayscaleStage().apply(bill(1080, 1920, 400));
+        assertThat(bill.getType()).isEqualTo(BufferedImage.TYPE_BYTE_GRAY);
+
+        VietQrPayload payload = service.decode(bill).orElseThrow();
+
+        assertThat(payload.accountNumber()).isEqualTo("0123456789");
+    }
+
+    @Test
+    void decodesQrAfterDefaultPreprocessing() throws WriterException {
+        // Ảnh chụp lớn: QR 900px thu còn ~390px sau downscale về 1280
+        BufferedImage photo = bill(2952, 3000, 900);
+        BufferedImage preprocessed = new GrayscaleStage().apply(new DownscaleStage(1280).apply(photo));
+        assertThat(preprocessed.getWidth()).isEqualTo(1280);
+
+        VietQrPayload payload = service.decode(preprocessed).orElseThrow();
+
+        assertThat(payload.accountNumber()).isEqualTo("0123456789");
+        assertThat(payload.merchantName()).isEqualTo("NGUYEN VAN A");
+    }
+
+    @Test
+    void imageWithoutQrIsEmpty() {
+        BufferedImage blank = new BufferedImage(400, 600, BufferedImage.TYPE_BYTE_GRAY);
+
+        assertThat(service.decode(blank)).isEmpty();
+    }
+
+    /**
+     * Nền trắng, QR VietQR cạnh qrSize px ở giữa
+     */
+    private static BufferedImage bill(int width, int height, int qrSize) throws WriterException {
+        BitMatrix matrix = new QRCodeWriter().encode(vietQr(), BarcodeFormat.QR_CODE, qrSize, qrSize,
+            Map.of(EncodeHintType.CHARACTER_SET, "UTF-8", EncodeHintType.MARGIN, 4));
+
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+        } finally {
+            g.dispose();
+        }
+        int left = (width - matrix.getWidth()) / 2;
+        int top = (height - matrix.getHeight()) / 2;
+        for (int y = 0; y < matrix.getHeight(); y++) {
+            for (int x = 0; x < matrix.getWidth(); x++) {
+                if (matrix.get(x, y)) {
+                    image.setRGB(left + x, top + y, 0x000000);
+                }
+            }
+        }
+        return image;
+    }
+
+    private static String vietQr() {
+        String beneficiary = tlv("00", "970436") + tlv("01", "0123456789");
+        String signed = tlv("00", "01")
+            + tlv("01", "12")
+            + tlv("38", tlv("00", "A000000727") + tlv("01", beneficiary) + tlv("02", "QRIBFTTA"))
+            + tlv("53", "704")
+            + tlv("54", "150000")
+            + tlv("58", "VN")
+            + tlv("59", "NGUYEN VAN A")
+            + "6304";
+        int crc = EmvQrParser.crc16(signed.getBytes(StandardCharsets.UTF_8));
+        return signed + String.format(Locale.ROOT, "%04X", crc);
+    }
+
+    private static String tlv(String tag, String value) {
+        return tag + String.format(Locale.ROOT, "%02d", value.length()) + value;
+    }
+}
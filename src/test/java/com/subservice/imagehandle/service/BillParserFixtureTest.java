@@ -0,0 +1,166 @@
+package com.subservice.imagehandle.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.subservice.imagehandle.dto.BillTransactionDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * BillParser trên OCR text của bill thật (src/test/resources/bill-text), kiểm tra đủ 7 field
+ *
+ * Giá trị mong đợi giống parser gốc (trước khi precompile / duyệt token một lần), trừ hai thay đổi có chủ đích:
+ * tên người nhận chỉ lấy các từ IN HOA đầu tiên sau nhãn, và fallback nội dung chạy trên text đã bỏ dấu
+ */
+class BillParserFixtureTest {
+
+    private BillParser billParser;
+
+    @BeforeEach
+    void setUp() {
+        KeywordDictionary keywords = new KeywordDictionary(
+            new ObjectMapper(), new ClassPathResource("parser/keywords.json"));
+        billParser = new BillParser(new SimpleMeterRegistry(), keywords);
+    }
+
+    @Test
+    void vietcombank() throws IOException {
+        BillTransactionDTO bill = parse("vietcombank.txt");
+
+        assertThat(bill.getAmount()).isEqualByComparingTo(new BigDecimal("1500000"));
+        assertThat(bill.getAccountNumber()).isEqualTo("0071000987654");
+        assertThat(bill.getRecipientName()).isEqualTo("NGUYEN VAN BINH");
+        assertThat(bill.getBankName()).isEqualTo("Vietcombank");
+        assertThat(bill.getTransactionCode()).isEqualTo("5123456789");
+        // Text được gộp thành một dòng: nội dung kéo theo phần sau tới tối đa 100 ký tự
+        assertThat(bill.getTransferContent())
+            .isEqualTo("NGUYEN VAN AN chuyen tien an trua Phí Miễn phí Chia sẻ Lưu ảnh");
+        assertThat(bill.getStatus()).isEqualTo("Unknown");
+    }
+
+    @Test
+    void vietcombankShort() throws IOException {
+        BillTransactionDTO bill = parse("vietcombank-short.txt");
+
+        assertThat(bill.getAmount()).isEqualByComparingTo(new BigDecimal("500000"));
+        assertThat(bill.getAccountNumber()).isEqualTo("0071000123456");
+        assertThat(bill.getRecipientName()).isEqualTo("NGUYEN VAN AN");
+        assertThat(bill.getBankName()).isEqualTo("Vietcombank");
+        // Không có nhãn mã giao dịch: fallback số dài nhất
+        assertThat(bill.getTransactionCode()).isEqualTo("0071000123456");
+        assertThat(bill.getTransferContent()).isNull();
+        assertThat(bill.getStatus()).isEqualTo("Unknown");
+    }
+
+    @Test
+    void techcombank() throws IOException {
+        BillTransactionDTO bill = parse("techcombank.txt");
+
+        // "- 2,350,000 VND", bỏ qua số điện thoại / ngày giờ / số tài khoản nguồn có khoảng trắng
+        assertThat(bill.getAmount()).isEqualByComparingTo(new BigDecimal("2350000"));
+        assertThat(bill.getAccountNumber()).isEqualTo("0451000234567");
+        assertThat(bill.getRecipientName()).isEqualTo("TRAN THI MINH THU");
+        // Ngân hàng xuất hiện đầu tiên: "Ngân hàng TMCP ..." đứng trước "(Vietcombank)"
+        assertThat(bill.getBankName()).isEqualTo("TMCP");
+        assertThat(bill.getTransactionCode()).isEqualTo("FT26289123456789");
+        assertThat(bill.getTransferContent()).isEqualTo(
+            "TRAN THI MINH THU chuyen tien hoc phi thang 10 Phí giao dịch Miễn phí Kênh giao dịch Mobile Banking");
+        assertThat(bill.getStatus()).isEqualTo("Unknown");
+    }
+
+    @Test
+    void bidv() throws IOException {
+        BillTransactionDTO bill = parse("bidv.txt");
+
+        assertThat(bill.getAmount()).isEqualByComparingTo(new BigDecimal("350000"));
+        assertThat(bill.getAccountNumber()).isEqualTo("12345678901234");
+        assertThat(bill.getRecipientName()).isEqualTo("PHAM THI HOA");
+        assertThat(bill.getBankName()).isEqualTo("BIDV");
+        assertThat(bill.getTransactionCode()).isEqualTo("FT26285A1B2C3D");
+        assertThat(bill.getTransferContent())
+            .isEqualTo("PHAM THI HOA thanh toan tien dien Ngày giao dịch: 12/10/2026 20:05");
+        assertThat(bill.getStatus()).isEqualTo("Thành công");
+    }
+
+    @Test
+    void acbConcatenatedName() throws IOException {
+        BillTransactionDTO bill = parse("acb-concatenated-name.txt");
+
+        assertThat(bill.getAmount()).isEqualByComparingTo(new BigDecimal("2000000"));
+        // Tài khoản 8 chữ số không đủ dài, mã GD 10 chữ số không chia hết 1000 → được đổi sang số tài khoản
+        assertThat(bill.getAccountNumber()).isEqualTo("8801234567");
+        assertThat(bill.getRecipientName()).isEqualTo("LE VAN NAM");
+        assertThat(bill.getBankName()).isEqualTo("ACB");
+        assertThat(bill.getTransactionCode()).isEqualTo("8801234567");
+        assertThat(bill.getTransferContent()).isEqualTo("tra no thang 9");
+        assertThat(bill.getStatus()).isEqualTo("Unknown");
+    }
+
+    @Test
+    void vpbankWithoutDiacritics() throws IOException {
+        BillTransactionDTO bill = parse("vpbank-no-diacritics.txt");
+
+        assertThat(bill.getAmount()).isEqualByComparingTo(new BigDecimal("750000"));
+        assertThat(bill.getAccountNumber()).isEqualTo("190366554433");
+        assertThat(bill.getRecipientName()).isEqualTo("DO MINH TUAN");
+        assertThat(bill.getBankName()).isEqualTo("VPBank");
+        assertThat(bill.getTransactionCode()).isEqualTo("FT26286XYZ123");
+        assertThat(bill.getTransferContent()).isEqualTo("DO MINH TUAN gui tien sinh nhat");
+        assertThat(bill.getStatus()).isEqualTo("Thành công");
+    }
+
+    @Test
+    void tpbankPending() throws IOException {
+        BillTransactionDTO bill = parse("tpbank-pending.txt");
+
+        assertThat(bill.getAmount()).isEqualByComparingTo(new BigDecimal("150000"));
+        assertThat(bill.getAccountNumber()).isEqualTo("04012345678");
+        // Nhãn STK viết hoa nằm ngay sau tên nên bị gộp vào cụm IN HOA
+        assertThat(bill.getRecipientName()).isEqualTo("VO THI LAN STK");
+        assertThat(bill.getBankName()).isEqualTo("TPBank");
+        assertThat(bill.getTransactionCode()).isEqualTo("04012345678");
+        assertThat(bill.getTransferContent()).isEqualTo("thanh toan don hang 1234");
+        assertThat(bill.getStatus()).isEqualTo("Unknown");
+    }
+
+    @Test
+    void momoMinusAmount() throws IOException {
+        BillTransactionDTO bill = parse("momo-minus-amount.txt");
+
+        assertThat(bill.getAmount()).isEqualByComparingTo(new BigDecimal("99000"));
+        assertThat(bill.getAccountNumber()).isEqualTo("36912345678");
+        assertThat(bill.getRecipientName()).isEqualTo("HOANG ANH");
+        assertThat(bill.getBankName()).isNull();
+        assertThat(bill.getTransactionCode()).isEqualTo("36912345678");
+        // Không có nhãn nội dung: fallback "<từ> ... chuyển tiền" trên text đã bỏ dấu
+        assertThat(bill.getTransferContent()).isEqualTo("MoMo Chuyển tiền");
+        assertThat(bill.getStatus()).isEqualTo("Unknown");
+    }
+
+    @Test
+    void mbbankNoisyOcr() throws IOException {
+        BillTransactionDTO bill = parse("mbbank-noisy.txt");
+
+        // "1.2OO.OOO" (chữ O thay số 0) không đọc được, còn "l,200,000" chỉ lấy được phần "200,000"
+        assertThat(bill.getAmount()).isEqualByComparingTo(new BigDecimal("200000"));
+        // Số tài khoản bị tách bởi khoảng trắng, mã giao dịch lẫn khoảng trắng
+        assertThat(bill.getAccountNumber()).isNull();
+        assertThat(bill.getRecipientName()).isEqualTo("NH TMCP");
+        assertThat(bill.getBankName()).isEqualTo("MB");
+        assertThat(bill.getTransactionCode()).isNull();
+        assertThat(bill.getTransferContent()).startsWith("LE H0ANG PHUC ck tien nha T1O / 2O26");
+        assertThat(bill.getStatus()).isEqualTo("Unknown");
+    }
+
+    private BillTransactionDTO parse(String fixture) throws IOException {
+        String text = new ClassPathResource("bill-text/" + fixture).getContentAsString(StandardCharsets.UTF_8);
+        return billParser.parse(text, null, 0.9);
+    }
+}
@@ -0,0 +1,95 @@
+package com.subservice.imagehandle.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.subservice.imagehandle.dto.BillTransactionDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.math.BigDecimal;
+import java.text.Normalizer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * BillParser trên text đã bỏ dấu: nhãn IN HOA / dấu kết hợp rời, hậu tố tiền tệ
+ */
+class BillParserTest {
+
+    private static final String UPPERCASE_BILL = String.join("\n",
+        "GIAO DỊCH THÀNH CÔNG",
+        "500.000 VND",
+        "SỐ TÀI KHOẢN: 0123456789",
+        "MÃ GIAO DỊCH: FT24091234567",
+        "NỘI DUNG: thanh toán hóa đơn tháng 9");
+
+    private BillParser billParser;
+
+    @BeforeEach
+    void setUp() {
+        KeywordDictionary keywords = new KeywordDictionary(
+            new ObjectMapper(), new ClassPathResource("parser/keywords.json"));
+        billParser = new BillParser(new SimpleMeterRegistry(), keywords);
+    }
+
+    @Test
+    void uppercaseLabelsMatch() {
+        BillTransactionDTO bill = billParser.parse(UPPERCASE_BILL, null, 0.9);
+
+        assertThat(bill.getStatus()).isEqualTo("Thành công");
+        assertThat(bill.getAmount()).isEqualByComparingTo(new BigDecimal("500000"));
+        assertThat(bill.getAccountNumber()).isEqualTo("0123456789");
+        assertThat(bill.getTransactionCode()).isEqualTo("FT24091234567");
+        assertThat(bill.getTransferContent()).isEqualTo("thanh toán hóa đơn tháng 9");
+    }
+
+    @Test
+    void decomposedDiacriticsMatchLikePrecomposed() {
+        BillTransactionDTO precomposed = billParser.parse(UPPERCASE_BILL, null, 0.9);
+        BillTransactionDTO decomposed = billParser.parse(
+            Normalizer.normalize(UPPERCASE_BILL, Normalizer.Form.NFD), null, 0.9);
+
+        assertThat(decomposed.getStatus()).isEqualTo("Thành công");
+        assertThat(decomposed.getAmount()).isEqualByComparingTo(precomposed.getAmount());
+        assertThat(decomposed.getAccountNumber()).isEqualTo(precomposed.getAccountNumber());
+        assertThat(decomposed.getTransactionCode()).isEqualTo(precomposed.getTransactionCode());
+        // Giá trị trả về lấy từ text gốc (vẫn ở dạng NFD)
+        assertThat(decomposed.getTransferContent())
+            .isEqualTo(Normalizer.normalize(precomposed.getTransferContent(), Normalizer.Form.NFD));
+    }
+
+    @Test
+    void mixedCaseStatusMatches() {
+        BillTransactionDTO bill = billParser.parse("Giao dịch THÀNH CÔNG\n1.250.000đ", null, 0.9);
+
+        assertThat(bill.getStatus()).isEqualTo("Thành công");
+        assertThat(bill.getAmount()).isEqualByComparingTo(new BigDecimal("1250000"));
+    }
+
+    @Test
+    void statusIsUnknownWithoutSuccessLabel() {
+        BillTransactionDTO bill = billParser.parse("Chuyển tiền\n200.000 VND\nĐang xử lý", null, 0.9);
+
+        assertThat(bill.getStatus()).isEqualTo("Unknown");
+    }
+
+    @Test
+    void spaceGroupedAmountNeedsCurrencySuffix() {
+        BillTransactionDTO withSuffix = billParser.parse("Số tiền: 150 000 đồng", null, 0.9);
+        assertThat(withSuffix.getAmount()).isEqualByComparingTo(new BigDecimal("150000"));
+
+        BillTransactionDTO withDong = billParser.parse("Số tiền: 150 000 đ", null, 0.9);
+        assertThat(withDong.getAmount()).isEqualByComparingTo(new BigDecimal("150000"));
+    }
+
+    @Test
+    void wordStartingWithDIsNotACurrencySuffix() {
+        // "đến" / "địa chỉ" bỏ dấu thành "den" / "dia chi" - không phải "đ"
+        BillTransactionDTO due = billParser.parse("Còn 150 000 đến hạn", null, 0.9);
+        assertThat(due.getAmount()).isNull();
+
+        BillTransactionDTO hotline = billParser.parse("Hotline 0912 345 678 địa chỉ Hà Nội", null, 0.9);
+        assertThat(hotline.getAmount()).isNull();
+    }
+}
@@ -0,0 +1,287 @@
+package com.subservice.imagehandle.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.subservice.imagehandle.dedup.NearDuplicateIndex;
+import com.subservice.imagehandle.dto.BillTransactionDTO;
+import com.subservice.imagehandle.dto.ReparseRequestDTO;
+import com.subservice.imagehandle.layout.LayoutOcrService;
+import com.subservice.imagehandle.layout.LayoutTemplateRegistry;
+import com.subservice.imagehandle.preprocess.DownscaleStage;
+import com.subservice.imagehandle.preprocess.GrayscaleStage;
+import com.subservice.imagehandle.preprocess.ImagePreprocessingPipeline;
+import com.subservice.imagehandle.qr.VietQrService;
+import com.subservice.imagehandle.upload.ImageLimits;
+import com.subservice.imagehandle.worker.FakeOcrWorkerMain;
+import com.subservice.imagehandle.worker.OcrWorkerPool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * BillScanService với các service thật, OCR chạy trên worker process giả ({@link FakeOcrWorkerMain}):
+ * language của pool chọn hành vi của worker ("crash", "fail", "blank")
+ */
+class BillScanServiceTest {
+
+    private static final String VIET_QR = "00020101021238540010A000000727012400069704360110012345678902"
+        + "08QRIBFTTA530370454061500005802VN5912NGUYEN VAN A63046485";
+
+    @TempDir
+    Path storeDir;
+
+    private final ScanMetrics scanMetrics = new ScanMetrics(new SimpleMeterRegistry());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private OcrWorkerPool workerPool;
+    private OcrConcurrencyLimiter limiter;
+    private ScanResultCache cache = new ScanResultCache(false, 10, 60);
+    private boolean storeEnabled;
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        if (workerPool != null) {
+            workerPool.close();
+        }
+    }
+
+    @Test
+    void crashingImageReachesExactlyOneWorker() throws IOException {
+        // Tiered fast pass, layout header pass và full pass đều bật: worker chết ở fast pass thì dừng luôn
+        BillScanService service = service("crash", true, true, false);
+
+        assertThatThrownBy(() -> service.scanBillStructured(png(), "bill.png"))
+            .isInstanceOf(OcrWorkerPool.WorkerException.class)
+            .extracting(e -> ((OcrWorkerPool.WorkerException) e).getFailure())
+            .isEqualTo(OcrWorkerPool.Failure.CRASHED);
+
+        OcrWorkerPool.WorkerPoolStats stats = workerPool.getStats();
+        assertThat(stats.jobCount()).isEqualTo(1);
+        assertThat(stats.crashCount()).isEqualTo(1);
+        assertThat(stats.startedCount()).isEqualTo(1);
+        // Slot OCR được trả dù scan lỗi
+        assertThat(limiter.getRunning()).isZero();
+    }
+
+    @Test
+    void crashInLayoutHeaderPassDoesNotFallBackToFullPage() throws IOException {
+        BillScanService service = service("crash", false, true, false);
+
+        assertThatThrownBy(() -> service.scanBillStructured(png(), "bill.png"))
+            .isInstanceOf(OcrWorkerPool.WorkerException.class);
+
+        assertThat(workerPool.getStats().jobCount()).isEqualTo(1);
+        assertThat(workerPool.getStats().crashCount()).isEqualTo(1);
+    }
+
+    @Test
+    void failedJobFallsThroughToNextTier() throws IOException {
+        // FAILED: worker vẫn sống, tier sau được thử, không có text → null (422)
+        BillScanService service = service("fail", true, true, false);
+
+        assertThat(service.scanBillStructured(png(), "bill.png")).isNull();
+
+        OcrWorkerPool.WorkerPoolStats stats = workerPool.getStats();
+        assertThat(stats.jobCount()).isEqualTo(3);
+        assertThat(stats.failedCount()).isEqualTo(3);
+        assertThat(stats.startedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void blankOcrKeepsVietQrFields() throws Exception {
+        BillScanService service = service("blank", false, false, true);
+
+        BillTransactionDTO bill = service.scanBillStructured(qrBill(), "bill.png");
+
+        assertThat(bill).isNotNull();
+        assertThat(bill.getAccountNumber()).isEqualTo("0123456789");
+        assertThat(bill.getAmount()).isEqualByComparingTo(new BigDecimal("150000"));
+        assertThat(bill.getRecipientName()).isEqualTo("NGUYEN VAN A");
+        // Không có OCR text để parse lại
+        assertThat(bill.getOcrTextId()).isNull();
+    }
+
+    @Test
+    void blankOcrWithoutQrIsEmpty() throws IOException {
+        BillScanService service = service("blank", false, false, true);
+
+        assertThat(service.scanBillStructured(png(), "bill.png")).isNull();
+    }
+
+    @Test
+    void timingsReportResultSource() throws Exception {
+        cache = new ScanResultCache(true, 10, 60);
+        BillScanService service = service("blank", false, false, true);
+        byte[] image = qrBill();
+
+        String first;
+        try (ScanTimings timings = ScanTimings.start()) {
+            service.scanBillStructured(image, "bill.png");
+            first = timings.toServerTiming();
+        }
+        String second;
+        try (ScanTimings timings = ScanTimings.start()) {
+            service.scanBillStructured(image, "bill.png");
+            second = timings.toServerTiming();
+        }
+
+        assertThat(first).contains("decode;dur=", "ocr_text;desc=\"0\"").endsWith("source;desc=\"ocr\"");
+        // Lần hai lấy từ cache: không decode / OCR
+        assertThat(second).doesNotContain("decode;", "ocr;", "ocr_text").endsWith("source;desc=\"cache\"");
+        assertThat(workerPool.getStats().jobCount()).isEqualTo(1);
+    }
+
+    @Test
+    void storeDisabledReturnsNoOcrTextId() throws IOException {
+        // ocr.store.enabled mặc định false: không có handle, client phải gửi lại ocrText
+        BillScanService service = service("eng", false, false, false);
+
+        BillTransactionDTO bill = service.scanBillStructured(png(), "bill.png");
+
+        assertThat(bill).isNotNull();
+        assertThat(bill.getOcrTextId()).isNull();
+    }
+
+    @Test
+    void reparseByStoredHandleEchoesOcrTextId() throws IOException {
+        storeEnabled = true;
+        BillScanService service = service("eng", false, false, false);
+        String ocrTextId = service.scanBillStructured(png(), "bill.png").getOcrTextId();
+        assertThat(ocrTextId).isNotNull();
+
+        BillTransactionDTO reparsed = service.reparse(ReparseRequestDTO.builder().ocrTextId(ocrTextId).build());
+
+        assertThat(reparsed).isNotNull();
+        assertThat(reparsed.getOcrTextId()).isEqualTo(ocrTextId);
+        // Text đã lưu là "pid N": không có field nào
+        assertThat(reparsed.getAccountNumber()).isNull();
+        // Parse lại không chạy OCR
+        assertThat(workerPool.getStats().jobCount()).isEqualTo(1);
+    }
+
+    @Test
+    void reparseTextTakesPrecedenceOverHandle() throws IOException {
+        storeEnabled = true;
+        BillScanService service = service("eng", false, false, false);
+        String ocrTextId = service.scanBillStructured(png(), "bill.png").getOcrTextId();
+
+        BillTransactionDTO reparsed = service.reparse(ReparseRequestDTO.builder()
+            .ocrText("GIAO DỊCH THÀNH CÔNG\n500.000 VND\nSỐ TÀI KHOẢN: 0123456789")
+            .ocrTextId(ocrTextId)
+            .build());
+
+        assertThat(reparsed.getAccountNumber()).isEqualTo("0123456789");
+        assertThat(reparsed.getAmount()).isEqualByComparingTo(new BigDecimal("500000"));
+        // Text do client gửi, không phải text đã lưu → không echo handle
+        assertThat(reparsed.getOcrTextId()).isNull();
+    }
+
+    @Test
+    void reparseUnknownHandleIsNotFound() throws IOException {
+        storeEnabled = true;
+        BillScanService service = service("eng", false, false, false);
+
+        assertThat(service.reparse(ReparseRequestDTO.builder().ocrTextId("0".repeat(64)).build())).isNull();
+        // Blank ocrText không che handle
+        assertThat(service.reparse(ReparseRequestDTO.builder().ocrText("  ").ocrTextId("0".repeat(64)).build()))
+            .isNull();
+        assertThatThrownBy(() -> service.reparse(new ReparseRequestDTO()))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private BillScanService service(String language, boolean tiered, boolean layout, boolean qr) throws IOException {
+        workerPool = workerPool();
+        TesseractEnginePool enginePool = enginePool(language);
+        TesseractEnginePool fastPool = enginePool(language);
+        TesseractOcrService ocr = new TesseractOcrService(enginePool, workerPool);
+
+        KeywordDictionary keywords = new KeywordDictionary(
+            new ObjectMapper(), new ClassPathResource("parser/keywords.json"));
+        BillParser billParser = new BillParser(new SimpleMeterRegistry(), keywords);
+        limiter = new OcrConcurrencyLimiter(2, 1_000);
+        LayoutTemplateRegistry templates = new LayoutTemplateRegistry(
+            new ObjectMapper(), new ClassPathResource("layout/bank-templates.json"));
+
+        return new BillScanService(
+            ocr,
+            billParser,
+            cache,
+            new ScanResultStore(new ObjectMapper(), storeEnabled, storeDir.toString(), 10, DataSize.ofMegabytes(1)),
+            enginePool,
+            executor,
+            new ImagePreprocessingPipeline(List.of(new DownscaleStage(1280), new GrayscaleStage()),
+                true, List.of("downscale", "grayscale")),
+            scanMetrics,
+            limiter,
+            new ScanAdmissionControl(scanMetrics, limiter, false, 0, 15_000, 2_000),
+            new LayoutOcrService(ocr, templates, scanMetrics, enginePool, layout, 0.2),
+            new TieredOcrService(ocr, fastPool, billParser, scanMetrics, tiered, 960, 0.6),
+            new VietQrService(scanMetrics, new ObjectMapper(), qr, false, false,
+                new ClassPathResource("qr/napas-banks.json")),
+            new NearDuplicateIndex(false, 24, 100, 16),
+            new ScanCoalescer(scanMetrics, false),
+            new ImageLimits(40_000_000, 10_000));
+    }
+
+    /**
+     * Pool engine trong JVM không được dùng khi worker bật, chỉ cung cấp language / psm
+     */
+    private static TesseractEnginePool enginePool(String language) {
+        return new TesseractEnginePool(language, 6, 1, 1_000, id -> {
+            throw new IllegalStateException("In-process engine must not be used in worker mode");
+        });
+    }
+
+    private static OcrWorkerPool workerPool() {
+        List<String> command = List.of(
+            Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+            "-cp", System.getProperty("java.class.path"),
+            FakeOcrWorkerMain.class.getName());
+        return new OcrWorkerPool(true, command, ".", 2, 1_000, 30_000, 10_000, 0);
+    }
+
+    /**
+     * Ảnh trắng có VietQR (tài khoản 0123456789, 150000 VND, CRC hợp lệ) ở giữa
+     */
+    private static byte[] qrBill() throws WriterException, IOException {
+        BitMatrix matrix = new QRCodeWriter().encode(VIET_QR, BarcodeFormat.QR_CODE, 400, 400);
+        BufferedImage image = new BufferedImage(800, 1200, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int qx = x - 200;
+                int qy = y - 400;
+                boolean dark = qx >= 0 && qy >= 0 && qx < matrix.getWidth() && qy < matrix.getHeight()
+                    && matrix.get(qx, qy);
+                image.setRGB(x, y, dark ? 0x000000 : 0xFFFFFF);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", out);
+        return out.toByteArray();
+    }
+
+    private static byte[] png() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(400, 600, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,94 @@
+package com.subservice.imagehandle.service;
+
+import com.subservice.imagehandle.dto.BillTransactionDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * FieldConfidence.score: số tách thành nhiều word, word không liền nhau không được ghép, fallback một word chứa giá trị
+ */
+class FieldConfidenceTest {
+
+    @Test
+    void amountInOneWord() {
+        Map<String, Double> scores = FieldConfidence.score(amount("1500000"), words("1,500,000", 0.92));
+
+        assertThat(scores).containsEntry("amount", 0.92);
+    }
+
+    @Test
+    void amountSplitAcrossWordsTakesLowestConfidence() {
+        Map<String, Double> scores = FieldConfidence.score(amount("1500000"),
+            words("Số", 0.95, "tiền:", 0.95, "1,", 0.90, "500,", 0.60, "000", 0.85, "VND", 0.97));
+
+        assertThat(scores).containsEntry("amount", 0.60);
+    }
+
+    @Test
+    void digitsAreNotJoinedAcrossNonDigitWords() {
+        // "1,500" và "000" cách nhau bởi "VND" / "-": không phải số 1500000
+        assertThat(FieldConfidence.score(amount("1500000"), words("1,500", 0.9, "VND", 0.9, "000", 0.9)))
+            .doesNotContainKey("amount");
+        assertThat(FieldConfidence.score(amount("1500000"), words("1,500", 0.9, "-", 0.9, "000", 0.9)))
+            .doesNotContainKey("amount");
+        assertThat(FieldConfidence.score(account("0123456789"), words("0123", 0.9, "chuyển", 0.9, "456789", 0.9)))
+            .doesNotContainKey("accountNumber");
+    }
+
+    @Test
+    void fallbackMatchesWholeNumberInsideWord() {
+        Map<String, Double> scores = FieldConfidence.score(account("0123456789"), words("STK:0123456789/VCB", 0.8));
+        assertThat(scores).containsEntry("accountNumber", 0.8);
+
+        scores = FieldConfidence.score(amount("500000"), words("30/09/2024-500.000đ", 0.7));
+        assertThat(scores).containsEntry("amount", 0.7);
+    }
+
+    @Test
+    void fallbackDoesNotMatchPartOfLongerNumber() {
+        assertThat(FieldConfidence.score(account("0123456789"), words("90123456789012", 0.9)))
+            .doesNotContainKey("accountNumber");
+        assertThat(FieldConfidence.score(amount("500000"), words("1.500.000", 0.9)))
+            .doesNotContainKey("amount");
+    }
+
+    @Test
+    void textFieldSplitAcrossWords() {
+        BillTransactionDTO bill = BillTransactionDTO.builder().recipientName("NGUYỄN VĂN A").build();
+
+        Map<String, Double> scores = FieldConfidence.score(bill,
+            words("Người", 0.9, "nhận:", 0.9, "NGUYỄN", 0.75, "VĂN", 0.88, "A", 0.93));
+
+        assertThat(scores).containsEntry("recipientName", 0.75);
+    }
+
+    @Test
+    void noWordsNoScores() {
+        assertThat(FieldConfidence.score(amount("1500000"), List.of())).isEmpty();
+    }
+
+    private static BillTransactionDTO amount(String value) {
+        return BillTransactionDTO.builder().amount(new BigDecimal(value)).build();
+    }
+
+    private static BillTransactionDTO account(String value) {
+        return BillTransactionDTO.builder().accountNumber(value).build();
+    }
+
+    /**
+     * Các word trên một dòng theo thứ tự: text, confidence, text, confidence, ...
+     */
+    private static List<OcrWord> words(Object... textAndConfidence) {
+        List<OcrWord> words = new ArrayList<>();
+        for (int i = 0; i < textAndConfidence.length; i += 2) {
+            words.add(new OcrWord((String) textAndConfidence[i], i * 40, 0, 40, 20, (Double) textAndConfidence[i + 1]));
+        }
+        return words;
+    }
+}
@@ -0,0 +1,89 @@
+package com.subservice.imagehandle.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * KeywordAutomaton: match chồng lấn, không phân biệt hoa thường, ký tự ngoài bảng chữ cái
+ */
+class KeywordAutomatonTest {
+
+    private static List<String> scan(KeywordAutomaton automaton, List<String> keywords, String text) {
+        List<String> matches = new ArrayList<>();
+        automaton.scan(text, (id, start, end) -> matches.add(keywords.get(id) + "[" + start + "," + end + ")"));
+        return matches;
+    }
+
+    @Test
+    void findsOverlappingMatchesInEndOrder() {
+        List<String> keywords = List.of("he", "she", "his", "hers");
+        KeywordAutomaton automaton = new KeywordAutomaton(keywords);
+
+        assertThat(scan(automaton, keywords, "ushers"))
+            .containsExactly("she[1,4)", "he[2,4)", "hers[2,6)");
+    }
+
+    @Test
+    void matchingIgnoresAsciiCase() {
+        List<String> keywords = List.of("thanh", "cong");
+        KeywordAutomaton automaton = new KeywordAutomaton(List.of("THANH", "Cong"));
+
+        assertThat(scan(automaton, keywords, "Giao dich ThAnH CONG"))
+            .containsExactly("thanh[10,15)", "cong[16,20)");
+    }
+
+    @Test
+    void charactersOutsideAlphabetResetState() {
+        List<String> keywords = List.of("stk");
+        KeywordAutomaton automaton = new KeywordAutomaton(keywords);
+
+        // dấu cách, dấu câu, ký tự có dấu (ngoài ASCII) đều cắt match
+        assertThat(scan(automaton, keywords, "st k, s-tk, sţk, stk:")).containsExactly("stk[17,20)");
+    }
+
+    @Test
+    void agreesWithNaiveSearch() {
+        List<String> keywords = List.of("a", "ab", "bab", "bc", "bca", "c", "caa", "abcab");
+        KeywordAutomaton automaton = new KeywordAutomaton(keywords);
+        Random random = new Random(42);
+
+        for (int round = 0; round < 200; round++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < 40; i++) {
+                text.append("abcAB d".charAt(random.nextInt(7)));
+            }
+            String lower = text.toString().toLowerCase(Locale.ROOT);
+
+            List<String> expected = new ArrayList<>();
+            for (int end = 1; end <= lower.length(); end++) {
+                for (String keyword : keywords) {
+                    int start = end - keyword.length();
+                    if (start >= 0 && lower.startsWith(keyword, start)) {
+                        expected.add(keyword + "[" + start + "," + end + ")");
+                    }
+                }
+            }
+
+            assertThat(scan(automaton, keywords, text.toString()))
+                .as(text.toString())
+                .containsExactlyInAnyOrderElementsOf(expected);
+        }
+    }
+
+    @Test
+    void rejectsNonAsciiOrEmptyKeywords() {
+        assertThatThrownBy(() -> new KeywordAutomaton(List.of("thành")))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new KeywordAutomaton(List.of("so tien")))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new KeywordAutomaton(List.of("stk", "")))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+}
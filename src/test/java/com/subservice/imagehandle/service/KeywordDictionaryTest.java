@@ -0,0 +1,131 @@
+package com.subservice.imagehandle.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * KeywordDictionary trên parser/keywords.json cho kết quả giống cách match cũ của BillParser:
+ * regex alternation cho ngân hàng, String.contains / equals cho stopword, String.startsWith cho họ
+ */
+class KeywordDictionaryTest {
+
+    // Ký tự sinh text ngẫu nhiên: chữ có trong keyword, hoa / thường, chữ có dấu, số, dấu câu
+    private static final String ALPHABET = "ABCDEGHIKLMNOPQRSTUVYabcdeghiklmnoptuvy0123 .:-đệÀ";
+
+    private KeywordDictionary dictionary;
+    private KeywordDictionary.Entries entries;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        ClassPathResource resource = new ClassPathResource("parser/keywords.json");
+        dictionary = new KeywordDictionary(objectMapper, resource);
+        try (InputStream in = resource.getInputStream()) {
+            entries = objectMapper.readValue(in, KeywordDictionary.Entries.class);
+        }
+    }
+
+    @Test
+    void firstBankAgreesWithRegexAlternation() {
+        Pattern bankPattern = Pattern.compile("(" + String.join("|", entries.banks()) + ")", Pattern.CASE_INSENSITIVE);
+        Random random = new Random(7);
+
+        for (int round = 0; round < 5_000; round++) {
+            String text = randomText(random, entries.banks());
+
+            Matcher matcher = bankPattern.matcher(text);
+            String expected = matcher.find() ? matcher.group(1) : null;
+            int[] match = dictionary.scan(text).first(KeywordDictionary.BANK);
+            String actual = match != null ? text.substring(match[0], match[1]) : null;
+
+            assertThat(actual).as(text).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void stopwordsAgreeWithContainsAndEquals() {
+        Random random = new Random(11);
+        List<String> keywords = new ArrayList<>(entries.stopwords());
+        keywords.addAll(entries.exactStopwords());
+        keywords.addAll(entries.bankWords());
+
+        for (int round = 0; round < 2_000; round++) {
+            String text = randomText(random, keywords).toUpperCase(Locale.ROOT);
+            KeywordDictionary.Hits hits = dictionary.scan(text);
+
+            for (int check = 0; check < 20; check++) {
+                int start = random.nextInt(text.length());
+                int end = start + 1 + random.nextInt(text.length() - start);
+                String region = text.substring(start, end);
+
+                assertThat(hits.contains(KeywordDictionary.STOPWORD, start, end))
+                    .as("stopword in '%s'", region)
+                    .isEqualTo(entries.stopwords().stream().anyMatch(region::contains));
+                assertThat(hits.contains(KeywordDictionary.BANK_WORD, start, end))
+                    .as("bank word in '%s'", region)
+                    .isEqualTo(entries.bankWords().stream().anyMatch(region::contains));
+                assertThat(hits.matches(KeywordDictionary.EXACT_STOPWORD, start, end))
+                    .as("exact stopword '%s'", region)
+                    .isEqualTo(entries.exactStopwords().contains(region));
+            }
+        }
+    }
+
+    @Test
+    void surnamesAgreeWithStartsWithInDictionaryOrder() {
+        Random random = new Random(13);
+
+        for (int round = 0; round < 2_000; round++) {
+            String text = randomText(random, entries.surnames()).toUpperCase(Locale.ROOT);
+            KeywordDictionary.Hits hits = dictionary.scan(text);
+
+            for (int check = 0; check < 20; check++) {
+                int start = random.nextInt(text.length());
+                int end = start + 1 + random.nextInt(text.length() - start);
+                String region = text.substring(start, end);
+
+                List<String> expected = entries.surnames().stream().filter(region::startsWith).toList();
+                assertThat(hits.surnamesAt(start, end)).as(region).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    void firstBankPrefersLongestAtSamePosition() {
+        String text = "Chuyển qua MBBank - NH TMCP Quân Đội";
+
+        int[] match = dictionary.scan(text).first(KeywordDictionary.BANK);
+
+        assertThat(text.substring(match[0], match[1])).isEqualTo("MBBank");
+    }
+
+    /**
+     * Text 1-60 ký tự ghép từ keyword (đổi hoa thường ngẫu nhiên) và ký tự ngẫu nhiên
+     */
+    private static String randomText(Random random, List<String> keywords) {
+        StringBuilder text = new StringBuilder();
+        int length = 1 + random.nextInt(60);
+        while (text.length() < length) {
+            if (random.nextInt(3) == 0) {
+                String keyword = keywords.get(random.nextInt(keywords.size()));
+                text.append(random.nextBoolean() ? keyword.toUpperCase(Locale.ROOT) : keyword.toLowerCase(Locale.ROOT));
+            } else {
+                text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,74 @@
+package com.subservice.imagehandle.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.Normalizer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * NormalizedText: gộp khoảng trắng, bỏ dấu, map vị trí folded → text gốc
+ */
+class NormalizedTextTest {
+
+    @Test
+    void collapsesWhitespaceAndFoldsDiacritics() {
+        NormalizedText normalized = NormalizedText.of("  Giao  dịch\n\tTHÀNH CÔNG \r\n");
+
+        assertThat(normalized.text()).isEqualTo("Giao dịch THÀNH CÔNG");
+        assertThat(normalized.folded()).isEqualTo("giao dich thanh cong");
+    }
+
+    @Test
+    void foldsDStrokeBothCases() {
+        assertThat(NormalizedText.of("Đồng đô").folded()).isEqualTo("dong do");
+    }
+
+    @Test
+    void precomposedTextKeepsOneToOneOffsets() {
+        NormalizedText normalized = NormalizedText.of("Người nhận: TRẦN THỊ MAI");
+        String folded = normalized.folded();
+        int start = folded.indexOf("tran");
+
+        assertThat(folded).isEqualTo("nguoi nhan: tran thi mai");
+        assertThat(normalized.original(start, folded.length())).isEqualTo("TRẦN THỊ MAI");
+    }
+
+    @Test
+    void decomposedDiacriticsMapBackToOriginalCharacters() {
+        // OCR hay trả về dấu kết hợp rời (NFD): "ị" = "i" + U+0323
+        String raw = Normalizer.normalize("Nguyễn Văn Đạt chuyển tiền", Normalizer.Form.NFD);
+        NormalizedText normalized = NormalizedText.of(raw);
+        String folded = normalized.folded();
+
+        assertThat(folded).isEqualTo("nguyen van dat chuyen tien");
+        assertThat(folded.length()).isLessThan(normalized.text().length());
+
+        int start = folded.indexOf("van");
+        assertThat(normalized.original(start, start + 3))
+            .isEqualTo(Normalizer.normalize("Văn", Normalizer.Form.NFD));
+        int dat = folded.indexOf("dat");
+        assertThat(normalized.original(dat, dat + 3))
+            .isEqualTo(Normalizer.normalize("Đạt", Normalizer.Form.NFD));
+        assertThat(normalized.original(0, folded.length())).isEqualTo(normalized.text());
+    }
+
+    @Test
+    void combiningMarksStayWithThePrecedingLetter() {
+        String raw = Normalizer.normalize("dịch", Normalizer.Form.NFD);
+        NormalizedText normalized = NormalizedText.of(raw);
+
+        // match "di" kết thúc ngay trước "c" → lấy cả dấu nặng của "i"
+        assertThat(normalized.original(0, 2)).isEqualTo(Normalizer.normalize("dị", Normalizer.Form.NFD));
+        assertThat(normalized.original(2, 4)).isEqualTo("ch");
+    }
+
+    @Test
+    void emptyAndWhitespaceOnlyText() {
+        NormalizedText normalized = NormalizedText.of(" \n\t ");
+
+        assertThat(normalized.text()).isEmpty();
+        assertThat(normalized.folded()).isEmpty();
+        assertThat(normalized.original(0, 0)).isEmpty();
+    }
+}
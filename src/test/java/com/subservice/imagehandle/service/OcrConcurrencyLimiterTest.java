@@ -0,0 +1,84 @@
+package com.subservice.imagehandle.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * OcrConcurrencyLimiter: hết thời gian chờ slot, trả slot khi task lỗi, số task chạy / chờ, EWMA thời gian giữ slot
+ */
+class OcrConcurrencyLimiterTest {
+
+    @Test
+    void acquireTimesOutWhenAllSlotsAreHeld() {
+        OcrConcurrencyLimiter limiter = new OcrConcurrencyLimiter(1, 50);
+        limiter.acquire();
+
+        assertThatThrownBy(limiter::acquire)
+            .isInstanceOf(TesseractEnginePool.EngineUnavailableException.class)
+            .hasMessageContaining("50ms");
+        assertThat(limiter.getStats().rejectedCount()).isEqualTo(1);
+        assertThat(limiter.getRunning()).isEqualTo(1);
+    }
+
+    @Test
+    void slotIsReleasedWhenTaskFails() {
+        OcrConcurrencyLimiter limiter = new OcrConcurrencyLimiter(1, 50);
+
+        assertThatThrownBy(() -> {
+            long acquiredAt = limiter.acquire();
+            try {
+                throw new IllegalStateException("OCR failed");
+            } finally {
+                limiter.release(acquiredAt);
+            }
+        }).isInstanceOf(IllegalStateException.class);
+
+        assertThat(limiter.getRunning()).isZero();
+        limiter.acquire();
+        assertThat(limiter.getRunning()).isEqualTo(1);
+    }
+
+    @Test
+    void waitingTaskIsCountedUntilSlotIsFree() throws Exception {
+        OcrConcurrencyLimiter limiter = new OcrConcurrencyLimiter(1, 5_000);
+        long held = limiter.acquire();
+
+        CompletableFuture<Long> waiter = CompletableFuture.supplyAsync(limiter::acquire);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (limiter.getWaiting() < 1) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+        assertThat(limiter.getRunning()).isEqualTo(1);
+
+        limiter.release(held);
+        limiter.release(waiter.get(5, TimeUnit.SECONDS));
+
+        assertThat(limiter.getWaiting()).isZero();
+        assertThat(limiter.getRunning()).isZero();
+        assertThat(limiter.getStats().acquiredCount()).isEqualTo(2);
+    }
+
+    @Test
+    void holdTimeIsExponentiallyWeighted() {
+        OcrConcurrencyLimiter limiter = new OcrConcurrencyLimiter(1, 50);
+        assertThat(limiter.getAvgHoldMs()).isEmpty();
+
+        // Mẫu đầu lấy nguyên giá trị, mẫu sau: avg + 0.2 * (hold - avg)
+        limiter.release(limiter.acquire() - TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(limiter.getAvgHoldMs().orElseThrow()).isCloseTo(100, within(5.0));
+
+        limiter.release(limiter.acquire() - TimeUnit.MILLISECONDS.toNanos(200));
+        assertThat(limiter.getAvgHoldMs().orElseThrow()).isCloseTo(120, within(5.0));
+
+        limiter.release(limiter.acquire() - TimeUnit.MILLISECONDS.toNanos(20));
+        assertThat(limiter.getAvgHoldMs().orElseThrow()).isCloseTo(100, within(5.0));
+        assertThat(limiter.getStats().avgHoldMs()).isCloseTo(100, within(5.0));
+    }
+}
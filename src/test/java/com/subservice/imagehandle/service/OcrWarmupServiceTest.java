@@ -0,0 +1,172 @@
+package com.subservice.imagehandle.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.subservice.imagehandle.actuator.OcrWarmupHealthIndicator;
+import com.subservice.imagehandle.preprocess.GrayscaleStage;
+import com.subservice.imagehandle.preprocess.ImagePreprocessingPipeline;
+import com.subservice.imagehandle.worker.OcrWorkerPool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.core.io.ClassPathResource;
+
+import java.awt.image.RenderedImage;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * OcrWarmupService.warmUp với engine giả (không load native library) và trạng thái
+ * tương ứng của health indicator "ocrWarmup"
+ */
+class OcrWarmupServiceTest {
+
+    private final OcrWorkerPool disabledWorkers = new OcrWorkerPool(false, List.of(), ".", 1, 1_000, 1_000, 1_000, 0);
+
+    @Test
+    void pendingIsOutOfService() {
+        OcrWarmupService service = service(pool(2, id -> new StubEngine(id, null)), true);
+
+        assertThat(service.getState().status()).isEqualTo(OcrWarmupService.Status.PENDING);
+        assertThat(health(service).getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+    }
+
+    @Test
+    void warmingIsOutOfService() throws Exception {
+        CountDownLatch recognizing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        OcrWarmupService service = service(pool(1, id -> new StubEngine(id, null) {
+            @Override
+            public PageResult recognize(RenderedImage image) {
+                recognizing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new PageResult("", List.of());
+            }
+        }), true);
+
+        CompletableFuture<Void> warmUp = CompletableFuture.runAsync(service::warmUp);
+        assertThat(recognizing.await(5, TimeUnit.SECONDS)).isTrue();
+        try {
+            assertThat(service.getState().status()).isEqualTo(OcrWarmupService.Status.WARMING);
+            assertThat(health(service).getStatus()).isEqualTo(Status.OUT_OF_SERVICE);
+        } finally {
+            release.countDown();
+        }
+        warmUp.get(5, TimeUnit.SECONDS);
+
+        assertThat(health(service).getStatus()).isEqualTo(Status.UP);
+    }
+
+    @Test
+    void allEnginesWarmedIsUp() {
+        TesseractEnginePool pool = pool(2, id -> new StubEngine(id, null));
+        OcrWarmupService service = service(pool, true);
+
+        service.warmUp();
+
+        OcrWarmupService.WarmupState state = service.getState();
+        assertThat(state.status()).isEqualTo(OcrWarmupService.Status.READY);
+        assertThat(state.enginesWarmed()).isEqualTo(2);
+        assertThat(pool.getStats().idle()).isEqualTo(2);
+        Health health = health(service);
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails()).containsEntry("enginesWarmed", 2).doesNotContainKey("error");
+    }
+
+    @Test
+    void partialWarmUpIsFailed() {
+        // Engine #2 lỗi khi OCR ảnh mẫu: 1 / 2 engine warm → FAILED, engine lỗi bị bỏ
+        TesseractEnginePool pool = pool(2, id -> new StubEngine(id, id == 2 ? "Invalid memory access" : null));
+        OcrWarmupService service = service(pool, true);
+
+        service.warmUp();
+
+        OcrWarmupService.WarmupState state = service.getState();
+        assertThat(state.status()).isEqualTo(OcrWarmupService.Status.FAILED);
+        assertThat(state.enginesWarmed()).isEqualTo(1);
+        assertThat(state.error()).isEqualTo("Only 1 of 2 OCR engines warmed up");
+        assertThat(pool.getStats().invalidatedCount()).isEqualTo(1);
+        Health health = health(service);
+        assertThat(health.getStatus()).isEqualTo(Status.DOWN);
+        assertThat(health.getDetails()).containsEntry("error", "Only 1 of 2 OCR engines warmed up");
+    }
+
+    @Test
+    void engineInitFailureIsFailed() {
+        OcrWarmupService service = service(pool(1, id -> {
+            throw new UnsatisfiedLinkError("libtesseract.so: cannot open shared object file");
+        }), true);
+
+        service.warmUp();
+
+        assertThat(service.getState().status()).isEqualTo(OcrWarmupService.Status.FAILED);
+        assertThat(service.getState().error()).startsWith("UnsatisfiedLinkError: libtesseract.so");
+        assertThat(health(service).getStatus()).isEqualTo(Status.DOWN);
+    }
+
+    @Test
+    void failureNotRequiredStaysUp() {
+        OcrWarmupService service = service(pool(1, id -> new StubEngine(id, "Invalid memory access")), false);
+
+        service.warmUp();
+
+        assertThat(service.getState().status()).isEqualTo(OcrWarmupService.Status.FAILED);
+        Health health = health(service);
+        assertThat(health.getStatus()).isEqualTo(Status.UP);
+        assertThat(health.getDetails()).containsEntry("error", "Only 0 of 1 OCR engines warmed up");
+    }
+
+    private OcrWarmupService service(TesseractEnginePool pool, boolean required) {
+        KeywordDictionary keywords = new KeywordDictionary(
+            new ObjectMapper(), new ClassPathResource("parser/keywords.json"));
+        TesseractOcrService ocr = new TesseractOcrService(pool, disabledWorkers);
+        // Tiered OCR tắt: pool fast pass không được warm-up
+        TieredOcrService tiered = new TieredOcrService(ocr, pool(1, id -> {
+            throw new IllegalStateException("Fast pass pool must not be used when tiered OCR is disabled");
+        }), new BillParser(new SimpleMeterRegistry(), keywords),
+            new ScanMetrics(new SimpleMeterRegistry()), false, 960, 0.6);
+        ImagePreprocessingPipeline pipeline = new ImagePreprocessingPipeline(
+            List.of(new GrayscaleStage()), true, List.of("grayscale"));
+        return new OcrWarmupService(pool, disabledWorkers, tiered, pipeline, true, required);
+    }
+
+    private static Health health(OcrWarmupService service) {
+        return new OcrWarmupHealthIndicator(service).health();
+    }
+
+    private static TesseractEnginePool pool(int size, TesseractEnginePool.EngineFactory factory) {
+        return new TesseractEnginePool("vie", 6, size, 1_000, factory);
+    }
+
+    /**
+     * Engine giả: failure != null → recognize ném RuntimeException như lỗi JNA
+     */
+    private static class StubEngine extends TesseractEngine {
+        private final String failure;
+
+        StubEngine(int id, String failure) {
+            super(id, "unused", "vie", 6);
+            this.failure = failure;
+        }
+
+        @Override
+        public PageResult recognize(RenderedImage image) {
+            if (failure != null) {
+                throw new IllegalStateException(failure);
+            }
+            return new PageResult("Giao dịch thành công", List.of());
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
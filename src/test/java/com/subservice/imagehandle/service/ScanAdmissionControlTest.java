@@ -0,0 +1,118 @@
+package com.subservice.imagehandle.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * ScanAdmissionControl: từ chối theo độ sâu hàng chờ / thời gian chờ dự đoán, giữ chỗ cho scan đã nhận
+ *
+ * Mỗi request được admit trên một thread riêng như request HTTP thật (chỗ giữ gắn với thread)
+ */
+class ScanAdmissionControlTest {
+
+    private final OcrConcurrencyLimiter limiter = new OcrConcurrencyLimiter(1, 1_000);
+
+    private ScanAdmissionControl admission(int maxQueueDepth, long maxPredictedWaitMs) {
+        return new ScanAdmissionControl(
+            new ScanMetrics(new SimpleMeterRegistry()), limiter, true, maxQueueDepth, maxPredictedWaitMs, 2_000);
+    }
+
+    @Test
+    void rejectsWhenQueueDepthIsExceeded() throws InterruptedException {
+        ScanAdmissionControl admission = admission(2, 100_000);
+
+        // Chưa scan nào tới limiter: vẫn tính vào hàng chờ
+        assertThat(onNewThread(admission::admit)).isNull();
+        assertThat(onNewThread(admission::admit)).isNull();
+        assertThat(onNewThread(admission::admit)).isNull();
+
+        assertThat(onNewThread(admission::admit))
+            .isInstanceOf(ScanAdmissionControl.OverloadedException.class);
+        ScanAdmissionControl.AdmissionStats stats = admission.getStats();
+        assertThat(stats.pending()).isEqualTo(3);
+        assertThat(stats.admittedCount()).isEqualTo(3);
+        assertThat(stats.rejectedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsWhenPredictedWaitIsExceeded() throws InterruptedException {
+        ScanAdmissionControl admission = admission(100, 5_000);
+
+        // Dự đoán 0, 2000, 4000ms
+        assertThat(onNewThread(admission::admit)).isNull();
+        assertThat(onNewThread(admission::admit)).isNull();
+        assertThat(onNewThread(admission::admit)).isNull();
+
+        // 3 scan phải chờ × 2000ms > 5000ms
+        Throwable rejected = onNewThread(admission::admit);
+        assertThat(rejected).isInstanceOf(ScanAdmissionControl.OverloadedException.class);
+        assertThat(((ScanAdmissionControl.OverloadedException) rejected).getRetryAfterSeconds()).isEqualTo(6);
+    }
+
+    @Test
+    void finishReleasesReservation() throws InterruptedException {
+        ScanAdmissionControl admission = admission(0, 100_000);
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(onNewThread(() -> {
+                admission.admit();
+                admission.finish();
+            })).isNull();
+        }
+
+        assertThat(admission.getStats().pending()).isZero();
+        assertThat(admission.getStats().admittedCount()).isEqualTo(10);
+    }
+
+    @Test
+    void reservationMovesToLimiterWhenOcrIsQueued() throws InterruptedException {
+        ScanAdmissionControl admission = admission(0, 100_000);
+        AtomicReference<Integer> pendingWhileRunning = new AtomicReference<>();
+
+        assertThat(onNewThread(() -> {
+            admission.admit();
+            admission.ocrQueued();
+            long acquiredAt = limiter.acquire();
+            pendingWhileRunning.set(admission.getStats().pending());
+            admission.finish();
+            limiter.release(acquiredAt);
+        })).isNull();
+
+        // Không bị đếm hai lần (pending + running) và finish sau đó không trả thêm
+        assertThat(pendingWhileRunning.get()).isZero();
+        assertThat(admission.getStats().pending()).isZero();
+    }
+
+    @Test
+    void disabledAdmissionNeverRejects() throws InterruptedException {
+        ScanAdmissionControl admission = new ScanAdmissionControl(
+            new ScanMetrics(new SimpleMeterRegistry()), limiter, false, 1, 1, 2_000);
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(onNewThread(admission::admit)).isNull();
+        }
+        assertThat(admission.getStats().pending()).isZero();
+    }
+
+    /**
+     * Chạy task trên thread mới, trả về exception (null nếu thành công)
+     */
+    private static Throwable onNewThread(Runnable task) throws InterruptedException {
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread thread = new Thread(() -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        });
+        thread.start();
+        thread.join();
+        return error.get();
+    }
+}
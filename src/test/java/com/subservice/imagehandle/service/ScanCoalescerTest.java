@@ -0,0 +1,191 @@
+package com.subservice.imagehandle.service;
+
+import com.subservice.imagehandle.dto.BillTransactionDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * ScanCoalescer với task chặn bằng latch: request trùng key tới trong lúc leader đang chạy
+ */
+class ScanCoalescerTest {
+
+    private static final int FOLLOWERS = 4;
+
+    private final ScanCoalescer coalescer = new ScanCoalescer(new ScanMetrics(new SimpleMeterRegistry()), true);
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentIdenticalScansRunTaskOnce() throws Exception {
+        BillTransactionDTO bill = bill();
+        ScanCoalescer.ScanTask task = gated(() -> bill);
+
+        Future<BillTransactionDTO> leader = executor.submit(() -> coalescer.execute("key", task));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        List<Future<BillTransactionDTO>> followers = submitFollowers("key", task);
+        awaitCoalesced(FOLLOWERS);
+
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isSameAs(bill);
+        for (Future<BillTransactionDTO> follower : followers) {
+            BillTransactionDTO result = follower.get(5, TimeUnit.SECONDS);
+            assertThat(result.getAmount()).isEqualByComparingTo("500000");
+            // Mỗi request nhận bản copy riêng
+            assertThat(result).isNotSameAs(bill);
+        }
+        assertThat(runs.get()).isEqualTo(1);
+        ScanCoalescer.CoalescingStats stats = coalescer.getStats();
+        assertThat(stats.leaderCount()).isEqualTo(1);
+        assertThat(stats.coalescedCount()).isEqualTo(FOLLOWERS);
+        assertThat(stats.inFlight()).isZero();
+    }
+
+    @Test
+    void followersGetLeadersExceptionAndEntryIsRemoved() throws Exception {
+        IOException failure = new IOException("Cannot decode image");
+        ScanCoalescer.ScanTask task = gated(() -> {
+            throw failure;
+        });
+
+        Future<BillTransactionDTO> leader = executor.submit(() -> coalescer.execute("key", task));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        List<Future<BillTransactionDTO>> followers = submitFollowers("key", task);
+        awaitCoalesced(FOLLOWERS);
+
+        release.countDown();
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS))
+            .isInstanceOf(ExecutionException.class)
+            .hasCause(failure);
+        for (Future<BillTransactionDTO> follower : followers) {
+            assertThatThrownBy(() -> follower.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .cause().isSameAs(failure);
+        }
+        assertThat(runs.get()).isEqualTo(1);
+        assertThat(coalescer.getStats().inFlight()).isZero();
+
+        // Scan sau lỗi chạy lại task thay vì nhận lại lỗi cũ
+        BillTransactionDTO retried = coalescer.execute("key", this::bill);
+        assertThat(retried.getAmount()).isEqualByComparingTo("500000");
+        assertThat(coalescer.getStats().leaderCount()).isEqualTo(2);
+    }
+
+    @Test
+    void differentKeysDoNotWaitForEachOther() throws Exception {
+        ScanCoalescer.ScanTask task = gated(this::bill);
+
+        Future<BillTransactionDTO> blocked = executor.submit(() -> coalescer.execute("a", task));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        BillTransactionDTO other = coalescer.execute("b", this::bill);
+
+        assertThat(other).isNotNull();
+        assertThat(coalescer.getStats().coalescedCount()).isZero();
+        release.countDown();
+        assertThat(blocked.get(5, TimeUnit.SECONDS)).isNotNull();
+    }
+
+    @Test
+    void nullResultIsSharedAsNull() throws Exception {
+        ScanCoalescer.ScanTask task = gated(() -> null);
+
+        Future<BillTransactionDTO> leader = executor.submit(() -> coalescer.execute("key", task));
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        List<Future<BillTransactionDTO>> followers = submitFollowers("key", task);
+        awaitCoalesced(FOLLOWERS);
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isNull();
+        for (Future<BillTransactionDTO> follower : followers) {
+            assertThat(follower.get(5, TimeUnit.SECONDS)).isNull();
+        }
+        assertThat(runs.get()).isEqualTo(1);
+    }
+
+    @Test
+    void disabledCoalescerRunsEveryTask() throws IOException {
+        ScanCoalescer disabled = new ScanCoalescer(new ScanMetrics(new SimpleMeterRegistry()), false);
+
+        disabled.execute("key", () -> {
+            runs.incrementAndGet();
+            return bill();
+        });
+        disabled.execute("key", () -> {
+            runs.incrementAndGet();
+            return bill();
+        });
+
+        assertThat(runs.get()).isEqualTo(2);
+    }
+
+    /**
+     * Task báo đã bắt đầu rồi chờ release trước khi trả kết quả
+     */
+    private ScanCoalescer.ScanTask gated(ScanCoalescer.ScanTask result) {
+        return () -> {
+            runs.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            return result.run();
+        };
+    }
+
+    private List<Future<BillTransactionDTO>> submitFollowers(String key, ScanCoalescer.ScanTask task) {
+        List<Future<BillTransactionDTO>> followers = new ArrayList<>();
+        for (int i = 0; i < FOLLOWERS; i++) {
+            followers.add(executor.submit(() -> coalescer.execute(key, task)));
+        }
+        return followers;
+    }
+
+    /**
+     * Chờ các follower đã thấy scan đang chạy (coalescedCount tăng trước khi chờ kết quả)
+     */
+    private void awaitCoalesced(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalescer.getStats().coalescedCount() < count) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Followers did not join the in-flight scan");
+            }
+            Thread.sleep(5);
+        }
+    }
+
+    private BillTransactionDTO bill() {
+        return BillTransactionDTO.builder()
+            .amount(new BigDecimal("500000"))
+            .accountNumber("0071000123456")
+            .build();
+    }
+}
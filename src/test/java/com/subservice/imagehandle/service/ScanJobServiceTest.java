@@ -0,0 +1,254 @@
+package com.subservice.imagehandle.service;
+
+import com.subservice.imagehandle.dto.BillTransactionDTO;
+import com.subservice.imagehandle.dto.ScanJobDTO;
+import com.subservice.imagehandle.worker.OcrWorkerPool;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * ScanJobService với BillScanService giả: chuyển trạng thái QUEUED → RUNNING → COMPLETED / FAILED,
+ * queue đầy, callback lỗi không làm hỏng job
+ */
+class ScanJobServiceTest {
+
+    private static final byte[] IMAGE = {1, 2, 3};
+
+    private final BillScanService billScanService = mock(BillScanService.class);
+    private ScanJobService service;
+    private HttpServer callbackServer;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+        if (callbackServer != null) {
+            callbackServer.stop(0);
+        }
+    }
+
+    @Test
+    void jobGoesThroughQueuedRunningCompleted() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(billScanService.scanBillStructured(any(), anyString())).thenAnswer(invocation -> {
+            release.await();
+            return bill();
+        });
+        service = service(1, 10, "");
+
+        // Job đầu giữ worker duy nhất → job sau nằm trong queue
+        service.submit(IMAGE, "first.png");
+        ScanJobDTO submitted = service.submit(IMAGE, "bill.png");
+        awaitQueued(1);
+        ScanJobDTO queued = service.getJob(submitted.getJobId());
+        assertThat(queued.getStatus()).isEqualTo(ScanJobDTO.Status.QUEUED);
+        assertThat(queued.getSubmittedAt()).isNotNull();
+        assertThat(queued.getStartedAt()).isNull();
+
+        release.countDown();
+        ScanJobDTO completed = awaitFinished(submitted.getJobId());
+        assertThat(completed.getStatus()).isEqualTo(ScanJobDTO.Status.COMPLETED);
+        assertThat(completed.getResult().getAmount()).isEqualByComparingTo("500000");
+        assertThat(completed.getError()).isNull();
+        assertThat(completed.getStartedAt()).isNotNull();
+        assertThat(completed.getCompletedAt()).isNotNull();
+    }
+
+    @Test
+    void runningJobHasStartTime() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(billScanService.scanBillStructured(any(), anyString())).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return bill();
+        });
+        service = service(1, 10, "");
+
+        ScanJobDTO submitted = service.submit(IMAGE, "bill.png");
+
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+        ScanJobDTO running = service.getJob(submitted.getJobId());
+        assertThat(running.getStatus()).isEqualTo(ScanJobDTO.Status.RUNNING);
+        assertThat(running.getStartedAt()).isNotNull();
+        assertThat(running.getCompletedAt()).isNull();
+
+        release.countDown();
+        assertThat(awaitFinished(submitted.getJobId()).getStatus()).isEqualTo(ScanJobDTO.Status.COMPLETED);
+    }
+
+    @Test
+    void failedScanMarksJobFailed() throws Exception {
+        when(billScanService.scanBillStructured(any(), anyString())).thenThrow(new IOException("disk error"));
+        service = service(1, 10, "");
+
+        ScanJobDTO job = awaitFinished(service.submit(IMAGE, "bill.png").getJobId());
+
+        assertThat(job.getStatus()).isEqualTo(ScanJobDTO.Status.FAILED);
+        // Không lộ lỗi nội bộ ra client
+        assertThat(job.getError()).isEqualTo("Failed to process file");
+        assertThat(job.getResult()).isNull();
+        assertThat(job.getCompletedAt()).isNotNull();
+    }
+
+    @Test
+    void invalidImageAndEmptyTextFailWithReason() throws Exception {
+        when(billScanService.scanBillStructured(any(), anyString()))
+            .thenThrow(new IllegalArgumentException("Unsupported image format"))
+            .thenReturn(null);
+        service = service(1, 10, "");
+
+        ScanJobDTO invalid = awaitFinished(service.submit(IMAGE, "a.png").getJobId());
+        ScanJobDTO empty = awaitFinished(service.submit(IMAGE, "b.png").getJobId());
+
+        assertThat(invalid.getStatus()).isEqualTo(ScanJobDTO.Status.FAILED);
+        assertThat(invalid.getError()).isEqualTo("Unsupported image format");
+        assertThat(empty.getStatus()).isEqualTo(ScanJobDTO.Status.FAILED);
+        assertThat(empty.getError()).isEqualTo("No text recognized in image");
+    }
+
+    @Test
+    void workerFailureUsesClientMessage() throws Exception {
+        when(billScanService.scanBillStructured(any(), anyString()))
+            .thenThrow(new OcrWorkerPool.WorkerException(OcrWorkerPool.Failure.CRASHED, "OCR worker #1 died"));
+        service = service(1, 10, "");
+
+        ScanJobDTO job = awaitFinished(service.submit(IMAGE, "bill.png").getJobId());
+
+        assertThat(job.getStatus()).isEqualTo(ScanJobDTO.Status.FAILED);
+        assertThat(job.getError()).isEqualTo("OCR worker crashed while processing the image");
+    }
+
+    @Test
+    void fullQueueRejectsAndForgetsJob() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(billScanService.scanBillStructured(any(), anyString())).thenAnswer(invocation -> {
+            release.await();
+            return bill();
+        });
+        service = service(1, 1, "");
+
+        service.submit(IMAGE, "running.png");
+        service.submit(IMAGE, "queued.png");
+        awaitQueued(1);
+
+        assertThatThrownBy(() -> service.submit(IMAGE, "rejected.png"))
+            .isInstanceOf(ScanJobService.QueueFullException.class);
+        assertThat(service.getStats().trackedJobs()).isEqualTo(2);
+
+        release.countDown();
+    }
+
+    @Test
+    void failedCallbackKeepsJobRecord() throws Exception {
+        when(billScanService.scanBillStructured(any(), anyString())).thenReturn(bill());
+        // Không có gì lắng nghe ở port 1 → connection refused
+        service = service(1, 10, "http://127.0.0.1:1/callback");
+
+        String jobId = service.submit(IMAGE, "bill.png").getJobId();
+        ScanJobDTO job = awaitFinished(jobId);
+
+        assertThat(job.getStatus()).isEqualTo(ScanJobDTO.Status.COMPLETED);
+        assertThat(job.getResult().getAmount()).isEqualByComparingTo("500000");
+
+        // Worker vẫn chạy job tiếp theo sau callback lỗi
+        ScanJobDTO next = awaitFinished(service.submit(IMAGE, "next.png").getJobId());
+        assertThat(next.getStatus()).isEqualTo(ScanJobDTO.Status.COMPLETED);
+        assertThat(service.getJob(jobId).getStatus()).isEqualTo(ScanJobDTO.Status.COMPLETED);
+    }
+
+    @Test
+    void callbackReceivesFinishedJob() throws Exception {
+        when(billScanService.scanBillStructured(any(), anyString())).thenReturn(bill());
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        callbackServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        callbackServer.createContext("/callback", exchange -> {
+            String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+            received.add(body);
+        });
+        callbackServer.start();
+        service = service(1, 10, "http://127.0.0.1:" + callbackServer.getAddress().getPort() + "/callback");
+
+        String jobId = service.submit(IMAGE, "bill.png").getJobId();
+
+        String body = received.poll(5, TimeUnit.SECONDS);
+        assertThat(body).contains("\"jobId\":\"" + jobId + "\"", "\"status\":\"COMPLETED\"", "\"amount\":500000");
+    }
+
+    @Test
+    void returnedJobIsASnapshot() throws Exception {
+        when(billScanService.scanBillStructured(any(), anyString())).thenReturn(bill());
+        service = service(1, 10, "");
+        String jobId = service.submit(IMAGE, "bill.png").getJobId();
+        ScanJobDTO job = awaitFinished(jobId);
+
+        job.setStatus(ScanJobDTO.Status.FAILED);
+        job.getResult().setAmount(BigDecimal.ONE);
+
+        ScanJobDTO again = service.getJob(jobId);
+        assertThat(again.getStatus()).isEqualTo(ScanJobDTO.Status.COMPLETED);
+        assertThat(again.getResult().getAmount()).isEqualByComparingTo("500000");
+    }
+
+    @Test
+    void unknownJobIsNull() {
+        service = service(1, 10, "");
+
+        assertThat(service.getJob("missing")).isNull();
+    }
+
+    private ScanJobService service(int workers, int queueCapacity, String callbackUrl) {
+        return new ScanJobService(billScanService, null, RestClient.builder(),
+            workers, queueCapacity, callbackUrl, 2_000, 3_600, false);
+    }
+
+    private ScanJobDTO awaitFinished(String jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            ScanJobDTO job = service.getJob(jobId);
+            if (job.getStatus() == ScanJobDTO.Status.COMPLETED || job.getStatus() == ScanJobDTO.Status.FAILED) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Job " + jobId + " did not finish");
+    }
+
+    private void awaitQueued(int queued) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (service.getStats().queued() != queued || service.getStats().active() != 1) {
+            if (System.nanoTime() > deadline) {
+                throw new AssertionError("Queue did not reach " + queued);
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private static BillTransactionDTO bill() {
+        return BillTransactionDTO.builder()
+            .amount(new BigDecimal("500000"))
+            .accountNumber("0071000123456")
+            .build();
+    }
+}
@@ -0,0 +1,122 @@
+package com.subservice.imagehandle.service;
+
+import com.subservice.imagehandle.dto.BillTransactionDTO;
+import com.subservice.imagehandle.dto.ScanTimingsDTO;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ScanResultCache: hết hạn theo TTL, LRU theo số entry, bản copy độc lập, cache key
+ */
+class ScanResultCacheTest {
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+
+    private ScanResultCache cache(int maxEntries, long ttlSeconds) {
+        return new ScanResultCache(true, maxEntries, ttlSeconds, now::get);
+    }
+
+    @Test
+    void entryExpiresAfterTtl() {
+        ScanResultCache cache = cache(10, 60);
+        cache.put("a", bill("100000"));
+
+        now.addAndGet(59_999);
+        assertThat(cache.get("a")).isNotNull();
+
+        now.addAndGet(1);
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.getStats().expirationCount()).isEqualTo(1);
+        assertThat(cache.getStats().size()).isZero();
+    }
+
+    @Test
+    void purgeRemovesExpiredEntriesOnly() {
+        ScanResultCache cache = cache(10, 60);
+        cache.put("old", bill("100000"));
+        now.addAndGet(30_000);
+        cache.put("new", bill("200000"));
+
+        now.addAndGet(30_000);
+
+        assertThat(cache.purgeExpired()).isEqualTo(1);
+        assertThat(cache.get("old")).isNull();
+        assertThat(cache.get("new")).isNotNull();
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        ScanResultCache cache = cache(2, 60);
+        cache.put("a", bill("100000"));
+        cache.put("b", bill("200000"));
+        cache.get("a");
+
+        cache.put("c", bill("300000"));
+
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("a")).isNotNull();
+        assertThat(cache.get("c")).isNotNull();
+        assertThat(cache.getStats().evictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void returnedCopiesDoNotShareMutableState() {
+        ScanResultCache cache = cache(10, 60);
+        BillTransactionDTO original = bill("100000");
+        Map<String, Double> confidence = new HashMap<>();
+        confidence.put("amount", 0.9);
+        original.setFieldConfidence(confidence);
+        cache.put("a", original);
+
+        // Caller sửa bản đã put và bản nhận về (vd. gắn timings) không làm hỏng cache
+        original.getFieldConfidence().put("amount", 0.1);
+        BillTransactionDTO first = cache.get("a");
+        first.getFieldConfidence().put("accountNumber", 0.5);
+        first.setTimings(ScanTimingsDTO.builder().totalMs(12.0).build());
+
+        BillTransactionDTO second = cache.get("a");
+        assertThat(second.getFieldConfidence()).containsExactly(Map.entry("amount", 0.9));
+        assertThat(second.getTimings()).isNull();
+        assertThat(second.getFieldConfidence()).isNotSameAs(first.getFieldConfidence());
+    }
+
+    @Test
+    void disabledCacheStoresNothing() {
+        ScanResultCache cache = new ScanResultCache(false, 10, 60, now::get);
+        cache.put("a", bill("100000"));
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.getStats().size()).isZero();
+    }
+
+    @Test
+    void keyCombinesDigestWithEveryConfigPart() {
+        String key = ScanResultCache.key("abc", "vie+eng", 6, "downscale,grayscale", "off", "off", "qr");
+
+        // Format cố định: key của ScanResultStore được tính từ chuỗi này
+        assertThat(key).isEqualTo("abc:vie+eng:6:downscale,grayscale:off:off:qr");
+        assertThat(ScanResultCache.key("abd", "vie+eng", 6, "downscale,grayscale", "off", "off", "qr"))
+            .isNotEqualTo(key);
+        assertThat(ScanResultCache.key("abc", "vie", 6, "downscale,grayscale", "off", "off", "qr"))
+            .isNotEqualTo(key);
+        assertThat(ScanResultCache.key("abc", "vie+eng", 4, "downscale,grayscale", "off", "off", "qr"))
+            .isNotEqualTo(key);
+        assertThat(ScanResultCache.key("abc", "vie+eng", 6, "downscale", "off", "off", "qr"))
+            .isNotEqualTo(key);
+        assertThat(ScanResultCache.key("abc", "vie+eng", 6, "downscale,grayscale", "off", "off", "qr+skip"))
+            .isNotEqualTo(key);
+    }
+
+    private static BillTransactionDTO bill(String amount) {
+        return BillTransactionDTO.builder()
+            .amount(new BigDecimal(amount))
+            .accountNumber("0123456789")
+            .build();
+    }
+}
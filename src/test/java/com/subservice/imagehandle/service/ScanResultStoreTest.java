@@ -0,0 +1,209 @@
+package com.subservice.imagehandle.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.subservice.imagehandle.dto.BillTransactionDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * ScanResultStore trên file thật: dựng lại index khi restart, cắt dòng ghi dở, compaction, LRU
+ */
+class ScanResultStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private final List<ScanResultStore> opened = new ArrayList<>();
+
+    @AfterEach
+    void closeStores() {
+        opened.forEach(ScanResultStore::close);
+    }
+
+    @Test
+    void reloadRebuildsIndexFromFile() throws IOException {
+        ScanResultStore store = open(100);
+        store.put("a", "text a", 0.9, bill("100000"));
+        store.put("b", "text b", 0.8, bill("200000"));
+        store.close();
+
+        ScanResultStore reopened = open(100);
+
+        ScanResultStore.StoredResult a = reopened.get("a");
+        assertThat(a.ocrText()).isEqualTo("text a");
+        assertThat(a.confidence()).isEqualTo(0.9);
+        assertThat(a.result().getAmount()).isEqualByComparingTo("100000");
+        assertThat(reopened.get("b").result().getAmount()).isEqualByComparingTo("200000");
+        assertThat(reopened.get("c")).isNull();
+        assertThat(reopened.getStats().entries()).isEqualTo(2);
+    }
+
+    @Test
+    void overwrittenKeyReloadsLatestValue() throws IOException {
+        ScanResultStore store = open(100);
+        store.put("a", "old", 0.5, bill("100000"));
+        store.put("a", "new", 0.9, bill("150000"));
+        store.close();
+
+        ScanResultStore reopened = open(100);
+
+        assertThat(reopened.get("a").ocrText()).isEqualTo("new");
+        assertThat(reopened.getStats().entries()).isEqualTo(1);
+    }
+
+    @Test
+    void tornLastLineIsTruncated() throws IOException {
+        ScanResultStore store = open(100);
+        store.put("a", "text a", 0.9, bill("100000"));
+        store.close();
+        long complete = Files.size(file());
+
+        // Crash giữa lúc ghi dòng tiếp theo
+        Files.write(file(), "{\"key\":\"b\",\"ocrText\":\"te".getBytes(StandardCharsets.UTF_8),
+            StandardOpenOption.APPEND);
+
+        ScanResultStore reopened = open(100);
+
+        assertThat(Files.size(file())).isEqualTo(complete);
+        assertThat(reopened.get("a").ocrText()).isEqualTo("text a");
+        assertThat(reopened.get("b")).isNull();
+
+        // Dòng ghi sau đó bắt đầu đúng chỗ vừa cắt
+        reopened.put("b", "text b", 0.7, bill("200000"));
+        reopened.close();
+        ScanResultStore again = open(100);
+        assertThat(again.get("a").ocrText()).isEqualTo("text a");
+        assertThat(again.get("b").ocrText()).isEqualTo("text b");
+    }
+
+    @Test
+    void unreadableLineIsSkipped() throws IOException {
+        ScanResultStore store = open(100);
+        store.put("a", "text a", 0.9, bill("100000"));
+        store.close();
+        Files.write(file(), "not json\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        ScanResultStore reopened = open(100);
+        reopened.put("b", "text b", 0.7, bill("200000"));
+
+        assertThat(reopened.get("a").ocrText()).isEqualTo("text a");
+        assertThat(reopened.get("b").ocrText()).isEqualTo("text b");
+    }
+
+    @Test
+    void compactionKeepsLiveEntriesAtNewOffsets() throws IOException {
+        ScanResultStore store = open(100);
+        store.put("a", "a1", 0.5, bill("100000"));
+        store.put("b", "b1", 0.6, bill("200000"));
+        store.put("a", "a2", 0.9, bill("150000"));
+        store.put("c", "c1", 0.7, bill("300000"));
+        long before = Files.size(file());
+
+        store.compact();
+
+        ScanResultStore.StoreStats stats = store.getStats();
+        assertThat(stats.compactionCount()).isEqualTo(1);
+        assertThat(stats.fileBytes()).isLessThan(before).isEqualTo(stats.liveBytes());
+        assertThat(Files.exists(dir.resolve("results.jsonl.compact"))).isFalse();
+        assertThat(store.get("a").ocrText()).isEqualTo("a2");
+        assertThat(store.get("b").ocrText()).isEqualTo("b1");
+        assertThat(store.get("c").ocrText()).isEqualTo("c1");
+
+        // Ghi tiếp sau compaction nối vào cuối file mới
+        store.put("d", "d1", 0.8, bill("400000"));
+        assertThat(store.get("d").ocrText()).isEqualTo("d1");
+        assertThat(store.get("a").ocrText()).isEqualTo("a2");
+        store.close();
+
+        ScanResultStore reopened = open(100);
+        assertThat(reopened.getStats().entries()).isEqualTo(4);
+        assertThat(reopened.get("a").ocrText()).isEqualTo("a2");
+        assertThat(reopened.get("b").ocrText()).isEqualTo("b1");
+        assertThat(reopened.get("c").ocrText()).isEqualTo("c1");
+        assertThat(reopened.get("d").ocrText()).isEqualTo("d1");
+    }
+
+    @Test
+    void failedCompactionKeepsStoreUsable() throws IOException {
+        ScanResultStore store = open(100);
+        store.put("a", "a1", 0.5, bill("100000"));
+        store.put("a", "a2", 0.9, bill("150000"));
+
+        // Không tạo được file .compact (đường dẫn là thư mục)
+        Files.createDirectories(dir.resolve("results.jsonl.compact").resolve("blocked"));
+        assertThatThrownBy(store::compact).isInstanceOf(IOException.class);
+
+        assertThat(store.get("a").ocrText()).isEqualTo("a2");
+        store.put("b", "b1", 0.7, bill("200000"));
+        assertThat(store.get("b").ocrText()).isEqualTo("b1");
+        assertThat(store.getStats().compactionCount()).isZero();
+    }
+
+    @Test
+    void leastRecentlyUsedIsEvictedAndStaysEvictedAfterRestart() throws IOException {
+        ScanResultStore store = open(2);
+        store.put("a", "text a", 0.9, bill("100000"));
+        store.put("b", "text b", 0.9, bill("200000"));
+        assertThat(store.get("a")).isNotNull();
+
+        store.put("c", "text c", 0.9, bill("300000"));
+
+        assertThat(store.get("b")).isNull();
+        assertThat(store.get("a")).isNotNull();
+        assertThat(store.get("c")).isNotNull();
+        store.close();
+
+        ScanResultStore reopened = open(2);
+        assertThat(reopened.getStats().entries()).isEqualTo(2);
+        assertThat(reopened.get("b")).isNull();
+        assertThat(reopened.get("a").ocrText()).isEqualTo("text a");
+        assertThat(reopened.get("c").ocrText()).isEqualTo("text c");
+    }
+
+    @Test
+    void evictedEntryCanBeStoredAgain() throws IOException {
+        ScanResultStore store = open(1);
+        store.put("a", "text a", 0.9, bill("100000"));
+        store.put("b", "text b", 0.9, bill("200000"));
+        store.put("a", "text a again", 0.9, bill("100000"));
+        store.close();
+
+        ScanResultStore reopened = open(1);
+
+        assertThat(reopened.get("a").ocrText()).isEqualTo("text a again");
+        assertThat(reopened.get("b")).isNull();
+    }
+
+    private ScanResultStore open(int maxEntries) throws IOException {
+        ScanResultStore store = new ScanResultStore(
+            new ObjectMapper(), true, dir.toString(), maxEntries, DataSize.ofMegabytes(16));
+        opened.add(store);
+        return store;
+    }
+
+    private Path file() {
+        return dir.resolve("results.jsonl");
+    }
+
+    private static BillTransactionDTO bill(String amount) {
+        return BillTransactionDTO.builder()
+            .amount(new BigDecimal(amount))
+            .accountNumber("0123456789")
+            .transactionCode("FT24091234567")
+            .build();
+    }
+}
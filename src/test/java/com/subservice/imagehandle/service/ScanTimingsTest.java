@@ -0,0 +1,138 @@
+package com.subservice.imagehandle.service;
+
+import com.subservice.imagehandle.dto.BillTransactionDTO;
+import com.subservice.imagehandle.dto.ScanTimingsDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ScanTimings: cú pháp header Server-Timing, block timings, start() lồng nhau, source coalesced
+ */
+class ScanTimingsTest {
+
+    // metric = token *( ";" param ), param dur=<số> hoặc desc="<chuỗi>"
+    private static final Pattern METRIC = Pattern.compile("[a-z_]+;(dur=\\d+\\.\\d|desc=\"[^\"]*\")");
+
+    private final ScanMetrics scanMetrics = new ScanMetrics(new SimpleMeterRegistry());
+
+    @Test
+    void serverTimingHeaderSyntax() {
+        String header;
+        try (ScanTimings timings = ScanTimings.start()) {
+            scanMetrics.recordStage("decode", 41_230_000);
+            scanMetrics.recordStage("parse", 1_000_000);
+            // Stage lặp lại được cộng dồn
+            scanMetrics.recordStage("parse", 300_000);
+            scanMetrics.recordPreprocessStage("grayscale", 2.26);
+            ScanTimings.image(1080, 2400);
+            ScanTimings.ocrText("Chuyển tiền thành công");
+            ScanTimings.source("ocr");
+            header = timings.toServerTiming();
+        }
+
+        assertThat(header.split(", ")).allMatch(metric -> METRIC.matcher(metric).matches());
+        assertThat(header)
+            .startsWith("decode;dur=41.2, parse;dur=1.3, preprocess_grayscale;dur=2.3, total;dur=")
+            .endsWith("image;desc=\"1080x2400\", ocr_text;desc=\"22\", source;desc=\"ocr\"");
+    }
+
+    @Test
+    void timingsBlockMatchesHeader() {
+        ScanTimingsDTO dto;
+        try (ScanTimings timings = ScanTimings.start()) {
+            scanMetrics.recordStage("ocr", 812_460_000);
+            ScanTimings.source("cache");
+            dto = timings.toDto();
+        }
+
+        assertThat(dto.getStagesMs()).containsExactly(java.util.Map.entry("ocr", 812.5));
+        // Không có stage tiền xử lý → bỏ khỏi JSON
+        assertThat(dto.getPreprocessMs()).isNull();
+        assertThat(dto.getImageWidth()).isNull();
+        assertThat(dto.getSource()).isEqualTo("cache");
+        assertThat(dto.getTotalMs()).isGreaterThanOrEqualTo(0.0);
+    }
+
+    @Test
+    void nestedStartRestoresPrevious() {
+        try (ScanTimings outer = ScanTimings.start()) {
+            scanMetrics.recordStage("validate", 1_000_000);
+            try (ScanTimings inner = ScanTimings.start()) {
+                scanMetrics.recordStage("ocr", 5_000_000);
+                assertThat(inner.toServerTiming()).startsWith("ocr;dur=5.0").doesNotContain("validate");
+            }
+            scanMetrics.recordStage("parse", 2_000_000);
+
+            assertThat(outer.toServerTiming()).startsWith("validate;dur=1.0, parse;dur=2.0, total").doesNotContain("ocr;");
+        }
+
+        // Sau close() không còn ScanTimings nào gắn với thread: ghi bị bỏ qua
+        scanMetrics.recordStage("decode", 1_000_000);
+        try (ScanTimings next = ScanTimings.start()) {
+            assertThat(next.toServerTiming()).startsWith("total;dur=");
+        }
+    }
+
+    @Test
+    void totalIsFrozenAtClose() throws InterruptedException {
+        ScanTimings timings = ScanTimings.start();
+        timings.close();
+        String closed = timings.toServerTiming();
+
+        Thread.sleep(20);
+
+        assertThat(timings.toServerTiming()).isEqualTo(closed);
+    }
+
+    @Test
+    void coalescedFollowerReportsSource() throws Exception {
+        ScanCoalescer coalescer = new ScanCoalescer(scanMetrics, true);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BillTransactionDTO bill = BillTransactionDTO.builder().accountNumber("0123456789").build();
+
+        CompletableFuture<BillTransactionDTO> leader = CompletableFuture.supplyAsync(() -> {
+            try {
+                return coalescer.execute("key", () -> {
+                    started.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException(e);
+                    }
+                    return bill;
+                });
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> {
+            try (ScanTimings timings = ScanTimings.start()) {
+                coalescer.execute("key", () -> bill);
+                return timings.toServerTiming();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        while (coalescer.getStats().coalescedCount() < 1) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isSameAs(bill);
+        assertThat(follower.get(5, TimeUnit.SECONDS))
+            .contains("coalesce_wait;dur=")
+            .endsWith("source;desc=\"coalesced\"");
+    }
+}
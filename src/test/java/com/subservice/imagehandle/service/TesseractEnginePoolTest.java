@@ -0,0 +1,150 @@
+package com.subservice.imagehandle.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * TesseractEnginePool với engine giả (không load native library): timeout, invalidate, tái sử dụng engine rảnh
+ */
+class TesseractEnginePoolTest {
+
+    private final List<StubEngine> engines = new ArrayList<>();
+    // Id engine mà factory sẽ lỗi khi tạo (như thiếu traineddata)
+    private final Set<Integer> failingIds = new HashSet<>();
+
+    private TesseractEnginePool pool(int size, long acquireTimeoutMs) {
+        return new TesseractEnginePool("eng", 6, size, acquireTimeoutMs, id -> {
+            if (failingIds.contains(id)) {
+                throw new IllegalStateException("Tesseract could not load any language data");
+            }
+            StubEngine engine = new StubEngine(id);
+            engines.add(engine);
+            return engine;
+        });
+    }
+
+    @Test
+    void borrowTimesOutWhenAllEnginesAreInUse() {
+        TesseractEnginePool pool = pool(1, 50);
+        pool.borrow();
+
+        assertThatThrownBy(pool::borrow)
+            .isInstanceOf(TesseractEnginePool.EngineUnavailableException.class)
+            .hasMessageContaining("50ms");
+        assertThat(pool.getStats().timeoutCount()).isEqualTo(1);
+        assertThat(pool.getStats().inUse()).isEqualTo(1);
+    }
+
+    @Test
+    void releasedEngineIsReused() {
+        TesseractEnginePool pool = pool(2, 50);
+
+        TesseractEngine first = pool.borrow();
+        pool.release(first);
+        TesseractEngine second = pool.borrow();
+
+        assertThat(second).isSameAs(first);
+        assertThat(engines).hasSize(1);
+        assertThat(pool.getStats().borrowCount()).isEqualTo(2);
+    }
+
+    @Test
+    void invalidateClosesEngineAndReturnsPermit() {
+        TesseractEnginePool pool = pool(2, 50);
+
+        for (int round = 0; round < 3; round++) {
+            TesseractEngine a = pool.borrow();
+            TesseractEngine b = pool.borrow();
+            pool.invalidate(a);
+            pool.invalidate(b);
+        }
+
+        TesseractEnginePool.PoolStats stats = pool.getStats();
+        assertThat(stats.inUse()).isZero();
+        assertThat(stats.created()).isZero();
+        assertThat(stats.invalidatedCount()).isEqualTo(6);
+        assertThat(engines).hasSize(6).allMatch(engine -> engine.closed);
+
+        // Vẫn mượn được đủ size engine
+        pool.borrow();
+        pool.borrow();
+        assertThat(pool.getStats().inUse()).isEqualTo(2);
+    }
+
+    @Test
+    void failedEngineCreationReturnsPermit() {
+        TesseractEnginePool pool = pool(1, 50);
+        failingIds.add(1);
+
+        assertThatThrownBy(pool::borrow).isInstanceOf(IllegalStateException.class);
+
+        assertThat(pool.getStats().inUse()).isZero();
+        assertThat(pool.borrow()).isNotNull();
+    }
+
+    @Test
+    void prestartCreatesEnginesUpToSize() {
+        TesseractEnginePool pool = pool(3, 50);
+
+        assertThat(pool.prestart()).isEqualTo(3);
+        pool.borrow();
+        pool.borrow();
+        pool.borrow();
+
+        assertThat(engines).hasSize(3);
+        assertThat(pool.getStats().created()).isEqualTo(3);
+    }
+
+    @Test
+    void prestartKeepsEnginesStartedBeforeAFailure() {
+        TesseractEnginePool pool = pool(3, 50);
+        failingIds.add(2);
+
+        // Engine thứ 2 lỗi → giữ engine đầu tiên, engine còn thiếu được tạo khi borrow
+        assertThat(pool.prestart()).isEqualTo(1);
+        assertThat(pool.getStats().idle()).isEqualTo(1);
+
+        pool.borrow();
+        pool.borrow();
+        pool.borrow();
+        assertThat(pool.getStats().inUse()).isEqualTo(3);
+    }
+
+    @Test
+    void closedPoolRejectsBorrowAndClosesReturnedEngines() {
+        TesseractEnginePool pool = pool(2, 50);
+        StubEngine idle = (StubEngine) pool.borrow();
+        StubEngine busy = (StubEngine) pool.borrow();
+        pool.release(idle);
+
+        pool.close();
+        pool.release(busy);
+
+        assertThat(idle.closed).isTrue();
+        assertThat(busy.closed).isTrue();
+        assertThatThrownBy(pool::borrow).isInstanceOf(TesseractEnginePool.EngineUnavailableException.class);
+    }
+
+    /**
+     * Engine không init native handle
+     */
+    private static final class StubEngine extends TesseractEngine {
+        boolean closed;
+
+        StubEngine(int id) {
+            super(id, "unused", "eng", 6);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.subservice.imagehandle.service;
+
+import com.subservice.imagehandle.worker.OcrWorkerPool;
+import net.sourceforge.tess4j.TesseractException;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * TesseractOcrService với engine giả trong JVM: engine lỗi → OcrEngineException (500) và engine bị bỏ,
+ * trang không có chữ → kết quả rỗng (422)
+ */
+class TesseractOcrServiceTest {
+
+    private static final BufferedImage IMAGE = new BufferedImage(40, 20, BufferedImage.TYPE_BYTE_GRAY);
+    private static final List<OcrRegion> REGIONS = List.of(new OcrRegion(new Rectangle(0, 0, 40, 10), 7, null));
+
+    private final OcrWorkerPool disabledWorkers = new OcrWorkerPool(false, List.of(), ".", 1, 1_000, 1_000, 1_000, 0);
+
+    @Test
+    void engineFailureIsThrownAndEngineInvalidated() {
+        TesseractEnginePool pool = pool(new TesseractException("Unable to recognize the image"));
+        TesseractOcrService service = new TesseractOcrService(pool, disabledWorkers);
+
+        assertThatThrownBy(() -> service.extractTextWithConfidence(IMAGE))
+            .isInstanceOf(TesseractOcrService.OcrEngineException.class)
+            .hasCauseInstanceOf(TesseractException.class);
+
+        TesseractEnginePool.PoolStats stats = pool.getStats();
+        assertThat(stats.invalidatedCount()).isEqualTo(1);
+        assertThat(stats.inUse()).isZero();
+        assertThat(stats.created()).isZero();
+    }
+
+    @Test
+    void runtimeFailureInRegionOcrIsThrown() {
+        TesseractEnginePool pool = pool(new IllegalStateException("Invalid memory access"));
+        TesseractOcrService service = new TesseractOcrService(pool, disabledWorkers);
+
+        assertThatThrownBy(() -> service.extractRegions(IMAGE, REGIONS))
+            .isInstanceOf(TesseractOcrService.OcrEngineException.class)
+            .hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(pool.getStats().invalidatedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void blankPageIsEmptyResultAndEngineIsKept() {
+        TesseractEnginePool pool = pool(null);
+        TesseractOcrService service = new TesseractOcrService(pool, disabledWorkers);
+
+        TesseractOcrService.OcrResult result = service.extractTextWithConfidence(IMAGE);
+
+        assertThat(result.getText()).isEmpty();
+        assertThat(result.getConfidence()).isZero();
+        TesseractEnginePool.PoolStats stats = pool.getStats();
+        assertThat(stats.invalidatedCount()).isZero();
+        assertThat(stats.idle()).isEqualTo(1);
+    }
+
+    /**
+     * Pool một engine giả: failure != null → mọi lần OCR ném failure, ngược lại trả trang trống
+     */
+    private static TesseractEnginePool pool(Exception failure) {
+        return new TesseractEnginePool("eng", 6, 1, 50, id -> new StubEngine(id, failure));
+    }
+
+    private static final class StubEngine extends TesseractEngine {
+        private final Exception failure;
+
+        StubEngine(int id, Exception failure) {
+            super(id, "unused", "eng", 6);
+            this.failure = failure;
+        }
+
+        @Override
+        public PageResult recognize(RenderedImage image) throws TesseractException {
+            fail();
+            return new PageResult("", List.of());
+        }
+
+        @Override
+        public List<PageResult> recognizeRegions(RenderedImage image, List<OcrRegion> regions)
+                throws TesseractException {
+            fail();
+            return regions.stream().map(region -> new PageResult("", List.of())).toList();
+        }
+
+        private void fail() throws TesseractException {
+            if (failure instanceof TesseractException e) {
+                throw e;
+            }
+            if (failure instanceof RuntimeException e) {
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
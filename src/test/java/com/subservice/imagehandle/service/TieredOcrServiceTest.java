@@ -0,0 +1,76 @@
+package com.subservice.imagehandle.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.subservice.imagehandle.worker.OcrWorkerPool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * TieredOcrService với engine fast pass giả: đủ amount + account → dùng fast pass,
+ * pool fast pass hết engine → rơi xuống full pass thay vì 503
+ */
+class TieredOcrServiceTest {
+
+    private static final String BILL = String.join("\n",
+        "GIAO DỊCH THÀNH CÔNG",
+        "500.000 VND",
+        "SỐ TÀI KHOẢN: 0123456789");
+
+    private static final BufferedImage IMAGE = new BufferedImage(1280, 1800, BufferedImage.TYPE_BYTE_GRAY);
+
+    private final TesseractEnginePool fastPool = new TesseractEnginePool("vie", 6, 1, 50, StubEngine::new);
+
+    @Test
+    void confidentFastPassIsUsed() {
+        Optional<TieredOcrService.FastPass> fastPass = service().fastPass(IMAGE);
+
+        assertThat(fastPass).isPresent();
+        assertThat(fastPass.get().bill().getAccountNumber()).isEqualTo("0123456789");
+    }
+
+    @Test
+    void busyFastPoolFallsThroughToFullPass() {
+        TesseractEngine busy = fastPool.borrow();
+        try {
+            assertThat(service().fastPass(IMAGE)).isEmpty();
+        } finally {
+            fastPool.release(busy);
+        }
+    }
+
+    private TieredOcrService service() {
+        OcrWorkerPool workers = new OcrWorkerPool(false, List.of(), ".", 1, 1_000, 1_000, 1_000, 0);
+        TesseractEnginePool fullPool = new TesseractEnginePool("vie+eng", 6, 1, 50, StubEngine::new);
+        KeywordDictionary keywords = new KeywordDictionary(
+            new ObjectMapper(), new ClassPathResource("parser/keywords.json"));
+        return new TieredOcrService(new TesseractOcrService(fullPool, workers), fastPool,
+            new BillParser(new SimpleMeterRegistry(), keywords),
+            new ScanMetrics(new SimpleMeterRegistry()), true, 960, 0.6);
+    }
+
+    /**
+     * Engine không load native library, luôn trả text của BILL (không có word-level result)
+     */
+    private static final class StubEngine extends TesseractEngine {
+        StubEngine(int id) {
+            super(id, "unused", "vie", 6);
+        }
+
+        @Override
+        public PageResult recognize(RenderedImage image) {
+            return new PageResult(BILL, List.of());
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
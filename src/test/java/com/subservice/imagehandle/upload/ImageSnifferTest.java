@@ -0,0 +1,87 @@
+package com.subservice.imagehandle.upload;
+
+import org.junit.jupiter.api.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * ImageSniffer: định dạng + kích thước từ header, ImageLimits từ chối ảnh quá lớn
+ */
+class ImageSnifferTest {
+
+    private static byte[] encode(BufferedImage image, String format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, format, out);
+        return out.toByteArray();
+    }
+
+    private static byte[] pngHeader(long width, long height) {
+        byte[] header = {
+            (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n',
+            0, 0, 0, 13, 'I', 'H', 'D', 'R',
+            0, 0, 0, 0, 0, 0, 0, 0
+        };
+        for (int i = 0; i < 4; i++) {
+            header[16 + i] = (byte) (width >>> (24 - 8 * i));
+            header[20 + i] = (byte) (height >>> (24 - 8 * i));
+        }
+        return header;
+    }
+
+    @Test
+    void readsPngAndJpegDimensions() throws IOException {
+        BufferedImage image = new BufferedImage(120, 80, BufferedImage.TYPE_INT_RGB);
+
+        byte[] png = encode(image, "png");
+        assertThat(ImageSniffer.sniff(png, png.length)).isEqualTo(new ImageSniffer.ImageInfo("png", 120, 80));
+        byte[] jpeg = encode(image, "jpeg");
+        assertThat(ImageSniffer.sniff(jpeg, jpeg.length)).isEqualTo(new ImageSniffer.ImageInfo("jpeg", 120, 80));
+    }
+
+    @Test
+    void rejectsUnknownFormat() {
+        byte[] gif = "GIF89a\u0001\u0000\u0001\u0000".getBytes();
+
+        assertThat(ImageSniffer.sniff(gif, gif.length)).isNull();
+    }
+
+    @Test
+    void pngDimensionsAreUnsigned() {
+        byte[] header = pngHeader(0x8000_0000L, 16);
+
+        ImageSniffer.ImageInfo info = ImageSniffer.sniff(header, header.length);
+
+        assertThat(info.width()).isEqualTo(Integer.MAX_VALUE);
+        assertThat(info.hasDimensions()).isTrue();
+        assertThatThrownBy(() -> new ImageLimits(40_000_000, 10_000).check("bomb.png", info.width(), info.height()))
+            .isInstanceOf(StreamingUploadReader.RejectedUploadException.class);
+    }
+
+    @Test
+    void jpegFrameBeyondSniffedBytesHasNoDimensions() throws IOException {
+        byte[] jpeg = encode(new BufferedImage(120, 80, BufferedImage.TYPE_INT_RGB), "jpeg");
+
+        // Chỉ có SOI + đầu segment APP0, chưa tới SOF
+        ImageSniffer.ImageInfo info = ImageSniffer.sniff(jpeg, 8);
+
+        assertThat(info.format()).isEqualTo("jpeg");
+        assertThat(info.hasDimensions()).isFalse();
+    }
+
+    @Test
+    void limitsCheckDimensionAndPixelCount() {
+        ImageLimits limits = new ImageLimits(1_000_000, 2_000);
+
+        limits.check("ok.png", 2_000, 500);
+        assertThatThrownBy(() -> limits.check("wide.png", 2_001, 10))
+            .isInstanceOf(StreamingUploadReader.RejectedUploadException.class);
+        assertThatThrownBy(() -> limits.check("big.png", 1_500, 1_500))
+            .isInstanceOf(StreamingUploadReader.RejectedUploadException.class);
+    }
+}
@@ -0,0 +1,190 @@
+package com.subservice.imagehandle.upload;
+
+import com.subservice.imagehandle.service.ScanMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.unit.DataSize;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * StreamingUploadReader trên multipart body dựng tay: từ chối sớm theo Content-Length, thiếu part,
+ * vượt giới hạn giữa stream (không đọc hết body)
+ */
+class StreamingUploadReaderTest {
+
+    private static final String BOUNDARY = "----bill-boundary";
+    private static final int MAX_FILE_SIZE = 1024 * 1024;
+
+    private final StreamingUploadReader reader = new StreamingUploadReader(
+        new ScanMetrics(new SimpleMeterRegistry()), new ImageLimits(40_000_000, 10_000),
+        DataSize.ofBytes(MAX_FILE_SIZE), DataSize.ofKilobytes(64));
+
+    @Test
+    void readsFilePart() throws IOException {
+        byte[] png = png(120, 80);
+        UploadRequest request = new UploadRequest(multipart("file", "bill.png", png), -2);
+
+        UploadedImage image = reader.read(request, "file");
+
+        assertThat(image.filename()).isEqualTo("bill.png");
+        assertThat(image.content()).isEqualTo(png);
+        assertThat(image.info()).isEqualTo(new ImageSniffer.ImageInfo("png", 120, 80));
+    }
+
+    @Test
+    void declaredLengthOverLimitIsRejectedBeforeReadingBody() {
+        UploadRequest request = new UploadRequest(multipart("file", "bill.png", new byte[16]), 50L * 1024 * 1024);
+
+        assertRejected(request, HttpStatus.PAYLOAD_TOO_LARGE);
+        assertThat(request.bytesRead()).isZero();
+    }
+
+    @Test
+    void missingPartIsBadRequest() throws IOException {
+        UploadRequest request = new UploadRequest(multipart("image", "bill.png", png(10, 10)), -2);
+
+        assertThatThrownBy(() -> reader.read(request, "file"))
+            .isInstanceOf(StreamingUploadReader.RejectedUploadException.class)
+            .hasMessageContaining("'file' is missing")
+            .extracting(e -> ((StreamingUploadReader.RejectedUploadException) e).getStatus())
+            .isEqualTo(HttpStatus.BAD_REQUEST);
+    }
+
+    @Test
+    void oversizeFileIsRejectedMidStream() throws IOException {
+        // PNG hợp lệ ở đầu, tổng 4MB; không có Content-Length (chunked) nên chỉ phát hiện khi đang đọc
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.write(png(120, 80));
+        file.write(new byte[4 * MAX_FILE_SIZE]);
+        UploadRequest request = new UploadRequest(multipart("file", "bill.png", file.toByteArray()), -1);
+
+        assertRejected(request, HttpStatus.PAYLOAD_TOO_LARGE);
+        assertThat(request.bytesRead()).isLessThan(2L * MAX_FILE_SIZE);
+    }
+
+    @Test
+    void nonImageIsRejectedFromHeader() {
+        byte[] gif = "GIF89a not a bill".getBytes(StandardCharsets.US_ASCII);
+        UploadRequest request = new UploadRequest(multipart("file", "bill.gif", gif), -2);
+
+        assertRejected(request, HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+    }
+
+    @Test
+    void oversizedDimensionsAreRejectedFromHeader() throws IOException {
+        StreamingUploadReader strict = new StreamingUploadReader(
+            new ScanMetrics(new SimpleMeterRegistry()), new ImageLimits(40_000_000, 100),
+            DataSize.ofBytes(MAX_FILE_SIZE), DataSize.ofKilobytes(64));
+        UploadRequest request = new UploadRequest(multipart("file", "bill.png", png(120, 80)), -2);
+
+        assertThatThrownBy(() -> strict.read(request, "file"))
+            .isInstanceOf(StreamingUploadReader.RejectedUploadException.class)
+            .hasMessageContaining("120x80");
+    }
+
+    private void assertRejected(UploadRequest request, HttpStatus status) {
+        assertThatThrownBy(() -> reader.read(request, "file"))
+            .isInstanceOf(StreamingUploadReader.RejectedUploadException.class)
+            .extracting(e -> ((StreamingUploadReader.RejectedUploadException) e).getStatus())
+            .isEqualTo(status);
+    }
+
+    /**
+     * Body multipart: một form field rồi một file part
+     */
+    private static byte[] multipart(String fieldName, String filename, byte[] content) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.writeBytes(("--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"note\"\r\n\r\n"
+            + "chuyen tien\r\n"
+            + "--" + BOUNDARY + "\r\n"
+            + "Content-Disposition: form-data; name=\"" + fieldName + "\"; filename=\"" + filename + "\"\r\n"
+            + "Content-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(content);
+        body.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+
+    private static byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Request với Content-Length tuỳ ý và đếm số byte body đã bị đọc
+     */
+    private static final class UploadRequest extends MockHttpServletRequest {
+        private final ByteArrayInputStream body;
+        private final int bodyLength;
+        private final long declaredLength;
+
+        /**
+         * @param declaredLength Content-Length khai báo, -1 = không có (chunked), -2 = đúng độ dài body
+         */
+        UploadRequest(byte[] content, long declaredLength) {
+            super("POST", "/api/transactions/scan-bill");
+            setContentType("multipart/form-data; boundary=" + BOUNDARY);
+            this.body = new ByteArrayInputStream(content);
+            this.bodyLength = content.length;
+            this.declaredLength = declaredLength == -2 ? content.length : declaredLength;
+        }
+
+        long bytesRead() {
+            return bodyLength - body.available();
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return declaredLength;
+        }
+
+        @Override
+        public int getContentLength() {
+            return (int) Math.min(Integer.MAX_VALUE, declaredLength);
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return new ServletInputStream() {
+                @Override
+                public int read() {
+                    return body.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return body.read(buffer, offset, length);
+                }
+
+                @Override
+                public boolean isFinished() {
+                    return body.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                @Override
+                public void setReadListener(ReadListener listener) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+}
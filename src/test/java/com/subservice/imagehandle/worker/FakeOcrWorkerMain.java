@@ -0,0 +1,75 @@
+package com.subservice.imagehandle.worker;
+
+import com.subservice.imagehandle.service.OcrWord;
+import com.subservice.imagehandle.service.TesseractEngine.PageResult;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.List;
+
+/**
+ * Worker giả cho {@link OcrWorkerPoolTest}: cùng giao thức với {@link OcrWorkerMain} nhưng không cần Tesseract
+ *
+ * Hành vi chọn theo language của request:
+ * - "crash": process chết giữa job (như native crash)
+ * - "fail":  trả error frame, worker vẫn chạy tiếp
+ * - "hang":  không trả lời (job timeout)
+ * - "blank": trả page không có text
+ * - khác:    trả một page có text "pid <pid>"
+ */
+public final class FakeOcrWorkerMain {
+
+    private FakeOcrWorkerMain() {
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = Integer.parseInt(args[0]);
+        String token = args[1];
+
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            OcrWorkerProtocol.writeString(out, token);
+            out.flush();
+
+            while (true) {
+                int op = in.read();
+                if (op < 0 || op == OcrWorkerProtocol.OP_SHUTDOWN) {
+                    return;
+                }
+                String language = OcrWorkerProtocol.readString(in);
+                in.readInt();
+                BufferedImage image = OcrWorkerProtocol.readImage(in);
+                if (op == OcrWorkerProtocol.OP_REGIONS) {
+                    OcrWorkerProtocol.readRegions(in);
+                }
+
+                switch (language) {
+                    case "crash" -> Runtime.getRuntime().halt(134);
+                    case "hang" -> Thread.sleep(Long.MAX_VALUE);
+                    case "blank" -> {
+                        out.writeByte(OcrWorkerProtocol.STATUS_OK);
+                        OcrWorkerProtocol.writePages(out, List.of(new PageResult("", List.of())));
+                    }
+                    case "fail" -> {
+                        out.writeByte(OcrWorkerProtocol.STATUS_ERROR);
+                        OcrWorkerProtocol.writeString(out, "IllegalStateException: cannot read image");
+                    }
+                    default -> {
+                        out.writeByte(OcrWorkerProtocol.STATUS_OK);
+                        String text = "pid " + ProcessHandle.current().pid();
+                        OcrWorkerProtocol.writePages(out, List.of(new PageResult(text, List.of(
+                            new OcrWord(text, 0, 0, image.getWidth(), image.getHeight(), 0.9)))));
+                    }
+                }
+                out.flush();
+            }
+        }
+    }
+}
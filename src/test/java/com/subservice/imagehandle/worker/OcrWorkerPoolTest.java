@@ -0,0 +1,128 @@
+package com.subservice.imagehandle.worker;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * OcrWorkerPool với worker process giả ({@link FakeOcrWorkerMain}): worker chết / timeout bị bỏ và tạo lại,
+ * thay worker sau max-jobs, job lỗi luôn trả worker cho pool
+ */
+class OcrWorkerPoolTest {
+
+    private static final BufferedImage IMAGE = new BufferedImage(8, 4, BufferedImage.TYPE_BYTE_GRAY);
+
+    private OcrWorkerPool pool;
+
+    @AfterEach
+    void closePool() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void crashedWorkerIsDiscardedAndRestarted() {
+        pool = pool(1, 0, 10_000);
+        String before = pool.recognize("eng", 6, IMAGE).text();
+
+        assertThatThrownBy(() -> pool.recognize("crash", 6, IMAGE))
+            .isInstanceOf(OcrWorkerPool.WorkerException.class)
+            .extracting(e -> ((OcrWorkerPool.WorkerException) e).getFailure())
+            .isEqualTo(OcrWorkerPool.Failure.CRASHED);
+
+        OcrWorkerPool.WorkerPoolStats stats = pool.getStats();
+        assertThat(stats.crashCount()).isEqualTo(1);
+        assertThat(stats.alive()).isZero();
+        assertThat(stats.busy()).isZero();
+
+        // Job sau chạy trên worker mới
+        String after = pool.recognize("eng", 6, IMAGE).text();
+        assertThat(after).startsWith("pid ").isNotEqualTo(before);
+        assertThat(pool.getStats().startedCount()).isEqualTo(2);
+    }
+
+    @Test
+    void workerIsRecycledAfterMaxJobs() {
+        pool = pool(1, 2, 10_000);
+
+        String first = pool.recognize("eng", 6, IMAGE).text();
+        String second = pool.recognize("eng", 6, IMAGE).text();
+        String third = pool.recognize("eng", 6, IMAGE).text();
+
+        assertThat(second).isEqualTo(first);
+        assertThat(third).isNotEqualTo(first);
+        OcrWorkerPool.WorkerPoolStats stats = pool.getStats();
+        assertThat(stats.recycledCount()).isEqualTo(1);
+        assertThat(stats.startedCount()).isEqualTo(2);
+        assertThat(stats.alive()).isEqualTo(1);
+    }
+
+    @Test
+    void failedJobReleasesWorkerAndKeepsIt() {
+        pool = pool(1, 0, 10_000);
+        String before = pool.recognize("eng", 6, IMAGE).text();
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> pool.recognize("fail", 6, IMAGE))
+                .isInstanceOf(OcrWorkerPool.WorkerException.class)
+                .hasMessageContaining("cannot read image")
+                .extracting(e -> ((OcrWorkerPool.WorkerException) e).getFailure())
+                .isEqualTo(OcrWorkerPool.Failure.FAILED);
+        }
+
+        assertThat(pool.getStats().busy()).isZero();
+        assertThat(pool.getStats().failedCount()).isEqualTo(3);
+        // Pool size 1: nếu permit bị giữ, lần này hết thời gian chờ
+        assertThat(pool.recognize("eng", 6, IMAGE).text()).isEqualTo(before);
+        assertThat(pool.getStats().startedCount()).isEqualTo(1);
+    }
+
+    @Test
+    void unexpectedExceptionReleasesPermitAndDropsWorker() {
+        pool = pool(1, 0, 10_000);
+        // Ảnh 0x0: lỗi khi ghi request, trước khi worker nhận được gì
+        RenderedImage broken = mock(RenderedImage.class);
+
+        assertThatThrownBy(() -> pool.recognize("eng", 6, broken))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> pool.recognizeRegions("eng", 6, broken, List.of()))
+            .isInstanceOf(IllegalArgumentException.class);
+
+        OcrWorkerPool.WorkerPoolStats stats = pool.getStats();
+        assertThat(stats.busy()).isZero();
+        assertThat(stats.alive()).isZero();
+        assertThat(pool.recognize("eng", 6, IMAGE).text()).startsWith("pid ");
+    }
+
+    @Test
+    void timedOutJobKillsWorker() {
+        pool = pool(1, 0, 500);
+        String before = pool.recognize("eng", 6, IMAGE).text();
+
+        assertThatThrownBy(() -> pool.recognize("hang", 6, IMAGE))
+            .isInstanceOf(OcrWorkerPool.WorkerException.class)
+            .extracting(e -> ((OcrWorkerPool.WorkerException) e).getFailure())
+            .isEqualTo(OcrWorkerPool.Failure.TIMED_OUT);
+
+        assertThat(pool.getStats().timeoutCount()).isEqualTo(1);
+        assertThat(pool.getStats().busy()).isZero();
+        assertThat(pool.recognize("eng", 6, IMAGE).text()).isNotEqualTo(before);
+    }
+
+    private static OcrWorkerPool pool(int size, int maxJobs, long jobTimeoutMs) {
+        List<String> command = List.of(
+            Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+            "-cp", System.getProperty("java.class.path"),
+            FakeOcrWorkerMain.class.getName());
+        return new OcrWorkerPool(true, command, ".", size, 1_000, 30_000, jobTimeoutMs, maxJobs);
+    }
+}
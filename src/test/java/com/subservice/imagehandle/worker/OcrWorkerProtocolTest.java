@@ -0,0 +1,170 @@
+package com.subservice.imagehandle.worker;
+
+import com.subservice.imagehandle.service.OcrRegion;
+import com.subservice.imagehandle.service.OcrWord;
+import com.subservice.imagehandle.service.TesseractEngine.PageResult;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * OcrWorkerProtocol: ghi rồi đọc lại frame request / response / error qua stream trong bộ nhớ
+ */
+class OcrWorkerProtocolTest {
+
+    @Test
+    void recognizeRequestRoundTrip() throws IOException {
+        BufferedImage image = new BufferedImage(3, 2, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, 0xFF0000);
+        image.setRGB(1, 0, 0x00FF00);
+        image.setRGB(2, 1, 0x123456);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(OcrWorkerProtocol.OP_RECOGNIZE);
+        OcrWorkerProtocol.writeString(out, "vie+eng");
+        out.writeInt(6);
+        OcrWorkerProtocol.writeImage(out, image);
+        out.flush();
+
+        DataInputStream in = input(bytes);
+        assertThat(in.readUnsignedByte()).isEqualTo(OcrWorkerProtocol.OP_RECOGNIZE);
+        assertThat(OcrWorkerProtocol.readString(in)).isEqualTo("vie+eng");
+        assertThat(in.readInt()).isEqualTo(6);
+        BufferedImage read = OcrWorkerProtocol.readImage(in);
+        assertThat(read.getWidth()).isEqualTo(3);
+        assertThat(read.getHeight()).isEqualTo(2);
+        for (int y = 0; y < 2; y++) {
+            for (int x = 0; x < 3; x++) {
+                assertThat(read.getRGB(x, y) & 0xFFFFFF).isEqualTo(image.getRGB(x, y) & 0xFFFFFF);
+            }
+        }
+        // Không còn byte thừa: frame kế tiếp bắt đầu đúng chỗ
+        assertThat(in.read()).isEqualTo(-1);
+    }
+
+    @Test
+    void grayImageIsSentAsOneChannel() throws IOException {
+        BufferedImage image = new BufferedImage(4, 3, BufferedImage.TYPE_BYTE_GRAY);
+        image.getRaster().setSample(1, 2, 0, 200);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OcrWorkerProtocol.writeImage(new DataOutputStream(bytes), image);
+
+        // width + height + channels + 1 byte / pixel
+        assertThat(bytes.size()).isEqualTo(4 + 4 + 1 + 4 * 3);
+        BufferedImage read = OcrWorkerProtocol.readImage(input(bytes));
+        assertThat(read.getType()).isEqualTo(BufferedImage.TYPE_BYTE_GRAY);
+        assertThat(read.getRaster().getSample(1, 2, 0)).isEqualTo(200);
+        assertThat(read.getRaster().getSample(0, 0, 0)).isZero();
+    }
+
+    @Test
+    void regionsRoundTrip() throws IOException {
+        List<OcrRegion> regions = List.of(
+            new OcrRegion(new Rectangle(10, 20, 300, 40), 7, "0123456789.,"),
+            new OcrRegion(new Rectangle(0, 0, 50, 60), 6, null));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        OcrWorkerProtocol.writeRegions(out, regions);
+        out.flush();
+
+        assertThat(OcrWorkerProtocol.readRegions(input(bytes))).isEqualTo(regions);
+    }
+
+    @Test
+    void responseRoundTrip() throws IOException {
+        List<PageResult> pages = List.of(
+            new PageResult("Số tiền 500.000 VND", List.of(
+                new OcrWord("Số", 1, 2, 30, 12, 0.91),
+                new OcrWord("500.000", 40, 2, 80, 12, 0.87))),
+            new PageResult("", List.of()));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(OcrWorkerProtocol.STATUS_OK);
+        OcrWorkerProtocol.writePages(out, pages);
+        out.flush();
+
+        DataInputStream in = input(bytes);
+        assertThat(in.readUnsignedByte()).isEqualTo(OcrWorkerProtocol.STATUS_OK);
+        assertThat(OcrWorkerProtocol.readPages(in)).isEqualTo(pages);
+        assertThat(in.read()).isEqualTo(-1);
+    }
+
+    @Test
+    void nullPageTextIsSentAsEmpty() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OcrWorkerProtocol.writePages(new DataOutputStream(bytes), List.of(new PageResult(null, List.of())));
+
+        assertThat(OcrWorkerProtocol.readPages(input(bytes)).get(0).text()).isEmpty();
+    }
+
+    @Test
+    void errorFrameRoundTrip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(OcrWorkerProtocol.STATUS_ERROR);
+        OcrWorkerProtocol.writeString(out, "IllegalStateException: Tesseract could not load any language data");
+        // Response của request tiếp theo trên cùng kết nối
+        out.writeByte(OcrWorkerProtocol.STATUS_OK);
+        OcrWorkerProtocol.writePages(out, List.of(new PageResult("ok", List.of())));
+        out.flush();
+
+        DataInputStream in = input(bytes);
+        assertThat(in.readUnsignedByte()).isEqualTo(OcrWorkerProtocol.STATUS_ERROR);
+        assertThat(OcrWorkerProtocol.readString(in))
+            .isEqualTo("IllegalStateException: Tesseract could not load any language data");
+        assertThat(in.readUnsignedByte()).isEqualTo(OcrWorkerProtocol.STATUS_OK);
+        assertThat(OcrWorkerProtocol.readPages(in).get(0).text()).isEqualTo("ok");
+    }
+
+    @Test
+    void stringLongerThan64KbRoundTrips() throws IOException {
+        String text = "đ".repeat(40_000);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OcrWorkerProtocol.writeString(new DataOutputStream(bytes), text);
+
+        assertThat(OcrWorkerProtocol.readString(input(bytes))).isEqualTo(text);
+    }
+
+    @Test
+    void invalidFramesAreRejected() throws IOException {
+        ByteArrayOutputStream badString = new ByteArrayOutputStream();
+        new DataOutputStream(badString).writeInt(-1);
+        assertThatThrownBy(() -> OcrWorkerProtocol.readString(input(badString)))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("string length");
+
+        ByteArrayOutputStream badImage = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(badImage);
+        out.writeInt(10);
+        out.writeInt(10);
+        out.writeByte(4);
+        assertThatThrownBy(() -> OcrWorkerProtocol.readImage(input(badImage)))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("image header");
+
+        ByteArrayOutputStream badPages = new ByteArrayOutputStream();
+        new DataOutputStream(badPages).writeInt(5_000);
+        assertThatThrownBy(() -> OcrWorkerProtocol.readPages(input(badPages)))
+            .isInstanceOf(IOException.class)
+            .hasMessageContaining("page count");
+    }
+
+    private static DataInputStream input(ByteArrayOutputStream bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    }
+}